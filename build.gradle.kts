@@ -27,6 +27,8 @@ repositories {
 dependencies {
     implementation("com.google.code.gson:gson:2.10.1")
     implementation("org.mindrot:jbcrypt:0.4")
+    // embedded database of JdbcBackend, the code itself uses java.sql only
+    runtimeOnly("com.h2database:h2:2.2.224")
 }
 
 /** Testing, Gradle 9 compatible */
@@ -61,6 +63,8 @@ val unpackJacocoAgent by tasks.register<Copy>("unpackJacocoAgent") {
 tasks.test {
     dependsOn(unpackJacocoAgent)
     useJUnitPlatform()
+    // benchmarks (MenuLoopBenchmarkTest) run only with -Dfinance.bench=true
+    systemProperty("finance.bench", System.getProperty("finance.bench") ?: "false")
 
     doFirst {
         val agentPath = layout.buildDirectory.file("jacoco/jacocoagent.jar").get().asFile.absolutePath
@@ -96,6 +100,7 @@ checkstyle {
 /** SpotBugs — как было */
 spotbugs {
     ignoreFailures = false
+    excludeFilter = file("config/spotbugs/exclude.xml")
 }
 
 tasks.spotbugsMain {
@@ -0,0 +1,310 @@
+package org.example.api;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.RepoExceptions;
+
+// the ApiService over HTTP (the JDK's own server, no dependencies), JSON in and out:
+//   POST /register     {"login","name","surname","password"}      -> 201 {"id","login"}
+//   POST /login        {"login","password"}                       -> {"token"}
+//   POST /logout                                                  -> 204
+//   POST /transactions {"type":"income|expense","amount","title"} -> 201 the transaction
+//   GET  /transactions                                            -> list of transactions
+//   POST /budgets      {"category","limit"}                       -> 204
+//   POST /transfers    {"to","amount","note"}                     -> 204
+//   GET  /statistics                                              -> ApiService.Statistics
+//   GET  /metrics      response times of every route, in microseconds (see LatencyStats)
+// every call except register, login and metrics needs "Authorization: Bearer <token>".
+// errors are {"error": message} with 400 (bad input), 401, 403, 404, 405, 409 or 413.
+// every request gets its own virtual thread when the JVM has them (Java 21+), otherwise a
+// thread of a fixed pool; the requests themselves only wait for the lock of the service
+public final class ApiServer implements AutoCloseable {
+
+  private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+  private static final int MAX_BODY_BYTES = 64 * 1024;
+  private static final List<String> ROUTES =
+      List.of(
+          "/register",
+          "/login",
+          "/logout",
+          "/transactions",
+          "/budgets",
+          "/transfers",
+          "/statistics",
+          "/metrics");
+
+  // request bodies
+  private record Credentials(String login, String name, String surname, String password) {}
+
+  private record NewTransaction(String type, Double amount, String title) {}
+
+  private record NewBudget(String category, Double limit) {}
+
+  private record NewTransfer(String to, Double amount, String note) {}
+
+  // a response other than 200 with a JSON body
+  private static final class Failure extends RuntimeException {
+    final int status;
+
+    Failure(int status, String message) {
+      super(message);
+      this.status = status;
+    }
+  }
+
+  private final ApiService service;
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final boolean virtualThreads;
+  private final Map<String, LatencyStats> latency = new LinkedHashMap<>();
+
+  private ApiServer(ApiService service, HttpServer server, ExecutorService executor) {
+    this.service = service;
+    this.server = server;
+    this.executor = executor;
+    this.virtualThreads = !(executor instanceof ThreadPoolExecutor);
+    for (String route : ROUTES) {
+      LatencyStats stats = new LatencyStats();
+      latency.put(route, stats);
+      server.createContext(route, exchange -> handle(route, stats, exchange));
+    }
+    server.setExecutor(executor);
+  }
+
+  // port 0 takes any free port, see getPort()
+  public static ApiServer start(ApiService service, InetSocketAddress address) throws IOException {
+    Objects.requireNonNull(service, "service");
+    HttpServer server = HttpServer.create(address, 0);
+    ApiServer api = new ApiServer(service, server, newRequestExecutor());
+    server.start();
+    return api;
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  public boolean usesVirtualThreads() {
+    return virtualThreads;
+  }
+
+  // route -> numbers, in the order of ROUTES; the map itself is never changed after start
+  public Map<String, LatencyStats.Snapshot> latency() {
+    Map<String, LatencyStats.Snapshot> result = new LinkedHashMap<>();
+    for (Map.Entry<String, LatencyStats> e : latency.entrySet()) {
+      result.put(e.getKey(), e.getValue().snapshot());
+    }
+    return result;
+  }
+
+  // requests being handled get up to a second to finish
+  @Override
+  public void close() {
+    server.stop(1);
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(1, TimeUnit.SECONDS)) executor.shutdownNow();
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // Executors.newVirtualThreadPerTaskExecutor is looked up at run time, the code is compiled
+  // for Java 17
+  private static ExecutorService newRequestExecutor() {
+    try {
+      Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) virtual.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      int threads = Math.max(8, Runtime.getRuntime().availableProcessors() * 4);
+      AtomicInteger number = new AtomicInteger();
+      return Executors.newFixedThreadPool(
+          threads,
+          r -> {
+            Thread t = new Thread(r, "api-" + number.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+          });
+    }
+  }
+
+  private void handle(String route, LatencyStats stats, HttpExchange exchange) {
+    long start = System.nanoTime();
+    int status;
+    Object body;
+    try {
+      // a context also gets the paths below it (/login/x), they are not routes
+      if (!route.equals(exchange.getRequestURI().getPath())) {
+        throw new Failure(404, "Unknown path: " + exchange.getRequestURI().getPath());
+      }
+      body = route(route, exchange);
+      // register and a new transaction create something, the other calls do not
+      boolean created =
+          ("/register".equals(route) || "/transactions".equals(route))
+              && "POST".equals(exchange.getRequestMethod());
+      status = created ? 201 : 200;
+    } catch (Failure e) {
+      status = e.status;
+      body = error(e);
+    } catch (ApiService.Unauthorized e) {
+      status = 401;
+      body = error(e);
+    } catch (RepoExceptions.Forbidden e) {
+      status = 403;
+      body = error(e);
+    } catch (RepoExceptions.NotFound e) {
+      status = 404;
+      body = error(e);
+    } catch (RepoExceptions.Conflict e) {
+      status = 409;
+      body = error(e);
+    } catch (IllegalArgumentException | RepoExceptions.Invalid | JsonParseException e) {
+      status = 400;
+      body = error(e);
+    } catch (RuntimeException e) {
+      status = 500;
+      body = error(e);
+    }
+    try {
+      send(exchange, status, body);
+    } catch (IOException e) {
+      // the client went away, nothing to tell it
+    } finally {
+      exchange.close();
+      stats.record(System.nanoTime() - start, status >= 500);
+    }
+  }
+
+  private Object route(String route, HttpExchange exchange) {
+    String method = exchange.getRequestMethod();
+    switch (route) {
+      case "/register":
+        post(method);
+        return register(read(exchange, Credentials.class));
+      case "/login":
+        post(method);
+        Credentials c = read(exchange, Credentials.class);
+        return Map.of("token", service.login(c.login(), c.password()));
+      case "/logout":
+        post(method);
+        service.logout(token(exchange));
+        return null;
+      case "/transactions":
+        if ("GET".equals(method)) return service.transactions(token(exchange));
+        post(method);
+        return addTransaction(token(exchange), read(exchange, NewTransaction.class));
+      case "/budgets":
+        post(method);
+        NewBudget b = read(exchange, NewBudget.class);
+        service.setBudget(token(exchange), b.category(), required(b.limit(), "limit"));
+        return null;
+      case "/transfers":
+        post(method);
+        NewTransfer t = read(exchange, NewTransfer.class);
+        service.transfer(token(exchange), t.to(), required(t.amount(), "amount"), t.note());
+        return null;
+      case "/statistics":
+        get(method);
+        return service.statistics(token(exchange));
+      case "/metrics":
+        get(method);
+        return latency();
+      default:
+        throw new Failure(404, "Unknown path: " + route);
+    }
+  }
+
+  private Map<String, Object> register(Credentials c) {
+    User u = service.register(c.login(), c.name(), c.surname(), c.password());
+    return Map.of("id", u.id, "login", u.login);
+  }
+
+  private Transaction addTransaction(String token, NewTransaction t) {
+    return service.addTransaction(token, required(t.amount(), "amount"), t.title(), type(t.type()));
+  }
+
+  private static void post(String method) {
+    if (!"POST".equals(method)) throw new Failure(405, "Method not allowed: " + method);
+  }
+
+  private static void get(String method) {
+    if (!"GET".equals(method)) throw new Failure(405, "Method not allowed: " + method);
+  }
+
+  private static String token(HttpExchange exchange) {
+    String header = exchange.getRequestHeaders().getFirst("Authorization");
+    if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) return null;
+    return header.substring(7).trim();
+  }
+
+  private static <T> T read(HttpExchange exchange, Class<T> type) {
+    try (InputStream in = exchange.getRequestBody()) {
+      byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+      if (bytes.length > MAX_BODY_BYTES) throw new Failure(413, "Request body is too large");
+      Reader reader =
+          new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8);
+      T value = GSON.fromJson(reader, type);
+      if (value == null) throw new IllegalArgumentException("Request body is empty");
+      return value;
+    } catch (IOException e) {
+      throw new Failure(400, "Cannot read request body: " + e.getMessage());
+    }
+  }
+
+  private static double required(Double value, String name) {
+    if (value == null) throw new IllegalArgumentException("Missing " + name);
+    return value;
+  }
+
+  private static Transaction.Type type(String s) {
+    if (s != null) {
+      String type = s.trim().toUpperCase(Locale.ROOT);
+      if ("INCOME".equals(type)) return Transaction.Type.INCOME;
+      if ("EXPENSE".equals(type)) return Transaction.Type.EXPENSE;
+    }
+    throw new IllegalArgumentException("Type must be income or expense: " + s);
+  }
+
+  private static Map<String, String> error(RuntimeException e) {
+    String message = e.getMessage();
+    return Map.of("error", message == null ? e.getClass().getSimpleName() : message);
+  }
+
+  private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+    if (body == null) {
+      exchange.sendResponseHeaders(status == 200 ? 204 : status, -1);
+      return;
+    }
+    byte[] bytes = GSON.toJson(body).getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+}
@@ -0,0 +1,193 @@
+package org.example.api;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.RepoExceptions;
+import org.example.repo.UsersRepo;
+
+// headless access to one repository for many clients at once (see ApiServer).
+// the repository, its wallets and its listeners (journal, autosave) are not thread-safe, so
+// every call runs under one read-write lock: reports under the read lock, changes under the
+// write lock. BCrypt, the slow part of register and login, runs outside the lock.
+// a client logs in once and sends the token with every other call; sessions are kept in
+// memory only, a restart logs everybody out
+public final class ApiService {
+
+  // the session token is missing, unknown, or its user was deleted
+  public static final class Unauthorized extends RuntimeException {
+    public Unauthorized(String message) {
+      super(message);
+    }
+  }
+
+  // what the statistics call returns
+  public record Statistics(
+      String login,
+      double balance,
+      double income,
+      double expense,
+      Map<String, Double> incomesByCategory,
+      Map<String, Double> expensesByCategory,
+      Map<String, Budget> budgets,
+      List<String> alerts) {}
+
+  public record Budget(double limit, double spent, double remaining) {}
+
+  private static final int TOKEN_BYTES = 24;
+
+  private final UsersRepo usersRepo;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<String, String> sessions = new ConcurrentHashMap<>(); // token -> login
+  private final SecureRandom random = new SecureRandom();
+
+  public ApiService(UsersRepo usersRepo) {
+    this.usersRepo = Objects.requireNonNull(usersRepo, "usersRepo");
+  }
+
+  public User register(String login, String name, String surname, String password) {
+    String hash = User.hashPassword(password);
+    User u = write(() -> usersRepo.registerHashed(login, name, surname, hash));
+    if (u == null) throw new RepoExceptions.Conflict("User already exists: " + login);
+    return u;
+  }
+
+  // a new session token, the user stays logged in with the old ones too
+  public String login(String login, String password) {
+    User u = read(() -> usersRepo.find(login));
+    // BCrypt runs outside the lock: the password hash is volatile, so a password changed
+    // meanwhile is seen here, and a login racing with the change checks the old or the new one
+    if (u == null || password == null || !u.checkPassword(password)) {
+      throw new Unauthorized("Invalid login or password");
+    }
+    byte[] bytes = new byte[TOKEN_BYTES];
+    random.nextBytes(bytes);
+    String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    sessions.put(token, u.login);
+    return token;
+  }
+
+  public void logout(String token) {
+    if (token != null) sessions.remove(token);
+  }
+
+  public Transaction addTransaction(
+      String token, double amount, String title, Transaction.Type type) {
+    double checked = amount(amount);
+    String t = title(title);
+    Objects.requireNonNull(type, "type");
+    return write(
+        () -> {
+          User u = user(token);
+          u.wallet.addTransaction(checked, t, type);
+          List<Transaction> txs = u.wallet.transactions;
+          return txs.get(txs.size() - 1);
+        });
+  }
+
+  public List<Transaction> transactions(String token) {
+    return read(() -> user(token).wallet.getTransactions());
+  }
+
+  public void setBudget(String token, String category, double limit) {
+    double checked = amount(limit);
+    String c = title(category);
+    write(
+        () -> {
+          user(token).wallet.setBudget(c, checked);
+          return null;
+        });
+  }
+
+  public void transfer(String token, String toLogin, double amount, String note) {
+    double checked = amount(amount);
+    write(
+        () -> {
+          User from = user(token);
+          User to = usersRepo.find(toLogin);
+          if (to == null) throw new RepoExceptions.NotFound("Recipient not found: " + toLogin);
+          return usersRepo.transfer(from.login, to.login, checked, note);
+        });
+  }
+
+  public Statistics statistics(String token) {
+    return read(
+        () -> {
+          User u = user(token);
+          Map<String, Budget> budgets = new LinkedHashMap<>();
+          for (Map.Entry<String, Double> e : u.wallet.getBudgets().entrySet()) {
+            budgets.put(
+                e.getKey(),
+                new Budget(
+                    e.getValue(),
+                    u.wallet.getSpentByCategory(e.getKey()),
+                    u.wallet.getRemainingBudget(e.getKey())));
+          }
+          return new Statistics(
+              u.login,
+              u.wallet.getBalance(),
+              u.wallet.sumIncome(),
+              u.wallet.sumExpense(),
+              u.wallet.incomesByCategory(),
+              u.wallet.expensesByCategory(),
+              budgets,
+              u.wallet.getbudgetAlerts());
+        });
+  }
+
+  // running other code that changes the repository (journal sync, reload) under the same lock
+  public <T> T write(Supplier<T> change) {
+    lock.writeLock().lock();
+    try {
+      return change.get();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public <T> T read(Supplier<T> query) {
+    lock.readLock().lock();
+    try {
+      return query.get();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int sessionCount() {
+    return sessions.size();
+  }
+
+  // must be called under the lock
+  private User user(String token) {
+    String login = token == null ? null : sessions.get(token);
+    if (login == null) throw new Unauthorized("Not logged in");
+    User u = usersRepo.find(login);
+    if (u == null) {
+      sessions.remove(token);
+      throw new Unauthorized("User was deleted: " + login);
+    }
+    return u;
+  }
+
+  // the same rule as the console input
+  private static double amount(double v) {
+    if (v > 0 && !Double.isInfinite(v)) return v;
+    throw new IllegalArgumentException("Amount must be a positive number: " + v);
+  }
+
+  private static String title(String s) {
+    String title = s == null ? "" : s.trim();
+    if (title.isEmpty()) throw new IllegalArgumentException("Title cannot be empty");
+    return title;
+  }
+}
@@ -0,0 +1,57 @@
+package org.example.api;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// response times of one route, recorded by many threads without a lock.
+// times are counted in buckets of powers of two microseconds (0, 1, 2-3, 4-7, ...), so a
+// percentile is the upper bound of its bucket: at most twice the real value, enough to see
+// whether a call takes microseconds, milliseconds or seconds
+public final class LatencyStats {
+
+  private static final int BUCKETS = 40; // 2^39 microseconds is about six days
+
+  // a copy of the numbers at one moment, in microseconds
+  public record Snapshot(long count, long errors, long p50, long p90, long p99, long max) {}
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder errors = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  public void record(long nanos, boolean error) {
+    long micros = Math.max(0, nanos / 1_000);
+    int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    buckets.incrementAndGet(bucket);
+    max.accumulate(micros);
+    if (error) errors.increment();
+  }
+
+  public Snapshot snapshot() {
+    long[] counts = new long[BUCKETS];
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+      count += counts[i];
+    }
+    long top = max.get();
+    return new Snapshot(
+        count,
+        errors.sum(),
+        Math.min(top, percentile(counts, count, 50)),
+        Math.min(top, percentile(counts, count, 90)),
+        Math.min(top, percentile(counts, count, 99)),
+        top);
+  }
+
+  private static long percentile(long[] counts, long count, int percent) {
+    if (count == 0) return 0;
+    long rank = (count * percent + 99) / 100; // the rank-th smallest time, counted from 1
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) return (1L << i) - 1;
+    }
+    return (1L << (counts.length - 1)) - 1;
+  }
+}
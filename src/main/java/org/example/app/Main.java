@@ -1,25 +1,100 @@
 package org.example.app;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.Set;
+import org.example.api.ApiServer;
+import org.example.api.ApiService;
+import org.example.api.LatencyStats;
+import org.example.cli.BatchRunner;
 import org.example.cli.ConsoleInput;
 import org.example.cli.ConsoleMenus;
+import org.example.cli.FastLineReader;
+import org.example.cli.LineSource;
+import org.example.events.DomainEvent;
+import org.example.events.EventBus;
+import org.example.events.EventLog;
+import org.example.events.EventPublisher;
+import org.example.model.Transaction;
 import org.example.model.User;
 import org.example.repo.UsersRepo;
-import org.example.storage.StorageJson;
+import org.example.repo.Verification;
+import org.example.storage.AutoSaver;
+import org.example.storage.CsvExport;
+import org.example.storage.CsvImport;
+import org.example.storage.DirectoryWatcher;
+import org.example.storage.FileBackend;
+import org.example.storage.ImportResult;
+import org.example.storage.JdbcBackend;
+import org.example.storage.Journal;
+import org.example.storage.StorageBackend;
+import org.example.storage.StorageLazy;
+import org.example.storage.StorageMapped;
+import org.example.storage.TransactionArchive;
+import org.example.util.ConsoleRenderer;
 import org.example.util.ConsoleUtils;
 
 public class Main {
 
-  private static final Scanner scanner = new Scanner(System.in, StandardCharsets.UTF_8);
+  // console input; -Dfinance.input=scanner reads it with java.util.Scanner as before
+  private static final LineSource input = openInput();
   private static UsersRepo USERS = new UsersRepo();
   private static User currentUser = null;
   private static final Path DATA_FILE = Paths.get("data", "finance-data.json");
+  private static final Path JOURNAL_FILE = Paths.get("data", "finance-data.journal");
+  private static Journal journal = null; // every change is appended here, not lost on a crash
+  private static AutoSaver autoSaver = null; // flushes the journal in the background
+  // notices when another program replaces the data file, -Dfinance.watch=false turns it off
+  private static DirectoryWatcher watcher = null;
+  private static boolean reloadPending = false; // the last reload failed, trying again
+
+  // where the data is kept: "json" (data file + journal) or "jdbc" (embedded database),
+  // -Dfinance.storage=jdbc -Dfinance.jdbc.url=... -Dfinance.jdbc.user=...
+  // -Dfinance.jdbc.password=...
+  // or one of the file layouts: binary, compressed (a file), segments, sharded, lazy, mapped
+  // (a directory), at -Dfinance.storage.path=... (data/finance-data.<kind> by default)
+  private static final String STORAGE =
+      System.getProperty("finance.storage", "json").toLowerCase(Locale.ROOT);
+  private static final String JDBC_URL =
+      System.getProperty("finance.jdbc.url", JdbcBackend.DEFAULT_URL);
+  private static StorageBackend backend = null; // set for every storage but json
+  private static String dataLocation = "file: " + DATA_FILE.toAbsolutePath();
+
+  // autosave settings, can be changed with -Dfinance.autosave.*=millis
+  private static final Duration AUTOSAVE_QUIET =
+      Duration.ofMillis(Long.getLong("finance.autosave.quietMillis", 500));
+  private static final Duration AUTOSAVE_MAX_DELAY =
+      Duration.ofMillis(Long.getLong("finance.autosave.maxDelayMillis", 5000));
+  private static final Duration AUTOSAVE_SHUTDOWN =
+      Duration.ofMillis(Long.getLong("finance.autosave.shutdownMillis", 3000));
+  private static final int AUTOSAVE_MAX_PENDING = 10_000;
+
+  // transactions kept on the heap per wallet, older ones go to the archive file on exit;
+  // -Dfinance.archive.keep=n, a negative value turns archiving off
+  private static final int ARCHIVE_KEEP =
+      Integer.getInteger("finance.archive.keep", TransactionArchive.DEFAULT_KEEP_RECENT);
+
+  // side effects of the changes (alerts, event log) run on the threads of the event bus;
+  // -Dfinance.events.log=<file> appends every event to the file
+  private static EventBus events = null;
+  private static EventLog eventLog = null;
+  private static final Duration EVENTS_SHUTDOWN = Duration.ofSeconds(2);
+
+  // checking (and repairing) the loaded data before the menus, -Dfinance.verify=false skips it
+  private static final boolean VERIFY =
+      Boolean.parseBoolean(System.getProperty("finance.verify", "true"));
 
   private static boolean isExit =
       false; // this will allow us to exit from the 2 tier (Actions) menu
@@ -28,7 +103,40 @@ public class Main {
 
   public static void main(String[] args) {
     // showFirstMenu();
-    USERS = StorageJson.loadOrNew(DATA_FILE);
+    if ("json".equals(STORAGE)) {
+      openJournal();
+    } else {
+      openBackend();
+    }
+    verifyLoadedData();
+    openEvents();
+
+    // bulk import and export without the menus: --import <file.csv>,
+    // --export <file.csv> [--user login] [--type income|expense] [--category title];
+    // a script of commands (see BatchRunner): --batch <file>, or --batch - for stdin.
+    // the exit code of a script with failed commands is 1.
+    // the HTTP API (see ApiServer) instead of the menus: --serve <port>
+    if (args.length == 2 && "--serve".equals(args[0])) {
+      serve(args[1]);
+      closeJournal();
+      return;
+    }
+    if (args.length == 2 && "--batch".equals(args[0])) {
+      boolean ok = runBatch(args[1]);
+      closeJournal();
+      if (!ok) System.exit(1);
+      return;
+    }
+    if (args.length == 2 && "--import".equals(args[0])) {
+      importTransactions(Paths.get(args[1]));
+      closeJournal();
+      return;
+    }
+    if (args.length >= 2 && "--export".equals(args[0])) {
+      exportTransactions(args);
+      closeJournal();
+      return;
+    }
 
     // changing the welcome string whether this is the previously saved data exists
     if (USERS.getIsPreviousDataExists()) {
@@ -41,27 +149,389 @@ public class Main {
     runLoginMenu();
   }
 
+  private static LineSource openInput() {
+    if ("scanner".equals(System.getProperty("finance.input"))) {
+      return LineSource.of(new Scanner(System.in, StandardCharsets.UTF_8));
+    }
+    return new FastLineReader(System.in);
+  }
+
+  private static void closeInput() {
+    if (!(input instanceof FastLineReader reader)) return;
+    try {
+      reader.close();
+    } catch (IOException e) {
+      System.err.println("Error closing console input: " + e.getMessage());
+    }
+  }
+
+  // snapshot + journal of the changes made after it
+  // other instances on the same files are allowed, their changes come through the journal
+  private static void openJournal() {
+    try {
+      journal = Journal.openShared(DATA_FILE, JOURNAL_FILE);
+      USERS = journal.getUsersRepo();
+      if (ARCHIVE_KEEP >= 0)
+        journal.setArchive(TransactionArchive.fileFor(DATA_FILE), ARCHIVE_KEEP);
+      autoSaver =
+          new AutoSaver(journal::flush, AUTOSAVE_QUIET, AUTOSAVE_MAX_DELAY, AUTOSAVE_MAX_PENDING);
+      USERS.addListener(autoSaver);
+      autoSaver.installShutdownHook(AUTOSAVE_SHUTDOWN);
+      if (Boolean.parseBoolean(System.getProperty("finance.watch", "true"))) {
+        Path dir = DATA_FILE.toAbsolutePath().getParent();
+        if (dir != null) watcher = DirectoryWatcher.start(dir);
+      }
+    } catch (IOException e) {
+      System.err.println("Error opening journal " + JOURNAL_FILE + ": " + e.getMessage());
+      USERS = Journal.recover(DATA_FILE, JOURNAL_FILE);
+    }
+  }
+
+  // the backend keeps every change itself (saved between menu actions), the data file and the
+  // journal are not used; if it cannot be opened, the data file is used instead
+  private static void openBackend() {
+    try {
+      backend = createBackend();
+      USERS = backend.load();
+      dataLocation = STORAGE + ": " + backend.describe();
+      System.out.println("Using " + dataLocation);
+    } catch (IOException | IllegalArgumentException e) {
+      System.err.println("Error opening " + STORAGE + " storage: " + e.getMessage());
+      closeBackend();
+      openJournal();
+    }
+  }
+
+  private static StorageBackend createBackend() throws IOException {
+    String path = System.getProperty("finance.storage.path");
+    Path at = path != null ? Paths.get(path) : Paths.get("data", "finance-data." + STORAGE);
+    switch (STORAGE) {
+      case "jdbc":
+        return JdbcBackend.open(
+            JDBC_URL,
+            System.getProperty("finance.jdbc.user", "sa"),
+            System.getProperty("finance.jdbc.password", ""));
+      case "binary":
+        return FileBackend.binary(at);
+      case "compressed":
+        return FileBackend.compressed(at);
+      case "segments":
+        return FileBackend.segments(at);
+      case "sharded":
+        return FileBackend.sharded(at);
+      case "lazy":
+        return StorageLazy.open(at);
+      case "mapped":
+        return StorageMapped.open(at);
+      default:
+        throw new IllegalArgumentException("Unknown storage " + STORAGE);
+    }
+  }
+
+  // inconsistencies are repaired in memory and written by the next save
+  private static void verifyLoadedData() {
+    if (!VERIFY) return;
+    Verification v = USERS.verify(true);
+    if (v.isConsistent()) return;
+    for (Verification.Problem p : v.getProblems()) {
+      String who = p.login() == null ? "repository" : "user " + p.login() + " (id " + p.id() + ")";
+      System.err.println(
+          "Data check: " + who + " " + p.reason() + (p.repaired() ? ", repaired" : ""));
+    }
+    System.err.println(
+        "Data check: "
+            + v.getProblems().size()
+            + " problem(s) in "
+            + v.getCheckedUsers()
+            + " users, "
+            + v.getMillis()
+            + " ms");
+  }
+
+  // serving until Enter is pressed (or the input ends and the JVM is stopped), then the
+  // response times of the routes are printed
+  private static void serve(String port) {
+    ApiService service = new ApiService(USERS);
+    ApiServer server;
+    try {
+      server = ApiServer.start(service, new InetSocketAddress(Integer.parseInt(port.trim())));
+    } catch (NumberFormatException e) {
+      System.err.println("Wrong port: " + port);
+      return;
+    } catch (IOException e) {
+      System.err.println("Cannot start HTTP API on port " + port + ": " + e.getMessage());
+      return;
+    }
+    System.out.println(
+        "Serving HTTP API on port "
+            + server.getPort()
+            + (server.usesVirtualThreads() ? " (virtual threads)" : " (thread pool)")
+            + ", press Enter to stop");
+    try {
+      input.nextLine();
+    } catch (NoSuchElementException e) {
+      // no console (started in the background), serving until the JVM is stopped
+      try {
+        Thread.currentThread().join();
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    server.close();
+    ConsoleRenderer r = ConsoleRenderer.stdout();
+    r.table(-14, 10, 8, 10, 10, 10, 10)
+        .header("Route", "Calls", "Errors", "p50 us", "p90 us", "p99 us", "max us");
+    for (Map.Entry<String, LatencyStats.Snapshot> e : server.latency().entrySet()) {
+      LatencyStats.Snapshot s = e.getValue();
+      r.cell(e.getKey())
+          .cell(s.count())
+          .cell(s.errors())
+          .cell(s.p50())
+          .cell(s.p90())
+          .cell(s.p99())
+          .cell(s.max())
+          .endRow();
+    }
+    r.flush();
+  }
+
+  private static void openEvents() {
+    events = new EventBus();
+    events.subscribe(
+        "alerts",
+        EventBus.DEFAULT_CAPACITY,
+        EventBus.Overflow.DROP,
+        e -> {
+          if (e instanceof DomainEvent.BudgetRemaining r) {
+            System.out.println("Remaining budget for " + r.category() + ": " + r.remaining());
+          } else if (e instanceof DomainEvent.BudgetExceeded b) {
+            System.out.println(
+                "You have exceeded your budget for " + b.category() + " by " + b.over());
+          }
+        });
+    String log = System.getProperty("finance.events.log");
+    if (log != null && !log.isBlank()) {
+      try {
+        eventLog = EventLog.open(Paths.get(log));
+        events.subscribe("log", EventBus.DEFAULT_CAPACITY, EventBus.Overflow.BLOCK, eventLog);
+      } catch (IOException e) {
+        System.err.println("Cannot open event log " + log + ": " + e.getMessage());
+      }
+    }
+    USERS.addListener(new EventPublisher(events, Main::wantsAlerts));
+  }
+
+  // budget alerts are for the user at the console: not for scripts, imports, API requests or
+  // the changes of other instances
+  private static boolean wantsAlerts(User u) {
+    return currentUser != null && currentUser.id == u.id && (journal == null || !journal.isQuiet());
+  }
+
+  // the events of the last changes are delivered before the files are closed
+  private static void closeEvents() {
+    if (events == null) return;
+    if (!events.close(EVENTS_SHUTDOWN)) System.err.println("Some events were not delivered");
+    events = null;
+    if (eventLog == null) return;
+    try {
+      eventLog.close();
+    } catch (IOException e) {
+      System.err.println("Error closing event log: " + e.getMessage());
+    }
+    eventLog = null;
+  }
+
+  // one load before and one save after the whole script
+  private static boolean runBatch(String script) {
+    BatchRunner runner = new BatchRunner(USERS, System.out);
+    try (BufferedReader in =
+        "-".equals(script)
+            ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+            : Files.newBufferedReader(Paths.get(script), StandardCharsets.UTF_8)) {
+      BatchRunner.Summary s = journal == null ? runner.run(in) : journal.bulk(() -> runner.run(in));
+      System.out.println(
+          "Batch: "
+              + s.commands()
+              + " command(s), "
+              + s.errors()
+              + " error(s) in "
+              + s.millis()
+              + " ms ("
+              + s.perSecond()
+              + " commands/s)");
+      return s.errors() == 0;
+    } catch (IOException e) {
+      System.err.println("Error reading batch script " + script + ": " + e.getMessage());
+      return false;
+    }
+  }
+
+  // transactions of a bank export, rejected rows go to <file>.rejects.csv
+  private static void importTransactions(Path csv) {
+    Path rejects = CsvImport.rejectFileFor(csv);
+    try {
+      ImportResult r =
+          journal == null
+              ? CsvImport.importFile(csv, USERS, rejects)
+              : journal.bulk(() -> CsvImport.importFile(csv, USERS, rejects));
+      System.out.println(
+          "Imported "
+              + r.getImported()
+              + " of "
+              + r.getLines()
+              + " transactions from "
+              + csv
+              + " in "
+              + r.getMillis()
+              + " ms");
+      if (r.hasRejects()) {
+        System.out.println("Rejected " + r.getRejected() + " row(s), see " + rejects);
+      }
+    } catch (IOException e) {
+      System.err.println("Error importing " + csv + ": " + e.getMessage());
+    }
+  }
+
+  private static void exportTransactions(String[] args) {
+    Path csv = Paths.get(args[1]);
+    String login = null;
+    Transaction.Type type = null;
+    String category = null;
+    for (int i = 2; i < args.length; i += 2) {
+      String value = i + 1 < args.length ? args[i + 1] : null;
+      if (value == null) {
+        System.err.println("Missing value of " + args[i]);
+        return;
+      }
+      if ("--user".equals(args[i])) {
+        login = value;
+      } else if ("--category".equals(args[i])) {
+        category = value;
+      } else if ("--type".equals(args[i])
+          && ("income".equalsIgnoreCase(value) || "expense".equalsIgnoreCase(value))) {
+        type = Transaction.Type.valueOf(value.toUpperCase(Locale.ROOT));
+      } else {
+        System.err.println("Wrong export option: " + args[i] + " " + value);
+        return;
+      }
+    }
+    CsvExport.Filter filter = new CsvExport.Filter(type, category);
+    try {
+      long start = System.nanoTime();
+      long rows;
+      if (login == null) {
+        rows = CsvExport.exportAll(csv, USERS, filter);
+      } else {
+        User u = USERS.find(login);
+        if (u == null) {
+          System.err.println("User not found: " + login);
+          return;
+        }
+        rows = CsvExport.exportUser(csv, u, filter);
+      }
+      long ms = (System.nanoTime() - start) / 1_000_000;
+      System.out.println("Exported " + rows + " transactions to " + csv + " in " + ms + " ms");
+    } catch (IOException e) {
+      System.err.println("Error exporting to " + csv + ": " + e.getMessage());
+    }
+  }
+
+  // called between menu actions: changes since the last call go to the backend,
+  // changes made by other instances are read from the journal, a data file replaced by
+  // another program is merged in
+  private static void syncStorage() {
+    if (journal != null) {
+      try {
+        int n = journal.sync();
+        if (n > 0) System.out.println("Applied " + n + " change(s) made by another instance");
+      } catch (IOException e) {
+        System.err.println("Error reading journal " + JOURNAL_FILE + ": " + e.getMessage());
+      }
+      reloadDataFile();
+      // the logged in user may have been replaced or removed meanwhile
+      if (currentUser != null) {
+        currentUser = USERS.find(currentUser.login);
+        if (currentUser == null) System.out.println("Your account was removed, please log in");
+      }
+    }
+    if (backend == null) return;
+    try {
+      backend.saveChanges(USERS);
+    } catch (IOException e) {
+      System.err.println("Error saving changes to " + dataLocation + ": " + e.getMessage());
+    }
+  }
+
+  private static void reloadDataFile() {
+    if (watcher == null) return;
+    if (watcher.changed().contains(DATA_FILE.getFileName())) reloadPending = true;
+    if (!reloadPending) return;
+    try {
+      Set<String> changed = journal.reload();
+      reloadPending = false;
+      if (changed.isEmpty()) return;
+      System.out.println(
+          "Data file changed outside the app, reloaded " + changed.size() + " user(s)");
+    } catch (IOException e) {
+      System.err.println("Cannot reload " + DATA_FILE + " yet: " + e.getMessage());
+    }
+  }
+
+  private static void closeBackend() {
+    if (backend == null) return;
+    try {
+      backend.close();
+    } catch (IOException e) {
+      System.err.println("Error closing " + dataLocation + ": " + e.getMessage());
+    }
+    backend = null;
+  }
+
+  // final checkpoint: the whole repository goes to the data file, the journal is emptied
+  private static void closeJournal() {
+    closeEvents();
+    if (backend != null) {
+      syncStorage();
+      closeBackend();
+    }
+    if (autoSaver != null) autoSaver.close(AUTOSAVE_SHUTDOWN);
+    if (watcher != null) {
+      try {
+        watcher.close();
+      } catch (IOException e) {
+        System.err.println("Error closing directory watcher: " + e.getMessage());
+      }
+    }
+    if (journal == null) return;
+    try {
+      journal.close();
+    } catch (IOException e) {
+      System.err.println("Error saving users repository to file " + DATA_FILE + ": " + e);
+    }
+  }
+
   private static void runLoginMenu() {
     while (true) {
       if (!isExit) {
+        syncStorage();
         ConsoleMenus.showLoginMenu();
-        int option = ConsoleInput.readIntSafe(scanner);
+        int option = ConsoleInput.readIntSafe(input);
         switch (option) {
           case 1:
             System.out.println("Log in");
-            String login = ConsoleInput.readLoginSafe(scanner);
+            String login = ConsoleInput.readLoginSafe(input);
             User u = USERS.find(login);
             if (u == null) {
               System.out.println("User not found. Creating new user...");
-              String name = ConsoleInput.readStringSafe(scanner, "Please enter your name: ", true);
+              String name = ConsoleInput.readStringSafe(input, "Please enter your name: ", true);
               String surname =
-                  ConsoleInput.readStringSafe(scanner, "Please enter your surname: ", true);
-              String pass = ConsoleInput.readStringSafe(scanner, "Please enter your password: ");
+                  ConsoleInput.readStringSafe(input, "Please enter your surname: ", true);
+              String pass = ConsoleInput.readStringSafe(input, "Please enter your password: ");
               u = USERS.register(login, name, surname, pass);
               System.out.println("User created successfully: " + u.toString());
             } else {
               // TO FIX implement password policy
-              String pass = ConsoleInput.readStringSafe(scanner, "Please enter your password: ");
+              String pass = ConsoleInput.readStringSafe(input, "Please enter your password: ");
               if (USERS.authenticate(login, pass) == null) {
                 System.out.println("Wrong password");
                 System.out.println("> ");
@@ -78,10 +548,10 @@ public class Main {
             break;
           case 3:
             System.out.println("You have exited");
-            StorageJson.save(DATA_FILE, USERS);
-            System.out.println("Saving data to file: " + DATA_FILE.toAbsolutePath());
+            closeJournal();
+            System.out.println("Saving data to " + dataLocation);
             System.out.println("Bye!");
-            scanner.close();
+            closeInput();
             return;
           default:
             System.out.println("Invalid option, Choose  1-3");
@@ -94,8 +564,9 @@ public class Main {
   private static void runActionsMenu() {
     while (true) {
       if (!isloggedOut) {
+        syncStorage();
         ConsoleMenus.showActionsMenu();
-        int option = ConsoleInput.readIntSafe(scanner);
+        int option = ConsoleInput.readIntSafe(input);
         switch (option) {
           case 1:
             System.out.println("Main actions");
@@ -129,10 +600,10 @@ public class Main {
             return;
           case 4:
             System.out.println("You have exited");
-            StorageJson.save(DATA_FILE, USERS);
-            System.out.println("Saving data to file: " + DATA_FILE.toAbsolutePath());
+            closeJournal();
+            System.out.println("Saving data to " + dataLocation);
             System.out.println("Bye!");
-            scanner.close();
+            closeInput();
             isExit = true;
             return;
           default:
@@ -145,30 +616,31 @@ public class Main {
 
   private static void runMainActionsMenu() {
     while (true) {
+      syncStorage();
       if (!ConsoleUtils.checkLogonStatus(currentUser)) break;
       ConsoleMenus.showMainActionsMenu();
-      int option = ConsoleInput.readIntSafe(scanner);
+      int option = ConsoleInput.readIntSafe(input);
       switch (option) {
         case 1:
-          ConsoleUtils.handleAddIncome(scanner, currentUser);
+          ConsoleUtils.handleAddIncome(input, currentUser);
           break;
         case 2:
-          ConsoleUtils.handleAddExpense(scanner, currentUser);
+          ConsoleUtils.handleAddExpense(input, currentUser);
           break;
         case 3:
           ConsoleUtils.handleViewWallet(currentUser);
           break;
         case 4:
-          ConsoleUtils.handleAddBudget(scanner, currentUser);
+          ConsoleUtils.handleAddBudget(input, currentUser);
           break;
         case 5:
           ConsoleUtils.handleViewStatistics(currentUser);
           break;
         case 6:
-          ConsoleUtils.handleTransfer(scanner, currentUser, USERS);
+          ConsoleUtils.handleTransfer(input, currentUser, USERS);
           break;
         case 7:
-          if (ConsoleUtils.handleDeleteYourUserAccount(scanner, currentUser, USERS)) {
+          if (ConsoleUtils.handleDeleteYourUserAccount(input, currentUser, USERS)) {
             currentUser = null;
             isloggedOut = true;
           }
@@ -186,8 +658,9 @@ public class Main {
 
   private static void runSuperAdminMenu() {
     while (true) {
+      syncStorage();
       ConsoleMenus.showSuperAdminMenu();
-      int option = ConsoleInput.readIntSafe(scanner);
+      int option = ConsoleInput.readIntSafe(input);
       List<User> allUsers = USERS.listAll();
       switch (option) {
         case 1:
@@ -202,27 +675,33 @@ public class Main {
           }
           break;
         case 3:
-          ConsoleUtils.handleDeleteSelectedUserAccount(scanner, currentUser, USERS);
+          ConsoleUtils.handleDeleteSelectedUserAccount(input, currentUser, USERS);
           break;
         case 4:
           System.out.println("You are going to delete all users except super admin ");
-          if (ConsoleUtils.confirmAction(scanner)) USERS.deleteAllUsers();
+          if (ConsoleUtils.confirmAction(input)) {
+            for (String login : USERS.deleteAllUsers()) {
+              System.out.println("Removed user [" + login + "] from user list");
+            }
+          }
           break;
         case 5:
-          ConsoleUtils.handleAddOrdinaryAdminAccount(scanner, currentUser, USERS, allUsers);
+          ConsoleUtils.handleAddOrdinaryAdminAccount(input, currentUser, USERS, allUsers);
           break;
         case 6:
           // super admin cannot be removed
           // ordinary admins can be removed by super admin
-          ConsoleUtils.handleRemoveOrdinaryAdminAccount(scanner, USERS);
+          ConsoleUtils.handleRemoveOrdinaryAdminAccount(input, USERS);
           break;
         case 7:
           System.out.println("You are now going to remove all saved data...");
           // TO FIX think about how to solve the issue, that the file will be recreated on exit...
           try {
+            if (journal != null) journal.discard();
             Files.deleteIfExists(DATA_FILE);
+            if (backend != null) backend.save(new UsersRepo());
           } catch (IOException e) {
-            throw new RuntimeException(e);
+            System.err.println("Cannot remove saved data: " + e.getMessage());
           }
           break;
         case 8:
@@ -238,7 +717,7 @@ public class Main {
 
   private static void runOrdinaryAdminMenu() {
     ConsoleMenus.showOrdinaryAdminMenu();
-    int option = ConsoleInput.readIntSafe(scanner);
+    int option = ConsoleInput.readIntSafe(input);
     switch (option) {
       case 1:
         System.out.println("Case1");
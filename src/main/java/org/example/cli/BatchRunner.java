@@ -0,0 +1,190 @@
+package org.example.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+
+// non-interactive mode: a script of commands, one per line, run against the repository
+// without the menus (automation, migrations). arguments are separated by spaces, an argument
+// with spaces is written in double quotes (\" and \\ inside them); blank lines and lines
+// starting with # are skipped:
+//   register <login> <name> <surname> <password>
+//   add-income <login> <amount> <title>
+//   add-expense <login> <amount> <title>
+//   set-budget <login> <category> <limit>
+//   transfer <from> <to> <amount> [note]
+//   report [login]
+// the script runs as the operator of the data files, so no passwords are asked. a failed
+// command is reported with its line number and the script goes on
+public final class BatchRunner {
+
+  // commands run (without blank and comment lines), failed ones and the time of the whole run
+  public record Summary(long commands, long errors, long millis) {
+    public long perSecond() {
+      return commands * 1000 / Math.max(1, millis);
+    }
+  }
+
+  private final UsersRepo usersRepo;
+  private final PrintStream out;
+
+  public BatchRunner(UsersRepo usersRepo, PrintStream out) {
+    this.usersRepo = Objects.requireNonNull(usersRepo, "usersRepo");
+    this.out = Objects.requireNonNull(out, "out");
+  }
+
+  public Summary run(BufferedReader script) throws IOException {
+    long start = System.nanoTime();
+    long commands = 0;
+    long errors = 0;
+    List<String> args = new ArrayList<>();
+    String line;
+    for (long number = 1; (line = script.readLine()) != null; number++) {
+      String trimmed = line.trim();
+      if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+      commands++;
+      try {
+        split(trimmed, args);
+        execute(args);
+      } catch (RuntimeException e) {
+        errors++;
+        out.println("line " + number + ": " + e.getMessage());
+      }
+    }
+    return new Summary(commands, errors, (System.nanoTime() - start) / 1_000_000);
+  }
+
+  private void execute(List<String> args) {
+    String command = args.get(0);
+    switch (command) {
+      case "register":
+        expect(args, 5, 5);
+        if (usersRepo.find(args.get(1)) != null) {
+          throw new IllegalArgumentException("User already exists: " + args.get(1));
+        }
+        usersRepo.register(args.get(1), args.get(2), args.get(3), args.get(4));
+        break;
+      case "add-income":
+      case "add-expense":
+        expect(args, 4, 4);
+        user(args.get(1))
+            .wallet
+            .addTransaction(
+                amount(args.get(2)),
+                title(args.get(3)),
+                "add-income".equals(command) ? Transaction.Type.INCOME : Transaction.Type.EXPENSE);
+        break;
+      case "set-budget":
+        expect(args, 4, 4);
+        user(args.get(1)).wallet.setBudget(title(args.get(2)), amount(args.get(3)));
+        break;
+      case "transfer":
+        expect(args, 4, 5);
+        usersRepo.transfer(
+            user(args.get(1)).login,
+            user(args.get(2)).login,
+            amount(args.get(3)),
+            args.size() > 4 ? args.get(4) : null);
+        break;
+      case "report":
+        expect(args, 1, 2);
+        if (args.size() == 2) {
+          report(user(args.get(1)));
+        } else {
+          List<User> users = usersRepo.listAll();
+          users.sort(Comparator.comparingLong(u -> u.id));
+          for (User u : users) {
+            report(u);
+          }
+        }
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown command: " + command);
+    }
+  }
+
+  private void report(User u) {
+    out.println(
+        u.login
+            + ": balance "
+            + u.wallet.getBalance()
+            + ", income "
+            + u.wallet.sumIncome()
+            + ", expense "
+            + u.wallet.sumExpense());
+    for (Map.Entry<String, Double> e : u.wallet.getBudgets().entrySet()) {
+      out.println(
+          "  budget "
+              + e.getKey()
+              + ": limit "
+              + e.getValue()
+              + ", spent "
+              + u.wallet.getSpentByCategory(e.getKey())
+              + ", remaining "
+              + u.wallet.getRemainingBudget(e.getKey()));
+    }
+  }
+
+  private static void expect(List<String> args, int min, int max) {
+    if (args.size() < min || args.size() > max) {
+      throw new IllegalArgumentException(
+          "Wrong number of arguments for " + args.get(0) + ": " + (args.size() - 1));
+    }
+  }
+
+  private User user(String login) {
+    User u = usersRepo.find(login);
+    if (u == null) throw new IllegalArgumentException("User not found: " + login);
+    return u;
+  }
+
+  // the same rule as the console input
+  private static double amount(String s) {
+    try {
+      double v = Double.parseDouble(s.replace(',', '.'));
+      if (v > 0 && !Double.isInfinite(v)) return v;
+    } catch (NumberFormatException e) {
+      // reported below
+    }
+    throw new IllegalArgumentException("Amount must be a positive number: " + s);
+  }
+
+  private static String title(String s) {
+    String title = s.trim();
+    if (title.isEmpty()) throw new IllegalArgumentException("Title cannot be empty");
+    return title;
+  }
+
+  // splitting a line into arguments
+  static void split(String line, List<String> args) {
+    args.clear();
+    int n = line.length();
+    int i = 0;
+    while (true) {
+      while (i < n && Character.isWhitespace(line.charAt(i))) i++;
+      if (i == n) return;
+      StringBuilder sb = new StringBuilder();
+      if (line.charAt(i) == '"') {
+        i++;
+        while (true) {
+          if (i == n) throw new IllegalArgumentException("Unterminated quote");
+          char c = line.charAt(i++);
+          if (c == '"') break;
+          if (c == '\\' && i < n) c = line.charAt(i++);
+          sb.append(c);
+        }
+      } else {
+        while (i < n && !Character.isWhitespace(line.charAt(i))) sb.append(line.charAt(i++));
+      }
+      args.add(sb.toString());
+    }
+  }
+}
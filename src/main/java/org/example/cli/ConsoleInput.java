@@ -1,13 +1,24 @@
 package org.example.cli;
 
 import java.util.Scanner;
+import java.util.regex.Pattern;
 
+// every method reads from a LineSource (FastLineReader in the app),
+// the Scanner overloads are kept for the callers which have one
 public class ConsoleInput {
+  // compiled once, String.matches compiles the pattern on every call
+  private static final Pattern NAME = Pattern.compile("(?U)^[\\p{L}][\\p{L} '\\-]*$");
+  private static final Pattern LOGIN = Pattern.compile("^[a-z][a-z0-9._-]{2,31}$");
+
   private ConsoleInput() {}
 
   // reading string safely from the console
   // this is used for entering text to the app
   public static String readStringSafe(Scanner scanner, String prompt) {
+    return readStringSafe(LineSource.of(scanner), prompt);
+  }
+
+  public static String readStringSafe(LineSource scanner, String prompt) {
     while (true) {
       System.out.println(prompt);
       System.out.println("> ");
@@ -21,6 +32,10 @@ public class ConsoleInput {
   }
 
   public static String readStringSafe(Scanner scanner, String prompt, boolean disallowDigits) {
+    return readStringSafe(LineSource.of(scanner), prompt, disallowDigits);
+  }
+
+  public static String readStringSafe(LineSource scanner, String prompt, boolean disallowDigits) {
     while (true) {
       System.out.println(prompt);
       System.out.println("> ");
@@ -33,7 +48,7 @@ public class ConsoleInput {
         continue;
       }
       if (disallowDigits) {
-        if (!s.matches("(?U)^[\\p{L}][\\p{L} '\\-]*$")) {
+        if (!NAME.matcher(s).matches()) {
           System.out.println("Only letters, spaces, '-' and apostrophes are allowed. Try again. ");
           continue;
         }
@@ -45,6 +60,10 @@ public class ConsoleInput {
   // reading double safely from the console
   // this is used for entering numerics to the app
   public static double readDoubleSafe(Scanner scanner, String prompt) {
+    return readDoubleSafe(LineSource.of(scanner), prompt);
+  }
+
+  public static double readDoubleSafe(LineSource scanner, String prompt) {
     while (true) {
       System.out.println(prompt);
       System.out.println("> ");
@@ -62,6 +81,10 @@ public class ConsoleInput {
   // reading int safely from the console
   // this is used for the menu options
   public static int readIntSafe(Scanner scanner, String prompt) {
+    return readIntSafe(LineSource.of(scanner), prompt);
+  }
+
+  public static int readIntSafe(LineSource scanner, String prompt) {
     while (true) {
       System.out.println(prompt);
       System.out.println("> ");
@@ -75,6 +98,10 @@ public class ConsoleInput {
   }
 
   public static int readIntSafe(Scanner scanner) {
+    return readIntSafe(LineSource.of(scanner));
+  }
+
+  public static int readIntSafe(LineSource scanner) {
     while (true) {
       String s = scanner.nextLine().trim();
       try {
@@ -86,10 +113,14 @@ public class ConsoleInput {
   }
 
   public static String readLoginSafe(Scanner scanner) {
+    return readLoginSafe(LineSource.of(scanner));
+  }
+
+  public static String readLoginSafe(LineSource scanner) {
     while (true) {
       System.out.println("Please, enter login (3-32, start with letter, letters/digits/._-): ");
       String s = scanner.nextLine().trim().toLowerCase(); // normalazing to lower case
-      if (s.matches("^[a-z][a-z0-9._-]{2,31}$")) {
+      if (LOGIN.matcher(s).matches()) {
         return s;
       }
       System.out.println(
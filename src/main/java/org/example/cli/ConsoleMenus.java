@@ -1,68 +1,91 @@
 package org.example.cli;
 
+import org.example.util.ConsoleRenderer;
+
 // class to display all my console menus,
 // stores all menu in one place, removes clutter from the main.java
 
 public class ConsoleMenus {
+  // every menu is joined once and printed with one write, not one println per line
+  private static final String MAIN_ACTIONS_MENU =
+      ConsoleRenderer.lines(
+          "==========================",
+          "You are now in the Main Actions menu. Please select an option:",
+          "1. Add income",
+          "2. Add expense",
+          "3. View wallet",
+          "4. Add budget",
+          "5. View statistics",
+          "6. Transfer money to other user",
+          "7. Delete my user account",
+          "8. Return to the previous menu",
+          "> ");
+
+  private static final String SUPER_ADMIN_MENU =
+      ConsoleRenderer.lines(
+          "==========================",
+          "You are now in the Super Administrator menu. Please select an option:",
+          "1. View all users",
+          "2. View statistics for all users",
+          "3. Delete a user account",
+          "4. Delete all user accounts",
+          "5. Add administrator",
+          "6. Remove administrator",
+          "7. Remove saved data",
+          "8. Return to the previous menu",
+          "> ");
+
+  private static final String ORDINARY_ADMIN_MENU =
+      ConsoleRenderer.lines(
+          "==========================",
+          "You are now in the Administrator menu. Please select an option:",
+          "1. View all users",
+          "2. View statistics for all users",
+          "3. Delete a user account",
+          "4. Return to the previous menu",
+          "> ");
+
+  private static final String LOGIN_MENU =
+      ConsoleRenderer.lines(
+          "You are now in the LogIn menu. Please select an option:",
+          "1. Log in",
+          "2. View documentation",
+          "3. Exit",
+          "> ");
+
+  private static final String ACTIONS_MENU =
+      ConsoleRenderer.lines(
+          "You are now in the Actions menu. Please select an option:",
+          "1. Main actions",
+          "2. Administrator actions",
+          "3. Log out",
+          "4. Exit",
+          "> ");
+
   private ConsoleMenus() {}
 
   // main actions menu
   public static void showMainActionsMenu() {
-    System.out.println("==========================");
-    System.out.println("You are now in the Main Actions menu. Please select an option:");
-    System.out.println("1. Add income");
-    System.out.println("2. Add expense");
-    System.out.println("3. View wallet");
-    System.out.println("4. Add budget");
-    System.out.println("5. View statistics");
-    System.out.println("6. Transfer money to other user");
-    System.out.println("7. Delete my user account");
-    System.out.println("8. Return to the previous menu");
-    System.out.println("> ");
+    System.out.print(MAIN_ACTIONS_MENU);
   }
 
   // super admin menu
   public static void showSuperAdminMenu() {
-    System.out.println("==========================");
-    System.out.println("You are now in the Super Administrator menu. Please select an option:");
-    System.out.println("1. View all users");
-    System.out.println("2. View statistics for all users");
-    System.out.println("3. Delete a user account");
-    System.out.println("4. Delete all user accounts");
-    System.out.println("5. Add administrator");
-    System.out.println("6. Remove administrator");
-    System.out.println("7. Remove saved data");
-    System.out.println("8. Return to the previous menu");
-    System.out.println("> ");
+    System.out.print(SUPER_ADMIN_MENU);
   }
 
   // ordinary admin menu
   public static void showOrdinaryAdminMenu() {
-    System.out.println("==========================");
-    System.out.println("You are now in the Administrator menu. Please select an option:");
-    System.out.println("1. View all users");
-    System.out.println("2. View statistics for all users");
-    System.out.println("3. Delete a user account");
-    System.out.println("4. Return to the previous menu");
-    System.out.println("> ");
+    System.out.print(ORDINARY_ADMIN_MENU);
   }
 
   // LogIn menu
   public static void showLoginMenu() {
-    System.out.println("You are now in the LogIn menu. Please select an option:");
-    System.out.println("1. Log in");
-    System.out.println("2. View documentation");
-    System.out.println("3. Exit");
-    System.out.println("> ");
+    System.out.print(LOGIN_MENU);
   }
 
   // actions menu
   public static void showActionsMenu() {
-    System.out.println("You are now in the Actions menu. Please select an option:");
-    System.out.println("1. Main actions");
-    System.out.println("2. Administrator actions");
-    System.out.println("3. Log out");
-    System.out.println("4. Exit");
-    System.out.println("> ");
+    System.out.print(ACTIONS_MENU);
   }
 }
@@ -0,0 +1,110 @@
+package org.example.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+// UTF-8 lines of an input stream without Scanner: Scanner matches every line with a regex
+// over a CharBuffer, which is slow when input is piped in bulk (replayed sessions, scripted
+// tests). the bytes are read into one buffer and every line becomes one String, decoded
+// directly from the buffer; only a line crossing the end of the buffer is copied.
+// lines end with \n, \r\n or \r (like Scanner); the last line does not need a line end.
+// not thread-safe, like Scanner
+public final class FastLineReader implements LineSource, Closeable {
+
+  private static final int BUFFER = 1 << 16;
+
+  private final InputStream in;
+  private final byte[] buf = new byte[BUFFER];
+  private int pos = 0;
+  private int limit = 0;
+  private boolean skipLf = false; // the last line ended with \r, a following \n belongs to it
+  private byte[] carry = new byte[128]; // the start of a line crossing the end of the buffer
+  private int carried = 0;
+
+  public FastLineReader(InputStream in) {
+    this.in = Objects.requireNonNull(in, "in");
+  }
+
+  @Override
+  public String nextLine() {
+    String line = readLine();
+    if (line == null) throw new NoSuchElementException("No line found");
+    return line;
+  }
+
+  // the next line, null at the end of the input
+  public String readLine() {
+    carried = 0;
+    boolean any = false; // a line ending at the end of the input may be empty
+    while (true) {
+      if (pos == limit && !fill()) {
+        return any || carried > 0 ? decodeCarry() : null;
+      }
+      if (skipLf) {
+        skipLf = false;
+        if (buf[pos] == '\n') {
+          pos++;
+          continue;
+        }
+      }
+      any = true;
+      int start = pos;
+      while (pos < limit) {
+        byte b = buf[pos];
+        if (b == '\n' || b == '\r') {
+          String line;
+          if (carried == 0) {
+            line = new String(buf, start, pos - start, StandardCharsets.UTF_8);
+          } else {
+            append(start, pos);
+            line = decodeCarry();
+          }
+          pos++;
+          skipLf = b == '\r';
+          return line;
+        }
+        pos++;
+      }
+      append(start, limit);
+    }
+  }
+
+  private boolean fill() {
+    try {
+      int n;
+      do {
+        n = in.read(buf, 0, buf.length);
+      } while (n == 0);
+      if (n < 0) return false;
+      pos = 0;
+      limit = n;
+      return true;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void append(int from, int to) {
+    int n = to - from;
+    if (carried + n > carry.length) {
+      carry = Arrays.copyOf(carry, Math.max(carry.length * 2, carried + n));
+    }
+    System.arraycopy(buf, from, carry, carried, n);
+    carried += n;
+  }
+
+  private String decodeCarry() {
+    return new String(carry, 0, carried, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
@@ -0,0 +1,16 @@
+package org.example.cli;
+
+import java.util.Scanner;
+
+// where the console input reads its lines from: a Scanner (the old way, kept for the callers
+// which have one) or a FastLineReader. like Scanner.nextLine, nextLine throws
+// NoSuchElementException when the input has ended
+@FunctionalInterface
+public interface LineSource {
+
+  String nextLine();
+
+  static LineSource of(Scanner scanner) {
+    return scanner::nextLine;
+  }
+}
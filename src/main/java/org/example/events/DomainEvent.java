@@ -0,0 +1,44 @@
+package org.example.events;
+
+import org.example.model.Transaction;
+import org.example.model.User;
+
+// what happened in the repository, delivered to the EventBus subscribers after the change.
+// events are immutable snapshots (logins and numbers, not the live User or Wallet), so a
+// subscriber running later on its own thread sees the values of the moment of the change
+public sealed interface DomainEvent {
+
+  record UserRegistered(long userId, String login) implements DomainEvent {}
+
+  record TransactionAdded(
+      long userId, String login, double amount, String title, Transaction.Type type)
+      implements DomainEvent {}
+
+  // a transfer is one event, its two wallet transactions are not reported separately
+  record TransferMade(String fromLogin, String toLogin, double amount, String note)
+      implements DomainEvent {}
+
+  record BudgetSet(long userId, String login, String category, double limit)
+      implements DomainEvent {}
+
+  // an expense in a category with a budget, what is left of the limit (negative when over)
+  record BudgetRemaining(long userId, String login, String category, double limit, double spent)
+      implements DomainEvent {
+    public double remaining() {
+      return limit - spent;
+    }
+  }
+
+  // spending in the category went over its limit, by an expense or by a lower limit
+  record BudgetExceeded(long userId, String login, String category, double limit, double spent)
+      implements DomainEvent {
+    public double over() {
+      return spent - limit;
+    }
+  }
+
+  record RoleChanged(long userId, String login, User.Role role, boolean added)
+      implements DomainEvent {}
+
+  record UserDeleted(long userId, String login) implements DomainEvent {}
+}
@@ -0,0 +1,257 @@
+package org.example.events;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// in-process delivery of DomainEvents to subscribers which must not slow down the changes
+// (console alerts, event log). publish() only puts the event into the ring buffer of every
+// subscriber; each subscriber has its own worker thread which takes all queued events at once
+// and hands them to the handler outside the lock, so one slow subscriber delays nobody else.
+// a full buffer either drops the new event (counted in getDropped) or makes the publisher wait,
+// as chosen per subscriber. a failing handler is reported and counted, the worker goes on.
+// the journal is not a subscriber: it is the write-ahead log and stays on the write path
+public final class EventBus implements AutoCloseable {
+
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  // what publish() does when a subscriber's buffer is full
+  public enum Overflow {
+    DROP, // losing an event is fine (alerts), the writer never waits
+    BLOCK // every event is needed (logs), the writer waits like AutoSaver's backpressure
+  }
+
+  private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+  private volatile boolean closed = false;
+
+  public Subscription subscribe(
+      String name, int capacity, Overflow overflow, Consumer<? super DomainEvent> handler) {
+    if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive");
+    if (closed) throw new IllegalStateException("Event bus is closed");
+    Subscription s =
+        new Subscription(
+            Objects.requireNonNull(name, "name"),
+            capacity,
+            Objects.requireNonNull(overflow, "overflow"),
+            Objects.requireNonNull(handler, "handler"));
+    subscriptions.add(s);
+    return s;
+  }
+
+  public void publish(DomainEvent event) {
+    Objects.requireNonNull(event, "event");
+    for (Subscription s : subscriptions) {
+      s.offer(event);
+    }
+  }
+
+  // delivering what is queued and stopping the workers; false if some subscriber did not
+  // finish in time (its remaining events are lost)
+  public boolean close(Duration timeout) {
+    closed = true;
+    long deadline = System.nanoTime() + timeout.toNanos();
+    boolean done = true;
+    for (Subscription s : subscriptions) {
+      done &= s.close(deadline);
+    }
+    subscriptions.clear();
+    return done;
+  }
+
+  @Override
+  public void close() {
+    close(Duration.ofSeconds(5));
+  }
+
+  // one subscriber: a bounded ring buffer and the thread which empties it
+  public static final class Subscription {
+    private final String name;
+    private final Overflow overflow;
+    private final Consumer<? super DomainEvent> handler;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    // all fields below are guarded by the lock
+    private final DomainEvent[] ring;
+    private int head = 0; // the oldest queued event
+    private int size = 0;
+    private boolean delivering = false;
+    private boolean closed = false;
+    private long delivered = 0;
+    private long dropped = 0;
+    private long failures = 0;
+
+    private final Thread worker;
+
+    private Subscription(
+        String name, int capacity, Overflow overflow, Consumer<? super DomainEvent> handler) {
+      this.name = name;
+      this.overflow = overflow;
+      this.handler = handler;
+      this.ring = new DomainEvent[capacity];
+      this.worker = new Thread(this::run, "events-" + name);
+      this.worker.setDaemon(true);
+      this.worker.start();
+    }
+
+    private void offer(DomainEvent event) {
+      lock.lock();
+      try {
+        if (closed) return;
+        while (size == ring.length) {
+          // the worker itself cannot wait for its own buffer (a handler publishing events)
+          if (overflow == Overflow.DROP || Thread.currentThread() == worker) {
+            dropped++;
+            return;
+          }
+          notFull.await();
+          if (closed) return;
+        }
+        ring[(head + size) % ring.length] = event;
+        size++;
+        notEmpty.signal();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    // waiting until every event published so far is handled, false on timeout
+    public boolean drain(Duration timeout) {
+      return awaitIdle(System.nanoTime() + timeout.toNanos());
+    }
+
+    private boolean awaitIdle(long deadline) {
+      lock.lock();
+      try {
+        while (size > 0 || delivering) {
+          long left = deadline - System.nanoTime();
+          if (left <= 0 || !worker.isAlive()) return false;
+          notFull.awaitNanos(left);
+        }
+        return true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private boolean close(long deadline) {
+      boolean done = Thread.currentThread() == worker || awaitIdle(deadline);
+      lock.lock();
+      try {
+        closed = true;
+        notEmpty.signalAll();
+        notFull.signalAll();
+      } finally {
+        lock.unlock();
+      }
+      long left = deadline - System.nanoTime();
+      if (left > 0 && Thread.currentThread() != worker) {
+        try {
+          worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(left)));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return done;
+    }
+
+    private void run() {
+      while (true) {
+        DomainEvent[] batch = takeAll();
+        if (batch == null) return;
+        long failed = 0;
+        for (DomainEvent e : batch) {
+          try {
+            handler.accept(e);
+          } catch (RuntimeException ex) {
+            failed++;
+            System.err.println("Event subscriber " + name + " failed: " + ex.getMessage());
+          }
+        }
+        finished(batch.length, failed);
+      }
+    }
+
+    // all queued events in publishing order, null when closed
+    private DomainEvent[] takeAll() {
+      lock.lock();
+      try {
+        while (size == 0) {
+          if (closed) return null;
+          notEmpty.await();
+        }
+        DomainEvent[] batch = new DomainEvent[size];
+        for (int i = 0; i < batch.length; i++) {
+          int at = (head + i) % ring.length;
+          batch[i] = ring[at];
+          ring[at] = null;
+        }
+        head = (head + size) % ring.length;
+        size = 0;
+        delivering = true;
+        notFull.signalAll();
+        return batch;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void finished(int count, long failed) {
+      lock.lock();
+      try {
+        delivering = false;
+        delivered += count - failed;
+        failures += failed;
+        notFull.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getDelivered() {
+      lock.lock();
+      try {
+        return delivered;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    public long getDropped() {
+      lock.lock();
+      try {
+        return dropped;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    public long getFailures() {
+      lock.lock();
+      try {
+        return failures;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
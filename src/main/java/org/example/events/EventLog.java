@@ -0,0 +1,55 @@
+package org.example.events;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+// an EventBus subscriber appending every event to a text file, one line per event:
+//   2026-10-18T10:15:30.123Z TransactionAdded[userId=2, login=alice, amount=12.5, ...]
+// the time is when the line is written, not when the change was made. lines are flushed
+// one by one, the subscriber thread does the waiting for the disk, not the writer
+public final class EventLog implements Consumer<DomainEvent>, Closeable {
+
+  private final BufferedWriter out;
+
+  private EventLog(BufferedWriter out) {
+    this.out = out;
+  }
+
+  public static EventLog open(Path file) throws IOException {
+    Path dir = file.toAbsolutePath().getParent();
+    if (dir != null) Files.createDirectories(dir);
+    return new EventLog(
+        Files.newBufferedWriter(
+            file,
+            StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND));
+  }
+
+  @Override
+  public void accept(DomainEvent event) {
+    try {
+      out.write(Instant.now().toString());
+      out.write(' ');
+      out.write(event.toString());
+      out.newLine();
+      out.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
@@ -0,0 +1,73 @@
+package org.example.events;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.RepoListener;
+
+// turning the changes of the repository (and of its wallets) into DomainEvents:
+// usersRepo.addListener(new EventPublisher(bus)). runs on the thread that makes the change,
+// so it only builds the events and checks the budget of the changed category (two map
+// lookups); everything slow happens in the subscribers.
+// budget alerts (BudgetRemaining, BudgetExceeded) are published only for the users the
+// predicate accepts, it runs on the same thread, e.g. to skip scripts, imports and the changes
+// of other instances; the other events are always published
+public final class EventPublisher implements RepoListener {
+
+  private final EventBus bus;
+  private final Predicate<User> alertsFor;
+
+  public EventPublisher(EventBus bus) {
+    this(bus, u -> true);
+  }
+
+  public EventPublisher(EventBus bus, Predicate<User> alertsFor) {
+    this.bus = Objects.requireNonNull(bus, "bus");
+    this.alertsFor = Objects.requireNonNull(alertsFor, "alertsFor");
+  }
+
+  @Override
+  public void onRegister(User u) {
+    bus.publish(new DomainEvent.UserRegistered(u.id, u.login));
+  }
+
+  @Override
+  public void onTransaction(User u, Transaction t) {
+    bus.publish(new DomainEvent.TransactionAdded(u.id, u.login, t.amount, t.title, t.type));
+    if (t.type == Transaction.Type.EXPENSE) checkBudget(u, t.title, true);
+  }
+
+  @Override
+  public void onTransfer(User from, User to, double amount, String title) {
+    bus.publish(new DomainEvent.TransferMade(from.login, to.login, amount, title));
+  }
+
+  @Override
+  public void onBudget(User u, String category, double limit) {
+    bus.publish(new DomainEvent.BudgetSet(u.id, u.login, category, limit));
+    checkBudget(u, category, false);
+  }
+
+  @Override
+  public void onRoleChange(User u, User.Role role, boolean added) {
+    bus.publish(new DomainEvent.RoleChanged(u.id, u.login, role, added));
+  }
+
+  @Override
+  public void onDelete(User u) {
+    bus.publish(new DomainEvent.UserDeleted(u.id, u.login));
+  }
+
+  private void checkBudget(User u, String category, boolean expense) {
+    Double limit = u.wallet.getBudgetLimit(category);
+    if (limit == null || !alertsFor.test(u)) return;
+    double spent = u.wallet.getSpentByCategory(category);
+    if (expense) {
+      bus.publish(new DomainEvent.BudgetRemaining(u.id, u.login, category, limit, spent));
+    }
+    if (spent > limit) {
+      bus.publish(new DomainEvent.BudgetExceeded(u.id, u.login, category, limit, spent));
+    }
+  }
+}
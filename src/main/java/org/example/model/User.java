@@ -2,7 +2,9 @@ package org.example.model;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
 import java.util.HexFormat;
+import java.util.Objects;
 import java.util.Set;
 import org.mindrot.jbcrypt.BCrypt; // importing special crypto library to deal with password hashing
 
@@ -12,8 +14,9 @@ public final class User {
   public String name;
   public String surname;
 
-  private String passwordHash;
-  public final Wallet wallet = new Wallet();
+  // volatile: checkPassword is called without the lock of ApiService while setPassword may run
+  private volatile String passwordHash;
+  public final Wallet wallet;
 
   // exploring user roles using ENUMS
   public enum Role {
@@ -35,12 +38,25 @@ public final class User {
     this.login = login;
     this.name = name;
     this.surname = surname;
+    this.wallet = new Wallet();
     setPassword(rawPassword);
     if (id == 1) {
       roles.add(Role.SUPER_ADMIN); // this implementation with roles
     }
   }
 
+  // used by fromHash and restore, the password hash is filled in by the caller
+  private User(long id, String login, String name, String surname, Wallet wallet) {
+    this.id = id;
+    this.login = login;
+    this.name = name;
+    this.surname = surname;
+    this.wallet = Objects.requireNonNull(wallet, "wallet");
+    if (id == 1) {
+      roles.add(Role.SUPER_ADMIN);
+    }
+  }
+
   @Override
   public String toString() {
     return "Users{"
@@ -61,15 +77,47 @@ public final class User {
   }
 
   public void setPassword(String rawPassword) {
+    // this.passwordHash= sha256(rawPassword); //previous implementation
+    this.passwordHash = hashPassword(rawPassword);
+  }
+
+  // hashing is the expensive part of creating a user, it is exposed separately
+  // so that bulk registration can run it on all cores before creating users
+  public static String hashPassword(String rawPassword) {
     if (rawPassword == null || rawPassword.isBlank()) {
       throw new IllegalArgumentException("Password cannot be null or blank");
     }
-    // this.passwordHash= sha256(rawPassword); //previous implementation
-    this.passwordHash =
-        BCrypt.hashpw(
-            rawPassword,
-            BCrypt.gensalt(
-                12)); // 12 is the number of rounds of hashing (simple enough for our purposes)
+    return BCrypt.hashpw(
+        rawPassword,
+        BCrypt.gensalt(
+            12)); // 12 is the number of rounds of hashing (simple enough for our purposes)
+  }
+
+  // creating user from an already computed password hash (bulk registration)
+  public static User fromHash(
+      long id, String login, String name, String surname, String passwordHash) {
+    return restore(id, login, name, surname, passwordHash, null, new Wallet());
+  }
+
+  // rebuilding a saved user exactly as it was (roles and wallet included), used by the loaders
+  public static User restore(
+      long id,
+      String login,
+      String name,
+      String surname,
+      String passwordHash,
+      Collection<Role> roles,
+      Wallet wallet) {
+    if (passwordHash == null || passwordHash.isBlank()) {
+      throw new IllegalArgumentException("Password hash cannot be null or blank");
+    }
+    User u = new User(id, login, name, surname, wallet);
+    u.passwordHash = passwordHash;
+    if (roles != null && !roles.isEmpty()) {
+      u.roles.clear();
+      u.roles.addAll(roles);
+    }
+    return u;
   }
 
   // using hash function to hash password, previous implementation - not used now.
@@ -83,13 +131,19 @@ public final class User {
     }
   }
 
+  // needed by the storage layer to persist users without re-hashing
+  public String getPasswordHash() {
+    return passwordHash;
+  }
+
   public boolean checkPassword(String rawPassword) {
     // System.out.println("Checking password for user " + this.login);
     // System.out.println("Raw password: " + rawPassword);
     // System.out.println("Password hash: " + this.passwordHash);
     // return this.passwordHash !=null && this.passwordHash.equals(sha256(rawPassword)); //previous
     // implementation
-    return this.passwordHash != null && BCrypt.checkpw(rawPassword, this.passwordHash);
+    String hash = this.passwordHash; // read once, a new password may be set meanwhile
+    return hash != null && BCrypt.checkpw(rawPassword, hash);
   }
 
   public String getAdminStatus() {
@@ -4,17 +4,162 @@ import java.util.*;
 
 public class Wallet {
 
-  // transactions
-  public final List<Transaction> transactions = new ArrayList<>();
+  // transactions, an ArrayList or a list kept outside the heap (memory-mapped storage)
+  public final List<Transaction> transactions;
 
   // budgets and categories
   private final Map<String, Double> budgets = new LinkedHashMap<>();
-  private final Map<String, Double> spentByCat = new HashMap<>();
+
+  // aggregates, kept on the heap and updated with every transaction,
+  // so totals and reports do not walk the transactions
+  private final Map<String, Double> spentByCat = new LinkedHashMap<>();
+  private final Map<String, Double> incomeByCat = new LinkedHashMap<>();
+  private double income = 0;
+  private double expense = 0;
+  private double balance = 0;
+
+  // notified about every change of the wallet, not persisted
+  private transient Listener listener;
+
+  // snapshot of the aggregates, saved next to transactions which are not loaded at startup
+  public record Totals(
+      double income,
+      double expense,
+      double balance,
+      Map<String, Double> incomeByCat,
+      Map<String, Double> spentByCat) {
+    public Totals {
+      incomeByCat = new LinkedHashMap<>(incomeByCat);
+      spentByCat = new LinkedHashMap<>(spentByCat);
+    }
+
+    @Override
+    public Map<String, Double> incomeByCat() {
+      return new LinkedHashMap<>(incomeByCat);
+    }
+
+    @Override
+    public Map<String, Double> spentByCat() {
+      return new LinkedHashMap<>(spentByCat);
+    }
+  }
+
+  public Wallet() {
+    this.transactions = new ArrayList<>();
+  }
+
+  // wallet over an existing list of transactions; with totals == null the aggregates
+  // are rebuilt by reading the whole list, otherwise the list is not read at all
+  public Wallet(List<Transaction> backing, Totals totals) {
+    this.transactions = Objects.requireNonNull(backing, "backing");
+    if (totals == null) {
+      for (Transaction t : backing) {
+        account(t);
+      }
+    } else {
+      applyTotals(totals);
+    }
+  }
+
+  public Totals totals() {
+    return new Totals(income, expense, balance, incomeByCat, spentByCat);
+  }
+
+  // the aggregates as they follow from the transactions (reads the whole list),
+  // used to verify the kept ones after loading
+  public Totals computeTotals() {
+    return new Wallet(transactions, null).totals();
+  }
+
+  // null if the kept aggregates agree with the transactions, otherwise the right ones;
+  // compares the fields directly, without the copies made by totals()
+  public Totals checkTotals() {
+    Wallet actual = new Wallet(transactions, null);
+    if (Double.compare(income, actual.income) == 0
+        && Double.compare(expense, actual.expense) == 0
+        && Double.compare(balance, actual.balance) == 0
+        && incomeByCat.equals(actual.incomeByCat)
+        && spentByCat.equals(actual.spentByCat)) {
+      return null;
+    }
+    return actual.totals();
+  }
+
+  // replacing the kept aggregates, e.g. with computeTotals() when they were found wrong
+  public void restoreTotals(Totals totals) {
+    applyTotals(Objects.requireNonNull(totals, "totals"));
+  }
+
+  private void applyTotals(Totals totals) {
+    income = totals.income;
+    expense = totals.expense;
+    balance = totals.balance;
+    incomeByCat.clear();
+    incomeByCat.putAll(totals.incomeByCat);
+    spentByCat.clear();
+    spentByCat.putAll(totals.spentByCat);
+  }
+
+  public interface Listener {
+    void onTransaction(Transaction t);
+
+    void onBudget(String category, double limit);
+  }
+
+  public void setListener(Listener listener) {
+    this.listener = listener;
+  }
 
   public void addTransaction(double amount, String title, Transaction.Type type) {
-    transactions.add(new Transaction(amount, title, type));
-    if (type == Transaction.Type.EXPENSE) {
-      spentByCat.merge(title, amount, Double::sum);
+    Transaction t = new Transaction(amount, title, type);
+    transactions.add(t);
+    account(t);
+    if (listener != null) {
+      listener.onTransaction(t);
+    }
+  }
+
+  // adding many transactions at once (bulk import): the list grows once,
+  // every transaction is still reported to the listener (journal)
+  public void addTransactions(Collection<Transaction> batch) {
+    if (batch.isEmpty()) return;
+    if (transactions instanceof ArrayList<Transaction> list) {
+      list.ensureCapacity(list.size() + batch.size());
+    }
+    for (Transaction t : batch) {
+      transactions.add(Objects.requireNonNull(t, "transaction"));
+      account(t);
+    }
+    if (listener != null) {
+      for (Transaction t : batch) {
+        listener.onTransaction(t);
+      }
+    }
+  }
+
+  // filling a freshly loaded wallet: no notifications, the list is sized exactly once
+  // and the derived sums (spentByCat) are rebuilt here instead of being read from the file
+  public void restore(Collection<Transaction> saved, Map<String, Double> savedBudgets) {
+    if (transactions instanceof ArrayList<Transaction> list) {
+      list.ensureCapacity(list.size() + saved.size());
+    }
+    for (Transaction t : saved) {
+      transactions.add(t);
+      account(t);
+    }
+    budgets.putAll(savedBudgets);
+  }
+
+  // the same order of additions as summing the list, so the totals are exactly equal
+  private void account(Transaction t) {
+    if (t.type == Transaction.Type.INCOME) {
+      income += t.amount;
+      balance += t.amount;
+      incomeByCat.merge(t.title, t.amount, Double::sum);
+    } else {
+      expense += t.amount;
+      balance -= t.amount;
+      spentByCat.merge(t.title, t.amount, Double::sum);
     }
   }
 
@@ -23,24 +168,25 @@ public class Wallet {
   }
 
   public double getBalance() {
-    double sum = 0;
-    for (Transaction t : transactions) {
-      if (t.type == Transaction.Type.INCOME) {
-        sum += t.amount;
-      } else {
-        sum -= t.amount;
-      }
-    }
-    return sum;
+    return balance;
   }
 
   // budgets
   public void setBudget(String category, double limit) {
     budgets.put(category, limit);
+    if (listener != null) {
+      listener.onBudget(category, limit);
+    }
   }
 
   public Map<String, Double> getBudgets() {
-    return Map.copyOf(budgets); // fixing spotbugs error EL_EXSPOSE_REP
+    // fixing spotbugs error EL_EXSPOSE_REP, the copy keeps the order the budgets were added in
+    return Collections.unmodifiableMap(new LinkedHashMap<>(budgets));
+  }
+
+  // the limit of one category without copying all budgets, null if it has none
+  public Double getBudgetLimit(String category) {
+    return budgets.get(category);
   }
 
   public double getSpentByCategory(String category) {
@@ -78,43 +224,19 @@ public class Wallet {
 
   // counting all incomes
   public double sumIncome() {
-    double sum = 0;
-    for (Transaction t : transactions) {
-      if (t.type == Transaction.Type.INCOME) {
-        sum += t.amount;
-      }
-    }
-    return sum;
+    return income;
   }
 
   // counting all expenses
   public double sumExpense() {
-    double sum = 0;
-    for (Transaction t : transactions) {
-      if (t.type == Transaction.Type.EXPENSE) {
-        sum += t.amount;
-      }
-    }
-    return sum;
+    return expense;
   }
 
   public Map<String, Double> incomesByCategory() {
-    Map<String, Double> m = new LinkedHashMap<>();
-    for (Transaction t : transactions) {
-      if (t.type == Transaction.Type.INCOME) {
-        m.merge(t.title, t.amount, Double::sum);
-      }
-    }
-    return m;
+    return new LinkedHashMap<>(incomeByCat);
   }
 
   public Map<String, Double> expensesByCategory() {
-    Map<String, Double> m = new LinkedHashMap<>();
-    for (Transaction t : transactions) {
-      if (t.type == Transaction.Type.EXPENSE) {
-        m.merge(t.title, t.amount, Double::sum);
-      }
-    }
-    return m;
+    return new LinkedHashMap<>(spentByCat);
   }
 }
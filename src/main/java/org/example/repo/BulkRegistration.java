@@ -0,0 +1,45 @@
+package org.example.repo;
+
+import java.util.List;
+import org.example.model.User;
+
+// result of UsersRepo.registerAll: registered users plus one failure per rejected record,
+// so that a single bad line of a partner file does not stop the whole onboarding
+public final class BulkRegistration {
+
+  // one user record to register
+  public record Entry(String login, String name, String surname, String password) {}
+
+  // rejected record: its position in the input stream and the reason
+  public record Failure(int index, String login, String reason) {}
+
+  private final List<User> registered;
+  private final List<Failure> failures;
+
+  BulkRegistration(List<User> registered, List<Failure> failures) {
+    this.registered = List.copyOf(registered);
+    this.failures = List.copyOf(failures);
+  }
+
+  public List<User> getRegistered() {
+    return registered;
+  }
+
+  public List<Failure> getFailures() {
+    return failures;
+  }
+
+  public boolean hasFailures() {
+    return !failures.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return "BulkRegistration{"
+        + "registered="
+        + registered.size()
+        + ", failures="
+        + failures.size()
+        + '}';
+  }
+}
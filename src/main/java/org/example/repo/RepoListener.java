@@ -0,0 +1,29 @@
+package org.example.repo;
+
+import java.util.function.Supplier;
+import org.example.model.Transaction;
+import org.example.model.User;
+
+// callbacks about every change of the repository (journal, autosave and so on),
+// all methods are called after the change has been applied to memory
+public interface RepoListener {
+
+  // wraps a registration, new ids are given out inside; a listener shared with other processes
+  // (journal) takes in their registrations first, so the same id is never given out twice
+  default <T> T aroundRegister(Supplier<T> registration) {
+    return registration.get();
+  }
+
+  default void onRegister(User u) {}
+
+  default void onTransaction(User u, Transaction t) {}
+
+  // a transfer is reported once, its two wallet transactions are not reported separately
+  default void onTransfer(User from, User to, double amount, String title) {}
+
+  default void onBudget(User u, String category, double limit) {}
+
+  default void onRoleChange(User u, User.Role role, boolean added) {}
+
+  default void onDelete(User u) {}
+}
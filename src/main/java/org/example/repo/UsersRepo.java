@@ -1,35 +1,232 @@
 package org.example.repo;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import org.example.model.Transaction;
 import org.example.model.User;
+import org.example.model.Wallet;
+import org.example.util.ConsoleRenderer;
 
 public class UsersRepo {
-  private final Map<String, User> byLogin = new HashMap<>();
-  private final Map<Long, User> byId = new HashMap<>();
+  private final Map<String, User> byLogin;
+  private final Map<Long, User> byId;
   private long nextId = 1L;
   // private static int firstUserCounter = 1;
 
-  private boolean isPreviousDataExists =
+  private transient boolean isPreviousDataExists =
       false; // special flag to decide whether we load UserRepo from the file or not
 
+  // the longest valid login (isValidLogin), the login column of listAllUsers is never cut
+  private static final int LOGIN_WIDTH = 32;
+
+  // change listeners (journal etc.), transient fields are not saved to the file
+  private final transient List<RepoListener> listeners = new CopyOnWriteArrayList<>();
+  private transient boolean transferInProgress = false;
+  // ids of users changed (or deleted) since the last save, used by incremental storage
+  private final transient Set<Long> dirtyIds = new HashSet<>();
+  // number of the last journal checkpoint this data was saved by (0 = none), see Journal
+  private transient long journalEpoch = 0;
+
+  public UsersRepo() {
+    this(16);
+  }
+
+  // loaders that know the number of users create the maps with the right size at once
+  public UsersRepo(int expectedUsers) {
+    int capacity = (int) Math.min(1 << 30, Math.max(16, expectedUsers * 4L / 3 + 1));
+    byLogin = new HashMap<>(capacity);
+    byId = new HashMap<>(capacity);
+  }
+
   // registering users,
   // if no data file to load from, first user to register will be a superadmin, this user cannot be
   // deleted
   public User register(String login, String name, String surname, String rawPassword) {
-    login = normalizeLogin(login);
-    if (!isValidLogin(login)) {
+    String normalized = normalizeLogin(login);
+    if (!isValidLogin(normalized)) {
       throw new IllegalArgumentException("Invalid login format");
     }
+    return registering(() -> registerNew(normalized, name, surname, rawPassword));
+  }
+
+  private User registerNew(String login, String name, String surname, String rawPassword) {
     User u = byLogin.get(login);
     if (u == null) {
       u = new User(nextId++, login, name, surname, rawPassword, isPreviousDataExists);
       byLogin.put(login, u);
       byId.put(u.id, u);
+      attach(u);
+      dirtyIds.add(u.id);
+      for (RepoListener l : listeners) l.onRegister(u);
     }
     return u;
   }
 
+  // registering with a password hashed beforehand (User.hashPassword), so that callers which
+  // share the repo between threads can run BCrypt outside their lock; null if the login is taken
+  public User registerHashed(String login, String name, String surname, String passwordHash) {
+    String normalized = normalizeLogin(login);
+    if (!isValidLogin(normalized)) {
+      throw new IllegalArgumentException("Invalid login format");
+    }
+    return registering(() -> registerNewHashed(normalized, name, surname, passwordHash));
+  }
+
+  private User registerNewHashed(String login, String name, String surname, String passwordHash) {
+    if (byLogin.containsKey(login)) return null;
+    User u = User.fromHash(nextId++, login, name, surname, passwordHash);
+    byLogin.put(login, u);
+    byId.put(u.id, u);
+    attach(u);
+    dirtyIds.add(u.id);
+    for (RepoListener l : listeners) l.onRegister(u);
+    return u;
+  }
+
+  // running a registration inside aroundRegister() of every listener
+  private <T> T registering(Supplier<T> registration) {
+    Supplier<T> chain = registration;
+    for (RepoListener l : listeners) {
+      Supplier<T> inner = chain;
+      chain = () -> l.aroundRegister(inner);
+    }
+    return chain.get();
+  }
+
+  // putting already existing user (loaded from storage) into the repo, keeps its id
+  public void restore(User u) {
+    Objects.requireNonNull(u, "user");
+    byLogin.put(u.login, u);
+    byId.put(u.id, u);
+    nextId = Math.max(nextId, u.id + 1);
+    attach(u);
+  }
+
+  public void addListener(RepoListener listener) {
+    listeners.add(Objects.requireNonNull(listener, "listener"));
+    // users loaded by GSON have no wallet listeners yet
+    for (User u : byLogin.values()) attach(u);
+  }
+
+  public void removeListener(RepoListener listener) {
+    listeners.remove(listener);
+  }
+
+  // forwarding wallet changes to the repo listeners together with the wallet owner
+  private void attach(User u) {
+    u.wallet.setListener(
+        new Wallet.Listener() {
+          @Override
+          public void onTransaction(Transaction t) {
+            dirtyIds.add(u.id);
+            if (transferInProgress) return; // reported once as a transfer
+            for (RepoListener l : listeners) l.onTransaction(u, t);
+          }
+
+          @Override
+          public void onBudget(String category, double limit) {
+            dirtyIds.add(u.id);
+            for (RepoListener l : listeners) l.onBudget(u, category, limit);
+          }
+        });
+  }
+
+  // registering many users at once (partner onboarding)
+  // 1) one validation pass: login format, duplicates in the batch and in the repo, empty passwords
+  // 2) BCrypt hashing of accepted records on all cores
+  // 3) ids are reserved as one block and users are published to the maps at the end
+  // bad records are reported in the result instead of throwing on the first one
+  public BulkRegistration registerAll(Stream<BulkRegistration.Entry> entries) {
+    Objects.requireNonNull(entries, "entries");
+    List<BulkRegistration.Entry> accepted = new ArrayList<>();
+    List<String> acceptedLogins = new ArrayList<>();
+    List<Integer> acceptedIndexes = new ArrayList<>();
+    List<BulkRegistration.Failure> failures = new ArrayList<>();
+    Set<String> seen = new HashSet<>();
+
+    Iterator<BulkRegistration.Entry> it = entries.sequential().iterator();
+    for (int index = 0; it.hasNext(); index++) {
+      BulkRegistration.Entry e = it.next();
+      if (e == null) {
+        failures.add(new BulkRegistration.Failure(index, null, "Empty record"));
+        continue;
+      }
+      String login = normalizeLogin(e.login());
+      String reason = null;
+      if (!isValidLogin(login)) {
+        reason = "Invalid login format";
+      } else if (byLogin.containsKey(login)) {
+        reason = "User already exists";
+      } else if (e.password() == null || e.password().isBlank()) {
+        reason = "Password cannot be null or blank";
+      } else if (!seen.add(login)) {
+        // checked last: only an accepted record takes its login in the batch
+        reason = "Duplicate login in batch";
+      }
+      if (reason != null) {
+        failures.add(new BulkRegistration.Failure(index, e.login(), reason));
+      } else {
+        accepted.add(e);
+        acceptedLogins.add(login);
+        acceptedIndexes.add(index);
+      }
+    }
+
+    // hashing is the slow part (BCrypt), so it runs in parallel on the common pool
+    String[] hashes = new String[accepted.size()];
+    IntStream.range(0, hashes.length)
+        .parallel()
+        .forEach(i -> hashes[i] = User.hashPassword(accepted.get(i).password()));
+
+    return registering(
+        () -> {
+          // a login may have been registered meanwhile by another instance sharing the journal
+          List<Integer> free = new ArrayList<>(hashes.length);
+          for (int i = 0; i < hashes.length; i++) {
+            if (byLogin.containsKey(acceptedLogins.get(i))) {
+              failures.add(
+                  new BulkRegistration.Failure(
+                      acceptedIndexes.get(i), accepted.get(i).login(), "User already exists"));
+            } else {
+              free.add(i);
+            }
+          }
+          return publish(accepted, acceptedLogins, hashes, free, failures);
+        });
+  }
+
+  private BulkRegistration publish(
+      List<BulkRegistration.Entry> accepted,
+      List<String> acceptedLogins,
+      String[] hashes,
+      List<Integer> free,
+      List<BulkRegistration.Failure> failures) {
+    // reserving the whole id block at once, ids follow the input order
+    long firstId = nextId;
+    nextId += free.size();
+
+    List<User> registered = new ArrayList<>(free.size());
+    for (int k = 0; k < free.size(); k++) {
+      int i = free.get(k);
+      BulkRegistration.Entry e = accepted.get(i);
+      registered.add(
+          User.fromHash(firstId + k, acceptedLogins.get(i), e.name(), e.surname(), hashes[i]));
+    }
+    for (User u : registered) {
+      byLogin.put(u.login, u);
+      byId.put(u.id, u);
+      attach(u);
+      dirtyIds.add(u.id);
+    }
+    for (User u : registered) {
+      for (RepoListener l : listeners) l.onRegister(u);
+    }
+    return new BulkRegistration(registered, failures);
+  }
+
   public User authenticate(String login, String rawPassword) {
     login = normalizeLogin(login);
     User u = byLogin.get(login);
@@ -40,6 +237,10 @@ public class UsersRepo {
     return byLogin.get(normalizeLogin(login));
   }
 
+  public User findById(long id) {
+    return byId.get(id);
+  }
+
   public List<User> listAll() {
     return new ArrayList<>(byLogin.values());
   }
@@ -75,8 +276,14 @@ public class UsersRepo {
             ? "transfer from " + fromLogin
             : "transfer from " + fromLogin + " | " + title;
 
-    from.wallet.addTransaction(amount, noteOut, Transaction.Type.EXPENSE);
-    to.wallet.addTransaction(amount, noteIn, Transaction.Type.INCOME);
+    transferInProgress = true;
+    try {
+      from.wallet.addTransaction(amount, noteOut, Transaction.Type.EXPENSE);
+      to.wallet.addTransaction(amount, noteIn, Transaction.Type.INCOME);
+    } finally {
+      transferInProgress = false;
+    }
+    for (RepoListener l : listeners) l.onTransfer(from, to, amount, title);
     return true;
   }
 
@@ -85,6 +292,8 @@ public class UsersRepo {
     if (u != null) {
       byLogin.remove(u.login);
       byId.remove(u.id);
+      dirtyIds.add(u.id);
+      for (RepoListener l : listeners) l.onDelete(u);
       return true;
     }
     return false;
@@ -100,8 +309,10 @@ public class UsersRepo {
       // throw new IllegalArgumentException("Invalid login or password");
       return false;
     }
-    byLogin.remove(login);
+    byLogin.remove(u.login);
     byId.remove(u.id);
+    dirtyIds.add(u.id);
+    for (RepoListener l : listeners) l.onDelete(u);
     return true;
   }
 
@@ -122,6 +333,8 @@ public class UsersRepo {
       throw new RepoExceptions.Conflict("User is already admin or super-admin: " + newAdminLogin);
     }
     newAdmin.addRole(User.Role.ADMIN);
+    dirtyIds.add(newAdmin.id);
+    for (RepoListener l : listeners) l.onRoleChange(newAdmin, User.Role.ADMIN, true);
     return true;
   }
 
@@ -133,32 +346,237 @@ public class UsersRepo {
     if (u.hasRole(User.Role.SUPER_ADMIN)) {
       throw new RepoExceptions.Forbidden("Cannot remove role from super-admin");
     }
-    u.removeRole(User.Role.ADMIN);
+    if (u.hasRole(User.Role.ADMIN)) {
+      u.removeRole(User.Role.ADMIN);
+      dirtyIds.add(u.id);
+      for (RepoListener l : listeners) l.onRoleChange(u, User.Role.ADMIN, false);
+    }
     return true;
   }
 
   // showing all users
   public void listAllUsers() {
+    ConsoleRenderer r = ConsoleRenderer.stdout();
+    r.table(8, -LOGIN_WIDTH, -16, -16, -24).header("Id", "Login", "Name", "Surname", "Roles");
+    StringBuilder roles = new StringBuilder();
     for (User u : byLogin.values()) {
-      System.out.println(u);
+      roles.setLength(0);
+      for (User.Role role : User.Role.values()) {
+        if (!u.hasRole(role)) continue;
+        if (roles.length() > 0) roles.append(',');
+        roles.append(role.name());
+      }
+      r.cell(u.id).cell(u.login).cell(u.name).cell(u.surname).cell(roles.toString()).endRow();
     }
+    r.flush();
   }
 
-  // deleting all users except super admin
-  public void deleteAllUsers() {
-    // deleting all users except super admin
+  // deleting all users except super admin, returns the logins removed.
+  // the listeners are told after the maps are changed, not from inside the removal
+  public List<String> deleteAllUsers() {
+    List<User> removed = new ArrayList<>();
     byLogin
-        .entrySet()
+        .values()
         .removeIf(
-            e -> {
-              User u = e.getValue();
-              if (u != null && !u.hasRole(User.Role.SUPER_ADMIN)) {
-                byId.remove(u.id);
-                System.out.println("Removed user [" + u.login + "] from user list");
-                return true;
-              }
-              return false;
+            u -> {
+              if (u == null || u.hasRole(User.Role.SUPER_ADMIN)) return false;
+              removed.add(u);
+              return true;
             });
+    List<String> logins = new ArrayList<>(removed.size());
+    for (User u : removed) {
+      byId.remove(u.id);
+      dirtyIds.add(u.id);
+      logins.add(u.login);
+    }
+    for (User u : removed) {
+      for (RepoListener l : listeners) l.onDelete(u);
+    }
+    return logins;
+  }
+
+  // ---------- integrity check after loading ----------
+
+  // checking what loaders and earlier versions could leave inconsistent:
+  // 1) wallet aggregates (sums by category, totals) against the transactions, recomputed for
+  //    every wallet in parallel; each task touches only its own wallet
+  // 2) byLogin and byId must hold the same users under their own login and id
+  // 3) every id must be below nextId, otherwise a new user could get an existing id
+  // with repair = true the aggregates are replaced, the maps are rebuilt from byLogin and nextId
+  // is moved past the largest id; repaired users are marked dirty so the next save writes them.
+  // two users with the same id cannot be repaired (ids are final), they are only reported.
+  // wallets over lists kept outside the heap (memory-mapped, lazy storages) are not read,
+  // that would load all their transactions
+  public Verification verify(boolean repair) {
+    long start = System.nanoTime();
+    List<User> users = new ArrayList<>(byLogin.values());
+    List<Verification.Problem> problems = new ArrayList<>();
+
+    List<User> wallets =
+        users.stream().filter(u -> u.wallet.transactions instanceof ArrayList).toList();
+    List<Verification.Problem> walletProblems =
+        wallets.parallelStream()
+            .map(u -> verifyWallet(u, repair))
+            .filter(Objects::nonNull)
+            .toList();
+    problems.addAll(walletProblems);
+    for (Verification.Problem p : walletProblems) {
+      if (p.repaired()) dirtyIds.add(p.id());
+    }
+
+    // byLogin is the source: users can only be found by their login
+    Map<Long, User> expectedById = new HashMap<>();
+    boolean rebuild = false;
+    for (Map.Entry<String, User> e : byLogin.entrySet()) {
+      User u = e.getValue();
+      if (!e.getKey().equals(u.login)) {
+        problems.add(problem(u, "stored under login '" + e.getKey() + "'", repair));
+        rebuild = true;
+      }
+      User other = expectedById.putIfAbsent(u.id, u);
+      if (other != null) {
+        problems.add(problem(u, "has the same id as '" + other.login + "'", false));
+      } else if (byId.get(u.id) != u) {
+        problems.add(problem(u, "is missing in the id index", repair));
+        rebuild = true;
+      }
+    }
+    for (Map.Entry<Long, User> e : byId.entrySet()) {
+      User u = e.getValue();
+      if (u == null || e.getKey() != u.id || byLogin.get(u.login) != u) {
+        long id = e.getKey();
+        problems.add(
+            new Verification.Problem(
+                id,
+                u == null ? null : u.login,
+                "is not a registered user in the id index",
+                repair));
+        rebuild = true;
+      }
+    }
+    if (repair && rebuild) {
+      Map<String, User> logins = new HashMap<>(byLogin);
+      byLogin.clear();
+      byId.clear();
+      for (User u : logins.values()) {
+        byLogin.putIfAbsent(u.login, u);
+        byId.putIfAbsent(u.id, u);
+        dirtyIds.add(u.id);
+      }
+    }
+
+    long maxId = 0;
+    for (User u : byLogin.values()) {
+      maxId = Math.max(maxId, u.id);
+    }
+    if (maxId >= nextId) {
+      problems.add(
+          new Verification.Problem(
+              -1, null, "nextId " + nextId + " is not above the largest id " + maxId, repair));
+      if (repair) nextId = maxId + 1;
+    }
+    return new Verification(users.size(), wallets.size(), problems, System.nanoTime() - start);
+  }
+
+  private static Verification.Problem verifyWallet(User u, boolean repair) {
+    Wallet.Totals actual = u.wallet.checkTotals();
+    if (actual == null) return null;
+    Wallet.Totals kept = u.wallet.totals();
+    if (repair) u.wallet.restoreTotals(actual);
+    String reason =
+        Double.compare(kept.balance(), actual.balance()) != 0
+            ? "balance " + kept.balance() + " instead of " + actual.balance()
+            : "sums by category differ from the transactions";
+    return new Verification.Problem(u.id, u.login, reason, repair);
+  }
+
+  private static Verification.Problem problem(User u, String reason, boolean repaired) {
+    return new Verification.Problem(u.id, u.login, reason, repaired);
+  }
+
+  // ---------- merging a re-read data file ----------
+
+  // making the repository equal to a fresh copy read from the file: users which differ are
+  // replaced by the new objects, new ones are added, missing ones are removed; unchanged users
+  // keep their objects. listeners are not notified (the changes are already in the file),
+  // callers holding a User should find it again by login. returns the logins touched
+  public Set<String> merge(UsersRepo fresh) {
+    Objects.requireNonNull(fresh, "fresh");
+    Set<String> changed = new TreeSet<>();
+    for (User u : fresh.byLogin.values()) {
+      User old = byLogin.get(u.login);
+      if (old != null && sameContent(old, u)) continue;
+      if (old != null && byId.get(old.id) == old) byId.remove(old.id);
+      byLogin.put(u.login, u);
+      byId.put(u.id, u);
+      attach(u);
+      changed.add(u.login);
+    }
+    Iterator<User> it = byLogin.values().iterator();
+    while (it.hasNext()) {
+      User u = it.next();
+      if (fresh.byLogin.containsKey(u.login)) continue;
+      it.remove();
+      if (byId.get(u.id) == u) byId.remove(u.id);
+      changed.add(u.login);
+    }
+    nextId = Math.max(nextId, fresh.nextId);
+    return changed;
+  }
+
+  private static boolean sameContent(User a, User b) {
+    if (a.id != b.id
+        || !Objects.equals(a.name, b.name)
+        || !Objects.equals(a.surname, b.surname)
+        || !Objects.equals(a.getPasswordHash(), b.getPasswordHash())
+        || !a.getRoles().equals(b.getRoles())
+        || !a.wallet.getBudgets().equals(b.wallet.getBudgets())) {
+      return false;
+    }
+    List<Transaction> x = a.wallet.transactions;
+    List<Transaction> y = b.wallet.transactions;
+    if (x.size() != y.size()) return false;
+    for (int i = 0; i < x.size(); i++) {
+      Transaction s = x.get(i);
+      Transaction t = y.get(i);
+      if (Double.compare(s.amount, t.amount) != 0
+          || s.type != t.type
+          || !Objects.equals(s.title, t.title)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // ---------- dirty tracking for incremental saves ----------
+
+  // ids of users registered, changed or deleted since the last save
+  public Set<Long> getDirtyIds() {
+    return Set.copyOf(dirtyIds);
+  }
+
+  // called by the storage after the given users were saved
+  public void markClean(Collection<Long> ids) {
+    for (Long id : ids) {
+      dirtyIds.remove(id);
+    }
+  }
+
+  public long getNextId() {
+    return nextId;
+  }
+
+  // used by loaders, ids of deleted users must not be given out again
+  public void advanceNextId(long value) {
+    nextId = Math.max(nextId, value);
+  }
+
+  public long getJournalEpoch() {
+    return journalEpoch;
+  }
+
+  public void setJournalEpoch(long value) {
+    journalEpoch = value;
   }
 
   // setters and getters for previous data exist
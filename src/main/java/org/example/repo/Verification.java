@@ -0,0 +1,63 @@
+package org.example.repo;
+
+import java.util.List;
+
+// result of UsersRepo.verify: what was found inconsistent after loading and whether it was
+// repaired; an empty list of problems means the repository is consistent
+public final class Verification {
+
+  // one inconsistency; id and login of the user it concerns (-1 / null for the repository)
+  public record Problem(long id, String login, String reason, boolean repaired) {}
+
+  private final int checkedUsers;
+  private final int checkedWallets;
+  private final List<Problem> problems;
+  private final long nanos;
+
+  Verification(int checkedUsers, int checkedWallets, List<Problem> problems, long nanos) {
+    this.checkedUsers = checkedUsers;
+    this.checkedWallets = checkedWallets;
+    this.problems = List.copyOf(problems);
+    this.nanos = nanos;
+  }
+
+  public int getCheckedUsers() {
+    return checkedUsers;
+  }
+
+  // wallets whose aggregates were recomputed (lists kept outside the heap are not read)
+  public int getCheckedWallets() {
+    return checkedWallets;
+  }
+
+  public List<Problem> getProblems() {
+    return problems;
+  }
+
+  public boolean isConsistent() {
+    return problems.isEmpty();
+  }
+
+  // every problem found was repaired
+  public boolean isRepaired() {
+    return problems.stream().allMatch(Problem::repaired);
+  }
+
+  public long getMillis() {
+    return nanos / 1_000_000;
+  }
+
+  @Override
+  public String toString() {
+    return "Verification{"
+        + "users="
+        + checkedUsers
+        + ", wallets="
+        + checkedWallets
+        + ", problems="
+        + problems.size()
+        + ", millis="
+        + getMillis()
+        + '}';
+  }
+}
@@ -0,0 +1,44 @@
+package org.example.storage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+// helpers for replacing storage files so that a crash never leaves a half-written file:
+// everything is written to a temporary sibling first and then moved over the target
+final class AtomicFiles {
+
+  // constructor is private to prevent instantiation
+  private AtomicFiles() {
+    throw new AssertionError("No instances allowed");
+  }
+
+  static Path tempFor(Path file) {
+    return file.resolveSibling(file.getFileName() + ".tmp");
+  }
+
+  static void replace(Path tmp, Path target) throws IOException {
+    try {
+      Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  // replace() that survives a power loss: the data of tmp is on disk before the move and the
+  // move itself (the directory entry) after it; for files something else depends on, like
+  // the snapshot the journal is emptied into
+  static void replaceDurably(Path tmp, Path target) throws IOException {
+    try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+      ch.force(true);
+    }
+    replace(tmp, target);
+    Path dir = target.toAbsolutePath().getParent();
+    if (dir == null) return;
+    try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+      ch.force(true);
+    } catch (IOException e) {
+      // directories cannot be opened on some systems (Windows), the move is durable there
+    }
+  }
+}
@@ -0,0 +1,252 @@
+package org.example.storage;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.RepoListener;
+
+// background persistence worker.
+// change notifications are coalesced: the save runs on a separate thread once no change
+// happened for the quiet period, or when the oldest unsaved change reaches the maximum delay.
+// if saves fall behind (a save is running and too many changes piled up) the thread that
+// reports changes waits for the save to finish. close() performs a final flush bounded in time
+public final class AutoSaver implements RepoListener, AutoCloseable {
+
+  // what to run in the background (for example Journal::flush)
+  @FunctionalInterface
+  public interface SaveAction {
+    void save() throws IOException;
+  }
+
+  private final SaveAction action;
+  private final long quietNanos;
+  private final long maxDelayNanos;
+  private final int maxPendingChanges;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+  private final Condition saved = lock.newCondition();
+
+  // all fields below are guarded by the lock
+  private long pendingChanges = 0;
+  private long firstChangeAt = 0;
+  private long lastChangeAt = 0;
+  private boolean saving = false;
+  private boolean flushRequested = false;
+  private boolean closed = false;
+  private long saves = 0;
+  private long failures = 0;
+
+  private final Thread worker;
+
+  public AutoSaver(SaveAction action, Duration quiet, Duration maxDelay, int maxPendingChanges) {
+    this.action = Objects.requireNonNull(action, "action");
+    this.quietNanos = quiet.toNanos();
+    this.maxDelayNanos = maxDelay.toNanos();
+    if (quietNanos < 0 || maxDelayNanos < quietNanos || maxPendingChanges < 1) {
+      throw new IllegalArgumentException("Invalid autosave settings");
+    }
+    this.maxPendingChanges = maxPendingChanges;
+    this.worker = new Thread(this::run, "autosave");
+    this.worker.setDaemon(true);
+    this.worker.start();
+  }
+
+  // registering a time-bounded final flush for the case the JVM is stopped without exit menu
+  public void installShutdownHook(Duration timeout) {
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> close(timeout), "autosave-shutdown"));
+  }
+
+  public void notifyChanged() {
+    lock.lock();
+    try {
+      if (closed) return;
+      // backpressure: the previous save is still running and the backlog is full
+      while (saving && pendingChanges >= maxPendingChanges && !closed) {
+        saved.await();
+      }
+      long now = System.nanoTime();
+      if (pendingChanges == 0) firstChangeAt = now;
+      lastChangeAt = now;
+      pendingChanges++;
+      changed.signalAll();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // asking for an immediate save and waiting for it, false if it did not finish in time
+  public boolean flush(Duration timeout) {
+    lock.lock();
+    try {
+      long failuresBefore = failures;
+      flushRequested = true;
+      changed.signalAll();
+      long left = timeout.toNanos();
+      while (pendingChanges > 0 || saving) {
+        if (left <= 0 || !worker.isAlive() || failures > failuresBefore) return false;
+        left = saved.awaitNanos(left);
+      }
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // final flush, then the worker stops; returns false if the flush did not finish in time
+  public boolean close(Duration timeout) {
+    long start = System.nanoTime();
+    boolean done = flush(timeout);
+    lock.lock();
+    try {
+      closed = true;
+      changed.signalAll();
+      saved.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    long left = timeout.toNanos() - (System.nanoTime() - start);
+    if (left > 0 && Thread.currentThread() != worker) {
+      try {
+        worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(left)));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return done;
+  }
+
+  @Override
+  public void close() {
+    close(Duration.ofSeconds(5));
+  }
+
+  public long getSaves() {
+    lock.lock();
+    try {
+      return saves;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getFailures() {
+    lock.lock();
+    try {
+      return failures;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // the save itself runs without the lock, so changes can be reported meanwhile
+  private void run() {
+    while (true) {
+      long batch = awaitBatch();
+      if (batch < 0) return;
+      boolean ok = false;
+      try {
+        action.save();
+        ok = true;
+      } catch (IOException | RuntimeException e) {
+        System.err.println("Autosave failed: " + e.getMessage());
+      }
+      finished(batch, ok);
+    }
+  }
+
+  // waiting until the pending changes are due, -1 when closed
+  private long awaitBatch() {
+    lock.lock();
+    try {
+      while (!closed) {
+        if (pendingChanges == 0) {
+          flushRequested = false;
+          changed.await();
+          continue;
+        }
+        long now = System.nanoTime();
+        long due = Math.min(lastChangeAt + quietNanos, firstChangeAt + maxDelayNanos);
+        if (!flushRequested && due - now > 0) {
+          // woken by a new change: the quiet deadline has moved, computing it again
+          if (changed.awaitNanos(due - now) > 0) continue;
+        }
+        long batch = pendingChanges;
+        pendingChanges = 0;
+        flushRequested = false;
+        saving = true;
+        return batch;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      lock.unlock();
+    }
+    finished(0, true);
+    return -1;
+  }
+
+  private void finished(long batch, boolean ok) {
+    lock.lock();
+    try {
+      saving = false;
+      if (batch > 0 && ok) {
+        saves++;
+      } else if (!ok) {
+        failures++;
+        // the changes are still unsaved, they will be retried after the next delay
+        if (pendingChanges == 0) firstChangeAt = System.nanoTime();
+        pendingChanges += batch;
+        lastChangeAt = System.nanoTime();
+      }
+      saved.signalAll();
+      if (!ok && flushRequested) {
+        flushRequested = false; // do not spin on a failing save
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // ---------- every change of the repository is a notification ----------
+
+  @Override
+  public void onRegister(User u) {
+    notifyChanged();
+  }
+
+  @Override
+  public void onTransaction(User u, Transaction t) {
+    notifyChanged();
+  }
+
+  @Override
+  public void onTransfer(User from, User to, double amount, String title) {
+    notifyChanged();
+  }
+
+  @Override
+  public void onBudget(User u, String category, double limit) {
+    notifyChanged();
+  }
+
+  @Override
+  public void onRoleChange(User u, User.Role role, boolean added) {
+    notifyChanged();
+  }
+
+  @Override
+  public void onDelete(User u) {
+    notifyChanged();
+  }
+}
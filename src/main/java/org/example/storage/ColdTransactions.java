@@ -0,0 +1,154 @@
+package org.example.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import org.example.model.Transaction;
+import org.example.model.Wallet;
+
+// transactions of a wallet whose older part is archived (TransactionArchive): the first
+// coldCount are in compressed segments of the archive file, the newer ones are on the heap.
+// coldTotals are the aggregates of the archived part summed in list order, the wallet continues
+// them over the heap part, so balances and sums are exactly those of the whole list and never
+// read the archive. get() of an archived index pages its segment back in; the last segment
+// paged in is kept, so a scan of the list decodes every segment once. readers of a whole range
+// on several threads (export) use range(), which does not touch the paged segment
+final class ColdTransactions extends AbstractList<Transaction> implements RandomAccess {
+
+  // a segment of the archive file and the number of transactions in it
+  record Segment(long offset, int count) {}
+
+  private final Path archive;
+  private final List<Segment> segments;
+  private final int[] starts; // index of the first transaction of every segment
+  private final int coldCount;
+  private final Wallet.Totals coldTotals;
+  private final List<Transaction> hot;
+  private int pagedIndex = -1;
+  private List<Transaction> paged;
+
+  ColdTransactions(
+      Path archive, List<Segment> segments, Wallet.Totals coldTotals, List<Transaction> hot) {
+    this.archive = Objects.requireNonNull(archive, "archive");
+    this.segments = List.copyOf(segments);
+    this.coldTotals = Objects.requireNonNull(coldTotals, "coldTotals");
+    this.hot = new ArrayList<>(hot);
+    this.starts = new int[this.segments.size()];
+    long count = 0;
+    for (int i = 0; i < starts.length; i++) {
+      starts[i] = (int) count;
+      count += this.segments.get(i).count();
+      if (count > Integer.MAX_VALUE) throw new IllegalArgumentException("Too many transactions");
+    }
+    this.coldCount = (int) count;
+  }
+
+  Path archive() {
+    return archive;
+  }
+
+  List<Segment> segments() {
+    return segments;
+  }
+
+  Wallet.Totals coldTotals() {
+    return coldTotals;
+  }
+
+  int coldCount() {
+    return coldCount;
+  }
+
+  // the transactions on the heap, in order
+  synchronized List<Transaction> hot() {
+    return List.copyOf(hot);
+  }
+
+  @Override
+  public synchronized Transaction get(int index) {
+    if (index >= coldCount) return hot.get(index - coldCount);
+    if (index < 0) throw new IndexOutOfBoundsException("Index: " + index);
+    int s = segmentOf(index);
+    if (s != pagedIndex) {
+      Segment seg = segments.get(s);
+      try {
+        paged = TransactionArchive.readSegment(archive, seg.offset(), seg.count());
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot read archived transactions from " + archive, e);
+      }
+      pagedIndex = s;
+    }
+    return paged.get(index - starts[s]);
+  }
+
+  // the transactions from..to (exclusive) as a new list, every archived segment of the range
+  // is decoded once into it
+  List<Transaction> range(int from, int to) {
+    List<Transaction> hotPart;
+    synchronized (this) {
+      if (from < 0 || from > to || to > size()) {
+        throw new IndexOutOfBoundsException("Range " + from + ".." + to + " of " + size());
+      }
+      int hotFrom = Math.max(from, coldCount) - coldCount;
+      int hotTo = Math.max(to, coldCount) - coldCount;
+      hotPart = new ArrayList<>(hot.subList(hotFrom, hotTo));
+    }
+    List<Transaction> out = new ArrayList<>(to - from);
+    if (from < coldCount) {
+      for (int s = segmentOf(from); s < starts.length && starts[s] < to; s++) {
+        Segment seg = segments.get(s);
+        List<Transaction> decoded;
+        try {
+          decoded = TransactionArchive.readSegment(archive, seg.offset(), seg.count());
+        } catch (IOException e) {
+          throw new UncheckedIOException("Cannot read archived transactions from " + archive, e);
+        }
+        int lo = Math.max(from, starts[s]) - starts[s];
+        int hi = Math.min(to, starts[s] + seg.count()) - starts[s];
+        out.addAll(decoded.subList(lo, hi));
+      }
+    }
+    out.addAll(hotPart);
+    return out;
+  }
+
+  @Override
+  public synchronized int size() {
+    return coldCount + hot.size();
+  }
+
+  @Override
+  public synchronized boolean add(Transaction t) {
+    hot.add(t);
+    modCount++;
+    return true;
+  }
+
+  // equality of lists, where the transactions are kept does not take part
+  // (fixing spotbugs error EQ_DOESNT_OVERRIDE_EQUALS)
+  @Override
+  public boolean equals(Object o) {
+    return super.equals(o);
+  }
+
+  @Override
+  public int hashCode() {
+    return super.hashCode();
+  }
+
+  private int segmentOf(int index) {
+    int lo = 0;
+    int hi = starts.length - 1;
+    while (lo < hi) {
+      int mid = (lo + hi + 1) >>> 1;
+      if (starts[mid] <= index) lo = mid;
+      else hi = mid - 1;
+    }
+    return lo;
+  }
+}
@@ -0,0 +1,141 @@
+package org.example.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.Future;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+
+// streaming export of transactions to CSV, in the format read by CsvImport:
+//   login,type,amount,title
+// users in the order of their ids, transactions in wallet order, so the same data always gives
+// the same file. rows are encoded on the fork-join pool in blocks of about BLOCK_ROWS
+// transactions (a big wallet is split, small ones share a block) while the finished blocks are
+// written through one FileChannel in order; at most parallelism + 1 blocks are in flight, so
+// the memory in use does not grow with the data. the wallets are only read, by the pool while
+// the caller waits; the slices of an archived wallet are read with ColdTransactions.range(), so
+// parallel blocks do not page its segments in and out of the one slot get() keeps.
+// the file is written to a temporary file and moved over the old one
+public final class CsvExport {
+
+  static final int BLOCK_ROWS = 16_384;
+
+  // which transactions are exported, null type or category = any
+  public record Filter(Transaction.Type type, String category) {
+    public static final Filter ALL = new Filter(null, null);
+
+    boolean test(Transaction t) {
+      return (type == null || t.type == type) && (category == null || category.equals(t.title));
+    }
+  }
+
+  // constructor is private to prevent instantiation
+  private CsvExport() {
+    throw new AssertionError("No instances allowed");
+  }
+
+  // returns the number of rows written
+  public static long exportAll(Path file, UsersRepo usersRepo, Filter filter) throws IOException {
+    Objects.requireNonNull(usersRepo, "usersRepo");
+    List<User> users = usersRepo.listAll();
+    users.sort(Comparator.comparingLong(u -> u.id));
+    return export(file, users, filter, BLOCK_ROWS);
+  }
+
+  public static long exportUser(Path file, User user, Filter filter) throws IOException {
+    return export(file, List.of(Objects.requireNonNull(user, "user")), filter, BLOCK_ROWS);
+  }
+
+  // the transactions from..to of one wallet
+  private record Slice(User user, int from, int to) {}
+
+  private record Block(byte[] data, long rows) {}
+
+  static long export(Path file, List<User> users, Filter filter, int blockRows) throws IOException {
+    Objects.requireNonNull(file, "file");
+    Objects.requireNonNull(filter, "filter");
+    if (blockRows < 1) throw new IllegalArgumentException("blockRows must be positive");
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) Files.createDirectories(parent);
+    Path tmp = AtomicFiles.tempFor(file);
+    long rows = 0;
+    try (FileChannel ch =
+        FileChannel.open(
+            tmp,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      writeFully(ch, "login,type,amount,title\n".getBytes(StandardCharsets.UTF_8));
+      Deque<Future<Block>> inFlight = new ArrayDeque<>();
+      int maxInFlight = Parallel.parallelism() + 1;
+      List<Slice> slices = new ArrayList<>();
+      int sliced = 0;
+      for (User u : users) {
+        int size = u.wallet.transactions.size();
+        for (int from = 0; from < size; ) {
+          int to = Math.min(size, from + blockRows - sliced);
+          slices.add(new Slice(u, from, to));
+          sliced += to - from;
+          from = to;
+          if (sliced < blockRows) continue;
+          List<Slice> block = List.copyOf(slices);
+          inFlight.add(Parallel.submit(() -> encode(block, filter)));
+          slices.clear();
+          sliced = 0;
+          if (inFlight.size() >= maxInFlight) rows += write(ch, Parallel.get(inFlight.poll()));
+        }
+      }
+      if (!slices.isEmpty()) {
+        List<Slice> block = List.copyOf(slices);
+        inFlight.add(Parallel.submit(() -> encode(block, filter)));
+      }
+      while (!inFlight.isEmpty()) {
+        rows += write(ch, Parallel.get(inFlight.poll()));
+      }
+      ch.force(false);
+    }
+    AtomicFiles.replace(tmp, file);
+    return rows;
+  }
+
+  private static Block encode(List<Slice> slices, Filter filter) {
+    StringBuilder sb = new StringBuilder();
+    long rows = 0;
+    for (Slice s : slices) {
+      String login = CsvImport.quote(s.user().login);
+      List<Transaction> list = s.user().wallet.transactions;
+      List<Transaction> slice =
+          list instanceof ColdTransactions cold
+              ? cold.range(s.from(), s.to())
+              : list.subList(s.from(), s.to());
+      for (Transaction t : slice) {
+        if (!filter.test(t)) continue;
+        sb.append(login)
+            .append(t.type == Transaction.Type.INCOME ? ",income," : ",expense,")
+            .append(t.amount)
+            .append(',')
+            .append(t.title == null ? "" : CsvImport.quote(t.title))
+            .append('\n');
+        rows++;
+      }
+    }
+    return new Block(sb.toString().getBytes(StandardCharsets.UTF_8), rows);
+  }
+
+  private static long write(FileChannel ch, Block b) throws IOException {
+    writeFully(ch, b.data());
+    return b.rows();
+  }
+
+  private static void writeFully(FileChannel ch, byte[] data) throws IOException {
+    ByteBuffer buf = ByteBuffer.wrap(data);
+    while (buf.hasRemaining()) {
+      ch.write(buf);
+    }
+  }
+}
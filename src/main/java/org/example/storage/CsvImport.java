@@ -0,0 +1,354 @@
+package org.example.storage;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+
+// streaming import of transactions from CSV (bank exports), one transaction per line:
+//   login,type,amount,title    type: income or expense; amount > 0, "." or "," as decimal point
+// fields may be quoted ("" inside quotes is a quote), a record cannot span lines; a UTF-8 BOM
+// and a header line starting with "login," are skipped, blank lines are ignored.
+// three stages connected by bounded queues, so the memory in use does not depend on the file:
+//   reader  (own thread): whole lines are read with a FileChannel in chunks of CHUNK_BYTES into
+//                         a queue of QUEUE_CHUNKS, blocking while the queue is full
+//   parser  (fork-join pool): chunks are decoded, split and validated in parallel, at most
+//                         parallelism + 1 in flight
+//   applier (the caller): parsed chunks are taken in file order, so the repository is changed
+//                         on one thread only; rows of unknown users are rejected, the rest are
+//                         added in one batch per user and chunk (the journal still sees each)
+// rejected rows go to the reject file as line,reason,record. the import is not atomic: rows
+// applied before an I/O error stay in the wallets (and in the journal)
+public final class CsvImport {
+
+  static final int CHUNK_BYTES = 1 << 20;
+  static final int QUEUE_CHUNKS = 4;
+
+  private static final int MAX_LINE = 1 << 26;
+
+  // constructor is private to prevent instantiation
+  private CsvImport() {
+    throw new AssertionError("No instances allowed");
+  }
+
+  // reject file of an import: bank.csv -> bank.rejects.csv
+  public static Path rejectFileFor(Path csv) {
+    String name = String.valueOf(csv.getFileName());
+    int dot = name.lastIndexOf('.');
+    return csv.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".rejects.csv");
+  }
+
+  // rejectFile == null: rejected rows are only counted
+  public static ImportResult importFile(Path csv, UsersRepo usersRepo, Path rejectFile)
+      throws IOException {
+    return importFile(csv, usersRepo, rejectFile, CHUNK_BYTES, QUEUE_CHUNKS);
+  }
+
+  static ImportResult importFile(
+      Path csv, UsersRepo usersRepo, Path rejectFile, int chunkBytes, int queueChunks)
+      throws IOException {
+    Objects.requireNonNull(csv, "csv");
+    Objects.requireNonNull(usersRepo, "usersRepo");
+    if (chunkBytes < 1) throw new IllegalArgumentException("chunkBytes must be positive");
+    if (queueChunks < 1) throw new IllegalArgumentException("queueChunks must be positive");
+    long start = System.nanoTime();
+    try (FileChannel ch = FileChannel.open(csv, StandardOpenOption.READ);
+        Applier applier = new Applier(usersRepo, rejectFile)) {
+      BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(queueChunks);
+      Thread reader = new Thread(new Reader(ch, queue, chunkBytes), "csv-import-reader");
+      reader.setDaemon(true);
+      reader.start();
+      try {
+        Deque<Future<Parsed>> inFlight = new ArrayDeque<>();
+        int maxInFlight = Parallel.parallelism() + 1;
+        boolean first = true;
+        while (true) {
+          Chunk c = take(queue);
+          if (c.data() == null) {
+            if (c.error() != null) throw c.error();
+            break;
+          }
+          boolean head = first;
+          first = false;
+          inFlight.add(Parallel.submit(() -> parse(c.data(), c.length(), head)));
+          if (inFlight.size() >= maxInFlight) applier.apply(Parallel.get(inFlight.poll()));
+        }
+        while (!inFlight.isEmpty()) {
+          applier.apply(Parallel.get(inFlight.poll()));
+        }
+      } finally {
+        reader.interrupt(); // stops a reader still running after a failure
+      }
+      return applier.result(rejectFile, (System.nanoTime() - start) / 1_000_000);
+    }
+  }
+
+  private static Chunk take(BlockingQueue<Chunk> queue) throws IOException {
+    try {
+      return queue.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted", e);
+    }
+  }
+
+  // ---------- reading ----------
+
+  // bytes of whole lines (the last chunk may end without a line end);
+  // data == null ends the stream, with the error of the reader if it failed
+  private record Chunk(byte[] data, int length, IOException error) {}
+
+  private static final class Reader implements Runnable {
+    private final FileChannel ch;
+    private final BlockingQueue<Chunk> queue;
+    private final int chunkBytes;
+
+    Reader(FileChannel ch, BlockingQueue<Chunk> queue, int chunkBytes) {
+      this.ch = ch;
+      this.queue = queue;
+      this.chunkBytes = chunkBytes;
+    }
+
+    @Override
+    public void run() {
+      Chunk end;
+      try {
+        read();
+        end = new Chunk(null, 0, null);
+      } catch (IOException e) {
+        end = new Chunk(null, 0, e);
+      } catch (InterruptedException e) {
+        return; // the import was stopped
+      }
+      try {
+        queue.put(end);
+      } catch (InterruptedException e) {
+        // the import was stopped
+      }
+    }
+
+    private void read() throws IOException, InterruptedException {
+      byte[] buf = new byte[chunkBytes];
+      int filled = 0;
+      int n;
+      while ((n = ch.read(ByteBuffer.wrap(buf, filled, buf.length - filled))) >= 0) {
+        filled += n;
+        if (filled < buf.length) continue;
+        int end = afterLastLine(buf, filled);
+        if (end == 0) {
+          // a line longer than a chunk
+          if (buf.length >= MAX_LINE) throw new IOException("Line longer than " + MAX_LINE);
+          buf = Arrays.copyOf(buf, buf.length * 2);
+          continue;
+        }
+        int rest = filled - end;
+        byte[] next = new byte[Math.max(chunkBytes, rest * 2)];
+        System.arraycopy(buf, end, next, 0, rest);
+        queue.put(new Chunk(buf, end, null));
+        buf = next;
+        filled = rest;
+      }
+      if (filled > 0) queue.put(new Chunk(buf, filled, null));
+    }
+
+    private static int afterLastLine(byte[] buf, int length) {
+      for (int i = length - 1; i >= 0; i--) {
+        if (buf[i] == '\n') return i + 1;
+      }
+      return 0;
+    }
+  }
+
+  // ---------- parsing ----------
+
+  // a line of a chunk (numbered from 1 in the chunk): a transaction of login,
+  // or the reason it is rejected; text is the line itself, for the reject file
+  private record Row(
+      int line,
+      String login,
+      Transaction.Type type,
+      double amount,
+      String title,
+      String reason,
+      String text) {}
+
+  private record Parsed(List<Row> rows, int lines) {}
+
+  private static Parsed parse(byte[] data, int length, boolean first) {
+    String s = new String(data, 0, length, StandardCharsets.UTF_8);
+    int pos = first && s.startsWith("\uFEFF") ? 1 : 0;
+    List<Row> rows = new ArrayList<>(length / 32 + 1);
+    List<String> fields = new ArrayList<>(4);
+    int line = 0;
+    while (pos < s.length()) {
+      int nl = s.indexOf('\n', pos);
+      int end = nl < 0 ? s.length() : nl;
+      int next = nl < 0 ? s.length() : nl + 1;
+      if (end > pos && s.charAt(end - 1) == '\r') end--;
+      String text = s.substring(pos, end);
+      pos = next;
+      line++;
+      if (text.isBlank()) continue;
+      if (first && line == 1 && text.regionMatches(true, 0, "login,", 0, 6)) continue;
+      rows.add(parseRow(line, text, fields));
+    }
+    return new Parsed(rows, line);
+  }
+
+  private static Row parseRow(int line, String text, List<String> fields) {
+    String reason = split(text, fields);
+    if (reason == null && fields.size() != 4) {
+      reason = "Expected 4 fields, found " + fields.size();
+    }
+    if (reason != null) return reject(line, reason, text);
+    String login = fields.get(0).trim();
+    if (login.isEmpty()) return reject(line, "Empty login", text);
+    String typeName = fields.get(1).trim();
+    Transaction.Type type;
+    if ("income".equalsIgnoreCase(typeName)) {
+      type = Transaction.Type.INCOME;
+    } else if ("expense".equalsIgnoreCase(typeName)) {
+      type = Transaction.Type.EXPENSE;
+    } else {
+      return reject(line, "Unknown type: " + typeName, text);
+    }
+    double amount;
+    try {
+      amount = Double.parseDouble(fields.get(2).trim().replace(',', '.'));
+    } catch (NumberFormatException e) {
+      return reject(line, "Invalid amount", text);
+    }
+    // the same rule as the console input
+    if (!(amount > 0) || Double.isInfinite(amount)) {
+      return reject(line, "Amount must be positive", text);
+    }
+    String title = fields.get(3).trim();
+    if (title.isEmpty()) return reject(line, "Empty title", text);
+    return new Row(line, login, type, amount, title, null, text);
+  }
+
+  private static Row reject(int line, String reason, String text) {
+    return new Row(line, null, null, 0, null, reason, text);
+  }
+
+  // splitting a line into fields; null, or the reason the line is malformed
+  static String split(String text, List<String> fields) {
+    fields.clear();
+    int pos = 0;
+    int n = text.length();
+    while (true) {
+      if (pos < n && text.charAt(pos) == '"') {
+        StringBuilder sb = new StringBuilder();
+        int i = pos + 1;
+        while (true) {
+          int q = text.indexOf('"', i);
+          if (q < 0) return "Unterminated quote";
+          sb.append(text, i, q);
+          if (q + 1 < n && text.charAt(q + 1) == '"') {
+            sb.append('"');
+            i = q + 2;
+          } else {
+            pos = q + 1;
+            break;
+          }
+        }
+        fields.add(sb.toString());
+        if (pos == n) return null;
+        if (text.charAt(pos) != ',') return "Text after a quoted field";
+        pos++;
+      } else {
+        int comma = text.indexOf(',', pos);
+        if (comma < 0) {
+          fields.add(text.substring(pos));
+          return null;
+        }
+        fields.add(text.substring(pos, comma));
+        pos = comma + 1;
+      }
+    }
+  }
+
+  // a field quoted if it has to be
+  static String quote(String field) {
+    if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0) {
+      return field;
+    }
+    return '"' + field.replace("\"", "\"\"") + '"';
+  }
+
+  // ---------- applying ----------
+
+  // the last stage, on the calling thread
+  private static final class Applier implements Closeable {
+    private final UsersRepo usersRepo;
+    private final BufferedWriter rejects;
+    private final Map<String, User> users = new HashMap<>(); // by login as written in the file
+    private final Map<String, String> titles = new HashMap<>(); // one String per title
+    private long base = 0; // lines of the chunks applied so far
+    private long lines = 0;
+    private long imported = 0;
+    private long rejected = 0;
+
+    Applier(UsersRepo usersRepo, Path rejectFile) throws IOException {
+      this.usersRepo = usersRepo;
+      if (rejectFile == null) {
+        rejects = null;
+      } else {
+        Path parent = rejectFile.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        rejects = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8);
+        rejects.write("line,reason,record\n");
+      }
+    }
+
+    void apply(Parsed parsed) throws IOException {
+      Map<User, List<Transaction>> batches = new LinkedHashMap<>();
+      for (Row r : parsed.rows()) {
+        lines++;
+        if (r.reason() != null) {
+          reject(r.line(), r.reason(), r.text());
+          continue;
+        }
+        User u = users.computeIfAbsent(r.login(), usersRepo::find);
+        if (u == null) {
+          reject(r.line(), "Unknown user: " + r.login(), r.text());
+          continue;
+        }
+        String title = titles.computeIfAbsent(r.title(), t -> t);
+        batches
+            .computeIfAbsent(u, k -> new ArrayList<>())
+            .add(new Transaction(r.amount(), title, r.type()));
+      }
+      for (Map.Entry<User, List<Transaction>> e : batches.entrySet()) {
+        e.getKey().wallet.addTransactions(e.getValue());
+        imported += e.getValue().size();
+      }
+      base += parsed.lines();
+    }
+
+    private void reject(int line, String reason, String text) throws IOException {
+      rejected++;
+      if (rejects == null) return;
+      rejects.write((base + line) + "," + quote(reason) + "," + quote(text) + "\n");
+    }
+
+    ImportResult result(Path rejectFile, long millis) {
+      return new ImportResult(lines, imported, rejected, rejectFile, millis);
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (rejects != null) rejects.close();
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package org.example.storage;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// changes of the files of one directory, collected by a WatchService on a daemon thread.
+// the thread only records the names of the changed files; the owner of the data asks
+// changed() at a safe point (between user actions, on its own thread) and re-reads what it
+// needs, so nothing is modified behind its back. several events of one file (a tool writing
+// it in parts) become one change
+public final class DirectoryWatcher implements Closeable {
+
+  private final Path dir;
+  private final WatchService service;
+  private final Thread thread;
+  private final Set<Path> changed = new HashSet<>(); // guarded by this
+
+  private DirectoryWatcher(Path dir, WatchService service) {
+    this.dir = dir;
+    this.service = service;
+    this.thread = new Thread(this::run, "directory-watcher");
+    this.thread.setDaemon(true);
+  }
+
+  public static DirectoryWatcher start(Path dir) throws IOException {
+    Objects.requireNonNull(dir, "dir");
+    Files.createDirectories(dir);
+    WatchService service = dir.getFileSystem().newWatchService();
+    try {
+      dir.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+    } catch (IOException | RuntimeException e) {
+      service.close();
+      throw e;
+    }
+    DirectoryWatcher watcher = new DirectoryWatcher(dir, service);
+    watcher.thread.start();
+    return watcher;
+  }
+
+  // names (relative to the directory) of the files changed since the last call
+  public synchronized Set<Path> changed() {
+    Set<Path> result = Set.copyOf(changed);
+    changed.clear();
+    return result;
+  }
+
+  private void run() {
+    try {
+      while (true) {
+        WatchKey key = service.take();
+        for (WatchEvent<?> e : key.pollEvents()) {
+          if (e.kind() == OVERFLOW) {
+            lost();
+          } else if (e.context() instanceof Path name) {
+            synchronized (this) {
+              changed.add(name);
+            }
+          }
+        }
+        if (!key.reset()) break; // the directory is gone
+      }
+    } catch (ClosedWatchServiceException e) {
+      // closed
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // events were lost, every file of the directory counts as changed
+  private void lost() {
+    try (Stream<Path> files = Files.list(dir)) {
+      Set<Path> names = new HashSet<>();
+      files.forEach(f -> names.add(f.getFileName()));
+      synchronized (this) {
+        changed.addAll(names);
+      }
+    } catch (IOException e) {
+      System.err.println("Cannot list " + dir + ": " + e.getMessage());
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    service.close(); // take() throws, the thread ends
+  }
+}
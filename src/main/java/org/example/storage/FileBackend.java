@@ -0,0 +1,83 @@
+package org.example.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+
+// the file layouts of StorageBinary, StorageCompressed, StorageSegments and StorageSharded as a
+// StorageBackend. segments writes only the segments of changed users, the others write the
+// whole repository, so saveChanges() does nothing while no user has changed
+public final class FileBackend implements StorageBackend {
+
+  interface Loader {
+    UsersRepo load(Path path) throws IOException;
+  }
+
+  interface Saver {
+    void save(Path path, UsersRepo usersRepo) throws IOException;
+  }
+
+  private final Path path;
+  private final Loader loader;
+  private final Saver saver;
+  private final Saver changes; // null if only the whole repository can be written
+
+  private FileBackend(Path path, Loader loader, Saver saver, Saver changes) {
+    this.path = Objects.requireNonNull(path, "path");
+    this.loader = loader;
+    this.saver = saver;
+    this.changes = changes;
+  }
+
+  public static FileBackend binary(Path file) {
+    return new FileBackend(file, StorageBinary::loadOrNew, StorageBinary::save, null);
+  }
+
+  public static FileBackend compressed(Path file) {
+    return new FileBackend(file, StorageCompressed::loadOrNew, StorageCompressed::save, null);
+  }
+
+  public static FileBackend segments(Path dir) {
+    return new FileBackend(
+        dir, StorageSegments::loadOrNew, StorageSegments::saveAll, StorageSegments::save);
+  }
+
+  public static FileBackend sharded(Path dir) {
+    return new FileBackend(dir, StorageSharded::loadOrNew, StorageSharded::save, null);
+  }
+
+  @Override
+  public UsersRepo load() throws IOException {
+    return loader.load(path);
+  }
+
+  @Override
+  public void save(UsersRepo usersRepo) throws IOException {
+    Objects.requireNonNull(usersRepo, "usersRepo");
+    Set<Long> saved = new HashSet<>(usersRepo.getDirtyIds());
+    saver.save(path, usersRepo);
+    for (User u : usersRepo.listAll()) {
+      saved.add(u.id);
+    }
+    usersRepo.markClean(saved);
+  }
+
+  @Override
+  public void saveChanges(UsersRepo usersRepo) throws IOException {
+    if (usersRepo.getDirtyIds().isEmpty()) return;
+    if (changes == null) {
+      save(usersRepo);
+    } else {
+      changes.save(path, usersRepo); // marks the saved users clean itself
+    }
+  }
+
+  @Override
+  public String describe() {
+    return path.toAbsolutePath().toString();
+  }
+}
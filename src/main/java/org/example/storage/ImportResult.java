@@ -0,0 +1,62 @@
+package org.example.storage;
+
+import java.nio.file.Path;
+
+// result of CsvImport: counts of the rows applied to the wallets and of the rows written to
+// the reject file (with their line numbers and reasons), so one bad row of a bank export
+// does not stop the whole import
+public final class ImportResult {
+
+  private final long lines;
+  private final long imported;
+  private final long rejected;
+  private final Path rejectFile;
+  private final long millis;
+
+  ImportResult(long lines, long imported, long rejected, Path rejectFile, long millis) {
+    this.lines = lines;
+    this.imported = imported;
+    this.rejected = rejected;
+    this.rejectFile = rejectFile;
+    this.millis = millis;
+  }
+
+  // data lines read, without the header
+  public long getLines() {
+    return lines;
+  }
+
+  public long getImported() {
+    return imported;
+  }
+
+  public long getRejected() {
+    return rejected;
+  }
+
+  public boolean hasRejects() {
+    return rejected > 0;
+  }
+
+  public Path getRejectFile() {
+    return rejectFile;
+  }
+
+  public long getMillis() {
+    return millis;
+  }
+
+  @Override
+  public String toString() {
+    return "ImportResult{"
+        + "lines="
+        + lines
+        + ", imported="
+        + imported
+        + ", rejected="
+        + rejected
+        + ", millis="
+        + millis
+        + '}';
+  }
+}
@@ -0,0 +1,480 @@
+package org.example.storage;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.model.Wallet;
+import org.example.repo.UsersRepo;
+
+// storage in an embedded relational database (H2 running in-process by default, the code uses
+// plain JDBC only). tables:
+//   users(id, login unique, name, surname, password_hash, roles)
+//   budgets(user_id, category, amount)
+//   transactions(user_id, seq, amount, title, expense), primary key (user_id, seq)
+//   settings(name, setting_value) - nextId
+// save() replaces all rows; saveChanges() touches only the dirty users: their user row and
+// budgets are rewritten and only the transactions after the stored ones are inserted (wallets
+// only grow). transactions and budgets are inserted by prepared statements in batches, every
+// save is one database transaction.
+// statistics (sums by category, balance) and single users are read with indexed queries,
+// without loading the whole repository
+public final class JdbcBackend implements StorageBackend {
+
+  public static final String DEFAULT_URL = "jdbc:h2:./data/finance-db";
+
+  static final int BATCH = 1000;
+
+  private static final String[] SCHEMA = {
+    "CREATE TABLE IF NOT EXISTS users (id BIGINT PRIMARY KEY, login VARCHAR(255) NOT NULL,"
+        + " name VARCHAR(255), surname VARCHAR(255), password_hash VARCHAR(255) NOT NULL,"
+        + " roles VARCHAR(255) NOT NULL)",
+    "CREATE UNIQUE INDEX IF NOT EXISTS users_login ON users (login)",
+    "CREATE TABLE IF NOT EXISTS budgets (user_id BIGINT NOT NULL, category VARCHAR(255),"
+        + " amount DOUBLE PRECISION NOT NULL)",
+    "CREATE INDEX IF NOT EXISTS budgets_user ON budgets (user_id)",
+    "CREATE TABLE IF NOT EXISTS transactions (user_id BIGINT NOT NULL, seq INT NOT NULL,"
+        + " amount DOUBLE PRECISION NOT NULL, title VARCHAR(255), expense BOOLEAN NOT NULL,"
+        + " PRIMARY KEY (user_id, seq))",
+    "CREATE INDEX IF NOT EXISTS transactions_title ON transactions (user_id, expense, title)",
+    "CREATE TABLE IF NOT EXISTS settings (name VARCHAR(64) PRIMARY KEY,"
+        + " setting_value BIGINT NOT NULL)"
+  };
+
+  private static final String INSERT_USER =
+      "INSERT INTO users (id, login, name, surname, password_hash, roles)"
+          + " VALUES (?, ?, ?, ?, ?, ?)";
+  private static final String UPDATE_USER =
+      "UPDATE users SET login = ?, name = ?, surname = ?, password_hash = ?, roles = ?"
+          + " WHERE id = ?";
+  private static final String INSERT_BUDGET =
+      "INSERT INTO budgets (user_id, category, amount) VALUES (?, ?, ?)";
+  private static final String INSERT_TRANSACTION =
+      "INSERT INTO transactions (user_id, seq, amount, title, expense) VALUES (?, ?, ?, ?, ?)";
+  private static final String DELETE_USER = "DELETE FROM users WHERE id = ?";
+  private static final String DELETE_BUDGETS = "DELETE FROM budgets WHERE user_id = ?";
+  private static final String DELETE_TRANSACTIONS = "DELETE FROM transactions WHERE user_id = ?";
+  private static final String COUNT_TRANSACTIONS =
+      "SELECT COUNT(*) FROM transactions WHERE user_id = ?";
+  private static final String UPDATE_NEXT_ID =
+      "UPDATE settings SET setting_value = ? WHERE name = 'nextId'";
+  private static final String INSERT_NEXT_ID =
+      "INSERT INTO settings (name, setting_value) VALUES ('nextId', ?)";
+
+  private static final String SELECT_USERS =
+      "SELECT id, login, name, surname, password_hash, roles FROM users";
+  private static final String SELECT_USER =
+      "SELECT id, login, name, surname, password_hash, roles FROM users WHERE login = ?";
+  private static final String SELECT_BUDGETS = "SELECT user_id, category, amount FROM budgets";
+  private static final String SELECT_USER_BUDGETS =
+      "SELECT user_id, category, amount FROM budgets WHERE user_id = ?";
+  private static final String SELECT_TRANSACTIONS =
+      "SELECT user_id, amount, title, expense FROM transactions ORDER BY user_id, seq";
+  private static final String SELECT_USER_TRANSACTIONS =
+      "SELECT user_id, amount, title, expense FROM transactions WHERE user_id = ? ORDER BY seq";
+  private static final String SELECT_NEXT_ID =
+      "SELECT setting_value FROM settings WHERE name = 'nextId'";
+  // categories in the order of their first transaction, like the sums kept by Wallet
+  private static final String SUMS_BY_TITLE =
+      "SELECT t.title, SUM(t.amount) FROM transactions t JOIN users u ON u.id = t.user_id"
+          + " WHERE u.login = ? AND t.expense = ? GROUP BY t.title ORDER BY MIN(t.seq)";
+  private static final String BALANCE =
+      "SELECT COALESCE(SUM(CASE WHEN t.expense THEN -t.amount ELSE t.amount END), 0)"
+          + " FROM transactions t JOIN users u ON u.id = t.user_id WHERE u.login = ?";
+
+  private final String url;
+  private final Connection connection;
+
+  private JdbcBackend(String url, Connection connection) {
+    this.url = url;
+    this.connection = connection;
+  }
+
+  // connecting and creating the tables which do not exist yet
+  public static JdbcBackend open(String url, String user, String password) throws IOException {
+    Objects.requireNonNull(url, "url");
+    try {
+      Connection c = DriverManager.getConnection(url, user, password);
+      try {
+        c.setAutoCommit(false);
+        try (Statement st = c.createStatement()) {
+          for (String sql : SCHEMA) {
+            st.execute(sql);
+          }
+        }
+        c.commit();
+      } catch (SQLException e) {
+        c.close();
+        throw e;
+      }
+      return new JdbcBackend(url, c);
+    } catch (SQLException e) {
+      throw new IOException("Cannot open database " + url + ": " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public synchronized UsersRepo load() throws IOException {
+    try {
+      Map<Long, Row> rows = new LinkedHashMap<>();
+      try (Statement st = connection.createStatement();
+          ResultSet rs = st.executeQuery(SELECT_USERS)) {
+        while (rs.next()) {
+          Row r = Row.of(rs);
+          rows.put(r.id, r);
+        }
+      }
+      try (Statement st = connection.createStatement();
+          ResultSet rs = st.executeQuery(SELECT_BUDGETS)) {
+        readBudgets(rs, rows);
+      }
+      try (Statement st = connection.createStatement()) {
+        st.setFetchSize(BATCH);
+        try (ResultSet rs = st.executeQuery(SELECT_TRANSACTIONS)) {
+          readTransactions(rs, rows);
+        }
+      }
+      long nextId = readNextId();
+      connection.commit();
+
+      UsersRepo usersRepo = new UsersRepo(rows.size());
+      for (Row r : rows.values()) {
+        usersRepo.restore(r.toUser());
+      }
+      usersRepo.advanceNextId(nextId);
+      usersRepo.setIsPreviousDataExists(!rows.isEmpty() || nextId > 1);
+      return usersRepo;
+    } catch (SQLException e) {
+      throw failure("load", e);
+    }
+  }
+
+  @Override
+  public synchronized void save(UsersRepo usersRepo) throws IOException {
+    Objects.requireNonNull(usersRepo, "usersRepo");
+    Set<Long> saved = new HashSet<>(usersRepo.getDirtyIds());
+    List<User> users = usersRepo.listAll();
+    try {
+      try (Statement st = connection.createStatement()) {
+        st.executeUpdate("DELETE FROM transactions");
+        st.executeUpdate("DELETE FROM budgets");
+        st.executeUpdate("DELETE FROM users");
+      }
+      try (Batch userRows = new Batch(connection.prepareStatement(INSERT_USER));
+          Batch budgets = new Batch(connection.prepareStatement(INSERT_BUDGET));
+          Batch transactions = new Batch(connection.prepareStatement(INSERT_TRANSACTION))) {
+        for (User u : users) {
+          setUser(userRows.statement, u, 1, 2);
+          userRows.add();
+          addBudgets(budgets, u);
+          addTransactions(transactions, u, 0);
+          saved.add(u.id);
+        }
+        userRows.flush();
+        budgets.flush();
+        transactions.flush();
+      }
+      writeNextId(usersRepo.getNextId());
+      connection.commit();
+    } catch (SQLException e) {
+      throw failure("save", e);
+    }
+    usersRepo.markClean(saved);
+  }
+
+  @Override
+  public synchronized void saveChanges(UsersRepo usersRepo) throws IOException {
+    Objects.requireNonNull(usersRepo, "usersRepo");
+    Set<Long> dirty = usersRepo.getDirtyIds();
+    List<Long> ids = new ArrayList<>(dirty);
+    Collections.sort(ids);
+    try {
+      try (PreparedStatement update = connection.prepareStatement(UPDATE_USER);
+          PreparedStatement insert = connection.prepareStatement(INSERT_USER);
+          PreparedStatement deleteUser = connection.prepareStatement(DELETE_USER);
+          PreparedStatement deleteBudgets = connection.prepareStatement(DELETE_BUDGETS);
+          PreparedStatement deleteTransactions = connection.prepareStatement(DELETE_TRANSACTIONS);
+          PreparedStatement count = connection.prepareStatement(COUNT_TRANSACTIONS);
+          Batch budgets = new Batch(connection.prepareStatement(INSERT_BUDGET));
+          Batch transactions = new Batch(connection.prepareStatement(INSERT_TRANSACTION))) {
+        // rows of deleted users go first, a new user may take a deleted login
+        for (Long id : ids) {
+          if (usersRepo.findById(id) != null) continue;
+          for (PreparedStatement ps : List.of(deleteTransactions, deleteBudgets, deleteUser)) {
+            ps.setLong(1, id);
+            ps.executeUpdate();
+          }
+        }
+        for (Long id : ids) {
+          User u = usersRepo.findById(id);
+          if (u == null) continue;
+          setUser(update, u, 6, 1);
+          if (update.executeUpdate() == 0) {
+            setUser(insert, u, 1, 2);
+            insert.executeUpdate();
+          }
+          deleteBudgets.setLong(1, id);
+          deleteBudgets.executeUpdate();
+          addBudgets(budgets, u);
+          count.setLong(1, id);
+          int stored;
+          try (ResultSet rs = count.executeQuery()) {
+            stored = rs.next() ? rs.getInt(1) : 0;
+          }
+          if (stored > u.wallet.transactions.size()) {
+            // cannot happen with append-only wallets, writing the wallet again
+            deleteTransactions.setLong(1, id);
+            deleteTransactions.executeUpdate();
+            stored = 0;
+          }
+          addTransactions(transactions, u, stored);
+        }
+        budgets.flush();
+        transactions.flush();
+      }
+      writeNextId(usersRepo.getNextId());
+      connection.commit();
+    } catch (SQLException e) {
+      throw failure("save", e);
+    }
+    usersRepo.markClean(dirty);
+  }
+
+  // ---------- queries which do not need the repository in memory ----------
+
+  // one user with the wallet as of the last save, null if there is no such login
+  public synchronized User findUser(String login) throws IOException {
+    try {
+      Row row = null;
+      try (PreparedStatement ps = connection.prepareStatement(SELECT_USER)) {
+        ps.setString(1, login);
+        try (ResultSet rs = ps.executeQuery()) {
+          if (rs.next()) row = Row.of(rs);
+        }
+      }
+      if (row == null) {
+        connection.commit();
+        return null;
+      }
+      Map<Long, Row> rows = Map.of(row.id, row);
+      try (PreparedStatement ps = connection.prepareStatement(SELECT_USER_BUDGETS)) {
+        ps.setLong(1, row.id);
+        try (ResultSet rs = ps.executeQuery()) {
+          readBudgets(rs, rows);
+        }
+      }
+      try (PreparedStatement ps = connection.prepareStatement(SELECT_USER_TRANSACTIONS)) {
+        ps.setLong(1, row.id);
+        try (ResultSet rs = ps.executeQuery()) {
+          readTransactions(rs, rows);
+        }
+      }
+      connection.commit();
+      return row.toUser();
+    } catch (SQLException e) {
+      throw failure("read user " + login, e);
+    }
+  }
+
+  public synchronized Map<String, Double> expensesByCategory(String login) throws IOException {
+    return sumsByTitle(login, true);
+  }
+
+  public synchronized Map<String, Double> incomesByCategory(String login) throws IOException {
+    return sumsByTitle(login, false);
+  }
+
+  // income minus expenses of the saved transactions, 0 for an unknown login
+  public synchronized double balance(String login) throws IOException {
+    try (PreparedStatement ps = connection.prepareStatement(BALANCE)) {
+      ps.setString(1, login);
+      double balance;
+      try (ResultSet rs = ps.executeQuery()) {
+        balance = rs.next() ? rs.getDouble(1) : 0;
+      }
+      connection.commit();
+      return balance;
+    } catch (SQLException e) {
+      throw failure("read balance of " + login, e);
+    }
+  }
+
+  private Map<String, Double> sumsByTitle(String login, boolean expense) throws IOException {
+    Map<String, Double> sums = new LinkedHashMap<>();
+    try (PreparedStatement ps = connection.prepareStatement(SUMS_BY_TITLE)) {
+      ps.setString(1, login);
+      ps.setBoolean(2, expense);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          sums.put(rs.getString(1), rs.getDouble(2));
+        }
+      }
+      connection.commit();
+      return sums;
+    } catch (SQLException e) {
+      throw failure("read statistics of " + login, e);
+    }
+  }
+
+  @Override
+  public String describe() {
+    return url;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      connection.close();
+    } catch (SQLException e) {
+      throw failure("close", e);
+    }
+  }
+
+  // ---------- rows ----------
+
+  // a user as read from the tables, the wallet is filled before the user is created
+  private static final class Row {
+    long id;
+    String login;
+    String name;
+    String surname;
+    String passwordHash;
+    EnumSet<User.Role> roles = EnumSet.noneOf(User.Role.class);
+    Map<String, Double> budgets = new LinkedHashMap<>();
+    List<Transaction> transactions = new ArrayList<>();
+
+    static Row of(ResultSet rs) throws SQLException {
+      Row r = new Row();
+      r.id = rs.getLong(1);
+      r.login = rs.getString(2);
+      r.name = rs.getString(3);
+      r.surname = rs.getString(4);
+      r.passwordHash = rs.getString(5);
+      for (String role : rs.getString(6).split(",")) {
+        if (!role.isEmpty()) r.roles.add(User.Role.valueOf(role));
+      }
+      return r;
+    }
+
+    User toUser() {
+      Wallet wallet = new Wallet();
+      wallet.restore(transactions, budgets);
+      return User.restore(id, login, name, surname, passwordHash, roles, wallet);
+    }
+  }
+
+  private static void readBudgets(ResultSet rs, Map<Long, Row> rows) throws SQLException {
+    while (rs.next()) {
+      Row r = rows.get(rs.getLong(1));
+      if (r != null) r.budgets.put(rs.getString(2), rs.getDouble(3));
+    }
+  }
+
+  private static void readTransactions(ResultSet rs, Map<Long, Row> rows) throws SQLException {
+    Row r = null;
+    while (rs.next()) {
+      long id = rs.getLong(1);
+      if (r == null || r.id != id) r = rows.get(id);
+      if (r == null) continue; // rows of a user which no longer exists
+      Transaction.Type type = rs.getBoolean(4) ? Transaction.Type.EXPENSE : Transaction.Type.INCOME;
+      r.transactions.add(new Transaction(rs.getDouble(2), rs.getString(3), type));
+    }
+  }
+
+  private long readNextId() throws SQLException {
+    try (Statement st = connection.createStatement();
+        ResultSet rs = st.executeQuery(SELECT_NEXT_ID)) {
+      return rs.next() ? rs.getLong(1) : 1;
+    }
+  }
+
+  private void writeNextId(long nextId) throws SQLException {
+    try (PreparedStatement update = connection.prepareStatement(UPDATE_NEXT_ID)) {
+      update.setLong(1, nextId);
+      if (update.executeUpdate() > 0) return;
+    }
+    try (PreparedStatement insert = connection.prepareStatement(INSERT_NEXT_ID)) {
+      insert.setLong(1, nextId);
+      insert.executeUpdate();
+    }
+  }
+
+  // user columns: the id at idIndex, login and the rest starting at fieldsFrom
+  private static void setUser(PreparedStatement ps, User u, int idIndex, int fieldsFrom)
+      throws SQLException {
+    ps.setLong(idIndex, u.id);
+    ps.setString(fieldsFrom, u.login);
+    ps.setString(fieldsFrom + 1, u.name);
+    ps.setString(fieldsFrom + 2, u.surname);
+    ps.setString(fieldsFrom + 3, u.getPasswordHash());
+    StringJoiner roles = new StringJoiner(",");
+    for (User.Role r : User.Role.values()) {
+      if (u.hasRole(r)) roles.add(r.name());
+    }
+    ps.setString(fieldsFrom + 4, roles.toString());
+  }
+
+  private static void addBudgets(Batch batch, User u) throws SQLException {
+    for (Map.Entry<String, Double> e : u.wallet.getBudgets().entrySet()) {
+      batch.statement.setLong(1, u.id);
+      batch.statement.setString(2, e.getKey());
+      batch.statement.setDouble(3, e.getValue());
+      batch.add();
+    }
+  }
+
+  // transactions of the wallet starting with the given position
+  private static void addTransactions(Batch batch, User u, int from) throws SQLException {
+    List<Transaction> list = u.wallet.transactions;
+    for (int i = from; i < list.size(); i++) {
+      Transaction t = list.get(i);
+      batch.statement.setLong(1, u.id);
+      batch.statement.setInt(2, i);
+      batch.statement.setDouble(3, t.amount);
+      batch.statement.setString(4, t.title);
+      batch.statement.setBoolean(5, t.type == Transaction.Type.EXPENSE);
+      batch.add();
+    }
+  }
+
+  private IOException failure(String action, SQLException e) {
+    try {
+      connection.rollback();
+    } catch (SQLException suppressed) {
+      e.addSuppressed(suppressed);
+    }
+    return new IOException("Cannot " + action + " in database " + url + ": " + e.getMessage(), e);
+  }
+
+  // a prepared statement whose rows are sent to the database every BATCH rows
+  private static final class Batch implements AutoCloseable {
+    final PreparedStatement statement;
+    private int pending = 0;
+
+    Batch(PreparedStatement statement) {
+      this.statement = statement;
+    }
+
+    void add() throws SQLException {
+      statement.addBatch();
+      if (++pending >= BATCH) flush();
+    }
+
+    void flush() throws SQLException {
+      if (pending == 0) return;
+      statement.executeBatch();
+      pending = 0;
+    }
+
+    @Override
+    public void close() throws SQLException {
+      statement.close();
+    }
+  }
+}
@@ -0,0 +1,732 @@
+package org.example.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.RepoListener;
+import org.example.repo.UsersRepo;
+
+// append-only journal (write-ahead log) of the repository changes.
+// every change is one JSON line, lines are collected into groups and each group is written
+// and fsynced at once, so the cost of a write depends on the size of the change, not on the
+// size of the data. checkpoint() compacts the journal into the snapshot file and empties it,
+// recover() = snapshot + replay of the journal tail.
+// several processes can work on the same files (see JournalLock): a group is appended under a
+// short exclusive lock, after reading what the others appended since our last read; their
+// entries are applied to our repository by sync() (or checkpoint()) on the thread that changes
+// it. the journal is compacted only by an instance which is alone, until then it grows.
+// changes made at the same moment by two instances are applied in a different order by each
+// of them (the journal order wins on the next start), a transfer may then fail on one side.
+// a registration takes in the entries of the others and is written under one exclusive lock,
+// so an id is given out once; entries carry the id of their user, so the changes of an account
+// whose login turned out to be taken (older journals) are rejected, not put into another wallet.
+// reload() takes in a snapshot replaced by another program (import, restore).
+// every checkpoint has a number (epoch), saved in the snapshot and in the first line of the
+// emptied journal; a journal with a lower number than its snapshot was already compacted
+// into it (a crash between replacing the snapshot and emptying the journal) and is skipped
+public final class Journal implements RepoListener, Closeable {
+
+  public static final int DEFAULT_GROUP_SIZE = 32;
+  public static final int DEFAULT_CHECKPOINT_EVERY = 10_000;
+  // entries per write during bulk()
+  static final int BULK_GROUP_SIZE = 8192;
+
+  private static final Gson GSON = new Gson();
+
+  enum Op {
+    REGISTER,
+    TRANSACTION,
+    TRANSFER,
+    BUDGET,
+    ROLE,
+    DELETE,
+    CHECKPOINT // first line of the journal, id = the epoch
+  }
+
+  // one line of the journal, fields which are not used by the operation stay null
+  // and are not written by GSON
+  static final class Entry {
+    Op op;
+    Long id;
+    String login;
+    String to;
+    Long toId;
+    String name;
+    String surname;
+    String hash;
+    Double amount;
+    String title;
+    Transaction.Type type;
+    String category;
+    User.Role role;
+    Boolean added;
+
+    Entry(Op op, String login) {
+      this.op = op;
+      this.login = login;
+    }
+  }
+
+  private final Path snapshot;
+  private final Path file;
+  private final UsersRepo repo;
+  private final int groupSize;
+  private final int checkpointEvery;
+  private final FileChannel channel;
+  private final JournalLock lock;
+
+  private final StringBuilder pending = new StringBuilder();
+  private int pendingCount = 0;
+  private long sinceCheckpoint = 0;
+  private boolean closed = false;
+  // end of the last line we wrote or read; other instances append after it
+  private long readPosition;
+  // entries appended by other instances, not applied to the repository yet
+  private final List<Entry> foreign = new ArrayList<>();
+  private boolean applying = false; // our own listener calls while applying them
+  private int bulk = 0; // number of bulk() calls running
+  // the snapshot as we last wrote or read it, to tell our writes from those of others
+  private Stamp snapshotStamp;
+  // archival policy of checkpoint(), null archive = none
+  private Path archive = null;
+  private int keepRecent = 0;
+
+  // a change made inside bulk()
+  public interface Change<T> {
+    T run() throws IOException;
+  }
+
+  // identity of a file version: an atomic replace changes the file key, a rewrite in place
+  // the time or the size
+  private record Stamp(Object key, FileTime modified, long size) {
+    static Stamp of(Path file) throws IOException {
+      if (!Files.exists(file)) return null;
+      BasicFileAttributes a = Files.readAttributes(file, BasicFileAttributes.class);
+      return new Stamp(a.fileKey(), a.lastModifiedTime(), a.size());
+    }
+  }
+
+  private Journal(
+      Path snapshot,
+      Path file,
+      UsersRepo repo,
+      int groupSize,
+      int checkpointEvery,
+      FileChannel channel,
+      JournalLock lock,
+      long readPosition,
+      Stamp snapshotStamp) {
+    this.snapshot = snapshot;
+    this.file = file;
+    this.repo = repo;
+    this.groupSize = groupSize;
+    this.checkpointEvery = checkpointEvery;
+    this.channel = channel;
+    this.lock = lock;
+    this.readPosition = readPosition;
+    this.snapshotStamp = snapshotStamp;
+  }
+
+  public static Journal open(Path snapshot, Path file, UsersRepo repo) throws IOException {
+    return open(snapshot, file, repo, DEFAULT_GROUP_SIZE, DEFAULT_CHECKPOINT_EVERY);
+  }
+
+  // opening the journal for appending and subscribing it to the repository changes,
+  // the repository is expected to be recovered from the same files first
+  public static Journal open(
+      Path snapshot, Path file, UsersRepo repo, int groupSize, int checkpointEvery)
+      throws IOException {
+    Objects.requireNonNull(snapshot, "snapshot");
+    Objects.requireNonNull(file, "file");
+    Objects.requireNonNull(repo, "repo");
+    if (groupSize < 1 || checkpointEvery < 1) {
+      throw new IllegalArgumentException("groupSize and checkpointEvery must be positive");
+    }
+    JournalLock lock = JournalLock.acquire(file);
+    try {
+      return lock.exclusive(
+          () -> open(snapshot, file, repo, groupSize, checkpointEvery, lock, Stamp.of(snapshot)));
+    } catch (IOException | RuntimeException e) {
+      lock.close();
+      throw e;
+    }
+  }
+
+  // recovering the repository and opening the journal without letting another instance
+  // append or compact in between; the repository is journal.getUsersRepo()
+  public static Journal openShared(Path snapshot, Path file) throws IOException {
+    Objects.requireNonNull(snapshot, "snapshot");
+    Objects.requireNonNull(file, "file");
+    JournalLock lock = JournalLock.acquire(file);
+    try {
+      return lock.exclusive(
+          () -> {
+            // taken before reading, a snapshot replaced meanwhile is reloaded later
+            Stamp stamp = Stamp.of(snapshot);
+            UsersRepo repo = recover(snapshot, file);
+            return open(
+                snapshot, file, repo, DEFAULT_GROUP_SIZE, DEFAULT_CHECKPOINT_EVERY, lock, stamp);
+          });
+    } catch (IOException | RuntimeException e) {
+      lock.close();
+      throw e;
+    }
+  }
+
+  // called holding the write lock
+  private static Journal open(
+      Path snapshot,
+      Path file,
+      UsersRepo repo,
+      int groupSize,
+      int checkpointEvery,
+      JournalLock lock,
+      Stamp stamp)
+      throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null && !Files.exists(parent)) {
+      Files.createDirectories(parent);
+    }
+    FileChannel ch =
+        FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    long end;
+    try {
+      // a crash in the middle of a write can leave a torn last line, cutting it off
+      end = lastCompleteLineEnd(ch);
+      ch.truncate(end);
+    } catch (IOException e) {
+      ch.close();
+      throw e;
+    }
+    try {
+      // an empty journal belongs to the snapshot it was opened with; one older than the
+      // snapshot is already in it (recover() skipped it) and would hide our new entries
+      if (end == 0 || headerEpoch(ch) < repo.getJournalEpoch()) {
+        ch.truncate(0);
+        end = writeHeader(ch, repo.getJournalEpoch());
+      }
+    } catch (IOException e) {
+      ch.close();
+      throw e;
+    }
+    Journal j = new Journal(snapshot, file, repo, groupSize, checkpointEvery, ch, lock, end, stamp);
+    repo.addListener(j);
+    return j;
+  }
+
+  public UsersRepo getUsersRepo() {
+    return repo;
+  }
+
+  // loading the snapshot and replaying the journal on top of it
+  public static UsersRepo recover(Path snapshot, Path file) {
+    UsersRepo repo = StorageJson.loadOrNew(snapshot);
+    replay(repo, file);
+    return repo;
+  }
+
+  private static void replay(UsersRepo repo, Path file) {
+    if (!Files.exists(file)) return;
+    int applied = 0;
+    try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      int lineNo = 0;
+      boolean first = true;
+      while ((line = r.readLine()) != null) {
+        lineNo++;
+        if (line.isBlank()) continue;
+        Entry e;
+        try {
+          e = GSON.fromJson(line, Entry.class);
+        } catch (JsonParseException ex) {
+          System.err.println(
+              "Journal " + file + ": line " + lineNo + " is damaged, ignoring the rest");
+          break;
+        }
+        if (first && epochOf(e) < repo.getJournalEpoch()) {
+          // written before the checkpoint which saved the snapshot, already in it
+          System.out.println("Journal " + file + " is older than the snapshot, skipped");
+          return;
+        }
+        first = false;
+        if (e != null && e.op == Op.CHECKPOINT) continue;
+        try {
+          apply(repo, e);
+          applied++;
+        } catch (RuntimeException ex) {
+          System.err.println(
+              "Journal " + file + ": cannot apply line " + lineNo + ": " + ex.getMessage());
+        }
+      }
+    } catch (IOException e) {
+      System.err.println("Error reading journal " + file + ": " + e.getMessage());
+    }
+    if (applied > 0) {
+      repo.setIsPreviousDataExists(true);
+      System.out.println("Replayed " + applied + " journal entries from " + file.toAbsolutePath());
+    }
+  }
+
+  static void apply(UsersRepo repo, Entry e) {
+    if (e == null || e.op == null) {
+      throw new IllegalArgumentException("Unknown journal operation");
+    }
+    switch (e.op) {
+      case REGISTER:
+        register(repo, e);
+        break;
+      case TRANSACTION:
+        user(repo, e.login, e.id).wallet.addTransaction(e.amount, e.title, e.type);
+        break;
+      case TRANSFER:
+        user(repo, e.login, e.id);
+        user(repo, e.to, e.toId);
+        repo.transfer(e.login, e.to, e.amount, e.title);
+        break;
+      case BUDGET:
+        user(repo, e.login, e.id).wallet.setBudget(e.category, e.amount);
+        break;
+      case ROLE:
+        if (Boolean.TRUE.equals(e.added)) {
+          user(repo, e.login, e.id).addRole(e.role);
+        } else {
+          user(repo, e.login, e.id).removeRole(e.role);
+        }
+        break;
+      case DELETE:
+        if (repo.find(e.login) != null) user(repo, e.login, e.id);
+        repo.deleteUser(e.login);
+        break;
+      case CHECKPOINT:
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown journal operation: " + e.op);
+    }
+  }
+
+  // a user known already (same login and id) is kept, a login or an id taken by another
+  // account rejects the registration and, through user(), every later change of that account
+  private static void register(UsersRepo repo, Entry e) {
+    User known = repo.find(e.login);
+    if (known != null) {
+      if (e.id != null && known.id != e.id) {
+        throw new IllegalArgumentException(
+            "Login " + e.login + " is taken by another account, its changes are rejected");
+      }
+      return;
+    }
+    User taken = e.id == null ? null : repo.findById(e.id);
+    if (taken != null) {
+      throw new IllegalArgumentException(
+          "Id " + e.id + " of " + e.login + " is taken by " + taken.login);
+    }
+    repo.restore(User.fromHash(e.id, e.login, e.name, e.surname, e.hash));
+  }
+
+  // the user of an entry; entries of older journals have no id and are not checked
+  private static User user(UsersRepo repo, String login, Long id) {
+    User u = repo.find(login);
+    if (u == null) throw new IllegalArgumentException("User not found: " + login);
+    if (id != null && u.id != id) {
+      throw new IllegalArgumentException("Change of another account " + login + " rejected");
+    }
+    return u;
+  }
+
+  // ---------- listening to the repository ----------
+
+  // the entries of other instances are applied and ours are written under one lock, so their
+  // registrations are known before we give out an id and ours before they give out one
+  @Override
+  public synchronized <T> T aroundRegister(Supplier<T> registration) {
+    if (applying || closed) return registration.get();
+    try {
+      return lock.exclusive(
+          () -> {
+            sinceCheckpoint += readForeign();
+            applyForeign();
+            T result = registration.get();
+            flush();
+            return result;
+          });
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void onRegister(User u) {
+    Entry e = new Entry(Op.REGISTER, u.login);
+    e.id = u.id;
+    e.name = u.name;
+    e.surname = u.surname;
+    e.hash = u.getPasswordHash();
+    append(e);
+  }
+
+  @Override
+  public void onTransaction(User u, Transaction t) {
+    Entry e = new Entry(Op.TRANSACTION, u.login);
+    e.id = u.id;
+    e.amount = t.amount;
+    e.title = t.title;
+    e.type = t.type;
+    append(e);
+  }
+
+  @Override
+  public void onTransfer(User from, User to, double amount, String title) {
+    Entry e = new Entry(Op.TRANSFER, from.login);
+    e.id = from.id;
+    e.to = to.login;
+    e.toId = to.id;
+    e.amount = amount;
+    e.title = title;
+    append(e);
+  }
+
+  @Override
+  public void onBudget(User u, String category, double limit) {
+    Entry e = new Entry(Op.BUDGET, u.login);
+    e.id = u.id;
+    e.category = category;
+    e.amount = limit;
+    append(e);
+  }
+
+  @Override
+  public void onRoleChange(User u, User.Role role, boolean added) {
+    Entry e = new Entry(Op.ROLE, u.login);
+    e.id = u.id;
+    e.role = role;
+    e.added = added;
+    append(e);
+  }
+
+  @Override
+  public void onDelete(User u) {
+    Entry e = new Entry(Op.DELETE, u.login);
+    e.id = u.id;
+    append(e);
+  }
+
+  // ---------- writing ----------
+
+  private synchronized void append(Entry e) {
+    if (applying) return; // already in the journal
+    if (closed) throw new IllegalStateException("Journal is closed: " + file);
+    pending.append(GSON.toJson(e)).append('\n');
+    pendingCount++;
+    try {
+      // checkpoint runs here, on the thread that changes the repository, so the snapshot
+      // never sees a half-applied change; flush() only writes bytes and can run anywhere
+      // entries of other instances are not applied here, in the middle of a change
+      if (bulk > 0) {
+        if (pendingCount >= BULK_GROUP_SIZE) flush();
+      } else if (sinceCheckpoint + pendingCount >= checkpointEvery) {
+        flush();
+        compact(false);
+      } else if (pendingCount >= groupSize) {
+        flush();
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  // writing the pending group with one write and one fsync, at the end of the journal
+  // (after the entries of other instances, which are read first and kept for sync())
+  public synchronized void flush() throws IOException {
+    if (pendingCount == 0) return;
+    ByteBuffer buf = ByteBuffer.wrap(pending.toString().getBytes(StandardCharsets.UTF_8));
+    int read =
+        lock.exclusive(
+            () -> {
+              int n = readForeign();
+              long pos = readPosition;
+              while (buf.hasRemaining()) {
+                pos += channel.write(buf, pos);
+              }
+              channel.force(false);
+              readPosition = pos;
+              return n;
+            });
+    sinceCheckpoint += pendingCount + read;
+    pending.setLength(0);
+    pendingCount = 0;
+  }
+
+  // applying the changes other instances made since the last call, returns their number;
+  // must run on the thread that changes the repository (between user actions)
+  public synchronized int sync() throws IOException {
+    sinceCheckpoint += lock.exclusive(this::readForeign);
+    return applyForeign();
+  }
+
+  // taking in a snapshot written by another program: the new snapshot plus the whole journal
+  // (what a restart would load) is merged into the repository user by user, unchanged users
+  // keep their objects. returns the logins added, changed or removed; nothing is done if the
+  // snapshot is the one we wrote or read last, or if it was deleted. a damaged (e.g. still
+  // being written) snapshot throws and can be retried later. must run on the thread that
+  // changes the repository
+  public synchronized Set<String> reload() throws IOException {
+    flush();
+    UsersRepo fresh =
+        lock.exclusive(
+            () -> {
+              Stamp now = Stamp.of(snapshot);
+              if (now == null || now.equals(snapshotStamp)) return null;
+              UsersRepo r = StorageJson.load(snapshot);
+              long end = lastCompleteLineEnd(channel);
+              channel.truncate(end);
+              replay(r, file);
+              // the entries of other instances are in the journal, so they are in r too
+              foreign.clear();
+              readPosition = end;
+              snapshotStamp = now;
+              return r;
+            });
+    if (fresh == null) return Set.of();
+    return repo.merge(fresh);
+  }
+
+  // a bulk change (CSV import) made on this thread: its entries are written in groups of
+  // BULK_GROUP_SIZE and the journal is not compacted in between, a snapshot every
+  // checkpointEvery entries would write the growing repository again and again.
+  // the entries are flushed at the end, the next checkpoint() compacts them.
+  // the change runs without the monitor: its listeners may wait for the autosave thread
+  // (AutoSaver backpressure), which needs the monitor for flush()
+  public <T> T bulk(Change<T> change) throws IOException {
+    synchronized (this) {
+      bulk++;
+    }
+    try {
+      return change.run();
+    } finally {
+      synchronized (this) {
+        if (--bulk == 0) flush();
+      }
+    }
+  }
+
+  // true while bulk() runs or the entries of other instances are applied, for listeners which
+  // react only to the changes made one by one on this instance (budget alerts)
+  public synchronized boolean isQuiet() {
+    return bulk > 0 || applying;
+  }
+
+  // old transactions are moved to the archive file by checkpoint() (so by close()), keeping
+  // keepRecent per wallet on the heap; the next start loads only those. not done by the
+  // checkpoints in the middle of a change, users are replaced (see TransactionArchive)
+  public synchronized void setArchive(Path archiveFile, int keepRecent) {
+    if (keepRecent < 0) throw new IllegalArgumentException("keepRecent must not be negative");
+    this.archive = Objects.requireNonNull(archiveFile, "archiveFile");
+    this.keepRecent = keepRecent;
+  }
+
+  // compacting: the whole repository goes to the snapshot, the journal becomes empty.
+  // the snapshot is written to a temporary file and moved over the old one, so a crash
+  // never leaves us without both of them. while other instances are open the journal is
+  // only flushed, it is compacted by the last one
+  public synchronized void checkpoint() throws IOException {
+    flush();
+    sync();
+    compact(true);
+  }
+
+  private void compact(boolean archiveOld) throws IOException {
+    Path archiveFile = archiveOld ? archive : null;
+    int keep = keepRecent;
+    boolean done =
+        lock.whenAlone(
+            () -> {
+              readForeign();
+              if (!foreign.isEmpty()) return false; // applied by the next sync()
+              if (archiveFile != null) {
+                long moved = TransactionArchive.archive(archiveFile, repo, keep);
+                if (moved > 0) System.out.println("Archived " + moved + " old transactions");
+              }
+              Path parent = snapshot.toAbsolutePath().getParent();
+              if (parent != null && !Files.exists(parent)) {
+                Files.createDirectories(parent);
+              }
+              // the new epoch is in the snapshot before the journal is emptied: if we die in
+              // between, the next start sees the journal is older and does not replay it again
+              long epoch = repo.getJournalEpoch();
+              long next = Math.max(epoch, headerEpoch(channel)) + 1;
+              Path tmp = AtomicFiles.tempFor(snapshot);
+              repo.setJournalEpoch(next);
+              try {
+                StorageJson.write(tmp, repo);
+                // the snapshot must be on disk before the journal is durably emptied below
+                AtomicFiles.replaceDurably(tmp, snapshot);
+              } catch (IOException | RuntimeException e) {
+                repo.setJournalEpoch(epoch);
+                throw e;
+              }
+              snapshotStamp = Stamp.of(snapshot);
+              channel.truncate(0);
+              readPosition = writeHeader(channel, next);
+              return true;
+            });
+    sinceCheckpoint = 0; // the next attempt after another checkpointEvery entries
+    if (done) System.out.println("Saved users repository to " + snapshot.toAbsolutePath());
+  }
+
+  // forgetting everything journaled so far (used when the saved data is removed),
+  // impossible while other instances are open
+  public synchronized void discard() throws IOException {
+    boolean done =
+        lock.whenAlone(
+            () -> {
+              channel.truncate(0);
+              readPosition = writeHeader(channel, repo.getJournalEpoch());
+              return true;
+            });
+    if (!done) throw new IOException("The data is used by another instance: " + file);
+    pending.setLength(0);
+    pendingCount = 0;
+    sinceCheckpoint = 0;
+    foreign.clear();
+  }
+
+  // final checkpoint, after closing the journal does not accept changes anymore
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) return;
+    try {
+      checkpoint();
+    } finally {
+      closed = true;
+      repo.removeListener(this);
+      try {
+        channel.close();
+      } finally {
+        lock.close();
+      }
+    }
+  }
+
+  // ---------- entries of other instances ----------
+
+  // called holding the write lock: complete lines after readPosition are queued,
+  // a torn last line is cut off (its writer died, a living one would hold the lock);
+  // returns the number of queued entries
+  private int readForeign() throws IOException {
+    long size = channel.size();
+    if (size == readPosition) return 0;
+    if (size < readPosition) {
+      throw new IOException("Journal " + file + " was truncated by another program");
+    }
+    long end = lastCompleteLineEnd(channel);
+    if (end < size) channel.truncate(end);
+    if (end <= readPosition) return 0;
+    if (end - readPosition > Integer.MAX_VALUE) throw new IOException("Journal is too big");
+    ByteBuffer buf = ByteBuffer.allocate((int) (end - readPosition));
+    while (buf.hasRemaining()) {
+      if (channel.read(buf, readPosition + buf.position()) < 0) break;
+    }
+    String text = new String(buf.array(), 0, buf.position(), StandardCharsets.UTF_8);
+    int before = foreign.size();
+    for (String line : text.split("\n")) {
+      if (line.isBlank()) continue;
+      try {
+        foreign.add(GSON.fromJson(line, Entry.class));
+      } catch (JsonParseException ex) {
+        System.err.println("Journal " + file + ": damaged entry of another instance ignored");
+      }
+    }
+    readPosition = end;
+    return foreign.size() - before;
+  }
+
+  private int applyForeign() {
+    int n = foreign.size();
+    applying = true;
+    try {
+      for (Entry e : foreign) {
+        try {
+          apply(repo, e);
+        } catch (RuntimeException ex) {
+          System.err.println("Journal " + file + ": cannot apply a change: " + ex.getMessage());
+        }
+      }
+    } finally {
+      applying = false;
+      foreign.clear();
+    }
+    return n;
+  }
+
+  // ---------- checkpoint epochs ----------
+
+  // writing the first line of an empty journal, returns its end
+  private static long writeHeader(FileChannel ch, long epoch) throws IOException {
+    Entry e = new Entry(Op.CHECKPOINT, null);
+    e.id = epoch;
+    ByteBuffer buf = ByteBuffer.wrap((GSON.toJson(e) + "\n").getBytes(StandardCharsets.UTF_8));
+    long pos = 0;
+    while (buf.hasRemaining()) {
+      pos += ch.write(buf, pos);
+    }
+    ch.force(true);
+    return pos;
+  }
+
+  // the epoch of the journal from its first line, 0 for a journal without one
+  private static long headerEpoch(FileChannel ch) throws IOException {
+    ByteBuffer buf = ByteBuffer.allocate(128);
+    while (buf.hasRemaining()) {
+      if (ch.read(buf, buf.position()) < 0) break;
+    }
+    String text = new String(buf.array(), 0, buf.position(), StandardCharsets.UTF_8);
+    int end = text.indexOf('\n');
+    if (end < 0) return 0;
+    try {
+      return epochOf(GSON.fromJson(text.substring(0, end), Entry.class));
+    } catch (JsonParseException ex) {
+      return 0;
+    }
+  }
+
+  private static long epochOf(Entry first) {
+    if (first == null || first.op != Op.CHECKPOINT || first.id == null) return 0;
+    return first.id;
+  }
+
+  // position right after the last '\n' of the file (0 if there is no complete line)
+  private static long lastCompleteLineEnd(FileChannel ch) throws IOException {
+    long pos = ch.size();
+    ByteBuffer buf = ByteBuffer.allocate(4096);
+    while (pos > 0) {
+      int len = (int) Math.min(buf.capacity(), pos);
+      buf.clear().limit(len);
+      long start = pos - len;
+      while (buf.hasRemaining()) {
+        if (ch.read(buf, start + buf.position()) < 0) break;
+      }
+      for (int i = buf.position() - 1; i >= 0; i--) {
+        if (buf.get(i) == '\n') return start + i + 1;
+      }
+      pos = start;
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,129 @@
+package org.example.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// coordination of the processes which share one journal, by FileChannel locks on a small
+// <journal>.lock file next to it (the locks are advisory, nothing is written to the file):
+//   byte 0 (WRITE): exclusive while a process appends to the journal, reads what the others
+//                   appended or compacts it; held for one write, so several instances can work
+//   byte 1 (ALIVE): shared by every open instance for its whole lifetime; an instance which
+//                   gets it exclusively is alone and may replace the snapshot and empty the
+//                   journal without breaking the read positions of the others
+// ALIVE is only changed while WRITE is held, so nobody can start between the release of the
+// shared lock and the attempt to take it exclusively.
+// file locks belong to the whole JVM (a second lock of the same bytes throws instead of
+// waiting), so all journals of one process on the same file share one JournalLock, counted,
+// with an in-process lock in front of WRITE
+final class JournalLock implements Closeable {
+
+  interface Action<T> {
+    T run() throws IOException;
+  }
+
+  private static final long WRITE = 0;
+  private static final long ALIVE = 1;
+
+  private static final Map<Path, JournalLock> OPEN = new HashMap<>(); // guarded by OPEN
+
+  private final Path path;
+  private final FileChannel channel;
+  private final ReentrantLock local = new ReentrantLock();
+  private FileLock alive; // guarded by local
+  private int users; // guarded by OPEN
+
+  private JournalLock(Path path, FileChannel channel) {
+    this.path = path;
+    this.channel = channel;
+  }
+
+  // joining the instances of the journal; blocks while one of them compacts it
+  static JournalLock acquire(Path journal) throws IOException {
+    Path path = lockFileFor(journal);
+    synchronized (OPEN) {
+      JournalLock lock = OPEN.get(path);
+      if (lock == null) {
+        Path parent = path.getParent();
+        if (parent != null) Files.createDirectories(parent);
+        FileChannel ch =
+            FileChannel.open(
+                path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        lock = new JournalLock(path, ch);
+        try {
+          lock.join();
+        } catch (IOException | RuntimeException e) {
+          ch.close();
+          throw e;
+        }
+        OPEN.put(path, lock);
+      }
+      lock.users++;
+      return lock;
+    }
+  }
+
+  static Path lockFileFor(Path journal) {
+    Path abs = journal.toAbsolutePath().normalize();
+    return abs.resolveSibling(abs.getFileName() + ".lock");
+  }
+
+  private void join() throws IOException {
+    exclusive(
+        () -> {
+          alive = channel.lock(ALIVE, 1, true);
+          return null;
+        });
+  }
+
+  // running the action while no other process writes the journal
+  <T> T exclusive(Action<T> action) throws IOException {
+    local.lock();
+    try {
+      if (local.getHoldCount() > 1) return action.run();
+      FileLock write = channel.lock(WRITE, 1, false);
+      try {
+        return action.run();
+      } finally {
+        write.release();
+      }
+    } finally {
+      local.unlock();
+    }
+  }
+
+  // running the action only if no other instance (process or journal of this process) is
+  // open; false if there is one or the action returned false
+  boolean whenAlone(Action<Boolean> action) throws IOException {
+    synchronized (OPEN) {
+      if (users != 1) return false;
+    }
+    return exclusive(
+        () -> {
+          alive.release();
+          FileLock only = null;
+          try {
+            only = channel.tryLock(ALIVE, 1, false);
+            return only != null && action.run();
+          } finally {
+            if (only != null) only.release();
+            // nobody else can hold ALIVE exclusively while we hold WRITE
+            alive = channel.lock(ALIVE, 1, true);
+          }
+        });
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (OPEN) {
+      if (users == 0 || --users > 0) return;
+      OPEN.remove(path);
+    }
+    channel.close(); // releases both locks
+  }
+}
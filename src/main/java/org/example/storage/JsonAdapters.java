@@ -0,0 +1,371 @@
+package org.example.storage;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.model.Wallet;
+
+// hand-written GSON adapters for the persisted model types.
+// the field layout is fixed here instead of following the Java fields, so renaming a field
+// does not change the files, and derived or runtime state (spentByCat, listeners, dirty flags)
+// is never written. unknown fields are skipped when reading, so a newer writer can add fields
+// without breaking an older reader of the same FORMAT_VERSION
+final class JsonAdapters {
+
+  // version of the data layout, written in the header of every data file.
+  // 0 - reflective layout of the first versions (no version field)
+  // 1 - layout of these adapters
+  // 2 - a wallet may keep its older transactions in an archive file ("cold"), a reader of
+  //     version 1 would silently lose them. only files with such wallets are marked 2
+  static final int FORMAT_VERSION = 2;
+  static final int PLAIN_VERSION = 1;
+
+  static final TypeAdapter<Transaction> TRANSACTION = new TransactionAdapter();
+  static final TypeAdapter<Wallet> WALLET = new WalletAdapter();
+  static final TypeAdapter<User> USER = new UserAdapter();
+
+  // constructor is private to prevent instantiation
+  private JsonAdapters() {
+    throw new AssertionError("No instances allowed");
+  }
+
+  // directory of the data file being read or written on this thread (set by StorageJson):
+  // archive files of cold wallets are referenced by name relative to it. without it, or with
+  // an archive in another directory, the archived transactions are written inline
+  private static final ThreadLocal<Path> DATA_DIR = new ThreadLocal<>();
+
+  static void setDataDir(Path dir) {
+    if (dir == null) DATA_DIR.remove();
+    else DATA_DIR.set(dir.toAbsolutePath().normalize());
+  }
+
+  // version to write in the header of a file with these users
+  static int versionOf(List<User> users) {
+    for (User u : users) {
+      if (u.wallet.transactions instanceof ColdTransactions cold && isKeptCold(cold)) {
+        return FORMAT_VERSION;
+      }
+    }
+    return PLAIN_VERSION;
+  }
+
+  // archived transactions are referenced only from a data file in the archive's directory
+  private static boolean isKeptCold(ColdTransactions cold) {
+    Path dir = DATA_DIR.get();
+    return dir != null && dir.equals(cold.archive().getParent());
+  }
+
+  // registering the adapters, used wherever GSON meets the model types
+  static GsonBuilder register(GsonBuilder builder) {
+    return builder
+        .registerTypeAdapter(Transaction.class, TRANSACTION.nullSafe())
+        .registerTypeAdapter(Wallet.class, WALLET.nullSafe())
+        .registerTypeAdapter(User.class, USER.nullSafe());
+  }
+
+  static void checkVersion(int version) throws IOException {
+    if (version < 0 || version > FORMAT_VERSION) {
+      throw new IOException("Unsupported data format version " + version);
+    }
+  }
+
+  // {"amount": 10.0, "title": "food", "type": "EXPENSE"}
+  private static final class TransactionAdapter extends TypeAdapter<Transaction> {
+    @Override
+    public void write(JsonWriter out, Transaction t) throws IOException {
+      out.beginObject();
+      out.name("amount").value(t.amount);
+      out.name("title").value(t.title);
+      out.name("type").value(t.type.name());
+      out.endObject();
+    }
+
+    @Override
+    public Transaction read(JsonReader in) throws IOException {
+      double amount = 0;
+      String title = null;
+      Transaction.Type type = null;
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "amount":
+            amount = in.nextDouble();
+            break;
+          case "title":
+            title = nextStringOrNull(in);
+            break;
+          case "type":
+            type = Transaction.Type.valueOf(in.nextString());
+            break;
+          default:
+            in.skipValue();
+            break;
+        }
+      }
+      in.endObject();
+      if (type == null) {
+        throw new IOException("Transaction without type at " + in.getPath());
+      }
+      return new Transaction(amount, title, type);
+    }
+  }
+
+  // {"budgets": {...}, "transactions": [...]}, spentByCat is rebuilt by Wallet.restore.
+  // an archived wallet also has
+  //   "cold": {"archive": "finance-data.archive", "totals": {...}, "segments": [[offset, n]...]}
+  // and only the transactions after the archived ones in "transactions"
+  private static final class WalletAdapter extends TypeAdapter<Wallet> {
+    // one buffer of transactions per thread reused for every wallet,
+    // so wallets get exact-size lists and no garbage from list growth
+    private static final ThreadLocal<List<Transaction>> SCRATCH =
+        ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public void write(JsonWriter out, Wallet w) throws IOException {
+      out.beginObject();
+      out.name("budgets").beginObject();
+      for (Map.Entry<String, Double> e : w.getBudgets().entrySet()) {
+        out.name(e.getKey()).value(e.getValue());
+      }
+      out.endObject();
+      List<Transaction> transactions = w.transactions;
+      if (w.transactions instanceof ColdTransactions cold && isKeptCold(cold)) {
+        writeCold(out, cold);
+        transactions = cold.hot();
+      }
+      out.name("transactions").beginArray();
+      for (Transaction t : transactions) {
+        TRANSACTION.write(out, t);
+      }
+      out.endArray();
+      out.endObject();
+    }
+
+    private static void writeCold(JsonWriter out, ColdTransactions cold) throws IOException {
+      Wallet.Totals t = cold.coldTotals();
+      out.name("cold").beginObject();
+      out.name("archive").value(String.valueOf(cold.archive().getFileName()));
+      out.name("totals").beginObject();
+      out.name("income").value(t.income());
+      out.name("expense").value(t.expense());
+      out.name("balance").value(t.balance());
+      out.name("incomeByCat");
+      UserHeaders.writeSums(out, t.incomeByCat());
+      out.name("spentByCat");
+      UserHeaders.writeSums(out, t.spentByCat());
+      out.endObject();
+      out.name("segments").beginArray();
+      for (ColdTransactions.Segment seg : cold.segments()) {
+        out.beginArray().value(seg.offset()).value(seg.count()).endArray();
+      }
+      out.endArray();
+      out.endObject();
+    }
+
+    private static ColdTransactions readCold(JsonReader in) throws IOException {
+      Path dir = DATA_DIR.get();
+      if (dir == null) throw new IOException("Archived transactions outside of a data file");
+      String archive = null;
+      Wallet.Totals totals = null;
+      List<ColdTransactions.Segment> segments = new ArrayList<>();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "archive":
+            archive = in.nextString();
+            break;
+          case "totals":
+            totals = readTotals(in);
+            break;
+          case "segments":
+            in.beginArray();
+            while (in.hasNext()) {
+              in.beginArray();
+              long offset = in.nextLong();
+              int count = in.nextInt();
+              in.endArray();
+              if (offset < 0 || count <= 0) throw new IOException("Bad segment at " + in.getPath());
+              segments.add(new ColdTransactions.Segment(offset, count));
+            }
+            in.endArray();
+            break;
+          default:
+            in.skipValue();
+            break;
+        }
+      }
+      in.endObject();
+      if (archive == null || totals == null) {
+        throw new IOException("Incomplete archived wallet at " + in.getPath());
+      }
+      Path file = dir.resolve(archive).normalize();
+      if (!dir.equals(file.getParent())) throw new IOException("Bad archive name " + archive);
+      return new ColdTransactions(file, segments, totals, List.of());
+    }
+
+    private static Wallet.Totals readTotals(JsonReader in) throws IOException {
+      double income = 0;
+      double expense = 0;
+      double balance = 0;
+      Map<String, Double> incomeByCat = new LinkedHashMap<>();
+      Map<String, Double> spentByCat = new LinkedHashMap<>();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "income":
+            income = in.nextDouble();
+            break;
+          case "expense":
+            expense = in.nextDouble();
+            break;
+          case "balance":
+            balance = in.nextDouble();
+            break;
+          case "incomeByCat":
+            UserHeaders.readSums(in, incomeByCat);
+            break;
+          case "spentByCat":
+            UserHeaders.readSums(in, spentByCat);
+            break;
+          default:
+            in.skipValue();
+            break;
+        }
+      }
+      in.endObject();
+      return new Wallet.Totals(income, expense, balance, incomeByCat, spentByCat);
+    }
+
+    @Override
+    public Wallet read(JsonReader in) throws IOException {
+      List<Transaction> scratch = SCRATCH.get();
+      scratch.clear();
+      Map<String, Double> budgets = new LinkedHashMap<>();
+      ColdTransactions cold = null;
+      try {
+        in.beginObject();
+        while (in.hasNext()) {
+          switch (in.nextName()) {
+            case "transactions":
+              in.beginArray();
+              while (in.hasNext()) {
+                scratch.add(TRANSACTION.read(in));
+              }
+              in.endArray();
+              break;
+            case "budgets":
+              in.beginObject();
+              while (in.hasNext()) {
+                String category = in.nextName();
+                budgets.put(category, in.nextDouble());
+              }
+              in.endObject();
+              break;
+            case "cold":
+              cold = readCold(in);
+              break;
+            default:
+              in.skipValue(); // spentByCat of the reflective layout is derived
+              break;
+          }
+        }
+        in.endObject();
+        // the transactions after the archived ones continue the archived aggregates
+        Wallet wallet = cold == null ? new Wallet() : new Wallet(cold, cold.coldTotals());
+        wallet.restore(scratch, budgets);
+        return wallet;
+      } finally {
+        scratch.clear();
+      }
+    }
+  }
+
+  // {"id": 1, "login": "...", "name": "...", "surname": "...", "passwordHash": "...",
+  //  "roles": ["USER"], "wallet": {...}}
+  private static final class UserAdapter extends TypeAdapter<User> {
+    @Override
+    public void write(JsonWriter out, User u) throws IOException {
+      out.beginObject();
+      out.name("id").value(u.id);
+      out.name("login").value(u.login);
+      out.name("name").value(u.name);
+      out.name("surname").value(u.surname);
+      out.name("passwordHash").value(u.getPasswordHash());
+      out.name("roles").beginArray();
+      for (User.Role r : User.Role.values()) {
+        if (u.hasRole(r)) out.value(r.name());
+      }
+      out.endArray();
+      out.name("wallet");
+      WALLET.write(out, u.wallet);
+      out.endObject();
+    }
+
+    @Override
+    public User read(JsonReader in) throws IOException {
+      long id = -1;
+      String login = null;
+      String name = null;
+      String surname = null;
+      String passwordHash = null;
+      EnumSet<User.Role> roles = EnumSet.noneOf(User.Role.class);
+      Wallet wallet = null;
+
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "id":
+            id = in.nextLong();
+            break;
+          case "login":
+            login = nextStringOrNull(in);
+            break;
+          case "name":
+            name = nextStringOrNull(in);
+            break;
+          case "surname":
+            surname = nextStringOrNull(in);
+            break;
+          case "passwordHash":
+            passwordHash = nextStringOrNull(in);
+            break;
+          case "roles":
+            in.beginArray();
+            while (in.hasNext()) {
+              roles.add(User.Role.valueOf(in.nextString()));
+            }
+            in.endArray();
+            break;
+          case "wallet":
+            wallet = WALLET.read(in);
+            break;
+          default:
+            in.skipValue();
+            break;
+        }
+      }
+      in.endObject();
+
+      if (id < 0 || login == null) {
+        throw new IOException("User without id or login at " + in.getPath());
+      }
+      return User.restore(
+          id, login, name, surname, passwordHash, roles, wallet != null ? wallet : new Wallet());
+    }
+  }
+
+  private static String nextStringOrNull(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    return in.nextString();
+  }
+}
@@ -0,0 +1,47 @@
+package org.example.storage;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+
+// the JSON data file of StorageJson as a StorageBackend; one file holds everything,
+// so saveChanges() rewrites it as a whole. the file is replaced atomically
+public final class JsonBackend implements StorageBackend {
+
+  private final Path file;
+
+  public JsonBackend(Path file) {
+    this.file = Objects.requireNonNull(file, "file");
+  }
+
+  @Override
+  public UsersRepo load() {
+    return StorageJson.loadOrNew(file);
+  }
+
+  @Override
+  public void save(UsersRepo usersRepo) throws IOException {
+    Objects.requireNonNull(usersRepo, "usersRepo");
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null && !Files.exists(parent)) {
+      Files.createDirectories(parent);
+    }
+    Set<Long> saved = new HashSet<>(usersRepo.getDirtyIds());
+    Path tmp = AtomicFiles.tempFor(file);
+    StorageJson.write(tmp, usersRepo);
+    AtomicFiles.replace(tmp, file);
+    for (User u : usersRepo.listAll()) {
+      saved.add(u.id);
+    }
+    usersRepo.markClean(saved);
+  }
+
+  @Override
+  public String describe() {
+    return file.toAbsolutePath().toString();
+  }
+}
@@ -0,0 +1,88 @@
+package org.example.storage;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.Reader;
+import org.example.repo.UsersRepo;
+
+// streaming loader of the data file, built on GSON's JsonReader instead of reflection.
+// users and wallets are created one by one (JsonAdapters) while the file is read, so only the
+// final objects and a small parser buffer are on the heap at the same time.
+// reads the reflective layout ({"byLogin": {...}, "byId": {...}, "nextId": n}) and a plain
+// "users" array; an optional "userCount" before the users is used to pre-size the repository,
+// a "formatVersion" newer than JsonAdapters.FORMAT_VERSION is rejected
+final class JsonStreamLoader {
+
+  // constructor is private to prevent instantiation
+  private JsonStreamLoader() {
+    throw new AssertionError("No instances allowed");
+  }
+
+  // returns null for an empty document ("null")
+  static UsersRepo read(Reader source) throws IOException {
+    JsonReader in = new JsonReader(source);
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    UsersRepo repo = null;
+    long nextId = 1;
+    long journalEpoch = 0;
+    boolean usersRead = false;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      String name = in.nextName();
+      switch (name) {
+        case "formatVersion":
+          JsonAdapters.checkVersion(in.nextInt());
+          break;
+        case "userCount":
+          if (repo == null) repo = new UsersRepo(in.nextInt());
+          else in.skipValue();
+          break;
+        case "byLogin":
+        case "byId":
+          // the reflective layout keeps every user twice, byId is only read if byLogin is absent
+          if (usersRead) {
+            in.skipValue();
+            break;
+          }
+          if (repo == null) repo = new UsersRepo();
+          in.beginObject();
+          while (in.hasNext()) {
+            in.nextName();
+            repo.restore(JsonAdapters.USER.read(in));
+          }
+          in.endObject();
+          usersRead = true;
+          break;
+        case "users":
+          if (repo == null) repo = new UsersRepo();
+          in.beginArray();
+          while (in.hasNext()) {
+            repo.restore(JsonAdapters.USER.read(in));
+          }
+          in.endArray();
+          usersRead = true;
+          break;
+        case "nextId":
+          nextId = in.nextLong();
+          break;
+        case "journalEpoch":
+          journalEpoch = in.nextLong();
+          break;
+        default:
+          in.skipValue(); // isPreviousDataExists and unknown fields
+          break;
+      }
+    }
+    in.endObject();
+
+    if (repo == null) repo = new UsersRepo();
+    repo.advanceNextId(nextId);
+    repo.setJournalEpoch(journalEpoch);
+    return repo;
+  }
+}
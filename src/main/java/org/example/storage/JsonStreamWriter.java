@@ -0,0 +1,47 @@
+package org.example.storage;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.List;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+
+// streaming writer of the data file, the counterpart of JsonStreamLoader.
+// users and wallets are walked directly with a JsonWriter (JsonAdapters): no reflection, no
+// intermediate trees and every user is written once
+// ({"formatVersion": v, "userCount": n, "nextId": n, "users": [...]}).
+// a snapshot written by Journal.checkpoint() also carries "journalEpoch" (see Journal)
+// derived sums (spentByCat) are not written, the loader rebuilds them
+final class JsonStreamWriter {
+
+  // constructor is private to prevent instantiation
+  private JsonStreamWriter() {
+    throw new AssertionError("No instances allowed");
+  }
+
+  static void write(JsonWriter out, UsersRepo repo) throws IOException {
+    write(out, repo.listAll(), repo.getNextId(), repo.getJournalEpoch());
+  }
+
+  // a part of the repository (one shard of StorageSharded), the list is sorted by id here
+  static void write(JsonWriter out, List<User> users, long nextId) throws IOException {
+    write(out, users, nextId, 0);
+  }
+
+  private static void write(JsonWriter out, List<User> users, long nextId, long journalEpoch)
+      throws IOException {
+    users.sort((a, b) -> Long.compare(a.id, b.id));
+    out.beginObject();
+    out.name("formatVersion").value(JsonAdapters.versionOf(users));
+    out.name("userCount").value(users.size());
+    out.name("nextId").value(nextId);
+    if (journalEpoch > 0) out.name("journalEpoch").value(journalEpoch);
+    out.name("users").beginArray();
+    for (User u : users) {
+      JsonAdapters.USER.write(out, u);
+    }
+    out.endArray();
+    out.endObject();
+    out.flush();
+  }
+}
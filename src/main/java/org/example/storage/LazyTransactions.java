@@ -0,0 +1,199 @@
+package org.example.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import org.example.model.Transaction;
+
+// transactions of one wallet which are read from the data file of StorageLazy on first access.
+// until then only the position of the block and the number of transactions are kept, so
+// size() does not load anything. a block is a sequence of records
+// (varint title id << 1 | type, 8-byte amount), see StorageBinary for the encodings.
+// with a WalletCache the loaded transactions can be dropped again (evict), transactions
+// which are not in the data file yet are written to a new block first
+final class LazyTransactions extends AbstractList<Transaction> implements RandomAccess {
+
+  // where the transactions of an evicted wallet are written if they are not in a block yet
+  interface BlockWriter {
+    Block append(List<Transaction> transactions) throws IOException;
+  }
+
+  record Block(Path file, long offset, long length) {}
+
+  private final TitleDictionary titles;
+  private final WalletCache cache;
+  final long key; // identity in the cache (equals and hashCode compare the transactions)
+  private int count;
+  private Path file;
+  private long offset;
+  private int length;
+  private List<Transaction> loaded;
+  private boolean dirty; // loaded list has transactions which are not in the block
+
+  LazyTransactions(
+      TitleDictionary titles, WalletCache cache, Path file, long offset, long length, long count)
+      throws IOException {
+    if (length < 0 || length > Integer.MAX_VALUE || count < 0 || count > Integer.MAX_VALUE) {
+      throw new IOException("Bad transaction block at " + offset + " in " + file);
+    }
+    this.titles = titles;
+    this.cache = cache;
+    this.key = cache.nextKey();
+    this.file = file;
+    this.offset = offset;
+    this.length = (int) length;
+    this.count = (int) count;
+  }
+
+  synchronized boolean isHydrated() {
+    return loaded != null;
+  }
+
+  synchronized long offset() {
+    return offset;
+  }
+
+  synchronized int length() {
+    return length;
+  }
+
+  synchronized boolean isDirty() {
+    return dirty;
+  }
+
+  // the block was copied to a new data file by save(), unless it was replaced meanwhile
+  synchronized void relocate(Path oldFile, long oldOffset, Path newFile, long newOffset) {
+    if (!file.equals(oldFile) || offset != oldOffset) return;
+    this.file = newFile;
+    this.offset = newOffset;
+  }
+
+  // the whole list was written to a new data file by save()
+  synchronized void saved(Path newFile, long newOffset, long newLength) {
+    if (loaded == null) return;
+    this.file = newFile;
+    this.offset = newOffset;
+    this.length = (int) newLength;
+    this.count = loaded.size();
+    this.dirty = false;
+  }
+
+  @Override
+  public Transaction get(int index) {
+    Transaction t;
+    int hydrated = -1;
+    synchronized (this) {
+      if (loaded == null) hydrated = hydrate().size();
+      t = loaded.get(index);
+    }
+    // the cache is called without holding this lock, eviction locks other lists
+    if (hydrated >= 0) cache.loaded(this, hydrated);
+    else cache.accessed(this);
+    return t;
+  }
+
+  @Override
+  public synchronized int size() {
+    return loaded == null ? count : loaded.size();
+  }
+
+  @Override
+  public boolean add(Transaction t) {
+    int hydrated = -1;
+    synchronized (this) {
+      boolean wasLoaded = loaded != null;
+      hydrate().add(t);
+      if (!wasLoaded) hydrated = loaded.size();
+      dirty = true;
+      modCount++;
+    }
+    if (hydrated >= 0) cache.loaded(this, hydrated);
+    else cache.grown(this);
+    return true;
+  }
+
+  // dropping the loaded transactions, false if they could not be written to a block
+  boolean evict(BlockWriter writer) {
+    synchronized (this) {
+      if (loaded == null) return true;
+      if (dirty) {
+        try {
+          Block b = writer.append(loaded);
+          file = b.file();
+          offset = b.offset();
+          length = (int) b.length();
+          count = loaded.size();
+          dirty = false;
+        } catch (IOException | RuntimeException e) {
+          System.err.println("Cannot write evicted wallet: " + e.getMessage());
+          return false;
+        }
+      }
+      loaded = null;
+      return true;
+    }
+  }
+
+  // equality of lists, the position in the file does not take part
+  // (fixing spotbugs error EQ_DOESNT_OVERRIDE_EQUALS)
+  @Override
+  public boolean equals(Object o) {
+    return super.equals(o);
+  }
+
+  @Override
+  public int hashCode() {
+    return super.hashCode();
+  }
+
+  private List<Transaction> hydrate() {
+    if (loaded != null) return loaded;
+    List<Transaction> list = new ArrayList<>(Math.max(count, 10));
+    try {
+      if (count > 0) {
+        byte[] bytes = new byte[length];
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+          ByteBuffer b = ByteBuffer.wrap(bytes);
+          while (b.hasRemaining()) {
+            if (ch.read(b, offset + b.position()) < 0) {
+              throw new IOException("Truncated transaction block in " + file);
+            }
+          }
+        }
+        decode(new StorageBinary.SectionReader(bytes, length), count, titles, list);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot load transactions from " + file, e);
+    }
+    loaded = list;
+    return loaded;
+  }
+
+  static void encode(
+      List<Transaction> transactions, TitleDictionary titles, StorageBinary.Buffer b) {
+    for (Transaction t : transactions) {
+      long title = titles.idOf(t.title);
+      b.putVarLong(title << 1 | (t.type == Transaction.Type.EXPENSE ? 1 : 0));
+      b.putDouble(t.amount);
+    }
+  }
+
+  static void decode(
+      StorageBinary.SectionReader r, int count, TitleDictionary titles, List<Transaction> out)
+      throws IOException {
+    for (int i = 0; i < count; i++) {
+      long key = r.varLong();
+      Transaction.Type type = (key & 1) != 0 ? Transaction.Type.EXPENSE : Transaction.Type.INCOME;
+      if (key >>> 1 > Integer.MAX_VALUE) throw new IOException("Bad title id");
+      String title = titles.title((int) (key >>> 1));
+      out.add(new Transaction(r.doubleValue(), title, type));
+    }
+    if (r.remaining() != 0) throw new IOException("Corrupted transaction block");
+  }
+}
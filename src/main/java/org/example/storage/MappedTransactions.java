@@ -0,0 +1,149 @@
+package org.example.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import org.example.model.Transaction;
+
+// transactions of one wallet in an append-only memory-mapped file (FileChannel.map).
+// records are read through the page cache when the list is accessed, nothing is parsed at
+// startup and only the mapped pages in use take memory.
+// layout: header (int magic, int version, long count) and fixed-width 16-byte records
+// (double amount, int title id, byte type, 3 bytes padding). the count in the header is
+// written after the record, so a crash in the middle of an append loses only that record.
+// only add() is supported, the history is never rewritten
+public final class MappedTransactions extends AbstractList<Transaction>
+    implements RandomAccess, Closeable {
+
+  static final int MAGIC = 0x46494E54; // "FINT"
+  static final int VERSION = 1;
+  static final int HEADER = 16;
+  static final int RECORD = 16;
+
+  private static final int MIN_CAPACITY = 64;
+  // one mapping is limited to 2 GB
+  private static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER) / RECORD;
+
+  private final FileChannel ch;
+  private final TitleDictionary titles;
+  private MappedByteBuffer map;
+  private int capacity;
+  private int count;
+
+  private MappedTransactions(FileChannel ch, TitleDictionary titles) {
+    this.ch = ch;
+    this.titles = titles;
+  }
+
+  static MappedTransactions open(Path file, TitleDictionary titles) throws IOException {
+    FileChannel ch =
+        FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    MappedTransactions list = new MappedTransactions(ch, titles);
+    try {
+      list.init(file);
+    } catch (IOException | RuntimeException e) {
+      ch.close();
+      throw e;
+    }
+    return list;
+  }
+
+  // checking the header of an existing segment or writing it to a new one
+  private synchronized void init(Path file) throws IOException {
+    long size = ch.size();
+    if (size == 0) {
+      remap(MIN_CAPACITY);
+      map.putInt(0, MAGIC);
+      map.putInt(4, VERSION);
+      map.putLong(8, 0);
+    } else {
+      if (size < HEADER) throw new IOException("Truncated transaction segment " + file);
+      remap((int) Math.max(MIN_CAPACITY, (size - HEADER) / RECORD));
+      if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+        throw new IOException("Not a transaction segment " + file);
+      }
+      long stored = map.getLong(8);
+      long complete = (size - HEADER) / RECORD;
+      if (stored < 0 || stored > complete) {
+        throw new IOException("Corrupted transaction count in " + file);
+      }
+      count = (int) stored;
+    }
+  }
+
+  // maps the header and the given number of records, the file grows if needed
+  private void remap(int records) throws IOException {
+    map = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) records * RECORD);
+    capacity = records;
+  }
+
+  @Override
+  public synchronized Transaction get(int index) {
+    if (index < 0 || index >= count) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", size: " + count);
+    }
+    int at = HEADER + index * RECORD;
+    double amount = map.getDouble(at);
+    String title = titles.title(map.getInt(at + 8));
+    Transaction.Type type =
+        map.get(at + 12) == 0 ? Transaction.Type.INCOME : Transaction.Type.EXPENSE;
+    return new Transaction(amount, title, type);
+  }
+
+  @Override
+  public synchronized int size() {
+    return count;
+  }
+
+  @Override
+  public synchronized boolean add(Transaction t) {
+    if (count == capacity) {
+      if (capacity == MAX_CAPACITY) {
+        throw new IllegalStateException("Transaction segment is full");
+      }
+      try {
+        remap((int) Math.min((long) capacity * 2, MAX_CAPACITY));
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot grow transaction segment", e);
+      }
+    }
+    int at = HEADER + count * RECORD;
+    map.putDouble(at, t.amount);
+    map.putInt(at + 8, titles.idOf(t.title));
+    map.put(at + 12, (byte) (t.type == Transaction.Type.INCOME ? 0 : 1));
+    count++;
+    map.putLong(8, count);
+    modCount++;
+    return true;
+  }
+
+  // equality of lists, the file and the mapping do not take part
+  // (fixing spotbugs error EQ_DOESNT_OVERRIDE_EQUALS)
+  @Override
+  public boolean equals(Object o) {
+    return super.equals(o);
+  }
+
+  @Override
+  public int hashCode() {
+    return super.hashCode();
+  }
+
+  // writing the mapped pages to the disk
+  public synchronized void force() {
+    map.force();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    map.force();
+    // the file keeps the spare capacity, it is reused by the next appends
+    ch.close();
+  }
+}
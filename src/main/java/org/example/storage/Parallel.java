@@ -0,0 +1,71 @@
+package org.example.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// running storage tasks (shards, compressed blocks) on the common fork-join pool;
+// an IOException of a task is thrown to the caller as it was thrown by the task
+final class Parallel {
+
+  // constructor is private to prevent instantiation
+  private Parallel() {
+    throw new AssertionError("No instances allowed");
+  }
+
+  @FunctionalInterface
+  interface Task<T> {
+    T call() throws IOException;
+  }
+
+  // the pool wraps checked exceptions of a Callable into RuntimeException,
+  // they are passed as UncheckedIOException instead and unwrapped by get()
+  static <T> Future<T> submit(Task<T> task) {
+    return ForkJoinPool.commonPool()
+        .submit(
+            () -> {
+              try {
+                return task.call();
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+  }
+
+  // number of tasks worth keeping in flight
+  static int parallelism() {
+    return ForkJoinPool.getCommonPoolParallelism();
+  }
+
+  // all tasks, results in the order of the tasks, the first failure is thrown
+  static <T> List<T> runAll(List<Task<T>> tasks) throws IOException {
+    List<Future<T>> futures = new ArrayList<>(tasks.size());
+    for (Task<T> task : tasks) {
+      futures.add(submit(task));
+    }
+    List<T> results = new ArrayList<>(tasks.size());
+    for (Future<T> f : futures) {
+      results.add(get(f));
+    }
+    return results;
+  }
+
+  static <T> T get(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof UncheckedIOException io) throw io.getCause();
+      if (cause instanceof RuntimeException re) throw re;
+      if (cause instanceof Error err) throw err;
+      throw new IOException(cause);
+    }
+  }
+}
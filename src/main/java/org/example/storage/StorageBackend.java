@@ -0,0 +1,28 @@
+package org.example.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import org.example.repo.UsersRepo;
+
+// where the users repository is kept between runs (JsonBackend, JdbcBackend, FileBackend,
+// StorageLazy, StorageMapped).
+// save() writes the whole repository, saveChanges() only the users registered, changed or
+// deleted since the last save (UsersRepo.getDirtyIds); both mark the saved users clean
+public interface StorageBackend extends Closeable {
+
+  // an empty repository if nothing was saved yet
+  UsersRepo load() throws IOException;
+
+  void save(UsersRepo usersRepo) throws IOException;
+
+  // backends which cannot write a part of the data write everything
+  default void saveChanges(UsersRepo usersRepo) throws IOException {
+    save(usersRepo);
+  }
+
+  // where the data is, for messages
+  String describe();
+
+  @Override
+  default void close() throws IOException {}
+}
@@ -0,0 +1,355 @@
+package org.example.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.model.Wallet;
+import org.example.repo.UsersRepo;
+
+// binary data file, an alternative to StorageJson for large installations.
+// layout:
+//   header:     magic "FINB", varint version, varint nextId, varint userCount
+//   dictionary: varint count, strings (titles and budget categories, index 0 is null)
+//   users:      varint section length + section, one section per user sorted by id
+// user section: varint id, strings login/name/surname/passwordHash, varint roles bitmask,
+//   varint budgetCount + (varint category index, 8-byte limit)...,
+//   varint txCount + (varint title index << 1 | type, 8-byte amount)...
+// strings are varint (UTF-8 length + 1) and the bytes, 0 means null.
+// amounts are raw IEEE-754 doubles, so the conversion to and from JSON is lossless
+public final class StorageBinary {
+
+  private static final byte[] MAGIC = {'F', 'I', 'N', 'B'};
+  static final int VERSION = 1;
+
+  private static final int IO_BUFFER = 1 << 16;
+
+  // constructor is private to prevent instantiation
+  private StorageBinary() {
+    throw new AssertionError("No instances allowed");
+  }
+
+  // writing the whole repository, the old file is replaced atomically
+  public static void save(Path file, UsersRepo usersRepo) throws IOException {
+    Objects.requireNonNull(file, "file");
+    Objects.requireNonNull(usersRepo, "usersRepo");
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) Files.createDirectories(parent);
+    Path tmp = AtomicFiles.tempFor(file);
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), IO_BUFFER)) {
+      write(out, usersRepo);
+    }
+    AtomicFiles.replace(tmp, file);
+  }
+
+  // loading the repository, a missing file means there is no saved data yet
+  public static UsersRepo loadOrNew(Path file) throws IOException {
+    Objects.requireNonNull(file, "file");
+    if (!Files.exists(file)) return new UsersRepo();
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(file), IO_BUFFER)) {
+      UsersRepo usersRepo = read(in);
+      usersRepo.setIsPreviousDataExists(true);
+      return usersRepo;
+    }
+  }
+
+  // ---------- converters ----------
+
+  public static void jsonToBinary(Path json, Path binary) throws IOException {
+    UsersRepo usersRepo;
+    try (BufferedReader r = Files.newBufferedReader(json, StandardCharsets.UTF_8)) {
+      usersRepo = JsonStreamLoader.read(r);
+    }
+    save(binary, usersRepo != null ? usersRepo : new UsersRepo());
+  }
+
+  public static void binaryToJson(Path binary, Path json) throws IOException {
+    UsersRepo usersRepo = loadOrNew(binary);
+    Path tmp = AtomicFiles.tempFor(json);
+    StorageJson.write(tmp, usersRepo);
+    AtomicFiles.replace(tmp, json);
+  }
+
+  // ---------- writing ----------
+
+  static void write(OutputStream out, UsersRepo usersRepo) throws IOException {
+    List<User> users = usersRepo.listAll();
+    users.sort(Comparator.comparingLong(u -> u.id));
+
+    // the dictionary is collected first, so every user section can be decoded on its own
+    Map<String, Integer> dictionary = new LinkedHashMap<>();
+    for (User u : users) {
+      for (String category : u.wallet.getBudgets().keySet()) {
+        dictionary.putIfAbsent(category, dictionary.size() + 1);
+      }
+      for (Transaction t : u.wallet.transactions) {
+        if (t.title != null) dictionary.putIfAbsent(t.title, dictionary.size() + 1);
+      }
+    }
+
+    Buffer b = new Buffer(IO_BUFFER);
+    b.putBytes(MAGIC);
+    b.putVarLong(VERSION);
+    b.putVarLong(usersRepo.getNextId());
+    b.putVarLong(users.size());
+    b.putVarLong(dictionary.size());
+    for (String s : dictionary.keySet()) {
+      b.putString(s);
+      if (b.size() >= IO_BUFFER) b.drainTo(out);
+    }
+    b.drainTo(out);
+
+    Buffer section = new Buffer(IO_BUFFER);
+    for (User u : users) {
+      writeUser(section, u, dictionary);
+      b.putVarLong(section.size());
+      b.drainTo(out);
+      section.drainTo(out);
+    }
+  }
+
+  private static void writeUser(Buffer b, User u, Map<String, Integer> dictionary) {
+    b.putVarLong(u.id);
+    b.putString(u.login);
+    b.putString(u.name);
+    b.putString(u.surname);
+    b.putString(u.getPasswordHash());
+    int roles = 0;
+    for (User.Role r : User.Role.values()) {
+      if (u.hasRole(r)) roles |= 1 << r.ordinal(); // new roles must be added at the end
+    }
+    b.putVarLong(roles);
+
+    Wallet w = u.wallet;
+    Map<String, Double> budgets = w.getBudgets();
+    b.putVarLong(budgets.size());
+    for (Map.Entry<String, Double> e : budgets.entrySet()) {
+      b.putVarLong(dictionary.get(e.getKey()));
+      b.putDouble(e.getValue());
+    }
+    b.putVarLong(w.transactions.size());
+    for (Transaction t : w.transactions) {
+      long title = t.title == null ? 0 : dictionary.get(t.title);
+      b.putVarLong(title << 1 | (t.type == Transaction.Type.EXPENSE ? 1 : 0));
+      b.putDouble(t.amount);
+    }
+  }
+
+  // ---------- reading ----------
+
+  static UsersRepo read(InputStream in) throws IOException {
+    byte[] magic = in.readNBytes(MAGIC.length);
+    if (!Arrays.equals(magic, MAGIC)) {
+      throw new IOException("Not a binary data file");
+    }
+    long version = readVarLong(in);
+    if (version < 1 || version > VERSION) {
+      throw new IOException("Unsupported binary format version " + version);
+    }
+    long nextId = readVarLong(in);
+    int userCount = toInt(readVarLong(in));
+    int dictionarySize = toInt(readVarLong(in));
+    String[] dictionary = new String[dictionarySize + 1];
+    for (int i = 1; i <= dictionarySize; i++) {
+      dictionary[i] = readString(in);
+    }
+
+    UsersRepo usersRepo = new UsersRepo(userCount);
+    byte[] section = new byte[IO_BUFFER];
+    List<Transaction> scratch = new ArrayList<>();
+    for (int i = 0; i < userCount; i++) {
+      int length = toInt(readVarLong(in));
+      if (section.length < length) section = new byte[Math.max(length, section.length * 2)];
+      if (in.readNBytes(section, 0, length) != length) {
+        throw new EOFException("Truncated user section " + i);
+      }
+      usersRepo.restore(readUser(new SectionReader(section, length), dictionary, scratch));
+    }
+    usersRepo.advanceNextId(nextId);
+    return usersRepo;
+  }
+
+  private static User readUser(SectionReader r, String[] dictionary, List<Transaction> scratch)
+      throws IOException {
+    long id = r.varLong();
+    String login = r.string();
+    String name = r.string();
+    String surname = r.string();
+    String passwordHash = r.string();
+    long roleBits = r.varLong();
+    EnumSet<User.Role> roles = EnumSet.noneOf(User.Role.class);
+    for (User.Role role : User.Role.values()) {
+      if ((roleBits & 1L << role.ordinal()) != 0) roles.add(role);
+    }
+
+    int budgetCount = toInt(r.varLong());
+    Map<String, Double> budgets = new LinkedHashMap<>();
+    for (int i = 0; i < budgetCount; i++) {
+      String category = dictionary[toIndex(r.varLong(), dictionary)];
+      budgets.put(category, r.doubleValue());
+    }
+    int txCount = toInt(r.varLong());
+    scratch.clear();
+    for (int i = 0; i < txCount; i++) {
+      long key = r.varLong();
+      Transaction.Type type = (key & 1) != 0 ? Transaction.Type.EXPENSE : Transaction.Type.INCOME;
+      String title = dictionary[toIndex(key >>> 1, dictionary)];
+      scratch.add(new Transaction(r.doubleValue(), title, type));
+    }
+    if (r.remaining() != 0) {
+      throw new IOException("Corrupted user section of user " + login);
+    }
+    Wallet wallet = new Wallet();
+    wallet.restore(scratch, budgets);
+    scratch.clear();
+    return User.restore(id, login, name, surname, passwordHash, roles, wallet);
+  }
+
+  private static int toIndex(long index, String[] dictionary) throws IOException {
+    if (index < 0 || index >= dictionary.length) {
+      throw new IOException("Bad dictionary index " + index);
+    }
+    return (int) index;
+  }
+
+  private static int toInt(long value) throws IOException {
+    if (value < 0 || value > Integer.MAX_VALUE) {
+      throw new IOException("Bad length " + value);
+    }
+    return (int) value;
+  }
+
+  private static long readVarLong(InputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.read();
+      if (b < 0) throw new EOFException("Unexpected end of binary data file");
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) return value;
+    }
+    throw new IOException("Varint is too long");
+  }
+
+  private static String readString(InputStream in) throws IOException {
+    int length = toInt(readVarLong(in));
+    if (length == 0) return null;
+    byte[] bytes = in.readNBytes(length - 1);
+    if (bytes.length != length - 1) throw new EOFException("Truncated string");
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  // growable output buffer with the primitive encodings of the format (also used by StorageLazy)
+  static final class Buffer {
+    private byte[] bytes;
+    private int size;
+
+    Buffer(int capacity) {
+      bytes = new byte[capacity];
+    }
+
+    int size() {
+      return size;
+    }
+
+    void drainTo(OutputStream out) throws IOException {
+      out.write(bytes, 0, size);
+      size = 0;
+    }
+
+    private void ensure(int extra) {
+      if (size + extra > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(size + extra, bytes.length * 2));
+      }
+    }
+
+    void putBytes(byte[] b) {
+      ensure(b.length);
+      System.arraycopy(b, 0, bytes, size, b.length);
+      size += b.length;
+    }
+
+    void putVarLong(long v) {
+      ensure(10);
+      while ((v & ~0x7FL) != 0) {
+        bytes[size++] = (byte) (v & 0x7F | 0x80);
+        v >>>= 7;
+      }
+      bytes[size++] = (byte) v;
+    }
+
+    void putDouble(double d) {
+      ensure(8);
+      long v = Double.doubleToRawLongBits(d);
+      for (int i = 0; i < 8; i++) {
+        bytes[size++] = (byte) (v >>> (8 * i));
+      }
+    }
+
+    void putString(String s) {
+      if (s == null) {
+        putVarLong(0);
+        return;
+      }
+      byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+      putVarLong(utf8.length + 1L);
+      putBytes(utf8);
+    }
+  }
+
+  // decoder of one user section (or one StorageLazy block)
+  static final class SectionReader {
+    private final byte[] bytes;
+    private final int end;
+    private int pos;
+
+    SectionReader(byte[] bytes, int end) {
+      this.bytes = bytes;
+      this.end = end;
+    }
+
+    int remaining() {
+      return end - pos;
+    }
+
+    private void need(int n) throws IOException {
+      if (end - pos < n) throw new EOFException("Truncated user section");
+    }
+
+    long varLong() throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        need(1);
+        int b = bytes[pos++];
+        value |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) return value;
+      }
+      throw new IOException("Varint is too long");
+    }
+
+    double doubleValue() throws IOException {
+      need(8);
+      long v = 0;
+      for (int i = 0; i < 8; i++) {
+        v |= (bytes[pos++] & 0xFFL) << (8 * i);
+      }
+      return Double.longBitsToDouble(v);
+    }
+
+    String string() throws IOException {
+      int length = toInt(varLong());
+      if (length == 0) return null;
+      need(length - 1);
+      String s = new String(bytes, pos, length - 1, StandardCharsets.UTF_8);
+      pos += length - 1;
+      return s;
+    }
+  }
+}
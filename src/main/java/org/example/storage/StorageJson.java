@@ -1,12 +1,14 @@
 package org.example.storage;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.util.Locale;
 import java.util.Objects;
 import org.example.repo.UsersRepo;
 
@@ -17,9 +19,10 @@ public final class StorageJson {
     throw new AssertionError("No instances allowed");
   }
 
-  // using GSON to serialize and deserialize objects to and from JSON format (to save all our data
-  // to the file)
-  private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+  // previously GSON serialized the whole repository by reflection with pretty printing,
+  // now the data file is written compactly by JsonStreamWriter and read by JsonStreamLoader.
+  // pretty printing is only used by export()
+  private static final int WRITE_BUFFER = 1 << 20;
 
   // saving and loading users' repository to and from file
   public static void save(Path file, UsersRepo usersRepo) {
@@ -40,14 +43,7 @@ public final class StorageJson {
       }
 
       // 3) Пишем JSON (создаст файл сам при необходимости)
-      try (BufferedWriter w =
-          Files.newBufferedWriter(
-              file,
-              StandardCharsets.UTF_8,
-              StandardOpenOption.CREATE,
-              StandardOpenOption.TRUNCATE_EXISTING)) {
-        GSON.toJson(usersRepo, w);
-      }
+      write(file, usersRepo);
 
       // 4) Лог об успешном сохранении (опционально)
       System.out.println("Saved users repository to " + file.toAbsolutePath());
@@ -59,14 +55,56 @@ public final class StorageJson {
     }
   }
 
+  // writing the repository as is, errors are thrown to the caller
+  // (the journal must know whether the snapshot was really written before truncating itself)
+  static void write(Path file, UsersRepo usersRepo) throws IOException {
+    write(file, usersRepo, false);
+  }
+
+  // human-readable copy of the data (indented), loadOrNew can read it back
+  public static void export(Path file, UsersRepo usersRepo) throws IOException {
+    Objects.requireNonNull(file, "file");
+    Objects.requireNonNull(usersRepo, "usersRepo");
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null && !Files.exists(parent)) {
+      Files.createDirectories(parent);
+    }
+    write(file, usersRepo, true);
+  }
+
+  // compact JSON written straight to a file channel through one large buffer;
+  // archived transactions stay in their archive unless the copy is pretty (export)
+  private static void write(Path file, UsersRepo usersRepo, boolean pretty) throws IOException {
+    JsonAdapters.setDataDir(pretty ? null : file.toAbsolutePath().getParent());
+    try (FileChannel ch =
+            FileChannel.open(
+                file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        BufferedWriter w =
+            new BufferedWriter(
+                Channels.newWriter(ch, StandardCharsets.UTF_8.newEncoder(), -1), WRITE_BUFFER);
+        JsonWriter out = new JsonWriter(w)) {
+      if (pretty) out.setIndent("  ");
+      JsonStreamWriter.write(out, usersRepo);
+    } finally {
+      JsonAdapters.setDataDir(null);
+    }
+  }
+
   // loading users' repository from file or creating new one if file does not exist
   public static UsersRepo loadOrNew(Path file) {
     if (!Files.exists(file)) return new UsersRepo();
+    long started = System.nanoTime();
+    JsonAdapters.setDataDir(file.toAbsolutePath().getParent());
     try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
-      UsersRepo usersRepo = GSON.fromJson(r, UsersRepo.class);
+      // UsersRepo usersRepo = GSON.fromJson(r, UsersRepo.class); // previous implementation
+      UsersRepo usersRepo = JsonStreamLoader.read(r);
       // return (usersRepo !=null)? usersRepo: new UsersRepo(); //previous implementations
       if (usersRepo != null) {
         usersRepo.setIsPreviousDataExists(true);
+        printLoadStats(file, usersRepo, System.nanoTime() - started);
         return usersRepo;
       } else {
         return new UsersRepo();
@@ -80,6 +118,40 @@ public final class StorageJson {
               + e.getMessage()
               + "starting afresh...");
       return new UsersRepo();
+    } finally {
+      JsonAdapters.setDataDir(null);
     }
   }
+
+  // loading without a fallback: a damaged or half-written file is an error
+  // (used when re-reading a file changed by another program, see Journal.reload)
+  public static UsersRepo load(Path file) throws IOException {
+    Objects.requireNonNull(file, "file");
+    JsonAdapters.setDataDir(file.toAbsolutePath().getParent());
+    try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      UsersRepo usersRepo = JsonStreamLoader.read(r);
+      if (usersRepo == null) throw new IOException("Empty data file " + file);
+      usersRepo.setIsPreviousDataExists(true);
+      return usersRepo;
+    } catch (RuntimeException e) {
+      throw new IOException("Damaged data file " + file + ": " + e.getMessage(), e);
+    } finally {
+      JsonAdapters.setDataDir(null);
+    }
+  }
+
+  // load throughput, helps to see when the data file becomes too big
+  private static void printLoadStats(Path file, UsersRepo usersRepo, long nanos)
+      throws IOException {
+    double mb = Files.size(file) / (1024.0 * 1024.0);
+    double seconds = Math.max(nanos, 1) / 1e9;
+    System.out.printf(
+        Locale.ROOT,
+        "Loaded %d users from %s (%.2f MB in %d ms, %.1f MB/s)%n",
+        usersRepo.listAll().size(),
+        file.toAbsolutePath(),
+        mb,
+        nanos / 1_000_000,
+        mb / seconds);
+  }
 }
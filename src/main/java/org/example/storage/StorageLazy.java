@@ -0,0 +1,231 @@
+package org.example.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+
+// storage layout with lazy wallets: users.json keeps the user headers (login, id, roles,
+// password hash), budgets and wallet aggregates and is read at startup; the transactions of
+// all users are blocks of a data file (transactions-<n>.bin) which are read only when a wallet's
+// transactions are accessed for the first time (LazyTransactions). startup time and memory
+// depend on the number of users and on the wallets actually used, not on the whole history.
+// save() writes a new data file: blocks of wallets which were never loaded are copied byte by
+// byte, loaded wallets are encoded again. users.json is switched to the new file atomically
+// and the old file is removed afterwards.
+// loaded wallets are kept by a WalletCache with a byte budget, idle wallets are evicted and
+// their new transactions are appended to the current data file as a new block
+public final class StorageLazy implements StorageBackend {
+
+  static final String USERS = "users.json";
+  static final String TITLES = "titles.dat";
+
+  private static final int IO_BUFFER = 1 << 16;
+
+  private final Path dir;
+  private final TitleDictionary titles;
+  private final UsersRepo usersRepo;
+  private final WalletCache cache;
+  private long generation;
+
+  private StorageLazy(
+      Path dir, TitleDictionary titles, long cacheBytes, long generation, int expectedUsers) {
+    this.dir = dir;
+    this.titles = titles;
+    this.generation = generation;
+    this.cache = new WalletCache(cacheBytes, this::appendBlock);
+    this.usersRepo = new UsersRepo(expectedUsers);
+  }
+
+  // opening with an unlimited wallet cache
+  public static StorageLazy open(Path dir) throws IOException {
+    return open(dir, Long.MAX_VALUE);
+  }
+
+  // opening (or creating) the storage directory, no transactions are read here
+  public static StorageLazy open(Path dir, long cacheBytes) throws IOException {
+    Objects.requireNonNull(dir, "dir");
+    Files.createDirectories(dir);
+    TitleDictionary titles = TitleDictionary.open(dir.resolve(TITLES));
+    try {
+      UserHeaders.Index index = UserHeaders.read(dir.resolve(USERS));
+      if (index == null) {
+        return new StorageLazy(dir, titles, cacheBytes, 0, 16);
+      }
+      long generation = index.dataFile == null ? 0 : parseGeneration(index.dataFile);
+      Path data = dir.resolve(dataName(generation));
+      StorageLazy storage =
+          new StorageLazy(dir, titles, cacheBytes, generation, index.users.size());
+      for (UserHeaders.Header h : index.users) {
+        long offset = Math.max(h.offset, 0);
+        long length = Math.max(h.length, 0);
+        long count = Math.max(h.txCount, 0);
+        LazyTransactions tx =
+            new LazyTransactions(titles, storage.cache, data, offset, length, count);
+        storage.usersRepo.restore(h.toUser(tx));
+      }
+      storage.usersRepo.advanceNextId(index.nextId);
+      storage.usersRepo.setIsPreviousDataExists(true);
+      return storage;
+    } catch (IOException | RuntimeException e) {
+      titles.close();
+      throw e;
+    }
+  }
+
+  public UsersRepo getUsersRepo() {
+    return usersRepo;
+  }
+
+  public WalletCache getCache() {
+    return cache;
+  }
+
+  // number of wallets whose transactions are in memory
+  public int getHydratedCount() {
+    int n = 0;
+    for (User u : usersRepo.listAll()) {
+      if (!(u.wallet.transactions instanceof LazyTransactions lazy) || lazy.isHydrated()) n++;
+    }
+    return n;
+  }
+
+  public synchronized void save() throws IOException {
+    List<User> users = usersRepo.listAll();
+    users.sort(Comparator.comparingLong(u -> u.id));
+    Path oldFile = dir.resolve(dataName(generation));
+    Path newFile = dir.resolve(dataName(generation + 1));
+    UserHeaders.Index index = new UserHeaders.Index();
+    index.nextId = usersRepo.getNextId();
+    index.dataFile = dataName(generation + 1);
+    // blocks copied without loading, they are moved to the new file after the switch
+    Map<LazyTransactions, long[]> moved = new IdentityHashMap<>();
+
+    try (FileChannel out =
+            FileChannel.open(
+                newFile,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        FileChannel old =
+            Files.exists(oldFile) ? FileChannel.open(oldFile, StandardOpenOption.READ) : null) {
+      OutputStream os = Channels.newOutputStream(out);
+      StorageBinary.Buffer b = new StorageBinary.Buffer(IO_BUFFER);
+      long pos = 0;
+      for (User u : users) {
+        UserHeaders.Header h = UserHeaders.Header.of(u);
+        List<Transaction> tx = u.wallet.transactions;
+        long length;
+        if (tx instanceof LazyTransactions lazy && !lazy.isHydrated() && old != null) {
+          long from = lazy.offset();
+          length = lazy.length();
+          copy(old, from, length, out);
+          moved.put(lazy, new long[] {from, pos});
+        } else {
+          LazyTransactions.encode(tx, titles, b);
+          length = b.size();
+          b.drainTo(os);
+          if (tx instanceof LazyTransactions lazy) lazy.saved(newFile, pos, length);
+        }
+        h.offset = pos;
+        h.length = length;
+        pos += length;
+        index.users.add(h);
+      }
+      out.force(false);
+    }
+    titles.force();
+    UserHeaders.write(dir.resolve(USERS), index);
+
+    for (Map.Entry<LazyTransactions, long[]> e : moved.entrySet()) {
+      e.getKey().relocate(oldFile, e.getValue()[0], newFile, e.getValue()[1]);
+    }
+    Files.deleteIfExists(oldFile);
+    generation++;
+    Set<Long> saved = new HashSet<>(usersRepo.getDirtyIds());
+    for (User u : users) {
+      saved.add(u.id);
+    }
+    usersRepo.markClean(saved);
+    System.out.println("Saved users repository to " + dir.toAbsolutePath());
+  }
+
+  // a block at the end of the current data file, for a wallet evicted by the cache
+  private synchronized LazyTransactions.Block appendBlock(List<Transaction> transactions)
+      throws IOException {
+    Path file = dir.resolve(dataName(generation));
+    StorageBinary.Buffer b = new StorageBinary.Buffer(IO_BUFFER);
+    LazyTransactions.encode(transactions, titles, b);
+    try (FileChannel ch =
+        FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      long offset = ch.size();
+      long length = b.size();
+      ch.position(offset);
+      b.drainTo(Channels.newOutputStream(ch));
+      ch.force(false);
+      titles.force();
+      return new LazyTransactions.Block(file, offset, length);
+    }
+  }
+
+  // ---------- as a StorageBackend (-Dfinance.storage=lazy) ----------
+
+  @Override
+  public UsersRepo load() {
+    return usersRepo;
+  }
+
+  // the wallets are files of this directory, so only the repository opened here can be saved
+  @Override
+  public void save(UsersRepo other) throws IOException {
+    if (other != usersRepo) {
+      throw new IOException("Only the data opened from " + dir + " can be saved there");
+    }
+    save();
+  }
+
+  @Override
+  public void saveChanges(UsersRepo other) throws IOException {
+    if (!other.getDirtyIds().isEmpty()) save(other);
+  }
+
+  @Override
+  public String describe() {
+    return dir.toAbsolutePath().toString();
+  }
+
+  @Override
+  public void close() throws IOException {
+    titles.close();
+  }
+
+  static String dataName(long generation) {
+    return "transactions-" + generation + ".bin";
+  }
+
+  private static long parseGeneration(String name) throws IOException {
+    if (!name.startsWith("transactions-") || !name.endsWith(".bin")) {
+      throw new IOException("Unexpected data file name " + name);
+    }
+    try {
+      return Long.parseLong(name.substring("transactions-".length(), name.length() - 4));
+    } catch (NumberFormatException e) {
+      throw new IOException("Unexpected data file name " + name, e);
+    }
+  }
+
+  private static void copy(FileChannel from, long offset, long length, FileChannel to)
+      throws IOException {
+    long done = 0;
+    while (done < length) {
+      long n = from.transferTo(offset + done, length - done, to);
+      if (n <= 0) throw new IOException("Truncated transaction block at " + offset);
+      done += n;
+    }
+  }
+}
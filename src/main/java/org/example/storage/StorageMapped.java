@@ -0,0 +1,185 @@
+package org.example.storage;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+
+// storage mode for large histories: the transactions of every wallet live in an append-only
+// memory-mapped file (tx/<id>.tx, see MappedTransactions) and are read through the page cache.
+// users.json keeps only the user headers, budgets and the wallet aggregates, so opening the
+// storage reads a small file and maps the segments instead of parsing every transaction.
+// transactions added to a loaded wallet go straight to its mapped file; save() forces the
+// mapped pages and rewrites users.json. wallets of users registered after open() are on the
+// heap until the next open(), save() copies them to their segment files.
+// if a segment holds a different number of transactions than users.json expects (crash between
+// an append and save), the aggregates of that wallet are rebuilt from the segment
+public final class StorageMapped implements StorageBackend {
+
+  static final String USERS = "users.json";
+  static final String TITLES = "titles.dat";
+  static final String TX_DIR = "tx";
+
+  private final Path dir;
+  private final TitleDictionary titles;
+  private final UsersRepo usersRepo;
+  private final Map<Long, MappedTransactions> segments = new HashMap<>();
+
+  private StorageMapped(Path dir, TitleDictionary titles, UsersRepo usersRepo) {
+    this.dir = dir;
+    this.titles = titles;
+    this.usersRepo = usersRepo;
+  }
+
+  // opening (or creating) the storage directory
+  public static StorageMapped open(Path dir) throws IOException {
+    Objects.requireNonNull(dir, "dir");
+    Files.createDirectories(dir.resolve(TX_DIR));
+    TitleDictionary titles = TitleDictionary.open(dir.resolve(TITLES));
+    StorageMapped storage = null;
+    try {
+      UserHeaders.Index index = UserHeaders.read(dir.resolve(USERS));
+      if (index == null) {
+        return new StorageMapped(dir, titles, new UsersRepo());
+      }
+      storage = new StorageMapped(dir, titles, new UsersRepo(index.users.size()));
+      for (UserHeaders.Header h : index.users) {
+        MappedTransactions mapped = MappedTransactions.open(storage.segmentFile(h.id), titles);
+        storage.segments.put(h.id, mapped);
+        storage.usersRepo.restore(h.toUser(mapped));
+      }
+      storage.usersRepo.advanceNextId(index.nextId);
+      storage.usersRepo.setIsPreviousDataExists(true);
+      return storage;
+    } catch (IOException | RuntimeException e) {
+      if (storage != null) storage.close();
+      else titles.close();
+      throw e;
+    }
+  }
+
+  public UsersRepo getUsersRepo() {
+    return usersRepo;
+  }
+
+  // making everything durable: mapped pages, new titles, heap wallets and users.json
+  public void save() throws IOException {
+    Set<Long> ids = new HashSet<>();
+    for (User u : usersRepo.listAll()) {
+      ids.add(u.id);
+      if (u.wallet.transactions instanceof MappedTransactions mapped) {
+        mapped.force();
+      } else {
+        copyToSegment(u);
+      }
+    }
+    titles.force();
+    writeUsers();
+    removeOrphanSegments(ids);
+    Set<Long> saved = new HashSet<>(usersRepo.getDirtyIds());
+    saved.addAll(ids);
+    usersRepo.markClean(saved);
+    System.out.println("Saved users repository to " + dir.toAbsolutePath());
+  }
+
+  // ---------- as a StorageBackend (-Dfinance.storage=mapped) ----------
+
+  @Override
+  public UsersRepo load() {
+    return usersRepo;
+  }
+
+  // the wallets are files of this directory, so only the repository opened here can be saved
+  @Override
+  public void save(UsersRepo other) throws IOException {
+    if (other != usersRepo) {
+      throw new IOException("Only the data opened from " + dir + " can be saved there");
+    }
+    save();
+  }
+
+  @Override
+  public void saveChanges(UsersRepo other) throws IOException {
+    if (!other.getDirtyIds().isEmpty()) save(other);
+  }
+
+  @Override
+  public String describe() {
+    return dir.toAbsolutePath().toString();
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOException first = null;
+    for (MappedTransactions m : segments.values()) {
+      try {
+        m.close();
+      } catch (IOException e) {
+        if (first == null) first = e;
+      }
+    }
+    segments.clear();
+    titles.close();
+    if (first != null) throw first;
+  }
+
+  static String segmentName(long id) {
+    return id + ".tx";
+  }
+
+  private Path segmentFile(long id) {
+    return dir.resolve(TX_DIR).resolve(segmentName(id));
+  }
+
+  // a heap wallet is written as a whole, the file is rebuilt on every save until reopened
+  private void copyToSegment(User u) throws IOException {
+    Path file = segmentFile(u.id);
+    Path tmp = AtomicFiles.tempFor(file);
+    Files.deleteIfExists(tmp);
+    try (MappedTransactions copy = MappedTransactions.open(tmp, titles)) {
+      for (Transaction t : u.wallet.transactions) {
+        copy.add(t);
+      }
+    }
+    AtomicFiles.replace(tmp, file);
+  }
+
+  private void removeOrphanSegments(Set<Long> ids) throws IOException {
+    Iterator<Map.Entry<Long, MappedTransactions>> it = segments.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<Long, MappedTransactions> e = it.next();
+      if (!ids.contains(e.getKey())) {
+        e.getValue().close();
+        it.remove();
+      }
+    }
+    List<Path> files;
+    try (Stream<Path> s = Files.list(dir.resolve(TX_DIR))) {
+      files = s.toList();
+    }
+    for (Path file : files) {
+      String name = String.valueOf(file.getFileName());
+      if (!name.endsWith(".tx")) continue;
+      try {
+        long id = Long.parseLong(name.substring(0, name.length() - 3));
+        if (!ids.contains(id)) Files.deleteIfExists(file);
+      } catch (NumberFormatException ignored) {
+        // not a segment of this storage
+      }
+    }
+  }
+
+  private void writeUsers() throws IOException {
+    List<User> users = usersRepo.listAll();
+    users.sort(Comparator.comparingLong(u -> u.id));
+    UserHeaders.Index index = new UserHeaders.Index();
+    index.nextId = usersRepo.getNextId();
+    for (User u : users) {
+      index.users.add(UserHeaders.Header.of(u));
+    }
+    UserHeaders.write(dir.resolve(USERS), index);
+  }
+}
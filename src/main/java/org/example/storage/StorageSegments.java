@@ -0,0 +1,175 @@
+package org.example.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+
+// incremental storage: users are split into segment files by id range
+// (users-000000.json keeps ids 0..1023, users-000001.json keeps 1024..2047 and so on)
+// plus a small manifest. save() rewrites only the segments of users that were registered,
+// changed or deleted since the last save, so it costs O(changed data), not O(all data).
+// a full save (no manifest yet or another segment size) removes the segment files it did not
+// write, otherwise users deleted since the old layout was saved would be loaded again
+public final class StorageSegments {
+
+  public static final int DEFAULT_SEGMENT_SIZE = 1024;
+  static final String MANIFEST = "manifest.json";
+
+  private static final Gson GSON = JsonAdapters.register(new GsonBuilder()).create();
+  private static final Type USER_LIST = new TypeToken<List<User>>() {}.getType();
+
+  // constructor is private to prevent instantiation
+  private StorageSegments() {
+    throw new AssertionError("No instances allowed");
+  }
+
+  // version is the layout of the users in the segments (JsonAdapters.FORMAT_VERSION)
+  static final class Manifest {
+    int version = JsonAdapters.PLAIN_VERSION;
+    int segmentSize;
+    long nextId;
+  }
+
+  public static int save(Path dir, UsersRepo usersRepo) throws IOException {
+    return save(dir, usersRepo, DEFAULT_SEGMENT_SIZE);
+  }
+
+  // saving changed segments, returns the number of segment files written or removed
+  public static int save(Path dir, UsersRepo usersRepo, int segmentSize) throws IOException {
+    return save(dir, usersRepo, segmentSize, false);
+  }
+
+  // writing every segment of the repository and removing the others (a repository which was
+  // not loaded from this directory, e.g. an empty one to remove the saved data)
+  public static int saveAll(Path dir, UsersRepo usersRepo) throws IOException {
+    return save(dir, usersRepo, DEFAULT_SEGMENT_SIZE, true);
+  }
+
+  private static int save(Path dir, UsersRepo usersRepo, int segmentSize, boolean all)
+      throws IOException {
+    Objects.requireNonNull(dir, "dir");
+    Objects.requireNonNull(usersRepo, "usersRepo");
+    if (segmentSize < 1) throw new IllegalArgumentException("segmentSize must be positive");
+    Files.createDirectories(dir);
+
+    Manifest old = readManifest(dir);
+    boolean full = all || old == null || old.segmentSize != segmentSize;
+
+    // users of every segment that must be rewritten
+    Map<Long, List<User>> segments = new TreeMap<>();
+    Set<Long> saved = new HashSet<>();
+    if (full) {
+      // first save (or new layout): everything goes to disk once
+      for (User u : usersRepo.listAll()) {
+        segments.computeIfAbsent(u.id / segmentSize, k -> new ArrayList<>()).add(u);
+        saved.add(u.id);
+      }
+      saved.addAll(usersRepo.getDirtyIds());
+    } else {
+      saved.addAll(usersRepo.getDirtyIds());
+      for (Long id : saved) {
+        segments.computeIfAbsent(id / segmentSize, k -> new ArrayList<>());
+      }
+      for (Map.Entry<Long, List<User>> e : segments.entrySet()) {
+        long from = e.getKey() * segmentSize;
+        for (long id = from; id < from + segmentSize; id++) {
+          User u = usersRepo.findById(id);
+          if (u != null) e.getValue().add(u);
+        }
+      }
+    }
+
+    for (Map.Entry<Long, List<User>> e : segments.entrySet()) {
+      Path file = dir.resolve(segmentName(e.getKey()));
+      List<User> users = e.getValue();
+      if (users.isEmpty()) {
+        Files.deleteIfExists(file);
+      } else {
+        users.sort(Comparator.comparingLong(u -> u.id));
+        writeAtomically(file, users);
+      }
+    }
+
+    int removed = 0;
+    if (full) {
+      // before the manifest: if we die here, the next save is a full one again
+      Set<String> written = new HashSet<>();
+      for (Long index : segments.keySet()) written.add(segmentName(index));
+      for (Path file : listSegments(dir)) {
+        if (!written.contains(file.getFileName().toString())) {
+          Files.delete(file);
+          removed++;
+        }
+      }
+    }
+
+    Manifest m = new Manifest();
+    m.segmentSize = segmentSize;
+    m.nextId = usersRepo.getNextId();
+    writeAtomically(dir.resolve(MANIFEST), m);
+
+    usersRepo.markClean(saved);
+    return segments.size() + removed;
+  }
+
+  // loading all segments, a missing manifest means there is no saved data yet
+  public static UsersRepo loadOrNew(Path dir) throws IOException {
+    Objects.requireNonNull(dir, "dir");
+    UsersRepo usersRepo = new UsersRepo();
+    Manifest m = readManifest(dir);
+    if (m == null) return usersRepo;
+    JsonAdapters.checkVersion(m.version);
+
+    for (Path file : listSegments(dir)) {
+      try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+        List<User> users = GSON.fromJson(r, USER_LIST);
+        if (users == null) continue;
+        for (User u : users) usersRepo.restore(u);
+      }
+    }
+    usersRepo.advanceNextId(m.nextId);
+    usersRepo.setIsPreviousDataExists(true);
+    return usersRepo;
+  }
+
+  static String segmentName(long index) {
+    return String.format(Locale.ROOT, "users-%06d.json", index);
+  }
+
+  private static List<Path> listSegments(Path dir) throws IOException {
+    try (Stream<Path> s = Files.list(dir)) {
+      return s.filter(p -> isSegment(p.getFileName().toString())).sorted().toList();
+    }
+  }
+
+  private static boolean isSegment(String name) {
+    return name.startsWith("users-") && name.endsWith(".json");
+  }
+
+  private static Manifest readManifest(Path dir) throws IOException {
+    Path file = dir.resolve(MANIFEST);
+    if (!Files.exists(file)) return null;
+    try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      return GSON.fromJson(r, Manifest.class);
+    }
+  }
+
+  // temporary file + move, a crash never leaves a half-written segment
+  private static void writeAtomically(Path file, Object value) throws IOException {
+    Path tmp = AtomicFiles.tempFor(file);
+    try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+      GSON.toJson(value, w);
+    }
+    AtomicFiles.replace(tmp, file);
+  }
+}
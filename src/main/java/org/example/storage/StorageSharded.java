@@ -0,0 +1,228 @@
+package org.example.storage;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+
+// partitioned storage: users are spread over N shard files by a hash of their id
+// (shard-<i>-of-<n>-g<generation>.json, the compact JSON layout of StorageJson) plus a manifest
+// with the number of shards, nextId and the generation. shards are written and parsed in
+// parallel on the fork-join pool; every task works on its own file and its own list of users,
+// the lists are merged into a pre-sized UsersRepo at the end, so the tasks share nothing while
+// they run.
+// a save writes a new generation of shards next to the current one and then replaces the
+// manifest, which is the commit point: a crash before it leaves the old generation complete,
+// a crash after it only leaves old files behind. files of other generations are removed after
+// the manifest is written (or by the next save). generation 0 is the layout before generations
+// (shard-<i>-of-<n>.json, manifest without "generation"), it is still loaded
+public final class StorageSharded {
+
+  public static final int DEFAULT_SHARDS = 8;
+  static final String MANIFEST = "shards.json";
+
+  private static final int WRITE_BUFFER = 1 << 20;
+
+  // constructor is private to prevent instantiation
+  private StorageSharded() {
+    throw new AssertionError("No instances allowed");
+  }
+
+  public static void save(Path dir, UsersRepo usersRepo) throws IOException {
+    save(dir, usersRepo, DEFAULT_SHARDS);
+  }
+
+  public static void save(Path dir, UsersRepo usersRepo, int shards) throws IOException {
+    Objects.requireNonNull(dir, "dir");
+    Objects.requireNonNull(usersRepo, "usersRepo");
+    if (shards < 1) throw new IllegalArgumentException("shards must be positive");
+    Files.createDirectories(dir);
+    Path manifest = dir.resolve(MANIFEST);
+    long generation = Files.exists(manifest) ? readManifest(manifest).generation() + 1 : 1;
+
+    List<List<User>> parts = new ArrayList<>(shards);
+    for (int i = 0; i < shards; i++) {
+      parts.add(new ArrayList<>());
+    }
+    for (User u : usersRepo.listAll()) {
+      parts.get(shardOf(u.id, shards)).add(u);
+    }
+    long nextId = usersRepo.getNextId();
+
+    List<Parallel.Task<Void>> tasks = new ArrayList<>(shards);
+    for (int i = 0; i < shards; i++) {
+      Path file = dir.resolve(shardName(i, shards, generation));
+      List<User> users = parts.get(i);
+      tasks.add(
+          () -> {
+            writeShard(file, users, nextId);
+            return null;
+          });
+    }
+    Parallel.runAll(tasks);
+
+    writeManifest(dir, new Manifest(shards, nextId, generation));
+    removeOtherShards(dir, shards, generation);
+    usersRepo.markClean(usersRepo.getDirtyIds());
+    System.out.println(
+        "Saved users repository to " + dir.toAbsolutePath() + " (" + shards + " shards)");
+  }
+
+  // loading all shards, a missing manifest means there is no saved data yet
+  public static UsersRepo loadOrNew(Path dir) throws IOException {
+    Objects.requireNonNull(dir, "dir");
+    Path manifest = dir.resolve(MANIFEST);
+    if (!Files.exists(manifest)) return new UsersRepo();
+
+    Manifest m = readManifest(manifest);
+    List<Parallel.Task<List<User>>> tasks = new ArrayList<>(m.shards());
+    for (int i = 0; i < m.shards(); i++) {
+      Path file = dir.resolve(shardName(i, m.shards(), m.generation()));
+      tasks.add(() -> readShard(file));
+    }
+    List<List<User>> parts = Parallel.runAll(tasks);
+
+    int total = 0;
+    for (List<User> part : parts) {
+      total += part.size();
+    }
+    UsersRepo usersRepo = new UsersRepo(total);
+    for (List<User> part : parts) {
+      for (User u : part) {
+        usersRepo.restore(u);
+      }
+    }
+    usersRepo.advanceNextId(m.nextId());
+    usersRepo.setIsPreviousDataExists(true);
+    return usersRepo;
+  }
+
+  // ids are mixed first, so consecutive ids spread evenly over the shards
+  static int shardOf(long id, int shards) {
+    long h = id * 0x9E3779B97F4A7C15L;
+    return Math.floorMod((int) (h ^ (h >>> 32)), shards);
+  }
+
+  static String shardName(int index, int shards, long generation) {
+    String name = String.format(Locale.ROOT, "shard-%03d-of-%03d", index, shards);
+    return generation == 0 ? name + ".json" : name + "-g" + generation + ".json";
+  }
+
+  // a shard of a new generation is not used before the manifest names it, so it is written in
+  // place; a leftover of an interrupted save with the same name is simply overwritten
+  private static void writeShard(Path file, List<User> users, long nextId) throws IOException {
+    try (BufferedWriter w =
+            new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), WRITE_BUFFER);
+        JsonWriter out = new JsonWriter(w)) {
+      JsonStreamWriter.write(out, users, nextId);
+    }
+  }
+
+  private static List<User> readShard(Path file) throws IOException {
+    List<User> users = new ArrayList<>();
+    // every shard of a generation is written before its manifest
+    if (!Files.exists(file)) throw new IOException("Missing shard " + file);
+    try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      JsonReader in = new JsonReader(r);
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "formatVersion":
+            JsonAdapters.checkVersion(in.nextInt());
+            break;
+          case "userCount":
+            users = new ArrayList<>(in.nextInt());
+            break;
+          case "users":
+            in.beginArray();
+            while (in.hasNext()) {
+              users.add(JsonAdapters.USER.read(in));
+            }
+            in.endArray();
+            break;
+          default:
+            in.skipValue();
+            break;
+        }
+      }
+      in.endObject();
+    }
+    return users;
+  }
+
+  private record Manifest(int shards, long nextId, long generation) {}
+
+  private static Manifest readManifest(Path file) throws IOException {
+    int shards = 0;
+    long nextId = 1;
+    long generation = 0; // a manifest written before generations
+    try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      JsonReader in = new JsonReader(r);
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "formatVersion":
+            JsonAdapters.checkVersion(in.nextInt());
+            break;
+          case "shards":
+            shards = in.nextInt();
+            break;
+          case "nextId":
+            nextId = in.nextLong();
+            break;
+          case "generation":
+            generation = in.nextLong();
+            break;
+          default:
+            in.skipValue();
+            break;
+        }
+      }
+      in.endObject();
+    }
+    if (shards < 1) throw new IOException("Bad shard count in " + file);
+    if (generation < 0) throw new IOException("Bad generation in " + file);
+    return new Manifest(shards, nextId, generation);
+  }
+
+  // the commit point of a save
+  private static void writeManifest(Path dir, Manifest m) throws IOException {
+    Path file = dir.resolve(MANIFEST);
+    Path tmp = AtomicFiles.tempFor(file);
+    try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8);
+        JsonWriter out = new JsonWriter(w)) {
+      out.beginObject();
+      out.name("formatVersion").value(JsonAdapters.PLAIN_VERSION);
+      out.name("shards").value(m.shards());
+      out.name("nextId").value(m.nextId());
+      out.name("generation").value(m.generation());
+      out.endObject();
+    }
+    AtomicFiles.replace(tmp, file);
+  }
+
+  // removing the shards of every other generation and shard count
+  private static void removeOtherShards(Path dir, int shards, long generation) throws IOException {
+    Set<String> current = new HashSet<>();
+    for (int i = 0; i < shards; i++) {
+      current.add(shardName(i, shards, generation));
+    }
+    List<Path> files;
+    try (Stream<Path> s = Files.list(dir)) {
+      files = s.toList();
+    }
+    for (Path file : files) {
+      String name = String.valueOf(file.getFileName());
+      if (name.startsWith("shard-") && name.endsWith(".json") && !current.contains(name)) {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package org.example.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// append-only dictionary of transaction titles shared by all memory-mapped wallets,
+// records keep a 4-byte title id instead of the text. id 0 is the null title.
+// every entry is an unsigned 2-byte length and the UTF-8 bytes; a torn last entry
+// (crash while appending) is cut off when the file is opened
+final class TitleDictionary implements Closeable {
+
+  private final FileChannel ch;
+  private final List<String> titles = new ArrayList<>();
+  private final Map<String, Integer> ids = new HashMap<>();
+
+  private TitleDictionary(FileChannel ch) {
+    this.ch = ch;
+    titles.add(null);
+  }
+
+  static TitleDictionary open(Path file) throws IOException {
+    FileChannel ch =
+        FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    TitleDictionary d = new TitleDictionary(ch);
+    try {
+      ByteBuffer all = ByteBuffer.allocate((int) ch.size());
+      while (all.hasRemaining() && ch.read(all, all.position()) >= 0) {
+        // reading the whole (small) file
+      }
+      all.flip();
+      long valid = 0;
+      while (all.remaining() >= 2) {
+        int length = Short.toUnsignedInt(all.getShort());
+        if (all.remaining() < length) break;
+        byte[] bytes = new byte[length];
+        all.get(bytes);
+        String title = new String(bytes, StandardCharsets.UTF_8);
+        d.ids.put(title, d.titles.size());
+        d.titles.add(title);
+        valid = all.position();
+      }
+      ch.truncate(valid);
+      ch.position(valid);
+    } catch (IOException | RuntimeException e) {
+      ch.close();
+      throw e;
+    }
+    return d;
+  }
+
+  // id of the title, a new title is appended to the file
+  synchronized int idOf(String title) {
+    if (title == null) return 0;
+    Integer id = ids.get(title);
+    if (id != null) return id;
+    byte[] bytes = title.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > 0xFFFF) {
+      throw new IllegalArgumentException("Title is too long");
+    }
+    try {
+      ByteArrayOutputStream entry = new ByteArrayOutputStream(bytes.length + 2);
+      DataOutputStream out = new DataOutputStream(entry);
+      out.writeShort(bytes.length);
+      out.write(bytes);
+      ByteBuffer b = ByteBuffer.wrap(entry.toByteArray());
+      while (b.hasRemaining()) {
+        ch.write(b);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot append title", e);
+    }
+    int newId = titles.size();
+    titles.add(title);
+    ids.put(title, newId);
+    return newId;
+  }
+
+  synchronized String title(int id) {
+    if (id < 0 || id >= titles.size()) {
+      throw new IllegalStateException("Unknown title id " + id);
+    }
+    return titles.get(id);
+  }
+
+  synchronized void force() throws IOException {
+    ch.force(false);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    ch.close();
+  }
+}
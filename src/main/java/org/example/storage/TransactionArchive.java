@@ -0,0 +1,197 @@
+package org.example.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.model.Wallet;
+import org.example.repo.UsersRepo;
+
+// archival of old transactions: all but the newest keepRecent transactions of a wallet are
+// moved to compressed cold segments appended to an archive file next to the data file, the
+// wallet keeps them as ColdTransactions (aggregates on the heap, rows paged in on demand).
+// transactions have no dates, so "old" means the position in the wallet.
+// segment: int magic, int count, int raw length, int compressed length, zlib data of
+// count records (byte flags: 1 = expense, 2 = no title; double amount; int length + UTF-8 title)
+// the archive is append-only; segments are referenced by offset from the data file, so a
+// data file written before an archival still reads its own transactions
+public final class TransactionArchive {
+
+  public static final int DEFAULT_KEEP_RECENT = 1000;
+  // transactions per segment, the unit of paging
+  static final int SEGMENT_SIZE = 4096;
+
+  private static final int MAGIC = 0x46494E41; // "FINA"
+  private static final int HEADER = 16;
+  private static final int MAX_SEGMENT = 1 << 30;
+
+  // constructor is private to prevent instantiation
+  private TransactionArchive() {
+    throw new AssertionError("No instances allowed");
+  }
+
+  // archive file of a data file: finance-data.json -> finance-data.archive
+  public static Path fileFor(Path dataFile) {
+    String name = String.valueOf(dataFile.getFileName());
+    int dot = name.lastIndexOf('.');
+    return dataFile.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".archive");
+  }
+
+  // archiving every wallet with at least keepRecent + SEGMENT_SIZE transactions on the heap,
+  // so each archival moves at least one full segment; wallets are replaced by new users with
+  // the same data (callers holding a User should find it again by login). returns the number
+  // of transactions moved
+  public static long archive(Path archiveFile, UsersRepo usersRepo, int keepRecent)
+      throws IOException {
+    Objects.requireNonNull(archiveFile, "archiveFile");
+    Objects.requireNonNull(usersRepo, "usersRepo");
+    if (keepRecent < 0) throw new IllegalArgumentException("keepRecent must not be negative");
+    Path archive = archiveFile.toAbsolutePath().normalize();
+    Path parent = archive.getParent();
+    if (parent != null) Files.createDirectories(parent);
+
+    List<User> replaced = new ArrayList<>();
+    long moved = 0;
+    try (FileChannel ch =
+        FileChannel.open(archive, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      long pos = ch.size();
+      for (User u : usersRepo.listAll()) {
+        List<Transaction> all = u.wallet.transactions;
+        List<ColdTransactions.Segment> segments = new ArrayList<>();
+        Wallet.Totals coldTotals;
+        List<Transaction> candidates;
+        if (all instanceof ColdTransactions cold && cold.archive().equals(archive)) {
+          segments.addAll(cold.segments());
+          coldTotals = cold.coldTotals();
+          candidates = cold.hot();
+        } else {
+          coldTotals = new Wallet.Totals(0, 0, 0, Map.of(), Map.of());
+          candidates = all;
+        }
+        int move = (candidates.size() - keepRecent) / SEGMENT_SIZE * SEGMENT_SIZE;
+        if (move <= 0) continue;
+
+        // the aggregates are continued in list order, exactly as the wallet summed them
+        Wallet acc = new Wallet(new ArrayList<>(), coldTotals);
+        for (int from = 0; from < move; from += SEGMENT_SIZE) {
+          List<Transaction> part = candidates.subList(from, from + SEGMENT_SIZE);
+          pos += writeSegment(ch, pos, part, segments);
+          acc.restore(part, Map.of());
+        }
+        replaced.add(
+            coldUser(
+                u, archive, segments, acc.totals(), candidates.subList(move, candidates.size())));
+        moved += move;
+      }
+      ch.force(false);
+    }
+    for (User u : replaced) {
+      usersRepo.restore(u);
+    }
+    return moved;
+  }
+
+  // the same user over the new list, the cold aggregates are continued over the heap part
+  private static User coldUser(
+      User u,
+      Path archive,
+      List<ColdTransactions.Segment> segments,
+      Wallet.Totals coldTotals,
+      List<Transaction> hot) {
+    ColdTransactions list = new ColdTransactions(archive, segments, coldTotals, List.of());
+    Wallet wallet = new Wallet(list, coldTotals);
+    wallet.restore(hot, u.wallet.getBudgets());
+    return User.restore(
+        u.id, u.login, u.name, u.surname, u.getPasswordHash(), u.getRoles(), wallet);
+  }
+
+  private static long writeSegment(
+      FileChannel ch, long pos, List<Transaction> part, List<ColdTransactions.Segment> segments)
+      throws IOException {
+    ByteArrayOutputStream raw = new ByteArrayOutputStream(part.size() * 24);
+    DataOutputStream out = new DataOutputStream(raw);
+    for (Transaction t : part) {
+      int flags = (t.type == Transaction.Type.EXPENSE ? 1 : 0) | (t.title == null ? 2 : 0);
+      out.writeByte(flags);
+      out.writeDouble(t.amount);
+      if (t.title != null) {
+        byte[] title = t.title.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(title.length);
+        out.write(title);
+      }
+    }
+    out.flush();
+    byte[] data = StorageCompressed.deflate(raw.toByteArray(), StorageCompressed.DEFAULT_LEVEL);
+    ByteBuffer buf = ByteBuffer.allocate(HEADER + data.length);
+    buf.putInt(MAGIC).putInt(part.size()).putInt(raw.size()).putInt(data.length).put(data);
+    buf.flip();
+    long at = pos;
+    while (buf.hasRemaining()) {
+      at += ch.write(buf, at);
+    }
+    segments.add(new ColdTransactions.Segment(pos, part.size()));
+    return at - pos;
+  }
+
+  static List<Transaction> readSegment(Path archive, long offset, int count) throws IOException {
+    try (FileChannel ch = FileChannel.open(archive, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER);
+      readFully(ch, header, offset);
+      header.flip();
+      int magic = header.getInt();
+      int stored = header.getInt();
+      int rawLength = header.getInt();
+      int length = header.getInt();
+      if (magic != MAGIC
+          || stored != count
+          || rawLength < 0
+          || rawLength > MAX_SEGMENT
+          || length < 0
+          || length > MAX_SEGMENT) {
+        throw new IOException("Bad archive segment at " + offset + " in " + archive);
+      }
+      ByteBuffer data = ByteBuffer.allocate(length);
+      readFully(ch, data, offset + HEADER);
+      ByteBuffer raw = ByteBuffer.wrap(StorageCompressed.inflate(data.array(), rawLength));
+      List<Transaction> list = new ArrayList<>(count);
+      try {
+        for (int i = 0; i < count; i++) {
+          int flags = raw.get();
+          double amount = raw.getDouble();
+          String title = null;
+          if ((flags & 2) == 0) {
+            byte[] bytes = new byte[raw.getInt()];
+            raw.get(bytes);
+            title = new String(bytes, StandardCharsets.UTF_8);
+          }
+          Transaction.Type type =
+              (flags & 1) != 0 ? Transaction.Type.EXPENSE : Transaction.Type.INCOME;
+          list.add(new Transaction(amount, title, type));
+        }
+      } catch (RuntimeException e) {
+        throw new IOException("Corrupted archive segment at " + offset + " in " + archive, e);
+      }
+      if (raw.hasRemaining()) {
+        throw new IOException("Corrupted archive segment at " + offset + " in " + archive);
+      }
+      return list;
+    }
+  }
+
+  private static void readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+    while (buf.hasRemaining()) {
+      if (ch.read(buf, pos + buf.position()) < 0) {
+        throw new IOException("Truncated archive segment at " + pos);
+      }
+    }
+  }
+}
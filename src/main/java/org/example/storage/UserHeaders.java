@@ -0,0 +1,267 @@
+package org.example.storage;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.model.Wallet;
+
+// users.json of the storages which keep transactions outside of it (StorageMapped, StorageLazy):
+// user headers, budgets and wallet aggregates, but no transactions.
+// {"formatVersion": v, "userCount": n, "nextId": n, "dataFile": "...", "users": [header...]}
+final class UserHeaders {
+
+  // constructor is private to prevent instantiation
+  private UserHeaders() {
+    throw new AssertionError("No instances allowed");
+  }
+
+  // everything about a user except the transactions
+  static final class Header {
+    long id = -1;
+    String login;
+    String name;
+    String surname;
+    String passwordHash;
+    EnumSet<User.Role> roles = EnumSet.noneOf(User.Role.class);
+    Map<String, Double> budgets = new LinkedHashMap<>();
+    long txCount = -1;
+    Wallet.Totals totals;
+    // position of the transactions in the data file (StorageLazy only)
+    long offset = -1;
+    long length = -1;
+
+    static Header of(User u) {
+      Header h = new Header();
+      h.id = u.id;
+      h.login = u.login;
+      h.name = u.name;
+      h.surname = u.surname;
+      h.passwordHash = u.getPasswordHash();
+      for (User.Role r : User.Role.values()) {
+        if (u.hasRole(r)) h.roles.add(r);
+      }
+      h.budgets.putAll(u.wallet.getBudgets());
+      h.txCount = u.wallet.transactions.size();
+      h.totals = u.wallet.totals();
+      return h;
+    }
+
+    // the user over the given transactions; if their number is not the saved one
+    // (appended after the last save) the aggregates are rebuilt from the list
+    User toUser(List<Transaction> transactions) {
+      Wallet wallet = new Wallet(transactions, transactions.size() == txCount ? totals : null);
+      wallet.restore(List.of(), budgets);
+      return User.restore(id, login, name, surname, passwordHash, roles, wallet);
+    }
+  }
+
+  static final class Index {
+    long nextId = 1;
+    String dataFile;
+    List<Header> users = new ArrayList<>();
+  }
+
+  // null if the file does not exist
+  static Index read(Path file) throws IOException {
+    if (!Files.exists(file)) return null;
+    Index index = new Index();
+    try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      JsonReader in = new JsonReader(r);
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "formatVersion":
+            JsonAdapters.checkVersion(in.nextInt());
+            break;
+          case "nextId":
+            index.nextId = in.nextLong();
+            break;
+          case "userCount":
+            index.users = new ArrayList<>(in.nextInt());
+            break;
+          case "dataFile":
+            index.dataFile = nextStringOrNull(in);
+            break;
+          case "users":
+            in.beginArray();
+            while (in.hasNext()) {
+              index.users.add(readHeader(in));
+            }
+            in.endArray();
+            break;
+          default:
+            in.skipValue();
+            break;
+        }
+      }
+      in.endObject();
+    }
+    return index;
+  }
+
+  // the old file is replaced atomically
+  static void write(Path file, Index index) throws IOException {
+    Path tmp = AtomicFiles.tempFor(file);
+    try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8);
+        JsonWriter out = new JsonWriter(w)) {
+      out.beginObject();
+      out.name("formatVersion").value(JsonAdapters.PLAIN_VERSION);
+      out.name("userCount").value(index.users.size());
+      out.name("nextId").value(index.nextId);
+      if (index.dataFile != null) out.name("dataFile").value(index.dataFile);
+      out.name("users").beginArray();
+      for (Header h : index.users) {
+        writeHeader(out, h);
+      }
+      out.endArray();
+      out.endObject();
+    }
+    AtomicFiles.replace(tmp, file);
+  }
+
+  private static void writeHeader(JsonWriter out, Header h) throws IOException {
+    out.beginObject();
+    out.name("id").value(h.id);
+    out.name("login").value(h.login);
+    out.name("name").value(h.name);
+    out.name("surname").value(h.surname);
+    out.name("passwordHash").value(h.passwordHash);
+    out.name("roles").beginArray();
+    for (User.Role r : h.roles) {
+      out.value(r.name());
+    }
+    out.endArray();
+    out.name("budgets").beginObject();
+    for (Map.Entry<String, Double> e : h.budgets.entrySet()) {
+      out.name(e.getKey()).value(e.getValue());
+    }
+    out.endObject();
+    out.name("txCount").value(h.txCount);
+    if (h.offset >= 0) {
+      out.name("offset").value(h.offset);
+      out.name("length").value(h.length);
+    }
+    out.name("income").value(h.totals.income());
+    out.name("expense").value(h.totals.expense());
+    out.name("balance").value(h.totals.balance());
+    // [title, sum] pairs, a title may be null and cannot be an object key
+    out.name("incomeByCat");
+    writeSums(out, h.totals.incomeByCat());
+    out.name("spentByCat");
+    writeSums(out, h.totals.spentByCat());
+    out.endObject();
+  }
+
+  static void writeSums(JsonWriter out, Map<String, Double> sums) throws IOException {
+    out.beginArray();
+    for (Map.Entry<String, Double> e : sums.entrySet()) {
+      out.beginArray().value(e.getKey()).value(e.getValue()).endArray();
+    }
+    out.endArray();
+  }
+
+  private static Header readHeader(JsonReader in) throws IOException {
+    Header h = new Header();
+    double income = 0;
+    double expense = 0;
+    double balance = 0;
+    Map<String, Double> incomeByCat = new LinkedHashMap<>();
+    Map<String, Double> spentByCat = new LinkedHashMap<>();
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "id":
+          h.id = in.nextLong();
+          break;
+        case "login":
+          h.login = nextStringOrNull(in);
+          break;
+        case "name":
+          h.name = nextStringOrNull(in);
+          break;
+        case "surname":
+          h.surname = nextStringOrNull(in);
+          break;
+        case "passwordHash":
+          h.passwordHash = nextStringOrNull(in);
+          break;
+        case "roles":
+          in.beginArray();
+          while (in.hasNext()) {
+            h.roles.add(User.Role.valueOf(in.nextString()));
+          }
+          in.endArray();
+          break;
+        case "budgets":
+          in.beginObject();
+          while (in.hasNext()) {
+            String category = in.nextName();
+            h.budgets.put(category, in.nextDouble());
+          }
+          in.endObject();
+          break;
+        case "txCount":
+          h.txCount = in.nextLong();
+          break;
+        case "offset":
+          h.offset = in.nextLong();
+          break;
+        case "length":
+          h.length = in.nextLong();
+          break;
+        case "income":
+          income = in.nextDouble();
+          break;
+        case "expense":
+          expense = in.nextDouble();
+          break;
+        case "balance":
+          balance = in.nextDouble();
+          break;
+        case "incomeByCat":
+          readSums(in, incomeByCat);
+          break;
+        case "spentByCat":
+          readSums(in, spentByCat);
+          break;
+        default:
+          in.skipValue();
+          break;
+      }
+    }
+    in.endObject();
+    if (h.id < 0 || h.login == null) {
+      throw new IOException("User without id or login at " + in.getPath());
+    }
+    h.totals = new Wallet.Totals(income, expense, balance, incomeByCat, spentByCat);
+    return h;
+  }
+
+  static void readSums(JsonReader in, Map<String, Double> sums) throws IOException {
+    in.beginArray();
+    while (in.hasNext()) {
+      in.beginArray();
+      String title = nextStringOrNull(in);
+      sums.put(title, in.nextDouble());
+      in.endArray();
+    }
+    in.endArray();
+  }
+
+  private static String nextStringOrNull(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    return in.nextString();
+  }
+}
@@ -0,0 +1,166 @@
+package org.example.storage;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// keeps the loaded wallets of StorageLazy under a memory budget.
+// wallets are ordered by their last access (LRU, access-ordered LinkedHashMap); when the
+// estimated size of the loaded transactions exceeds the budget, the least recently used
+// wallets are evicted: transactions which are not in the data file yet are written to a new
+// block first, then the loaded list is dropped and will be read again on the next access.
+// the size is an estimate: a Transaction object and its slot in the list take about
+// TRANSACTION_BYTES, titles are shared through the title dictionary.
+// counters: a miss is a wallet loaded from the data file, a hit is an access to a loaded
+// wallet other than the one used last (iterating one wallet counts once)
+public final class WalletCache {
+
+  static final long TRANSACTION_BYTES = 40;
+  static final long WALLET_BYTES = 64;
+
+  private static final class Entry {
+    final LazyTransactions list;
+    long bytes;
+
+    Entry(LazyTransactions list, long bytes) {
+      this.list = list;
+      this.bytes = bytes;
+    }
+  }
+
+  private final long budgetBytes;
+  private final LazyTransactions.BlockWriter writer;
+  private final AtomicLong keys = new AtomicLong();
+  private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  // guarded by this
+  private long usedBytes = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+  private long flushes = 0;
+
+  // last accessed list, checked without the lock so that iterating a wallet stays cheap
+  private volatile LazyTransactions last;
+
+  WalletCache(long budgetBytes, LazyTransactions.BlockWriter writer) {
+    if (budgetBytes < 0) throw new IllegalArgumentException("budgetBytes must not be negative");
+    this.budgetBytes = budgetBytes;
+    this.writer = writer;
+  }
+
+  long nextKey() {
+    return keys.incrementAndGet();
+  }
+
+  void loaded(LazyTransactions list, int size) {
+    List<LazyTransactions> victims;
+    synchronized (this) {
+      misses++;
+      Entry e = new Entry(list, WALLET_BYTES + size * TRANSACTION_BYTES);
+      Entry old = entries.put(list.key, e);
+      if (old != null) usedBytes -= old.bytes;
+      usedBytes += e.bytes;
+      last = list;
+      victims = selectVictims(list);
+    }
+    evict(victims);
+  }
+
+  void accessed(LazyTransactions list) {
+    if (last == list) return;
+    synchronized (this) {
+      if (entries.get(list.key) != null) hits++;
+      last = list;
+    }
+  }
+
+  void grown(LazyTransactions list) {
+    List<LazyTransactions> victims;
+    synchronized (this) {
+      Entry e = entries.get(list.key);
+      if (e == null) return; // evicted in the meantime, counted again when loaded
+      e.bytes += TRANSACTION_BYTES;
+      usedBytes += TRANSACTION_BYTES;
+      last = list;
+      victims = selectVictims(list);
+    }
+    evict(victims);
+  }
+
+  // least recently used wallets until the budget is met, the current one is kept
+  private List<LazyTransactions> selectVictims(LazyTransactions current) {
+    List<LazyTransactions> victims = new ArrayList<>();
+    Iterator<Entry> it = entries.values().iterator();
+    while (usedBytes > budgetBytes && it.hasNext()) {
+      Entry e = it.next();
+      if (e.list == current) continue;
+      it.remove();
+      usedBytes -= e.bytes;
+      victims.add(e.list);
+    }
+    return victims;
+  }
+
+  // outside of the cache lock: evict() locks the list and may write a block
+  private void evict(List<LazyTransactions> victims) {
+    for (LazyTransactions v : victims) {
+      boolean wasDirty = v.isDirty();
+      boolean ok = v.evict(writer);
+      synchronized (this) {
+        if (ok) {
+          evictions++;
+          if (wasDirty) flushes++;
+          if (last == v) last = null;
+        } else {
+          // could not be written, it stays loaded
+          Entry e = new Entry(v, WALLET_BYTES + v.size() * TRANSACTION_BYTES);
+          entries.put(v.key, e);
+          usedBytes += e.bytes;
+        }
+      }
+    }
+  }
+
+  public long getBudgetBytes() {
+    return budgetBytes;
+  }
+
+  public synchronized long getUsedBytes() {
+    return usedBytes;
+  }
+
+  public synchronized int getLoadedWallets() {
+    return entries.size();
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  // evictions which had to write a block first
+  public synchronized long getFlushes() {
+    return flushes;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format(
+        Locale.ROOT,
+        "WalletCache{wallets=%d, used=%d/%d bytes, hits=%d, misses=%d, evictions=%d, flushes=%d}",
+        entries.size(),
+        usedBytes,
+        budgetBytes,
+        hits,
+        misses,
+        evictions,
+        flushes);
+  }
+}
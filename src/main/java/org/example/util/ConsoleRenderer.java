@@ -0,0 +1,200 @@
+package org.example.util;
+
+import java.io.PrintStream;
+
+// output of large reports (wallets, statistics, lists of users): one System.out.println per
+// line takes the lock of the stream and flushes it every time, 100k lines take seconds.
+// the renderer collects the text in one reusable buffer and writes it in chunks of
+// FLUSH_CHARS, so a report is a few writes. numbers are appended to the buffer directly,
+// without building a String per line.
+// tables have fixed-width columns: table(widths) starts one, a positive width aligns the cells
+// of its column to the right (numbers), a negative one to the left (text); a text longer than
+// its column is cut and ends with '~', a number is never cut.
+// nothing is written before flush() or a full buffer, a report ends with flush().
+// not thread-safe: stdout() gives every thread its own renderer
+public final class ConsoleRenderer {
+
+  static final int FLUSH_CHARS = 1 << 16;
+  private static final String NL = System.lineSeparator();
+  private static final String GAP = "  "; // between the columns of a table
+  private static final String SPACES = " ".repeat(64);
+  private static final ThreadLocal<ConsoleRenderer> STDOUT =
+      ThreadLocal.withInitial(() -> new ConsoleRenderer(null));
+
+  private final PrintStream out; // null: System.out at the time of writing (tests replace it)
+  private final StringBuilder buf = new StringBuilder(FLUSH_CHARS + 1024);
+  private int[] widths = new int[0];
+  private int column = 0; // the next cell of the current row
+
+  public ConsoleRenderer(PrintStream out) {
+    this.out = out;
+  }
+
+  // the renderer of System.out for the current thread, its buffer is kept between reports
+  public static ConsoleRenderer stdout() {
+    return STDOUT.get();
+  }
+
+  // the lines joined into one block of text, for output printed many times (menus)
+  public static String lines(String... lines) {
+    StringBuilder sb = new StringBuilder();
+    for (String line : lines) {
+      sb.append(line).append(NL);
+    }
+    return sb.toString();
+  }
+
+  public ConsoleRenderer text(String s) {
+    buf.append(s);
+    return this;
+  }
+
+  public ConsoleRenderer text(long v) {
+    buf.append(v);
+    return this;
+  }
+
+  public ConsoleRenderer text(double v) {
+    buf.append(v);
+    return this;
+  }
+
+  public ConsoleRenderer line(String s) {
+    buf.append(s);
+    return newline();
+  }
+
+  public ConsoleRenderer newline() {
+    buf.append(NL);
+    if (buf.length() >= FLUSH_CHARS) writeOut();
+    return this;
+  }
+
+  // starting a table, widths as described above
+  public ConsoleRenderer table(int... widths) {
+    for (int w : widths) {
+      if (w == 0) throw new IllegalArgumentException("Column width cannot be 0");
+    }
+    this.widths = widths.clone();
+    this.column = 0;
+    return this;
+  }
+
+  // the header of the table and a rule under it
+  public ConsoleRenderer header(String... titles) {
+    for (String t : titles) {
+      cell(t);
+    }
+    endRow();
+    return rule();
+  }
+
+  // a line of '-' as wide as the table
+  public ConsoleRenderer rule() {
+    int width = GAP.length() * Math.max(0, widths.length - 1);
+    for (int w : widths) {
+      width += Math.abs(w);
+    }
+    for (int i = 0; i < width; i++) {
+      buf.append('-');
+    }
+    return newline();
+  }
+
+  public ConsoleRenderer cell(String s) {
+    int start = startCell();
+    int width = Math.abs(widths[column]);
+    String value = s == null ? "" : s;
+    if (value.length() > width) {
+      buf.append(value, 0, width - 1).append('~');
+    } else {
+      buf.append(value);
+    }
+    return endCell(start);
+  }
+
+  public ConsoleRenderer cell(long v) {
+    int start = startCell();
+    buf.append(v);
+    return endCell(start);
+  }
+
+  // an amount of money with two decimals
+  public ConsoleRenderer cell(double v) {
+    int start = startCell();
+    appendMoney(v);
+    return endCell(start);
+  }
+
+  public ConsoleRenderer endRow() {
+    column = 0;
+    // an empty last cell leaves the gap before it
+    int end = buf.length();
+    while (end > 0 && buf.charAt(end - 1) == ' ') end--;
+    buf.setLength(end);
+    return newline();
+  }
+
+  // writing everything collected so far
+  public void flush() {
+    writeOut();
+  }
+
+  // the text not written yet
+  String pending() {
+    return buf.toString();
+  }
+
+  private int startCell() {
+    if (column >= widths.length) {
+      throw new IllegalStateException("Row has more cells than the table has columns");
+    }
+    if (column > 0) buf.append(GAP);
+    return buf.length();
+  }
+
+  private ConsoleRenderer endCell(int start) {
+    int w = widths[column];
+    int pad = Math.abs(w) - (buf.length() - start);
+    column++;
+    // right-aligned: the spaces go in front of the value, only the cell is moved.
+    // left-aligned: the last column is not padded (no trailing spaces)
+    boolean padded = w > 0 || column < widths.length;
+    while (padded && pad > 0) {
+      int n = Math.min(pad, SPACES.length());
+      if (w > 0) {
+        buf.insert(start, SPACES, 0, n);
+      } else {
+        buf.append(SPACES, 0, n);
+      }
+      pad -= n;
+    }
+    return this;
+  }
+
+  // cents rounded half up, without Double.toString (no 1.0E7) and without a String
+  private void appendMoney(double v) {
+    if (Double.isNaN(v) || Double.isInfinite(v) || Math.abs(v) >= 1e15) {
+      buf.append(v);
+      return;
+    }
+    long cents = Math.round(v * 100);
+    if (cents < 0) {
+      buf.append('-');
+      cents = -cents;
+    }
+    buf.append(cents / 100).append('.');
+    long rest = cents % 100;
+    if (rest < 10) buf.append('0');
+    buf.append(rest);
+  }
+
+  private void writeOut() {
+    if (buf.length() == 0) return;
+    PrintStream target = out != null ? out : System.out;
+    // one String per chunk, one lock and one flush
+    target.append(buf);
+    target.flush();
+    buf.setLength(0);
+  }
+}
@@ -1,14 +1,21 @@
 package org.example.util;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 import org.example.cli.ConsoleInput;
+import org.example.cli.LineSource;
 import org.example.model.Transaction;
 import org.example.model.User;
 import org.example.repo.RepoExceptions;
 import org.example.repo.UsersRepo;
 
 public class ConsoleUtils {
+  // columns of the report tables
+  private static final int AMOUNT_WIDTH = 14;
+  private static final int CATEGORY_WIDTH = 24;
+  private static final int TITLE_WIDTH = 40;
+
   private ConsoleUtils() {}
 
   public static boolean checkLogonStatus(User currentUser) {
@@ -32,36 +39,30 @@ public class ConsoleUtils {
   }
 
   public static void handleViewStatistics(User u) {
-    System.out.println("You are going to view statistics");
-    double totalIncome = u.wallet.sumIncome();
-    double totalExpense = u.wallet.sumExpense();
-    double balance = u.wallet.getBalance();
-
-    System.out.println("==========================");
-    System.out.println("Wallet statistics");
-    System.out.println("Total income: " + totalIncome);
-    System.out.println("Total expense: " + totalExpense);
-    System.out.println("Balance: " + balance);
+    ConsoleRenderer r = ConsoleRenderer.stdout();
+    r.line("You are going to view statistics");
+    r.line("==========================");
+    r.line("Wallet statistics");
+    r.text("Total income: ").text(u.wallet.sumIncome()).newline();
+    r.text("Total expense: ").text(u.wallet.sumExpense()).newline();
+    r.text("Balance: ").text(u.wallet.getBalance()).newline();
 
     var incMap = u.wallet.incomesByCategory();
     if (incMap.isEmpty()) {
-      System.out.println("No incomes yet");
+      r.line("No incomes yet");
     } else {
-      System.out.println("Incomes by category:");
-      for (var e : incMap.entrySet()) {
-        System.out.println("- " + e.getKey() + ": " + e.getValue());
-      }
+      r.line("Incomes by category:");
+      categoryTable(r, incMap);
     }
     var expMap = u.wallet.expensesByCategory();
     if (expMap.isEmpty()) {
-      System.out.println("No expenses yet");
+      r.line("No expenses yet");
     } else {
-      System.out.println("Expenses by category:");
-      for (var e : expMap.entrySet()) {
-        System.out.println("- " + e.getKey() + ": " + e.getValue());
-      }
+      r.line("Expenses by category:");
+      categoryTable(r, expMap);
     }
-    System.out.println("==========================");
+    r.line("==========================");
+    r.flush();
 
     //  TO FIX we need to add some budgets statistics here also
     // double spent = u.wallet.getSpentByCategory(cat);
@@ -69,8 +70,19 @@ public class ConsoleUtils {
     // System.out.println("Spent in: " + cat + ": " + spent + ", remaining: " + rem);
   }
 
+  private static void categoryTable(ConsoleRenderer r, Map<String, Double> sums) {
+    r.table(-CATEGORY_WIDTH, AMOUNT_WIDTH).header("Category", "Amount");
+    for (var e : sums.entrySet()) {
+      r.cell(e.getKey()).cell(e.getValue()).endRow();
+    }
+  }
+
   // adding income
   public static void handleAddIncome(Scanner scanner, User currentUser) {
+    handleAddIncome(LineSource.of(scanner), currentUser);
+  }
+
+  public static void handleAddIncome(LineSource scanner, User currentUser) {
     System.out.println("You are going to add income");
     double incomeAmount = ConsoleInput.readDoubleSafe(scanner, "Enter income amount");
     String incomeTitle = ConsoleInput.readStringSafe(scanner, "Enter income title");
@@ -80,58 +92,68 @@ public class ConsoleUtils {
 
   // adding expense
   public static void handleAddExpense(Scanner scanner, User currentUser) {
+    handleAddExpense(LineSource.of(scanner), currentUser);
+  }
+
+  public static void handleAddExpense(LineSource scanner, User currentUser) {
     System.out.println("You are going to add expense");
     double expenseAmount = ConsoleInput.readDoubleSafe(scanner, "Enter expense amount");
     String expenseTitle = ConsoleInput.readStringSafe(scanner, "Enter expense title:");
     currentUser.wallet.addTransaction(expenseAmount, expenseTitle, Transaction.Type.EXPENSE);
     System.out.println("Expense added successfully: " + expenseAmount + " (" + expenseTitle + ")");
-    if (currentUser.wallet.getBudgets().containsKey(expenseTitle)) {
-      double rem = currentUser.wallet.getRemainingBudget(expenseTitle);
-      System.out.println("Remaining budget for " + expenseTitle + ": " + rem);
-      if (rem < 0) {
-        System.out.println("You have exceeded your budget for " + expenseTitle + " by " + (-rem));
-      }
-    }
+    // the remaining budget (and an exceeded one) is reported by the alert subscriber of the
+    // event bus (see Main)
   }
 
   // viewing wallet, transactions, budgets, alerts
   public static void handleViewWallet(User currentUser) {
-    System.out.println("You are going to view wallet");
-    System.out.println("Balance: " + currentUser.wallet.getBalance());
+    ConsoleRenderer r = ConsoleRenderer.stdout();
+    r.line("You are going to view wallet");
+    r.text("Balance: ").text(currentUser.wallet.getBalance()).newline();
 
     // viewing transactions
     var txs = currentUser.wallet.getTransactions();
     if (txs.isEmpty()) {
-      System.out.println("No transactions yet");
+      r.line("No transactions yet");
     } else {
-      System.out.println("Transactions:");
+      r.line("Transactions:");
+      r.table(8, -7, AMOUNT_WIDTH, -TITLE_WIDTH).header("#", "Type", "Amount", "Title");
+      long n = 0;
       for (Transaction t : txs) {
-        System.out.println("- " + t);
+        r.cell(++n).cell(t.type.name()).cell(t.amount).cell(t.title).endRow();
       }
     }
     // viewing budgets
     var budgets = currentUser.wallet.getBudgets();
     if (budgets.isEmpty()) {
-      System.out.println("No budgets yet");
+      r.line("No budgets yet");
     } else {
-      System.out.println("Budgets:");
+      r.line("Budgets:");
+      r.table(-CATEGORY_WIDTH, AMOUNT_WIDTH, AMOUNT_WIDTH, AMOUNT_WIDTH)
+          .header("Category", "Limit", "Spent", "Remaining");
       for (var e : budgets.entrySet()) {
         String cat = e.getKey();
-        double limit = e.getValue();
-        double spent = currentUser.wallet.getSpentByCategory(cat);
-        double rem = currentUser.wallet.getRemainingBudget(cat);
-        System.out.println("- " + cat + ": " + limit + ", spent: " + spent + ", remaining: " + rem);
+        r.cell(cat)
+            .cell(e.getValue())
+            .cell(currentUser.wallet.getSpentByCategory(cat))
+            .cell(currentUser.wallet.getRemainingBudget(cat))
+            .endRow();
       }
     }
     // viewing alerts
     var alerts = currentUser.wallet.getbudgetAlerts();
     for (String a : alerts) {
-      System.out.println("! " + a);
+      r.text("! ").line(a);
     }
+    r.flush();
   }
 
   // adding budgets
   public static void handleAddBudget(Scanner scanner, User currentUser) {
+    handleAddBudget(LineSource.of(scanner), currentUser);
+  }
+
+  public static void handleAddBudget(LineSource scanner, User currentUser) {
     System.out.println("You are going to add budget for your categories");
     String cat = ConsoleInput.readStringSafe(scanner, "Enter category name: ");
     double limit = ConsoleInput.readDoubleSafe(scanner, "Enter budget limit: ");
@@ -146,6 +168,10 @@ public class ConsoleUtils {
 
   // transferring money between users
   public static void handleTransfer(Scanner scanner, User currentUser, UsersRepo USERS) {
+    handleTransfer(LineSource.of(scanner), currentUser, USERS);
+  }
+
+  public static void handleTransfer(LineSource scanner, User currentUser, UsersRepo USERS) {
     String toLogin =
         ConsoleInput.readStringSafe(scanner, "Enter login of user to transfer money to: ");
     double amount = ConsoleInput.readDoubleSafe(scanner, "Enter amount to transfer: ");
@@ -166,6 +192,11 @@ public class ConsoleUtils {
 
   public static boolean handleDeleteYourUserAccount(
       Scanner scanner, User currentUser, UsersRepo USERS) {
+    return handleDeleteYourUserAccount(LineSource.of(scanner), currentUser, USERS);
+  }
+
+  public static boolean handleDeleteYourUserAccount(
+      LineSource scanner, User currentUser, UsersRepo USERS) {
     System.out.println("You are going to delete your user account");
     // we are not allowing super admin to delete his/hers account
     if (currentUser.hasRole(User.Role.SUPER_ADMIN)) {
@@ -200,6 +231,11 @@ public class ConsoleUtils {
 
   public static boolean handleDeleteSelectedUserAccount(
       Scanner scanner, User currentUser, UsersRepo USERS) {
+    return handleDeleteSelectedUserAccount(LineSource.of(scanner), currentUser, USERS);
+  }
+
+  public static boolean handleDeleteSelectedUserAccount(
+      LineSource scanner, User currentUser, UsersRepo USERS) {
     System.out.println("You are going to delete the user account you select...");
     String login = ConsoleInput.readStringSafe(scanner, "Enter login of the user to delete:");
     if (login.isEmpty()) {
@@ -240,6 +276,11 @@ public class ConsoleUtils {
 
   public static boolean handleAddOrdinaryAdminAccount(
       Scanner scanner, User currentUser, UsersRepo USERS, List<User> allUsers) {
+    return handleAddOrdinaryAdminAccount(LineSource.of(scanner), currentUser, USERS, allUsers);
+  }
+
+  public static boolean handleAddOrdinaryAdminAccount(
+      LineSource scanner, User currentUser, UsersRepo USERS, List<User> allUsers) {
     System.out.println("You are now going to add ordinary administrator account...");
 
     System.out.println("The super administrator is: ");
@@ -293,6 +334,10 @@ public class ConsoleUtils {
   }
 
   public static boolean handleRemoveOrdinaryAdminAccount(Scanner scanner, UsersRepo USERS) {
+    return handleRemoveOrdinaryAdminAccount(LineSource.of(scanner), USERS);
+  }
+
+  public static boolean handleRemoveOrdinaryAdminAccount(LineSource scanner, UsersRepo USERS) {
     System.out.println("You are now going to remove administrator account...");
     if (!ConsoleUtils.confirmAction(scanner)) return false;
     String removeAdminLogin =
@@ -318,6 +363,10 @@ public class ConsoleUtils {
   }
 
   public static boolean confirmAction(Scanner scanner) {
+    return confirmAction(LineSource.of(scanner));
+  }
+
+  public static boolean confirmAction(LineSource scanner) {
     String sure = ConsoleInput.readStringSafe(scanner, "Type YES to confirm account deletion: ");
     if (!"YES".equalsIgnoreCase(sure)) {
       System.out.println("Wrong input, try again.");
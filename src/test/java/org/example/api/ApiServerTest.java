@@ -0,0 +1,215 @@
+package org.example.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.example.repo.UsersRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the HTTP API over a shared repository.
+ *
+ * <p>Tests validate that:
+ *
+ * <ul>
+ *   <li><b>Calls:</b> register, login, transactions, budgets, transfers and statistics change and
+ *       show the repository like the menus do
+ *   <li><b>Errors:</b> Missing token, duplicate login, bad input and wrong method get 401, 409,
+ *       400 and 405 with a JSON message; a changed password is checked by the next login
+ *   <li><b>Concurrency:</b> Parallel clients writing to the same wallets lose no transaction, and
+ *       every call is counted in the response times of its route
+ * </ul>
+ *
+ * @see org.example.api.ApiServer
+ * @see org.example.api.ApiService
+ */
+public class ApiServerTest {
+
+  private static final Gson GSON = new Gson();
+
+  private UsersRepo repo;
+  private ApiServer server;
+  private HttpClient client;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    repo = new UsersRepo();
+    server =
+        ApiServer.start(
+            new ApiService(repo), new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    client = HttpClient.newHttpClient();
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.close();
+  }
+
+  private HttpResponse<String> call(String method, String path, String token, String json)
+      throws IOException, InterruptedException {
+    HttpRequest.Builder b =
+        HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path));
+    if (token != null) b.header("Authorization", "Bearer " + token);
+    b.method(
+        method,
+        json == null
+            ? HttpRequest.BodyPublishers.noBody()
+            : HttpRequest.BodyPublishers.ofString(json));
+    return client.send(b.build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private static JsonObject json(HttpResponse<String> r) {
+    return GSON.fromJson(r.body(), JsonObject.class);
+  }
+
+  private String registerAndLogin(String login) throws IOException, InterruptedException {
+    String credentials =
+        "{\"login\":\"" + login + "\",\"name\":\"N\",\"surname\":\"S\",\"password\":\"pw\"}";
+    assertEquals(201, call("POST", "/register", null, credentials).statusCode());
+    HttpResponse<String> r = call("POST", "/login", null, credentials);
+    assertEquals(200, r.statusCode());
+    return json(r).get("token").getAsString();
+  }
+
+  @Test
+  @DisplayName("API: регистрация, вход, операции, бюджет, перевод и статистика")
+  void calls_changeAndShowTheRepository() throws Exception {
+    String alice = registerAndLogin("alice");
+    registerAndLogin("bob");
+
+    HttpResponse<String> r =
+        call(
+            "POST",
+            "/transactions",
+            alice,
+            "{\"type\":\"income\",\"amount\":1000,\"title\":\"salary\"}");
+    assertEquals(201, r.statusCode());
+    assertEquals("INCOME", json(r).get("type").getAsString());
+    String expense = "{\"type\":\"expense\",\"amount\":120,\"title\":\"food\"}";
+    assertEquals(201, call("POST", "/transactions", alice, expense).statusCode());
+    assertEquals(
+        204, call("POST", "/budgets", alice, "{\"category\":\"food\",\"limit\":100}").statusCode());
+    assertEquals(
+        204, call("POST", "/transfers", alice, "{\"to\":\"bob\",\"amount\":30}").statusCode());
+
+    JsonObject stats = json(call("GET", "/statistics", alice, null));
+    assertEquals(850.0, stats.get("balance").getAsDouble(), 1e-9);
+    JsonObject food = stats.getAsJsonObject("budgets").getAsJsonObject("food");
+    assertEquals(-20.0, food.get("remaining").getAsDouble(), 1e-9);
+    assertEquals(1, stats.getAsJsonArray("alerts").size());
+    String txs = call("GET", "/transactions", alice, null).body();
+    assertEquals(3, GSON.fromJson(txs, List.class).size());
+    assertEquals(30.0, repo.find("bob").wallet.getBalance(), 1e-9);
+
+    assertEquals(204, call("POST", "/logout", alice, null).statusCode());
+    assertEquals(401, call("GET", "/statistics", alice, null).statusCode());
+  }
+
+  @Test
+  @DisplayName("API: ошибки с кодами 401, 409, 400, 405 и сообщением")
+  void errors_getStatusAndMessage() throws Exception {
+    String alice = registerAndLogin("alice");
+
+    HttpResponse<String> r = call("GET", "/statistics", null, null);
+    assertEquals(401, r.statusCode());
+    assertTrue(json(r).has("error"));
+    assertEquals(
+        401,
+        call("POST", "/login", null, "{\"login\":\"alice\",\"password\":\"wrong\"}").statusCode());
+    assertEquals(
+        409,
+        call("POST", "/register", null, "{\"login\":\"alice\",\"password\":\"x\"}").statusCode());
+    assertEquals(
+        400,
+        call("POST", "/transactions", alice, "{\"type\":\"income\",\"amount\":-5,\"title\":\"x\"}")
+            .statusCode());
+    assertEquals(
+        400,
+        call("POST", "/transactions", alice, "{\"type\":\"gift\",\"amount\":5,\"title\":\"x\"}")
+            .statusCode());
+    assertEquals(400, call("POST", "/budgets", alice, "not json").statusCode());
+    assertEquals(
+        404, call("POST", "/transfers", alice, "{\"to\":\"nobody\",\"amount\":1}").statusCode());
+    assertEquals(405, call("GET", "/transfers", alice, null).statusCode());
+    assertEquals(404, call("GET", "/statistics/more", alice, null).statusCode());
+    assertEquals(0.0, repo.find("alice").wallet.getBalance(), 1e-9);
+
+    // a password changed in the repository (another thread, no API lock) is used by the next login
+    repo.find("alice").setPassword("changed");
+    assertEquals(
+        401,
+        call("POST", "/login", null, "{\"login\":\"alice\",\"password\":\"pw\"}").statusCode());
+    assertEquals(
+        200,
+        call("POST", "/login", null, "{\"login\":\"alice\",\"password\":\"changed\"}")
+            .statusCode());
+  }
+
+  @Test
+  @DisplayName("API: параллельные клиенты не теряют операций, время ответов считается")
+  void parallelClients_loseNothing() throws Exception {
+    String alice = registerAndLogin("alice");
+    String bob = registerAndLogin("bob");
+    int clients = 16;
+    int perClient = 50;
+    ExecutorService pool = Executors.newFixedThreadPool(clients);
+    try {
+      List<Future<Integer>> results = new ArrayList<>();
+      for (int c = 0; c < clients; c++) {
+        String token = c % 2 == 0 ? alice : bob;
+        String other = c % 2 == 0 ? "bob" : "alice";
+        results.add(
+            pool.submit(
+                () -> {
+                  int ok = 0;
+                  for (int i = 0; i < perClient; i++) {
+                    String body =
+                        i % 5 == 0
+                            ? "{\"to\":\"" + other + "\",\"amount\":1}"
+                            : "{\"type\":\"income\",\"amount\":2,\"title\":\"t\"}";
+                    String path = i % 5 == 0 ? "/transfers" : "/transactions";
+                    int status = call("POST", path, token, body).statusCode();
+                    if (status == 201 || status == 204) ok++;
+                    if (call("GET", "/statistics", token, null).statusCode() == 200) ok++;
+                  }
+                  return ok;
+                }));
+      }
+      for (Future<Integer> f : results) {
+        assertEquals(2 * perClient, f.get());
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+
+    // every client: 40 incomes of 2, 10 transfers of 1 out; the same number comes back in
+    int transactionsPerUser = clients / 2 * perClient + clients / 2 * perClient / 5;
+    double balance = clients / 2 * (perClient - perClient / 5) * 2.0;
+    for (String login : List.of("alice", "bob")) {
+      assertEquals(transactionsPerUser, repo.find(login).wallet.getTransactions().size());
+      assertEquals(balance, repo.find(login).wallet.getBalance(), 1e-9);
+    }
+
+    JsonObject metrics = json(call("GET", "/metrics", null, null));
+    JsonObject statistics = metrics.getAsJsonObject("/statistics");
+    assertEquals(clients * perClient, statistics.get("count").getAsLong());
+    assertEquals(0, statistics.get("errors").getAsLong());
+    assertTrue(statistics.get("p50").getAsLong() <= statistics.get("max").getAsLong());
+  }
+}
@@ -58,7 +58,7 @@ class MainTest {
   }
 
   /** Start org.example.app.Main as a separate process and feed the script to stdin. */
-  private ExecResult runApp(String script, Path workDir) throws Exception {
+  private ExecResult runApp(String script, Path workDir, String... args) throws Exception {
     String javaBin =
         Paths.get(
                 System.getProperty("java.home"),
@@ -80,6 +80,7 @@ class MainTest {
     cmd.add("-Dfile.encoding=UTF-8");
     cmd.add("-Duser.dir=" + workDir.toAbsolutePath());
     cmd.add("org.example.app.Main");
+    cmd.addAll(List.of(args));
 
     ProcessBuilder pb = new ProcessBuilder(cmd);
     pb.directory(workDir.toFile());
@@ -429,4 +430,32 @@ class MainTest {
     }
     assertEquals(0, r.exitCode, "App must exit 0.");
   }
+
+  // ------ BATCH MODE ------
+
+  @Test
+  @DisplayName("Batch mode should run a script from stdin, save once and report errors")
+  void batch_fromStdin_savesAndSummarizes() throws Exception {
+    Path wd = newWorkDir();
+    String script =
+        String.join(
+            "\n",
+            "register alice Alice Smith pa",
+            "add-income alice 100 salary",
+            "add-expense nobody 5 food",
+            "report alice");
+    ExecResult r = runApp(script + "\n", wd, "--batch", "-");
+
+    assertEquals(1, r.exitCode, "A script with failed commands must exit with code 1.");
+    assertTrue(r.out.contains("alice: balance 100.0"), r.out);
+    assertTrue(r.out.contains("line 3: User not found: nobody"), r.out);
+    assertTrue(r.out.contains("Batch: 4 command(s), 1 error(s)"), r.out);
+    String saved =
+        Files.readString(wd.resolve("data").resolve("finance-data.json"), StandardCharsets.UTF_8);
+    assertTrue(saved.contains("salary"), "The data file must be written at the end.");
+
+    ExecResult again = runApp("report alice\n", wd, "--batch", "-");
+    assertEquals(0, again.exitCode, again.err);
+    assertTrue(again.out.contains("alice: balance 100.0"), again.out);
+  }
 }
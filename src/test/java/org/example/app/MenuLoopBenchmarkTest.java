@@ -0,0 +1,85 @@
+package org.example.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Benchmark of the interactive menu loop fed by a script, not a test.
+ *
+ * <p>Runs only with {@code gradle test -Dfinance.bench=true --tests '*MenuLoopBenchmarkTest'}:
+ *
+ * <ul>
+ *   <li><b>Script:</b> One login followed by 1M commands of the Main Actions menu (statistics,
+ *       every 100th an income), piped to stdin of a separate process, output discarded
+ *   <li><b>Modes:</b> The console input read by java.util.Scanner and by FastLineReader, the times
+ *       are printed
+ * </ul>
+ *
+ * @see org.example.cli.FastLineReader
+ */
+class MenuLoopBenchmarkTest {
+
+  private static final int COMMANDS = 1_000_000;
+
+  @TempDir Path tmp;
+
+  private Path writeScript() throws IOException {
+    Path script = tmp.resolve("script.txt");
+    try (BufferedWriter w = Files.newBufferedWriter(script, StandardCharsets.UTF_8)) {
+      w.write("1\nalice\nAlice\nSmith\npa\n1\n");
+      for (int i = 0; i < COMMANDS; i++) {
+        w.write(i % 100 == 0 ? "1\n" + (i % 900 + 1) + "\nsalary\n" : "5\n");
+      }
+      w.write("8\n4\n");
+    }
+    return script;
+  }
+
+  private long runMillis(Path script, String inputMode, int round) throws Exception {
+    Path wd = Files.createDirectories(tmp.resolve(inputMode + round));
+    Files.createDirectories(wd.resolve("data"));
+    String javaBin = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    ProcessBuilder pb =
+        new ProcessBuilder(
+            List.of(
+                javaBin,
+                "-cp",
+                System.getProperty("java.class.path"),
+                "-Dfile.encoding=UTF-8",
+                "-Dfinance.watch=false",
+                "-Dfinance.input=" + inputMode,
+                "org.example.app.Main"));
+    pb.directory(wd.toFile());
+    pb.redirectInput(script.toFile());
+    pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+    pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+    long start = System.nanoTime();
+    int code = pb.start().waitFor();
+    long millis = (System.nanoTime() - start) / 1_000_000;
+    assertEquals(0, code, "The app must finish the script.");
+    return millis;
+  }
+
+  @Test
+  @EnabledIfSystemProperty(named = "finance.bench", matches = "true")
+  @DisplayName("1M команд через меню: Scanner и FastLineReader")
+  void menuLoop_scannerVsFastReader() throws Exception {
+    Path script = writeScript();
+    for (int round = 1; round <= 2; round++) {
+      for (String mode : List.of("scanner", "fast")) {
+        long ms = runMillis(script, mode, round);
+        System.out.println(
+            "round " + round + ", " + mode + ": " + COMMANDS + " commands in " + ms + " ms");
+      }
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package org.example.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.example.repo.UsersRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the batch command mode.
+ *
+ * <p>Tests validate that:
+ *
+ * <ul>
+ *   <li><b>Commands:</b> register, add-income, add-expense, set-budget, transfer and report change
+ *       and show the repository like the menus do
+ *   <li><b>Errors:</b> A failed command is reported with its line number, the script goes on and
+ *       the summary counts it
+ *   <li><b>Arguments:</b> Quoted arguments keep their spaces and escaped quotes
+ * </ul>
+ *
+ * @see org.example.cli.BatchRunner
+ */
+public class BatchRunnerTest {
+
+  private static String run(UsersRepo repo, String script, long[] summary) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8)) {
+      BatchRunner.Summary s =
+          new BatchRunner(repo, out).run(new BufferedReader(new StringReader(script)));
+      summary[0] = s.commands();
+      summary[1] = s.errors();
+    }
+    return bytes.toString(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  @DisplayName("run: все команды меняют репозиторий, report печатает итоги и бюджеты")
+  void commandsChangeTheRepository() throws IOException {
+    UsersRepo repo = new UsersRepo();
+    long[] summary = new long[2];
+    String out =
+        run(
+            repo,
+            String.join(
+                "\n",
+                "# setup",
+                "register alice Alice Smith pa",
+                "register bob Bob Brown pb",
+                "",
+                "add-income alice 1000 salary",
+                "add-expense alice 12,5 \"coffee beans\"",
+                "set-budget alice \"coffee beans\" 100",
+                "transfer alice bob 200 rent",
+                "report alice"),
+            summary);
+
+    assertEquals(7, summary[0]);
+    assertEquals(0, summary[1]);
+    assertEquals(787.5, repo.find("alice").wallet.getBalance(), 1e-9);
+    assertEquals(200.0, repo.find("bob").wallet.getBalance(), 1e-9);
+    assertTrue(repo.find("bob").checkPassword("pb"));
+    assertEquals(
+        "alice: balance 787.5, income 1000.0, expense 212.5\n"
+            + "  budget coffee beans: limit 100.0, spent 12.5, remaining 87.5\n",
+        out.replace("\r\n", "\n"));
+  }
+
+  @Test
+  @DisplayName("run: ошибки с номерами строк, скрипт продолжается")
+  void errorsAreReportedAndSkipped() throws IOException {
+    UsersRepo repo = new UsersRepo();
+    long[] summary = new long[2];
+    String out =
+        run(
+            repo,
+            String.join(
+                "\n",
+                "register alice Alice Smith pa",
+                "register alice Alice Smith pa",
+                "add-expense carol 5 food",
+                "add-income alice -5 gift",
+                "add-income alice 5",
+                "fly alice",
+                "add-income alice 5 \"open",
+                "add-income alice 5 gift"),
+            summary);
+
+    assertEquals(8, summary[0]);
+    assertEquals(6, summary[1]);
+    assertEquals(5.0, repo.find("alice").wallet.getBalance(), 1e-9);
+    assertEquals(
+        List.of(
+            "line 2: User already exists: alice",
+            "line 3: User not found: carol",
+            "line 4: Amount must be a positive number: -5",
+            "line 5: Wrong number of arguments for add-income: 2",
+            "line 6: Unknown command: fly",
+            "line 7: Unterminated quote"),
+        out.lines().toList());
+  }
+
+  @Test
+  @DisplayName("split: кавычки, пробелы и экранирование")
+  void splitHandlesQuotes() {
+    List<String> args = new ArrayList<>();
+    BatchRunner.split("  add-income   alice 5 \"a \\\"b\\\" \\\\ c\"  ", args);
+    assertEquals(List.of("add-income", "alice", "5", "a \"b\" \\ c"), args);
+  }
+}
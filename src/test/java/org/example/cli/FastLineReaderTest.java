@@ -0,0 +1,85 @@
+package org.example.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the console line reader used instead of Scanner.
+ *
+ * <p>Tests validate that:
+ *
+ * <ul>
+ *   <li><b>Lines:</b> \n, \r\n and \r end a line, empty lines are kept, the last line needs no line
+ *       end, the end of input throws NoSuchElementException like Scanner
+ *   <li><b>Buffer:</b> Long UTF-8 lines crossing the end of the buffer are decoded whole
+ *   <li><b>ConsoleInput:</b> The same validation through a FastLineReader as through a Scanner
+ * </ul>
+ *
+ * @see org.example.cli.FastLineReader
+ */
+public class FastLineReaderTest {
+
+  private static FastLineReader reader(String input) {
+    return new FastLineReader(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static List<String> allLines(LineSource source) {
+    List<String> lines = new ArrayList<>();
+    while (true) {
+      try {
+        lines.add(source.nextLine());
+      } catch (NoSuchElementException e) {
+        return lines;
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("nextLine: те же строки, что и у Scanner")
+  void linesAsScanner() {
+    String input = "1\r\nalice\n\n  x  \rlast\r\n\r\nтекст";
+    Scanner scanner = new Scanner(input);
+    assertEquals(allLines(LineSource.of(scanner)), allLines(reader(input)));
+    assertEquals(List.of("1", "alice", "", "  x  ", "last", "", "текст"), allLines(reader(input)));
+  }
+
+  @Test
+  @DisplayName("nextLine: конец ввода — NoSuchElementException")
+  void endOfInputThrows() {
+    FastLineReader r = reader("a\n");
+    assertEquals("a", r.nextLine());
+    assertNull(r.readLine());
+    assertThrows(NoSuchElementException.class, r::nextLine);
+    assertThrows(NoSuchElementException.class, reader("")::nextLine);
+  }
+
+  @Test
+  @DisplayName("nextLine: длинные строки UTF-8 через границу буфера")
+  void longLinesCrossTheBuffer() {
+    String longLine = "ж".repeat(100_000) + "z";
+    FastLineReader r = reader("x\n" + longLine + "\r\n" + longLine);
+    assertEquals("x", r.nextLine());
+    assertEquals(longLine, r.nextLine());
+    assertEquals(longLine, r.nextLine());
+    assertNull(r.readLine());
+  }
+
+  @Test
+  @DisplayName("ConsoleInput: те же правила проверки через FastLineReader")
+  void consoleInputThroughReader() {
+    FastLineReader r = reader("abc\n-5\n12,5\nx\n7\n\n  title \n1bad\nSmith\nA\nalice\n");
+    assertEquals(12.5, ConsoleInput.readDoubleSafe(r, "amount"), 0.0);
+    assertEquals(7, ConsoleInput.readIntSafe(r));
+    assertEquals("title", ConsoleInput.readStringSafe(r, "title"));
+    assertEquals("Smith", ConsoleInput.readStringSafe(r, "surname", true));
+    assertEquals("alice", ConsoleInput.readLoginSafe(r));
+  }
+}
@@ -0,0 +1,248 @@
+package org.example.events;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+import org.example.storage.Journal;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the in-process event bus.
+ *
+ * <p>Tests validate that:
+ *
+ * <ul>
+ *   <li><b>Delivery:</b> Every subscriber gets the events in publishing order on its own thread,
+ *       close() delivers what is still queued
+ *   <li><b>Slow subscribers:</b> publish() does not wait for a slow handler; a full DROP buffer
+ *       loses and counts new events, a BLOCK buffer makes the publisher wait and loses nothing
+ *   <li><b>Failures:</b> A failing handler is counted and the next events are still delivered
+ *   <li><b>Repository events:</b> Transactions, remaining and exceeded budgets, role changes and
+ *       deletions of UsersRepo and its wallets are published by EventPublisher
+ *   <li><b>Alerts:</b> Budget alerts only for the accepted users, not for a bulk change or the
+ *       changes of another instance
+ * </ul>
+ *
+ * @see org.example.events.EventBus
+ * @see org.example.events.EventPublisher
+ */
+public class EventBusTest {
+
+  @TempDir Path tmp;
+
+  private static DomainEvent.UserRegistered event(int i) {
+    return new DomainEvent.UserRegistered(i, "user" + i);
+  }
+
+  @Test
+  @DisplayName("publish: события по порядку каждому подписчику, close доставляет остаток")
+  void events_areDeliveredInOrder() {
+    EventBus bus = new EventBus();
+    List<DomainEvent> first = Collections.synchronizedList(new ArrayList<>());
+    List<String> threads = Collections.synchronizedList(new ArrayList<>());
+    EventBus.Subscription a = bus.subscribe("a", 8, EventBus.Overflow.BLOCK, first::add);
+    EventBus.Subscription b =
+        bus.subscribe(
+            "b", 8, EventBus.Overflow.BLOCK, e -> threads.add(Thread.currentThread().getName()));
+    List<DomainEvent> expected = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      expected.add(event(i));
+      bus.publish(event(i));
+    }
+    assertTrue(bus.close(Duration.ofSeconds(5)));
+    assertEquals(expected, first);
+    assertEquals(1000, a.getDelivered());
+    assertEquals(1000, b.getDelivered());
+    assertTrue(threads.stream().allMatch("events-b"::equals));
+    assertThrows(
+        IllegalStateException.class, () -> bus.subscribe("c", 8, EventBus.Overflow.DROP, e -> {}));
+  }
+
+  @Test
+  @DisplayName("медленный подписчик: DROP теряет и считает, BLOCK ждёт, публикация не ждёт")
+  void slowSubscriber_doesNotDelayPublisher() throws InterruptedException {
+    EventBus bus = new EventBus();
+    CountDownLatch release = new CountDownLatch(1);
+    EventBus.Subscription slow =
+        bus.subscribe(
+            "slow",
+            4,
+            EventBus.Overflow.DROP,
+            e -> {
+              try {
+                release.await(5, TimeUnit.SECONDS);
+              } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+              }
+            });
+    long start = System.nanoTime();
+    for (int i = 0; i < 100; i++) {
+      bus.publish(event(i));
+    }
+    long millis = (System.nanoTime() - start) / 1_000_000;
+    assertTrue(millis < 1_000, "publish waited " + millis + " ms");
+    // at most one batch (4) is taken by the worker and 4 wait in the buffer, the rest are dropped
+    assertTrue(slow.getDropped() >= 92, "dropped: " + slow.getDropped());
+    release.countDown();
+    assertTrue(slow.drain(Duration.ofSeconds(5)));
+    assertEquals(100, slow.getDelivered() + slow.getDropped());
+
+    List<DomainEvent> all = Collections.synchronizedList(new ArrayList<>());
+    EventBus.Subscription blocking =
+        bus.subscribe(
+            "blocking",
+            2,
+            EventBus.Overflow.BLOCK,
+            e -> {
+              try {
+                Thread.sleep(1);
+              } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+              }
+              all.add(e);
+            });
+    for (int i = 0; i < 50; i++) {
+      bus.publish(event(i));
+    }
+    assertTrue(blocking.drain(Duration.ofSeconds(5)));
+    assertEquals(50, all.size());
+    assertEquals(0, blocking.getDropped());
+    bus.close();
+  }
+
+  @Test
+  @DisplayName("ошибка подписчика считается, следующие события доставляются")
+  void failingHandler_isCounted() {
+    EventBus bus = new EventBus();
+    List<DomainEvent> seen = Collections.synchronizedList(new ArrayList<>());
+    EventBus.Subscription s =
+        bus.subscribe(
+            "failing",
+            16,
+            EventBus.Overflow.BLOCK,
+            e -> {
+              if (((DomainEvent.UserRegistered) e).userId() % 2 == 0) {
+                throw new IllegalStateException("boom");
+              }
+              seen.add(e);
+            });
+    for (int i = 0; i < 10; i++) {
+      bus.publish(event(i));
+    }
+    assertTrue(s.drain(Duration.ofSeconds(5)));
+    assertEquals(5, s.getFailures());
+    assertEquals(5, s.getDelivered());
+    assertEquals(5, seen.size());
+    bus.close();
+  }
+
+  @Test
+  @DisplayName("EventPublisher: операции, превышение бюджета, роли и удаление пользователей")
+  void repositoryChanges_arePublished() {
+    UsersRepo repo = new UsersRepo();
+    User admin = repo.register("admin", "A", "A", "pa");
+    repo.register("alice", "Alice", "S", "pb");
+    repo.register("bob", "Bob", "B", "pc");
+
+    EventBus bus = new EventBus();
+    List<DomainEvent> events = Collections.synchronizedList(new ArrayList<>());
+    bus.subscribe("test", 64, EventBus.Overflow.BLOCK, events::add);
+    repo.addListener(new EventPublisher(bus));
+
+    User alice = repo.find("alice");
+    alice.wallet.setBudget("food", 100);
+    alice.wallet.addTransaction(80, "food", Transaction.Type.EXPENSE);
+    alice.wallet.addTransaction(30, "food", Transaction.Type.EXPENSE);
+    alice.wallet.addTransaction(500, "salary", Transaction.Type.INCOME);
+    alice.wallet.setBudget("food", 90);
+    repo.transfer("alice", "bob", 10, null);
+    repo.addAdmin("admin", "pa", "bob");
+    assertEquals(List.of("alice", "bob"), repo.deleteAllUsers().stream().sorted().toList());
+    assertTrue(bus.close(Duration.ofSeconds(5)));
+
+    long id = alice.id;
+    List<DomainEvent> expected =
+        new ArrayList<>(
+            List.of(
+                new DomainEvent.BudgetSet(id, "alice", "food", 100),
+                new DomainEvent.TransactionAdded(id, "alice", 80, "food", Transaction.Type.EXPENSE),
+                new DomainEvent.BudgetRemaining(id, "alice", "food", 100, 80),
+                new DomainEvent.TransactionAdded(id, "alice", 30, "food", Transaction.Type.EXPENSE),
+                new DomainEvent.BudgetRemaining(id, "alice", "food", 100, 110),
+                new DomainEvent.BudgetExceeded(id, "alice", "food", 100, 110),
+                new DomainEvent.TransactionAdded(
+                    id, "alice", 500, "salary", Transaction.Type.INCOME),
+                new DomainEvent.BudgetSet(id, "alice", "food", 90),
+                new DomainEvent.BudgetExceeded(id, "alice", "food", 90, 110),
+                new DomainEvent.TransferMade("alice", "bob", 10, null),
+                new DomainEvent.RoleChanged(
+                    repo.getNextId() - 1, "bob", User.Role.ADMIN, true)));
+    assertEquals(expected, events.subList(0, expected.size()));
+    List<DomainEvent> deleted = events.subList(expected.size(), events.size());
+    assertEquals(2, deleted.size());
+    assertTrue(deleted.stream().allMatch(e -> e instanceof DomainEvent.UserDeleted));
+    assertNotNull(repo.find(admin.login));
+    assertEquals(20.0, ((DomainEvent.BudgetRemaining) expected.get(2)).remaining(), 1e-9);
+    assertEquals(20.0, ((DomainEvent.BudgetExceeded) expected.get(8)).over(), 1e-9);
+  }
+
+  @Test
+  @DisplayName("EventPublisher: оповещения о бюджете только по фильтру, не в bulk и не из sync")
+  void budgetAlerts_onlyForAcceptedChanges() throws IOException {
+    Path snapshot = tmp.resolve("finance-data.json");
+    Path file = tmp.resolve("finance-data.journal");
+    try (Journal a = Journal.openShared(snapshot, file);
+        Journal b = Journal.openShared(snapshot, file)) {
+      UsersRepo repo = a.getUsersRepo();
+      repo.register("alice", "A", "A", "pa").wallet.setBudget("food", 10);
+      repo.register("bob", "B", "B", "pb").wallet.setBudget("food", 10);
+      a.flush();
+      b.sync();
+
+      EventBus bus = new EventBus();
+      List<DomainEvent> events = Collections.synchronizedList(new ArrayList<>());
+      bus.subscribe("test", 64, EventBus.Overflow.BLOCK, events::add);
+      repo.addListener(new EventPublisher(bus, u -> "alice".equals(u.login) && !a.isQuiet()));
+
+      repo.find("alice").wallet.addTransaction(20, "food", Transaction.Type.EXPENSE);
+      repo.find("bob").wallet.addTransaction(20, "food", Transaction.Type.EXPENSE);
+      a.bulk(
+          () -> {
+            repo.find("alice").wallet.addTransaction(5, "food", Transaction.Type.EXPENSE);
+            return null;
+          });
+      b.getUsersRepo().find("alice").wallet.addTransaction(1, "food", Transaction.Type.EXPENSE);
+      b.flush();
+      assertEquals(1, a.sync());
+      assertTrue(bus.close(Duration.ofSeconds(5)));
+
+      long id = repo.find("alice").id;
+      List<DomainEvent> alerts =
+          events.stream()
+              .filter(
+                  e ->
+                      e instanceof DomainEvent.BudgetRemaining
+                          || e instanceof DomainEvent.BudgetExceeded)
+              .toList();
+      assertEquals(
+          List.of(
+              new DomainEvent.BudgetRemaining(id, "alice", "food", 10, 20),
+              new DomainEvent.BudgetExceeded(id, "alice", "food", 10, 20)),
+          alerts);
+      assertEquals(
+          4, events.stream().filter(e -> e instanceof DomainEvent.TransactionAdded).count());
+    }
+  }
+}
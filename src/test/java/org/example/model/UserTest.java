@@ -38,4 +38,15 @@ public class UserTest {
     u.removeRole(User.Role.ADMIN);
     assertFalse(u.hasRole(User.Role.ADMIN));
   }
+
+  @Test
+  @DisplayName("fromHash keeps the precomputed hash; id=1 still becomes SUPER_ADMIN")
+  void fromHashUsesPrecomputedHash() {
+    String hash = User.hashPassword("secret");
+    User u = User.fromHash(1L, "admin", "Ivan", "Petrov", hash);
+
+    assertTrue(u.checkPassword("secret"));
+    assertTrue(u.hasRole(User.Role.SUPER_ADMIN));
+    assertThrows(IllegalArgumentException.class, () -> User.hashPassword(" "));
+  }
 }
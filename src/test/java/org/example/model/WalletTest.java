@@ -2,6 +2,8 @@ package org.example.model;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -54,4 +56,51 @@ public class WalletTest {
     assertEquals(150.0, m.get("food"), 1e-9);
     assertEquals(30.0, m.get("transport"), 1e-9);
   }
+
+  @Test
+  @DisplayName("computeTotals follows the transactions, restoreTotals replaces kept aggregates")
+  void computeAndRestoreTotals() {
+    List<Transaction> list = new ArrayList<>();
+    list.add(new Transaction(200, "salary", Transaction.Type.INCOME));
+    list.add(new Transaction(50, "food", Transaction.Type.EXPENSE));
+    Wallet w = new Wallet(list, new Wallet.Totals(0, 0, 0, Map.of(), Map.of()));
+    assertEquals(0.0, w.getBalance(), 0.0);
+
+    Wallet.Totals actual = w.computeTotals();
+    assertEquals(150.0, actual.balance(), 0.0);
+    assertNotEquals(actual, w.totals());
+    w.restoreTotals(actual);
+    assertEquals(actual, w.totals());
+    assertEquals(50.0, w.getSpentByCategory("food"), 0.0);
+    assertEquals(Map.of("salary", 200.0), w.incomesByCategory());
+  }
+
+  @Test
+  @DisplayName("addTransactions adds a batch in order, sums it and reports every transaction")
+  void addTransactionsBatch() {
+    Wallet w = new Wallet();
+    List<Transaction> seen = new ArrayList<>();
+    w.setListener(
+        new Wallet.Listener() {
+          @Override
+          public void onTransaction(Transaction t) {
+            seen.add(t);
+          }
+
+          @Override
+          public void onBudget(String category, double limit) {}
+        });
+    List<Transaction> batch =
+        List.of(
+            new Transaction(200, "salary", Transaction.Type.INCOME),
+            new Transaction(50, "food", Transaction.Type.EXPENSE),
+            new Transaction(25, "food", Transaction.Type.EXPENSE));
+    w.addTransactions(batch);
+
+    assertEquals(batch, w.getTransactions());
+    assertEquals(batch, seen);
+    assertEquals(125.0, w.getBalance(), 1e-9);
+    assertEquals(75.0, w.getSpentByCategory("food"), 1e-9);
+    assertNull(w.checkTotals());
+  }
 }
@@ -0,0 +1,78 @@
+package org.example.repo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import org.example.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Benchmark of printing the users table, not a test.
+ *
+ * <p>Runs only with {@code gradle test -Dfinance.bench=true --tests '*UsersListBenchmarkTest'}:
+ *
+ * <ul>
+ *   <li><b>Data:</b> 100k users restored from a ready hash (no BCrypt), one line of output each
+ *   <li><b>Modes:</b> One println per user (the old listing) and listAllUsers (ConsoleRenderer),
+ *       both to an autoflush System.out over a file, the times are printed
+ * </ul>
+ *
+ * @see org.example.util.ConsoleRenderer
+ */
+class UsersListBenchmarkTest {
+
+  private static final int USERS = 100_000;
+
+  @TempDir Path tmp;
+
+  private long printMillis(Path file, Runnable listing) throws IOException {
+    PrintStream original = System.out;
+    try (PrintStream out =
+        new PrintStream(new FileOutputStream(file.toFile()), true, StandardCharsets.UTF_8)) {
+      System.setOut(out);
+      long start = System.nanoTime();
+      listing.run();
+      return (System.nanoTime() - start) / 1_000_000;
+    } finally {
+      System.setOut(original);
+    }
+  }
+
+  @Test
+  @EnabledIfSystemProperty(named = "finance.bench", matches = "true")
+  @DisplayName("100k пользователей: println на строку и listAllUsers")
+  void listAllUsers_printlnVsRenderer() throws IOException {
+    UsersRepo repo = new UsersRepo();
+    for (int i = 1; i <= USERS; i++) {
+      repo.restore(User.fromHash(i, "user" + i, "Name" + i, "Surname" + i, "hash"));
+    }
+    Runnable println =
+        () -> {
+          for (User u : repo.listAll()) System.out.println(u);
+        };
+    for (int round = 1; round <= 2; round++) {
+      Path lines = tmp.resolve("println" + round + ".txt");
+      long oldMs = printMillis(lines, println);
+      Path table = tmp.resolve("table" + round + ".txt");
+      long newMs = printMillis(table, repo::listAllUsers);
+      assertTrue(Files.size(table) > 0);
+      System.out.println(
+          "round "
+              + round
+              + ": "
+              + USERS
+              + " lines, println "
+              + oldMs
+              + " ms, listAllUsers "
+              + newMs
+              + " ms");
+    }
+  }
+}
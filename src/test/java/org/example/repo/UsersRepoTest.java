@@ -2,8 +2,18 @@ package org.example.repo;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 import org.example.model.Transaction;
 import org.example.model.User;
+import org.example.model.Wallet;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -19,6 +29,11 @@ import org.junit.jupiter.api.Test;
  *   <li><b>Money transfers:</b> Inter-user transfers with proper transaction recording
  *   <li><b>User deletion:</b> Simple deletion and password-protected deletion
  *   <li><b>Role management:</b> Adding and removing ADMIN roles with proper authorization
+ *   <li><b>Bulk registration:</b> Per-record failures, id block assignment, parallel hashing
+ *   <li><b>Verification:</b> Wallet aggregates, login/id indexes and nextId are checked and
+ *       repaired after loading
+ *   <li><b>Merge:</b> Only users which differ from a re-read copy are replaced
+ *   <li><b>Listing:</b> The longest valid login is printed whole in the users table
  *   <li><b>Error handling:</b> Validation of custom exceptions (Invalid, NotFound, Conflict,
  *       Forbidden)
  * </ul>
@@ -51,6 +66,20 @@ public class UsersRepoTest {
     assertSame(u1, u2);
   }
 
+  @Test
+  @DisplayName("registerHashed: готовый хеш, занятый логин — null")
+  void registerHashed_usesGivenHash() {
+    String hash = User.hashPassword("secret");
+    User u = repo.registerHashed(" Anna ", "Anna", "K", hash);
+    assertEquals("anna", u.login);
+    assertTrue(u.hasRole(User.Role.SUPER_ADMIN), "The first user is the super admin.");
+    assertSame(u, repo.authenticate("anna", "secret"));
+    assertTrue(repo.getDirtyIds().contains(u.id));
+    assertNull(repo.registerHashed("anna", "Other", "K", hash));
+    assertThrows(
+        IllegalArgumentException.class, () -> repo.registerHashed("1bad", "A", "B", hash));
+  }
+
   @Test
   @DisplayName("Неверный логин — IllegalArgumentException")
   void invalidLogin() {
@@ -125,6 +154,11 @@ public class UsersRepoTest {
 
     // уже удалён
     assertFalse(repo.deleteUser("xuser", "1"));
+    // логин в другом регистре и с пробелами удаляет того же пользователя
+    repo.register("yuser", "A", "B", "2");
+    assertTrue(repo.deleteUser(" YUser ", "2"));
+    assertNull(repo.find("yuser"));
+    assertEquals(0, repo.listAll().size());
     // null-ы
     assertFalse(repo.deleteUser(null, "1"));
     assertFalse(repo.deleteUser("xuser", null));
@@ -164,4 +198,165 @@ public class UsersRepoTest {
     // повторное назначение должно давать Conflict
     assertThrows(RepoExceptions.Conflict.class, () -> repo.addAdmin("alice", "p", "bob"));
   }
+
+  @Test
+  @DisplayName("registerAll: валидные записи регистрируются, ошибки возвращаются по индексам")
+  void registerAllReportsFailuresPerRecord() {
+    repo.register("existing", "E", "E", "p");
+
+    BulkRegistration result =
+        repo.registerAll(
+            Stream.of(
+                new BulkRegistration.Entry(" Alice ", "A", "A", "pa"),
+                new BulkRegistration.Entry("1bad", "B", "B", "pb"),
+                new BulkRegistration.Entry("existing", "C", "C", "pc"),
+                new BulkRegistration.Entry("alice", "D", "D", "pd"),
+                new BulkRegistration.Entry("carol", "C", "C", " "),
+                new BulkRegistration.Entry("bob", "B", "B", "pb")));
+
+    List<User> registered = result.getRegistered();
+    assertEquals(2, registered.size());
+    assertEquals("alice", registered.get(0).login);
+    assertEquals("bob", registered.get(1).login);
+    assertEquals(registered.get(0).id + 1, registered.get(1).id);
+
+    assertEquals(4, result.getFailures().size());
+    assertEquals(1, result.getFailures().get(0).index());
+    assertEquals(2, result.getFailures().get(1).index());
+    assertEquals(3, result.getFailures().get(2).index());
+    assertEquals(4, result.getFailures().get(3).index());
+
+    assertNotNull(repo.authenticate("alice", "pa"));
+    assertNotNull(repo.authenticate("bob", "pb"));
+    assertNull(repo.find("carol"));
+
+    // обычная регистрация продолжает нумерацию после блока
+    User next = repo.register("dave", "D", "D", "pd");
+    assertEquals(registered.get(1).id + 1, next.id);
+  }
+
+  @Test
+  @DisplayName("registerAll: запись с пустым паролем не занимает логин для следующей записи")
+  void registerAll_blankPasswordDoesNotTakeLogin() {
+    BulkRegistration result =
+        repo.registerAll(
+            Stream.of(
+                new BulkRegistration.Entry("carol", "C", "C", " "),
+                new BulkRegistration.Entry("Carol", "C", "C", "pc"),
+                new BulkRegistration.Entry("carol", "C", "C", "other")));
+
+    assertEquals(1, result.getRegistered().size());
+    assertNotNull(repo.authenticate("carol", "pc"));
+    assertEquals(2, result.getFailures().size());
+    assertEquals("Password cannot be null or blank", result.getFailures().get(0).reason());
+    assertEquals(2, result.getFailures().get(1).index());
+    assertEquals("Duplicate login in batch", result.getFailures().get(1).reason());
+  }
+
+  @Test
+  @DisplayName("verify: согласованный репозиторий — проблем нет")
+  void verify_consistentRepo() {
+    User a = repo.register("alice", "A", "A", "pa");
+    a.wallet.addTransaction(100, "salary", Transaction.Type.INCOME);
+    a.wallet.addTransaction(30, "food", Transaction.Type.EXPENSE);
+    repo.register("bob", "B", "B", "pb");
+    repo.markClean(repo.getDirtyIds());
+
+    Verification v = repo.verify(true);
+    assertTrue(v.isConsistent());
+    assertEquals(2, v.getCheckedUsers());
+    assertEquals(2, v.getCheckedWallets());
+    assertTrue(repo.getDirtyIds().isEmpty());
+  }
+
+  @Test
+  @DisplayName("verify: неверные агрегаты кошелька пересчитываются, пользователь помечается dirty")
+  void verify_repairsWalletAggregates() {
+    List<Transaction> list =
+        new ArrayList<>(
+            List.of(
+                new Transaction(100, "salary", Transaction.Type.INCOME),
+                new Transaction(30, "food", Transaction.Type.EXPENSE)));
+    Wallet.Totals wrong = new Wallet.Totals(100, 0, 100, Map.of("salary", 100.0), Map.of());
+    Wallet w = new Wallet(list, wrong);
+    repo.restore(User.restore(5, "carol", "C", "C", User.hashPassword("pc"), null, w));
+
+    Verification report = repo.verify(false);
+    assertEquals(1, report.getProblems().size());
+    assertFalse(report.isRepaired());
+    assertEquals(100.0, w.getBalance(), 0.0);
+
+    Verification v = repo.verify(true);
+    assertEquals(5L, v.getProblems().get(0).id());
+    assertTrue(v.isRepaired());
+    assertEquals(70.0, w.getBalance(), 0.0);
+    assertEquals(30.0, w.getSpentByCategory("food"), 0.0);
+    assertTrue(repo.getDirtyIds().contains(5L));
+    assertTrue(repo.verify(true).isConsistent());
+  }
+
+  @Test
+  @DisplayName("verify: индексы по логину и id и nextId восстанавливаются")
+  void verify_repairsIndexesAndNextId() throws ReflectiveOperationException {
+    User a = repo.register("alice", "A", "A", "pa");
+    User b = repo.register("bob", "B", "B", "pb");
+    Field byId = UsersRepo.class.getDeclaredField("byId");
+    byId.setAccessible(true);
+    @SuppressWarnings("unchecked")
+    Map<Long, User> ids = (Map<Long, User>) byId.get(repo);
+    ids.remove(b.id);
+    ids.put(99L, a);
+    Field nextId = UsersRepo.class.getDeclaredField("nextId");
+    nextId.setAccessible(true);
+    nextId.setLong(repo, 2L);
+
+    Verification v = repo.verify(true);
+    assertEquals(3, v.getProblems().size());
+    assertTrue(v.isRepaired());
+    assertSame(b, repo.findById(b.id));
+    assertNull(repo.findById(99L));
+    assertEquals(3L, repo.getNextId());
+    assertTrue(repo.verify(false).isConsistent());
+  }
+
+  @Test
+  @DisplayName("merge: изменённые заменяются, новые добавляются, отсутствующие удаляются")
+  void merge_replacesOnlyChangedUsers() {
+    UsersRepo live = new UsersRepo();
+    User a = live.register("alice", "A", "A", "pa");
+    User b = live.register("bob", "B", "B", "pb");
+    live.register("dave", "D", "D", "pd");
+
+    UsersRepo fresh = new UsersRepo();
+    fresh.restore(User.fromHash(a.id, "alice", "A", "A", a.getPasswordHash()));
+    User b2 = User.fromHash(b.id, "bob", "B", "B", b.getPasswordHash());
+    b2.wallet.addTransaction(10, "salary", Transaction.Type.INCOME);
+    fresh.restore(b2);
+    fresh.restore(User.fromHash(7, "carol", "C", "C", a.getPasswordHash()));
+
+    assertEquals(Set.of("bob", "carol", "dave"), live.merge(fresh));
+    assertSame(a, live.find("alice"));
+    assertSame(b2, live.find("bob"));
+    assertNull(live.find("dave"));
+    assertEquals(8, live.getNextId());
+    assertTrue(live.merge(fresh).isEmpty());
+  }
+
+  @Test
+  @DisplayName("listAllUsers: логин из 32 символов печатается целиком, колонки не съезжают")
+  void listAllUsers_printsLongestLoginWhole() {
+    String login = "a" + "b".repeat(30) + "z";
+    repo.restore(User.fromHash(7, login, "Name", "Surname", "hash"));
+    PrintStream original = System.out;
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(out, true, StandardCharsets.UTF_8));
+    try {
+      repo.listAllUsers();
+    } finally {
+      System.setOut(original);
+    }
+    String[] lines = out.toString(StandardCharsets.UTF_8).split(System.lineSeparator());
+    String row = Stream.of(lines).filter(l -> l.contains(login)).findFirst().orElseThrow();
+    assertEquals(lines[0].indexOf("Name"), row.indexOf("Name"));
+  }
 }
@@ -0,0 +1,114 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.example.repo.UsersRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the background AutoSaver.
+ *
+ * <p>Tests cover coalescing of change notifications, the maximum delay under a continuous stream of
+ * changes, the final flush on close and the time bound of that flush.
+ *
+ * @see org.example.storage.AutoSaver
+ */
+public class AutoSaverTest {
+
+  @Test
+  @DisplayName("Много изменений подряд сливаются в одно сохранение")
+  void notifications_areCoalesced() {
+    AtomicInteger saves = new AtomicInteger();
+    AutoSaver saver =
+        new AutoSaver(saves::incrementAndGet, Duration.ofMillis(200), Duration.ofSeconds(10), 1000);
+    for (int i = 0; i < 100; i++) {
+      saver.notifyChanged();
+    }
+    assertTrue(saver.flush(Duration.ofSeconds(5)));
+    assertTrue(saves.get() >= 1 && saves.get() < 100, "saves: " + saves.get());
+    assertTrue(saver.close(Duration.ofSeconds(1)));
+  }
+
+  @Test
+  @DisplayName("При непрерывных изменениях сохранение происходит не позже maxDelay")
+  void continuousChanges_areSavedAfterMaxDelay() throws InterruptedException {
+    AtomicInteger saves = new AtomicInteger();
+    AutoSaver saver =
+        new AutoSaver(saves::incrementAndGet, Duration.ofMillis(100), Duration.ofMillis(150), 1000);
+    long end = System.nanoTime() + Duration.ofMillis(800).toNanos();
+    while (System.nanoTime() < end) {
+      saver.notifyChanged(); // never quiet for 100 ms
+      Thread.sleep(10);
+    }
+    assertTrue(saves.get() >= 1, "max delay must force a save");
+    saver.close(Duration.ofSeconds(1));
+  }
+
+  @Test
+  @DisplayName("close: несохранённые изменения сохраняются до остановки")
+  void close_flushesPendingChanges() {
+    AtomicInteger saves = new AtomicInteger();
+    AutoSaver saver =
+        new AutoSaver(saves::incrementAndGet, Duration.ofSeconds(30), Duration.ofSeconds(60), 1000);
+    saver.notifyChanged();
+    assertEquals(0, saves.get());
+    assertTrue(saver.close(Duration.ofSeconds(5)));
+    assertEquals(1, saves.get());
+  }
+
+  @Test
+  @DisplayName("close: финальное сохранение ограничено по времени")
+  void close_isBoundedInTime() {
+    AutoSaver saver =
+        new AutoSaver(() -> sleep(3000), Duration.ofMillis(10), Duration.ofMillis(10), 1000);
+    saver.notifyChanged();
+    long start = System.nanoTime();
+    assertFalse(saver.close(Duration.ofMillis(200)));
+    assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+  }
+
+  @Test
+  @DisplayName("Ошибка сохранения считается и не теряет изменения")
+  void failedSave_isCounted() {
+    AutoSaver saver =
+        new AutoSaver(
+            () -> {
+              throw new IOException("disk full");
+            },
+            Duration.ofMillis(10),
+            Duration.ofMillis(10),
+            1000);
+    saver.notifyChanged();
+    assertFalse(saver.flush(Duration.ofSeconds(2)));
+    assertTrue(saver.getFailures() >= 1);
+    assertEquals(0, saver.getSaves());
+    saver.close(Duration.ofMillis(100));
+  }
+
+  @Test
+  @DisplayName("AutoSaver как RepoListener получает изменения репозитория")
+  void repoChanges_triggerSave() {
+    AtomicInteger saves = new AtomicInteger();
+    AutoSaver saver =
+        new AutoSaver(saves::incrementAndGet, Duration.ofMillis(10), Duration.ofMillis(50), 1000);
+    UsersRepo repo = new UsersRepo();
+    repo.addListener(saver);
+    repo.register("alice", "A", "A", "pa");
+    repo.find("alice").wallet.setBudget("food", 10);
+    assertTrue(saver.flush(Duration.ofSeconds(5)));
+    assertTrue(saves.get() >= 1);
+    saver.close(Duration.ofSeconds(1));
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
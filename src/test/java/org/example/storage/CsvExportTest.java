@@ -0,0 +1,118 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the streaming CSV export of transactions.
+ *
+ * <p>Tests validate that:
+ *
+ * <ul>
+ *   <li><b>Order:</b> Users by id and transactions in wallet order, the same bytes whatever the
+ *       block size
+ *   <li><b>Round-trip:</b> An exported file imported into the same users gives the same wallets
+ *   <li><b>Filters:</b> Only the transactions of the given type and category of one user
+ * </ul>
+ *
+ * @see org.example.storage.CsvExport
+ */
+public class CsvExportTest {
+
+  @TempDir Path tmp;
+
+  private static UsersRepo sampleRepo() {
+    UsersRepo repo = new UsersRepo();
+    for (int i = 0; i < 5; i++) {
+      User u = repo.register("user" + i, "N", "S", "p");
+      for (int j = 0; j < 37 * i; j++) {
+        u.wallet.addTransaction(j + 0.5, j % 3 == 0 ? "salary" : "food, \"fresh\"", typeOf(j));
+      }
+    }
+    return repo;
+  }
+
+  private static Transaction.Type typeOf(int j) {
+    return j % 3 == 0 ? Transaction.Type.INCOME : Transaction.Type.EXPENSE;
+  }
+
+  @Test
+  @DisplayName("exportAll: детерминированный порядок при любом размере блока")
+  void exportAll_isDeterministic() throws IOException {
+    UsersRepo repo = sampleRepo();
+    List<User> users = List.of(repo.find("user0"), repo.find("user1"), repo.find("user2"));
+    Path small = tmp.resolve("small.csv");
+    Path large = tmp.resolve("large.csv");
+    Path all = tmp.resolve("all.csv");
+
+    assertEquals(111, CsvExport.export(small, users, CsvExport.Filter.ALL, 7));
+    assertEquals(111, CsvExport.export(large, users, CsvExport.Filter.ALL, 1000));
+    assertEquals(370, CsvExport.exportAll(all, repo, CsvExport.Filter.ALL));
+
+    assertEquals(Files.readAllLines(large), Files.readAllLines(small));
+    List<String> lines = Files.readAllLines(small);
+    assertEquals("login,type,amount,title", lines.get(0));
+    assertEquals("user1,income,0.5,salary", lines.get(1));
+    assertEquals("user1,expense,1.5,\"food, \"\"fresh\"\"\"", lines.get(2));
+    assertEquals("user2,income,0.5,salary", lines.get(38));
+    assertFalse(Files.exists(AtomicFiles.tempFor(small)));
+  }
+
+  @Test
+  @DisplayName("exportAll → CsvImport: те же кошельки")
+  void export_thenImport_givesSameWallets() throws IOException {
+    UsersRepo repo = sampleRepo();
+    Path file = tmp.resolve("all.csv");
+    CsvExport.exportAll(file, repo, CsvExport.Filter.ALL);
+
+    UsersRepo copy = new UsersRepo();
+    for (int i = 0; i < 5; i++) {
+      copy.register("user" + i, "N", "S", "p");
+    }
+    ImportResult r = CsvImport.importFile(file, copy, null);
+
+    assertEquals(370, r.getImported());
+    assertFalse(r.hasRejects());
+    for (int i = 0; i < 5; i++) {
+      List<Transaction> expected = repo.find("user" + i).wallet.getTransactions();
+      List<Transaction> actual = copy.find("user" + i).wallet.getTransactions();
+      assertEquals(expected.size(), actual.size());
+      for (int j = 0; j < expected.size(); j++) {
+        assertEquals(expected.get(j).amount, actual.get(j).amount, 0.0);
+        assertEquals(expected.get(j).title, actual.get(j).title);
+        assertEquals(expected.get(j).type, actual.get(j).type);
+      }
+      assertEquals(repo.find("user" + i).wallet.totals(), copy.find("user" + i).wallet.totals());
+    }
+  }
+
+  @Test
+  @DisplayName("exportUser: фильтр по типу и категории")
+  void exportUser_filtersByTypeAndCategory() throws IOException {
+    UsersRepo repo = sampleRepo();
+    Path file = tmp.resolve("user3.csv");
+
+    long rows =
+        CsvExport.exportUser(
+            file, repo.find("user3"), new CsvExport.Filter(Transaction.Type.INCOME, "salary"));
+
+    assertEquals(37, rows);
+    List<String> lines = Files.readAllLines(file);
+    assertEquals(38, lines.size());
+    assertTrue(lines.stream().skip(1).allMatch(l -> l.startsWith("user3,income,")));
+    assertEquals(
+        0,
+        CsvExport.exportUser(
+            file, repo.find("user3"), new CsvExport.Filter(Transaction.Type.EXPENSE, "salary")));
+    assertEquals(List.of("login,type,amount,title"), Files.readAllLines(file));
+  }
+}
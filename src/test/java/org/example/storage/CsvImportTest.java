@@ -0,0 +1,135 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the streaming CSV import of transactions.
+ *
+ * <p>Tests validate that:
+ *
+ * <ul>
+ *   <li><b>Import:</b> Rows spread over many small chunks reach the wallets in file order, with a
+ *       BOM, a header, CRLF line ends and quoted titles
+ *   <li><b>Rejects:</b> Malformed rows and rows of unknown users go to the reject file with their
+ *       line numbers and reasons, the rest is imported
+ *   <li><b>Long lines:</b> A line longer than a chunk and a last line without a line end are read
+ * </ul>
+ *
+ * @see org.example.storage.CsvImport
+ */
+public class CsvImportTest {
+
+  @TempDir Path tmp;
+
+  private static UsersRepo repo(String... logins) {
+    UsersRepo repo = new UsersRepo();
+    for (String login : logins) {
+      repo.register(login, "N", "S", "p");
+    }
+    return repo;
+  }
+
+  private Path csv(String text) throws IOException {
+    Path file = tmp.resolve("bank.csv");
+    Files.writeString(file, text, StandardCharsets.UTF_8);
+    return file;
+  }
+
+  @Test
+  @DisplayName("importFile: много маленьких кусков, порядок файла, BOM, заголовок, кавычки")
+  void importsRowsInFileOrder() throws IOException {
+    UsersRepo repo = repo("alice", "bob");
+    StringBuilder sb = new StringBuilder("\uFEFFlogin,type,amount,title\r\n");
+    for (int i = 1; i <= 500; i++) {
+      sb.append(i % 2 == 0 ? "alice" : "BOB")
+          .append(i % 3 == 0 ? ",income," : ",expense,")
+          .append(i)
+          .append(i % 5 == 0 ? ",\"coffee, \"\"big\"\"\"" : ",food")
+          .append("\r\n");
+    }
+    Path rejects = CsvImport.rejectFileFor(csv(sb.toString()));
+    assertEquals(tmp.resolve("bank.rejects.csv"), rejects);
+
+    ImportResult r = CsvImport.importFile(tmp.resolve("bank.csv"), repo, rejects, 64, 1);
+
+    assertEquals(500, r.getLines());
+    assertEquals(500, r.getImported());
+    assertFalse(r.hasRejects());
+    assertEquals(List.of("line,reason,record"), Files.readAllLines(rejects));
+    User alice = repo.find("alice");
+    List<Transaction> txs = alice.wallet.getTransactions();
+    assertEquals(250, txs.size());
+    for (int k = 0; k < txs.size(); k++) {
+      assertEquals(2.0 * (k + 1), txs.get(k).amount, 0.0);
+    }
+    assertEquals("coffee, \"big\"", txs.get(4).title);
+    assertEquals(Transaction.Type.INCOME, txs.get(2).type);
+    assertNull(alice.wallet.checkTotals());
+    assertTrue(repo.getDirtyIds().contains(alice.id));
+    assertEquals(250, repo.find("bob").wallet.getTransactions().size());
+  }
+
+  @Test
+  @DisplayName("importFile: ошибочные строки и неизвестные пользователи уходят в файл отказов")
+  void rejectsGoToRejectFile() throws IOException {
+    UsersRepo repo = repo("alice");
+    Path file =
+        csv(
+            "alice,income,100,salary\n"
+                + "alice,gift,5,x\n"
+                + "\n"
+                + "alice,expense,abc,food\n"
+                + "alice,expense,-3,food\n"
+                + "carol,expense,3,food\n"
+                + "alice,expense,3\n"
+                + "alice,expense,3,\"open\n"
+                + "alice,expense,\"2,5\",food\n");
+    Path rejects = tmp.resolve("out").resolve("rejects.csv");
+
+    ImportResult r = CsvImport.importFile(file, repo, rejects);
+
+    assertEquals(8, r.getLines());
+    assertEquals(2, r.getImported());
+    assertEquals(6, r.getRejected());
+    assertEquals(97.5, repo.find("alice").wallet.getBalance(), 1e-9);
+    List<String> lines = Files.readAllLines(rejects);
+    assertEquals(
+        List.of(
+            "line,reason,record",
+            "2,Unknown type: gift,\"alice,gift,5,x\"",
+            "4,Invalid amount,\"alice,expense,abc,food\"",
+            "5,Amount must be positive,\"alice,expense,-3,food\"",
+            "6,Unknown user: carol,\"carol,expense,3,food\"",
+            "7,\"Expected 4 fields, found 3\",\"alice,expense,3\"",
+            "8,Unterminated quote,\"alice,expense,3,\"\"open\""),
+        lines);
+  }
+
+  @Test
+  @DisplayName("importFile: строка длиннее куска и последняя строка без перевода строки")
+  void longLinesAndLastLine() throws IOException {
+    UsersRepo repo = repo("alice");
+    String title = "t".repeat(1000);
+    Path file = csv("alice,expense,1," + title + "\nalice,income,2,last");
+
+    ImportResult r = CsvImport.importFile(file, repo, null, 16, 2);
+
+    assertEquals(2, r.getImported());
+    assertNull(r.getRejectFile());
+    List<Transaction> txs = new ArrayList<>(repo.find("alice").wallet.getTransactions());
+    assertEquals(title, txs.get(0).title);
+    assertEquals("last", txs.get(1).title);
+  }
+}
@@ -0,0 +1,54 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the DirectoryWatcher.
+ *
+ * <p>Tests cover reporting of created and modified files by name and clearing of the reported
+ * changes.
+ *
+ * @see org.example.storage.DirectoryWatcher
+ */
+public class DirectoryWatcherTest {
+
+  @TempDir Path tmp;
+
+  @Test
+  @DisplayName("Изменённые файлы сообщаются по имени, сообщённые изменения сбрасываются")
+  void changedFiles_areReportedByName() throws IOException, InterruptedException {
+    try (DirectoryWatcher watcher = DirectoryWatcher.start(tmp)) {
+      Files.writeString(tmp.resolve("finance-data.json"), "{}", StandardCharsets.UTF_8);
+      Files.writeString(tmp.resolve("other.txt"), "x", StandardCharsets.UTF_8);
+      Set<Path> seen = collect(watcher, 2);
+      assertEquals(Set.of(Paths.get("finance-data.json"), Paths.get("other.txt")), seen);
+
+      // late events of the writes above are drained, then only the new file is reported
+      while (!watcher.changed().isEmpty()) {
+        Thread.sleep(200);
+      }
+      Files.writeString(tmp.resolve("third.txt"), "y", StandardCharsets.UTF_8);
+      assertEquals(Set.of(Paths.get("third.txt")), collect(watcher, 1));
+    }
+  }
+
+  private static Set<Path> collect(DirectoryWatcher watcher, int files)
+      throws InterruptedException {
+    Set<Path> seen = new HashSet<>();
+    long deadline = System.nanoTime() + 20_000_000_000L; // polling watch services are slow
+    while (seen.size() < files && System.nanoTime() < deadline) {
+      seen.addAll(watcher.changed());
+      Thread.sleep(50);
+    }
+    return seen;
+  }
+}
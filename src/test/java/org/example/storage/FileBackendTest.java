@@ -0,0 +1,87 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+import org.example.model.Transaction;
+import org.example.repo.UsersRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the file layouts behind the {@link StorageBackend} interface.
+ *
+ * <p>Tests validate that:
+ *
+ * <ul>
+ *   <li><b>Round-trip:</b> binary, compressed, segments and sharded save and load the repository
+ *       and mark the saved users clean
+ *   <li><b>Removing data:</b> saving an empty repository leaves no users behind
+ *   <li><b>Own repository:</b> lazy and mapped storages save only the repository they opened
+ * </ul>
+ *
+ * @see org.example.storage.FileBackend
+ */
+public class FileBackendTest {
+
+  @TempDir Path tmp;
+
+  @Test
+  @DisplayName("save → load для binary, compressed, segments, sharded; пустой репозиторий стирает")
+  void fileLayouts_roundTrip() throws IOException {
+    List<StorageBackend> backends =
+        List.of(
+            FileBackend.binary(tmp.resolve("finance-data.bin")),
+            FileBackend.compressed(tmp.resolve("finance-data.fz")),
+            FileBackend.segments(tmp.resolve("segments")),
+            FileBackend.sharded(tmp.resolve("shards")));
+    for (StorageBackend backend : backends) {
+      assertFalse(backend.load().getIsPreviousDataExists(), backend.describe());
+
+      UsersRepo repo = new UsersRepo();
+      repo.register("alice", "A", "A", "pa")
+          .wallet
+          .addTransaction(10, "salary", Transaction.Type.INCOME);
+      repo.register("bob", "B", "B", "pb");
+      backend.saveChanges(repo);
+      assertTrue(repo.getDirtyIds().isEmpty(), backend.describe());
+
+      repo.deleteUser("bob");
+      backend.saveChanges(repo);
+      UsersRepo loaded = backend.load();
+      assertTrue(loaded.getIsPreviousDataExists(), backend.describe());
+      assertEquals(10.0, loaded.find("alice").wallet.getBalance(), 0.0);
+      assertNull(loaded.find("bob"), backend.describe());
+      assertEquals(3L, loaded.getNextId());
+
+      backend.save(new UsersRepo());
+      assertTrue(backend.load().listAll().isEmpty(), backend.describe());
+    }
+  }
+
+  @Test
+  @DisplayName("lazy/mapped: сохраняется только открытый ими репозиторий")
+  void ownRepositoryStorages_saveOnlyTheirRepository() throws IOException {
+    try (StorageMapped mapped = StorageMapped.open(tmp.resolve("mapped"))) {
+      StorageBackend backend = mapped;
+      UsersRepo repo = backend.load();
+      repo.register("alice", "A", "A", "pa");
+      backend.saveChanges(repo);
+      assertTrue(repo.getDirtyIds().isEmpty());
+      assertThrows(IOException.class, () -> backend.save(new UsersRepo()));
+    }
+    try (StorageMapped reopened = StorageMapped.open(tmp.resolve("mapped"))) {
+      assertNotNull(reopened.load().find("alice"));
+    }
+    try (StorageLazy lazy = StorageLazy.open(tmp.resolve("lazy"))) {
+      lazy.load().register("bob", "B", "B", "pb");
+      lazy.saveChanges(lazy.load());
+    }
+    try (StorageLazy reopened = StorageLazy.open(tmp.resolve("lazy"))) {
+      assertNotNull(reopened.load().find("bob"));
+    }
+  }
+}
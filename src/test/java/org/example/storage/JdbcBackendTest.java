@@ -0,0 +1,137 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the embedded database backend (H2 in a temporary directory).
+ *
+ * <p>Tests validate that:
+ *
+ * <ul>
+ *   <li><b>Round-trip:</b> Users, roles, budgets, transactions and the id counter survive save/load
+ *   <li><b>Incremental save:</b> Only dirty users are written, new transactions are appended and
+ *       deleted users are removed
+ *   <li><b>Queries:</b> Sums by category, balance and single users are read by SQL without loading
+ *       the repository
+ * </ul>
+ *
+ * @see org.example.storage.JdbcBackend
+ */
+public class JdbcBackendTest {
+
+  @TempDir Path tmp;
+
+  // a fresh database per test, its password is set when it is created
+  private final String password = UUID.randomUUID().toString();
+
+  private String url() {
+    return "jdbc:h2:" + tmp.resolve("finance").toAbsolutePath();
+  }
+
+  private JdbcBackend open() throws IOException {
+    return JdbcBackend.open(url(), "sa", password);
+  }
+
+  private static UsersRepo sampleRepo() {
+    UsersRepo repo = new UsersRepo();
+    User alice = repo.register("alice", "Алиса", "A", "pa");
+    alice.wallet.addTransaction(1000.25, "salary", Transaction.Type.INCOME);
+    alice.wallet.addTransaction(0.1, "кофе", Transaction.Type.EXPENSE);
+    alice.wallet.addTransaction(5, null, Transaction.Type.EXPENSE);
+    alice.wallet.addTransaction(2.5, "кофе", Transaction.Type.EXPENSE);
+    alice.wallet.setBudget("кофе", 30);
+    User bob = repo.register("bob", "B", null, "pb");
+    repo.addAdmin("alice", "pa", "bob");
+    bob.wallet.addTransaction(12, "salary", Transaction.Type.INCOME);
+    repo.register("carol", "C", "C", "pc");
+    repo.deleteUser("carol");
+    return repo;
+  }
+
+  @Test
+  @DisplayName("save → load: все данные и nextId восстанавливаются")
+  void roundTrip_restoresEverything() throws IOException {
+    try (JdbcBackend db = open()) {
+      assertFalse(db.load().getIsPreviousDataExists());
+      UsersRepo repo = sampleRepo();
+      db.save(repo);
+      assertTrue(repo.getDirtyIds().isEmpty());
+    }
+    try (JdbcBackend db = open()) {
+      UsersRepo loaded = db.load();
+      assertTrue(loaded.getIsPreviousDataExists());
+      User alice = loaded.find("alice");
+      assertEquals("Алиса", alice.name);
+      assertTrue(alice.checkPassword("pa"));
+      assertTrue(alice.hasRole(User.Role.SUPER_ADMIN));
+      assertEquals(992.65, alice.wallet.getBalance(), 1e-9);
+      assertNull(alice.wallet.transactions.get(2).title);
+      assertEquals(Map.of("кофе", 30.0), alice.wallet.getBudgets());
+      User bob = loaded.find("bob");
+      assertNull(bob.surname);
+      assertTrue(bob.hasRole(User.Role.ADMIN));
+      assertNull(loaded.find("carol"));
+      assertEquals(4L, loaded.getNextId());
+    }
+  }
+
+  @Test
+  @DisplayName("saveChanges: пишутся только изменённые пользователи и новые транзакции")
+  void saveChanges_writesDirtyUsersOnly() throws IOException {
+    try (JdbcBackend db = open()) {
+      UsersRepo repo = sampleRepo();
+      db.save(repo);
+      repo.find("bob").wallet.addTransaction(3, "taxi", Transaction.Type.EXPENSE);
+      repo.deleteUser("alice", "pa");
+      User dave = repo.register("dave", "D", "D", "pd");
+      dave.wallet.setBudget("food", 100);
+      assertEquals(3, repo.getDirtyIds().size());
+      db.saveChanges(repo);
+      assertTrue(repo.getDirtyIds().isEmpty());
+    }
+    try (JdbcBackend db = open()) {
+      UsersRepo loaded = db.load();
+      assertEquals(
+          List.of("bob", "dave"), loaded.listAll().stream().map(u -> u.login).sorted().toList());
+      User bob = loaded.find("bob");
+      assertEquals(2, bob.wallet.transactions.size());
+      assertEquals("taxi", bob.wallet.transactions.get(1).title);
+      assertEquals(100.0, loaded.find("dave").wallet.getBudgets().get("food"), 0.0);
+      assertEquals(5L, loaded.getNextId());
+    }
+  }
+
+  @Test
+  @DisplayName("Статистика и поиск пользователя считаются SQL-запросами")
+  void queries_matchWallet() throws IOException {
+    UsersRepo repo = sampleRepo();
+    try (JdbcBackend db = open()) {
+      db.save(repo);
+      User alice = repo.find("alice");
+      Map<String, Double> expenses = db.expensesByCategory("alice");
+      assertEquals(List.of("кофе"), expenses.keySet().stream().filter(k -> k != null).toList());
+      assertEquals(alice.wallet.getSpentByCategory("кофе"), expenses.get("кофе"), 1e-9);
+      assertEquals(5.0, expenses.get(null), 0.0);
+      assertEquals(Map.of("salary", 1000.25), db.incomesByCategory("alice"));
+      assertEquals(alice.wallet.getBalance(), db.balance("alice"), 1e-9);
+      assertEquals(0.0, db.balance("nobody"), 0.0);
+
+      User bob = db.findUser("bob");
+      assertTrue(bob.hasRole(User.Role.ADMIN));
+      assertEquals(12.0, bob.wallet.getBalance(), 0.0);
+      assertNull(db.findUser("carol"));
+    }
+  }
+}
@@ -0,0 +1,379 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the write-ahead Journal.
+ *
+ * <p>Tests cover:
+ *
+ * <ul>
+ *   <li><b>Recovery:</b> Replaying journaled operations on top of a missing or existing snapshot
+ *   <li><b>Group commit:</b> Entries reach the file only when a group is full or on flush
+ *   <li><b>Checkpoint:</b> Compaction of the journal into the snapshot, none inside a bulk change;
+ *       a journal left behind by a crash after the snapshot was replaced is not replayed again
+ *   <li><b>Autosave:</b> A bulk change larger than the backlog of AutoSaver does not block its
+ *       flushes of the journal
+ *   <li><b>Torn tail:</b> A partially written last line is ignored and cut off on open
+ *   <li><b>Reload:</b> A snapshot replaced by another program is merged user by user
+ *   <li><b>Shared use:</b> Instances on the same files see each other's changes, only the last one
+ *       compacts the journal; ids are never given out twice and the changes of an account whose
+ *       login was taken by another instance are rejected
+ * </ul>
+ *
+ * @see org.example.storage.Journal
+ */
+public class JournalTest {
+
+  @TempDir Path tmp;
+
+  @Test
+  @DisplayName("recover: все операции из журнала восстанавливаются без снапшота (крэш до выхода)")
+  void recover_replaysAllOperations() throws IOException {
+    Path snapshot = tmp.resolve("finance-data.json");
+    Path file = tmp.resolve("finance-data.journal");
+
+    UsersRepo repo = Journal.recover(snapshot, file);
+    Journal journal = Journal.open(snapshot, file, repo);
+    repo.register("rooter", "R", "R", "r");
+    repo.register("alice", "A", "A", "pa");
+    repo.register("bob", "B", "B", "pb");
+    repo.register("ghost", "G", "G", "pg");
+    repo.find("alice").wallet.addTransaction(500, "salary", Transaction.Type.INCOME);
+    repo.find("alice").wallet.setBudget("food", 50);
+    repo.transfer("alice", "bob", 100, "gift");
+    repo.addAdmin("rooter", "r", "bob");
+    repo.deleteUser("ghost");
+    journal.flush(); // no checkpoint, the snapshot is never written
+
+    assertFalse(Files.exists(snapshot));
+
+    UsersRepo recovered = Journal.recover(snapshot, file);
+    assertTrue(recovered.getIsPreviousDataExists());
+    User alice = recovered.find("alice");
+    User bob = recovered.find("bob");
+    assertNotNull(alice);
+    assertTrue(alice.checkPassword("pa"));
+    assertEquals(400.0, alice.wallet.getBalance(), 1e-9);
+    assertEquals(50.0, alice.wallet.getBudgets().get("food"), 1e-9);
+    assertEquals(100.0, bob.wallet.sumIncome(), 1e-9);
+    assertEquals(1, bob.wallet.getTransactions().size(), "transfer must be replayed only once");
+    assertTrue(bob.hasRole(User.Role.ADMIN));
+    assertTrue(recovered.find("rooter").hasRole(User.Role.SUPER_ADMIN));
+    assertNull(recovered.find("ghost"));
+
+    // the next id continues after the replayed users
+    assertEquals(5L, recovered.register("carol", "C", "C", "pc").id);
+  }
+
+  @Test
+  @DisplayName("group commit: записи попадают в файл только когда группа заполнена")
+  void append_isWrittenInGroups() throws IOException {
+    Path snapshot = tmp.resolve("finance-data.json");
+    Path file = tmp.resolve("finance-data.journal");
+    UsersRepo repo = new UsersRepo();
+    repo.register("alice", "A", "A", "pa");
+
+    try (Journal journal = Journal.open(snapshot, file, repo, 3, 1000)) {
+      User alice = repo.find("alice");
+      alice.wallet.setBudget("food", 10);
+      alice.wallet.setBudget("taxi", 20);
+      assertEquals(1, Files.readAllLines(file, StandardCharsets.UTF_8).size()); // the header
+
+      alice.wallet.setBudget("books", 30);
+      assertEquals(4, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+    }
+  }
+
+  @Test
+  @DisplayName("checkpoint: журнал сжимается в снапшот и становится пустым")
+  void checkpoint_compactsIntoSnapshot() throws IOException {
+    Path snapshot = tmp.resolve("finance-data.json");
+    Path file = tmp.resolve("finance-data.journal");
+    UsersRepo repo = Journal.recover(snapshot, file);
+    Journal journal = Journal.open(snapshot, file, repo);
+    repo.register("alice", "A", "A", "pa");
+    repo.find("alice").wallet.setBudget("food", 10);
+
+    journal.close();
+
+    assertTrue(Files.exists(snapshot));
+    assertCompacted(file);
+    UsersRepo loaded = Journal.recover(snapshot, file);
+    assertEquals(10.0, loaded.find("alice").wallet.getBudgets().get("food"), 1e-9);
+  }
+
+  @Test
+  @DisplayName("checkpoint: журнал, не очищенный после замены снапшота, не применяется повторно")
+  void crashAfterSnapshotReplace_doesNotReplayTwice() throws IOException {
+    Path snapshot = tmp.resolve("finance-data.json");
+    Path file = tmp.resolve("finance-data.journal");
+    UsersRepo repo = Journal.recover(snapshot, file);
+    Journal journal = Journal.open(snapshot, file, repo);
+    repo.register("alice", "A", "A", "pa");
+    repo.find("alice").wallet.addTransaction(100, "salary", Transaction.Type.INCOME);
+    journal.checkpoint();
+    repo.find("alice").wallet.addTransaction(30, "food", Transaction.Type.EXPENSE);
+    journal.flush();
+    byte[] old = Files.readAllBytes(file);
+
+    journal.close();
+    // the process died after the snapshot was replaced, before the journal was emptied
+    Files.write(file, old);
+
+    UsersRepo recovered = Journal.recover(snapshot, file);
+    assertEquals(70.0, recovered.find("alice").wallet.getBalance(), 1e-9);
+    assertEquals(2, recovered.find("alice").wallet.getTransactions().size());
+
+    // the next checkpoint empties the stale journal, new changes are replayed as usual
+    try (Journal reopened = Journal.open(snapshot, file, recovered, 1, 1000)) {
+      recovered.find("alice").wallet.addTransaction(5, "taxi", Transaction.Type.EXPENSE);
+      assertEquals(65.0, Journal.recover(snapshot, file).find("alice").wallet.getBalance(), 1e-9);
+    }
+    assertEquals(65.0, Journal.recover(snapshot, file).find("alice").wallet.getBalance(), 1e-9);
+  }
+
+  private static void assertCompacted(Path file) throws IOException {
+    List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    assertEquals(1, lines.size());
+    assertTrue(lines.get(0).contains("\"CHECKPOINT\""), lines.get(0));
+  }
+
+  @Test
+  @DisplayName("bulk: без промежуточных checkpoint, записи сброшены в журнал в конце")
+  void bulk_skipsCheckpointsAndFlushesAtTheEnd() throws IOException {
+    Path snapshot = tmp.resolve("finance-data.json");
+    Path file = tmp.resolve("finance-data.journal");
+    UsersRepo repo = new UsersRepo();
+    try (Journal journal = Journal.open(snapshot, file, repo, 1, 2)) {
+      int added =
+          journal.bulk(
+              () -> {
+                User alice = repo.register("alice", "A", "A", "pa");
+                for (int i = 0; i < 10; i++) {
+                  alice.wallet.addTransaction(i + 1, "food", Transaction.Type.EXPENSE);
+                }
+                return 10;
+              });
+      assertEquals(10, added);
+      assertFalse(Files.exists(snapshot));
+      assertEquals(12, Files.readAllLines(file).size());
+      UsersRepo recovered = Journal.recover(snapshot, file);
+      assertEquals(-55.0, recovered.find("alice").wallet.getBalance(), 1e-9);
+    }
+  }
+
+  @Test
+  @DisplayName("bulk с AutoSaver: больше maxPendingChanges изменений не блокирует автосохранение")
+  void bulkLargerThanBacklog_withAutoSaver_finishes() throws Exception {
+    Path snapshot = tmp.resolve("finance-data.json");
+    Path file = tmp.resolve("finance-data.journal");
+    UsersRepo repo = new UsersRepo();
+    User alice = repo.register("alice", "A", "A", "pa");
+    try (Journal journal = Journal.open(snapshot, file, repo);
+        AutoSaver saver =
+            new AutoSaver(journal::flush, Duration.ofMillis(1), Duration.ofMillis(2), 16)) {
+      repo.addListener(saver);
+      AtomicReference<Throwable> failure = new AtomicReference<>();
+      Thread importer =
+          new Thread(
+              () -> {
+                try {
+                  journal.bulk(
+                      () -> {
+                        for (int i = 0; i < 5_000; i++) {
+                          alice.wallet.addTransaction(1, "food", Transaction.Type.EXPENSE);
+                        }
+                        return null;
+                      });
+                } catch (IOException | RuntimeException e) {
+                  failure.set(e);
+                }
+              },
+              "bulk");
+      importer.setDaemon(true); // a deadlocked bulk must not keep the test JVM alive
+      importer.start();
+      importer.join(10_000);
+      assertFalse(importer.isAlive(), "bulk deadlocked with the autosave thread");
+      assertNull(failure.get());
+      assertTrue(saver.flush(Duration.ofSeconds(5)));
+      assertTrue(saver.getSaves() > 0);
+    }
+    assertEquals(-5_000.0, Journal.recover(snapshot, file).find("alice").wallet.getBalance(), 1e-9);
+  }
+
+  @Test
+  @DisplayName("checkpoint: автоматически после checkpointEvery записей")
+  void checkpoint_isTriggeredByEntryCount() throws IOException {
+    Path snapshot = tmp.resolve("finance-data.json");
+    Path file = tmp.resolve("finance-data.journal");
+    UsersRepo repo = new UsersRepo();
+    repo.register("alice", "A", "A", "pa");
+    try (Journal journal = Journal.open(snapshot, file, repo, 1, 2)) {
+      repo.find("alice").wallet.setBudget("food", 10);
+      assertFalse(Files.exists(snapshot));
+      repo.find("alice").wallet.setBudget("taxi", 20);
+      assertTrue(Files.exists(snapshot));
+      assertCompacted(file);
+    }
+  }
+
+  @Test
+  @DisplayName("recover/open: оборванная последняя строка игнорируется и обрезается")
+  void tornTail_isIgnoredAndCut() throws IOException {
+    Path snapshot = tmp.resolve("finance-data.json");
+    Path file = tmp.resolve("finance-data.journal");
+    UsersRepo repo = new UsersRepo();
+    Journal crashed = Journal.open(snapshot, file, repo);
+    repo.register("alice", "A", "A", "pa");
+    crashed.flush(); // the process dies here, the journal is never closed
+    long good = Files.size(file);
+    Files.write(
+        file,
+        "{\"op\":\"BUDGET\",\"login\":\"ali".getBytes(StandardCharsets.UTF_8),
+        StandardOpenOption.APPEND);
+
+    UsersRepo recovered = Journal.recover(snapshot, file);
+    assertNotNull(recovered.find("alice"));
+    assertTrue(recovered.find("alice").wallet.getBudgets().isEmpty());
+
+    try (Journal reopened = Journal.open(snapshot, file, recovered)) {
+      assertEquals(good, Files.size(file));
+    }
+  }
+
+  @Test
+  @DisplayName("openShared: два экземпляра видят изменения друг друга, сжимает последний")
+  void sharedInstances_mergeChangesAndLastOneCompacts() throws IOException {
+    Path snapshot = tmp.resolve("finance-data.json");
+    Path file = tmp.resolve("finance-data.journal");
+    Journal a = Journal.openShared(snapshot, file);
+    Journal b = Journal.openShared(snapshot, file);
+
+    a.getUsersRepo().register("alice", "A", "A", "pa");
+    a.flush();
+    // the registration takes in alice first
+    b.getUsersRepo().register("bob", "B", "B", "pb");
+    assertNotNull(b.getUsersRepo().find("alice"));
+    b.getUsersRepo().find("bob").wallet.addTransaction(100, "salary", Transaction.Type.INCOME);
+    b.flush();
+
+    assertEquals(0, b.sync());
+    assertEquals(2, a.sync());
+    assertEquals(100.0, a.getUsersRepo().find("bob").wallet.getBalance(), 0.0);
+    assertEquals(0, a.sync());
+    assertThrows(IOException.class, b::discard);
+
+    a.close(); // b is still open, the journal is kept
+    assertFalse(Files.exists(snapshot));
+    assertEquals(4, Files.readAllLines(file).size());
+
+    b.close();
+    assertCompacted(file);
+    UsersRepo loaded = Journal.recover(snapshot, file);
+    assertNotNull(loaded.find("alice"));
+    assertEquals(100.0, loaded.find("bob").wallet.getBalance(), 0.0);
+  }
+
+  @Test
+  @DisplayName("openShared: регистрации в двух экземплярах получают разные id")
+  void sharedInstances_neverGiveOutTheSameId() throws IOException {
+    Path snapshot = tmp.resolve("finance-data.json");
+    Path file = tmp.resolve("finance-data.journal");
+    try (Journal a = Journal.openShared(snapshot, file);
+        Journal b = Journal.openShared(snapshot, file)) {
+      // nothing is flushed or synced by hand, the groups are not full
+      User alice = a.getUsersRepo().register("alice", "A", "A", "pa");
+      User bob = b.getUsersRepo().register("bob", "B", "B", "pb");
+      User carol = a.getUsersRepo().register("carol", "C", "C", "pc");
+      assertEquals(3, new HashSet<>(List.of(alice.id, bob.id, carol.id)).size());
+      a.sync();
+      b.sync();
+      assertEquals(bob.id, a.getUsersRepo().find("bob").id);
+      assertEquals(carol.id, b.getUsersRepo().find("carol").id);
+    }
+    UsersRepo loaded = Journal.recover(snapshot, file);
+    assertEquals(3, loaded.listAll().size());
+    assertEquals(4L, loaded.getNextId());
+  }
+
+  @Test
+  @DisplayName("openShared: изменения чужого аккаунта с занятым логином отклоняются")
+  void foreignAccountWithTakenLogin_isRejected() throws IOException {
+    Path snapshot = tmp.resolve("finance-data.json");
+    Path file = tmp.resolve("finance-data.journal");
+    try (Journal a = Journal.openShared(snapshot, file)) {
+      UsersRepo repo = a.getUsersRepo();
+      repo.register("alice", "A", "A", "pa");
+      a.flush();
+      // written by another instance of an older version, which did not see our alice
+      Files.write(
+          file,
+          ("{\"op\":\"REGISTER\",\"id\":7,\"login\":\"alice\",\"hash\":\"x\"}\n"
+                  + "{\"op\":\"TRANSACTION\",\"id\":7,\"login\":\"alice\",\"amount\":50.0,"
+                  + "\"title\":\"salary\",\"type\":\"INCOME\"}\n"
+                  + "{\"op\":\"REGISTER\",\"id\":1,\"login\":\"mallory\",\"hash\":\"x\"}\n")
+              .getBytes(StandardCharsets.UTF_8),
+          StandardOpenOption.APPEND);
+
+      assertEquals(3, a.sync());
+      assertEquals(0.0, repo.find("alice").wallet.getBalance(), 0.0);
+      assertNull(repo.findById(7));
+      assertNull(repo.find("mallory")); // its id is alice's
+      repo.find("alice").wallet.addTransaction(5, "gift", Transaction.Type.INCOME);
+      a.flush();
+
+      UsersRepo recovered = Journal.recover(snapshot, file);
+      assertEquals(5.0, recovered.find("alice").wallet.getBalance(), 0.0);
+      assertEquals(1, recovered.listAll().size());
+    }
+  }
+
+  @Test
+  @DisplayName(
+      "reload: снапшот, заменённый другой программой, сливается с журналом по пользователям")
+  void reload_mergesReplacedSnapshot() throws IOException {
+    Path snapshot = tmp.resolve("finance-data.json");
+    Path file = tmp.resolve("finance-data.journal");
+    try (Journal journal = Journal.openShared(snapshot, file)) {
+      UsersRepo repo = journal.getUsersRepo();
+      User alice = repo.register("alice", "A", "A", "pa");
+      journal.flush();
+      assertTrue(journal.reload().isEmpty());
+
+      // an import tool writes a data file with another user
+      UsersRepo imported = new UsersRepo();
+      imported.advanceNextId(10);
+      imported
+          .register("carol", "C", "C", "pc")
+          .wallet
+          .addTransaction(30, "gift", Transaction.Type.INCOME);
+      StorageJson.save(snapshot, imported);
+
+      assertEquals(Set.of("carol"), journal.reload());
+      assertSame(alice, repo.find("alice")); // kept from the journal, unchanged
+      assertEquals(30.0, repo.find("carol").wallet.getBalance(), 0.0);
+      assertTrue(journal.reload().isEmpty());
+
+      repo.find("carol").wallet.addTransaction(5, "food", Transaction.Type.EXPENSE);
+    }
+    UsersRepo loaded = Journal.recover(snapshot, file);
+    assertNotNull(loaded.find("alice"));
+    assertEquals(25.0, loaded.find("carol").wallet.getBalance(), 0.0);
+  }
+}
@@ -0,0 +1,68 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.IOException;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the hand-written GSON adapters of the model types.
+ *
+ * <p>Tests validate the fixed field layout, that derived state is not written and rebuilt after
+ * reading, that unknown fields are skipped and that newer format versions are rejected.
+ *
+ * @see org.example.storage.JsonAdapters
+ */
+public class JsonAdaptersTest {
+
+  private static final Gson GSON = JsonAdapters.register(new GsonBuilder()).create();
+
+  @Test
+  @DisplayName("Transaction: фиксированный порядок полей")
+  void transaction_hasStableLayout() {
+    Transaction t = new Transaction(12.5, "food", Transaction.Type.EXPENSE);
+    assertEquals("{\"amount\":12.5,\"title\":\"food\",\"type\":\"EXPENSE\"}", GSON.toJson(t));
+  }
+
+  @Test
+  @DisplayName("User: производные поля не пишутся и восстанавливаются при чтении")
+  void user_roundTrip_rebuildsDerivedSums() {
+    UsersRepo repo = new UsersRepo();
+    User alice = repo.register("alice", "A", "A", "pa");
+    alice.wallet.addTransaction(30, "food", Transaction.Type.EXPENSE);
+    alice.wallet.addTransaction(100, "salary", Transaction.Type.INCOME);
+    alice.wallet.setBudget("food", 50);
+
+    String json = GSON.toJson(alice);
+    assertFalse(json.contains("spentByCat"));
+    assertFalse(json.contains("dirty"));
+
+    User read = GSON.fromJson(json, User.class);
+    assertEquals(alice.id, read.id);
+    assertTrue(read.checkPassword("pa"));
+    assertEquals(70.0, read.wallet.getBalance(), 1e-9);
+    assertEquals(30.0, read.wallet.getSpentByCategory("food"), 1e-9);
+    assertEquals(50.0, read.wallet.getBudgets().get("food"), 1e-9);
+  }
+
+  @Test
+  @DisplayName("Неизвестные поля пропускаются, новая версия формата отклоняется")
+  void unknownFields_areSkipped_newerVersion_isRejected() {
+    Transaction t =
+        GSON.fromJson(
+            "{\"type\":\"INCOME\",\"currency\":\"EUR\",\"amount\":3.0,\"title\":\"x\"}",
+            Transaction.class);
+    assertEquals(3.0, t.amount, 1e-9);
+    assertEquals(Transaction.Type.INCOME, t.type);
+
+    assertDoesNotThrow(() -> JsonAdapters.checkVersion(JsonAdapters.FORMAT_VERSION));
+    assertThrows(
+        IOException.class, () -> JsonAdapters.checkVersion(JsonAdapters.FORMAT_VERSION + 1));
+  }
+}
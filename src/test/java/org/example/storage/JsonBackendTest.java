@@ -0,0 +1,41 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the JSON file behind the {@link StorageBackend} interface.
+ *
+ * @see org.example.storage.JsonBackend
+ */
+public class JsonBackendTest {
+
+  @TempDir Path tmp;
+
+  @Test
+  @DisplayName("save → load через StorageBackend, сохранённые пользователи помечаются чистыми")
+  void roundTrip_marksUsersClean() throws IOException {
+    StorageBackend backend = new JsonBackend(tmp.resolve("data").resolve("finance-data.json"));
+    assertFalse(backend.load().getIsPreviousDataExists());
+
+    UsersRepo repo = new UsersRepo();
+    User alice = repo.register("alice", "A", "A", "pa");
+    alice.wallet.addTransaction(10, "salary", Transaction.Type.INCOME);
+    backend.saveChanges(repo);
+    assertTrue(repo.getDirtyIds().isEmpty());
+
+    UsersRepo loaded = backend.load();
+    assertTrue(loaded.getIsPreviousDataExists());
+    assertEquals(10.0, loaded.find("alice").wallet.getBalance(), 0.0);
+    assertFalse(
+        Files.exists(AtomicFiles.tempFor(tmp.resolve("data").resolve("finance-data.json"))));
+  }
+}
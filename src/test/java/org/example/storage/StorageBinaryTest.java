@@ -0,0 +1,102 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Arrays;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the binary storage format.
+ *
+ * <p>Tests validate that:
+ *
+ * <ul>
+ *   <li><b>Round-trip:</b> Users, roles, budgets, transactions and the id counter survive save/load
+ *   <li><b>Converters:</b> JSON → binary → JSON gives back the same JSON file
+ *   <li><b>Errors:</b> Foreign and truncated files are rejected with IOException
+ * </ul>
+ *
+ * @see org.example.storage.StorageBinary
+ */
+public class StorageBinaryTest {
+
+  @TempDir Path tmp;
+
+  private static UsersRepo sampleRepo() {
+    UsersRepo repo = new UsersRepo();
+    User alice = repo.register("alice", "Алиса", "A", "pa");
+    alice.wallet.addTransaction(1000.25, "salary", Transaction.Type.INCOME);
+    alice.wallet.addTransaction(0.1, "кофе", Transaction.Type.EXPENSE);
+    alice.wallet.addTransaction(5, null, Transaction.Type.EXPENSE);
+    alice.wallet.setBudget("кофе", 30);
+    alice.wallet.setBudget("food", 300);
+    User bob = repo.register("bob", "B", null, "pb");
+    repo.addAdmin("alice", "pa", "bob");
+    bob.wallet.addTransaction(12, "salary", Transaction.Type.INCOME);
+    repo.register("carol", "C", "C", "pc");
+    repo.deleteUser("carol");
+    return repo;
+  }
+
+  @Test
+  @DisplayName("save → loadOrNew: все данные и nextId восстанавливаются")
+  void roundTrip_restoresEverything() throws IOException {
+    Path file = tmp.resolve("finance-data.bin");
+    StorageBinary.save(file, sampleRepo());
+
+    UsersRepo loaded = StorageBinary.loadOrNew(file);
+    assertTrue(loaded.getIsPreviousDataExists());
+    User alice = loaded.find("alice");
+    assertEquals("Алиса", alice.name);
+    assertTrue(alice.checkPassword("pa"));
+    assertTrue(alice.hasRole(User.Role.SUPER_ADMIN));
+    assertEquals(995.15, alice.wallet.getBalance(), 1e-9);
+    assertEquals(0.1, alice.wallet.getSpentByCategory("кофе"), 0.0);
+    assertNull(alice.wallet.transactions.get(2).title);
+    assertEquals(
+        Arrays.asList("кофе", "food"), alice.wallet.getBudgets().keySet().stream().toList());
+
+    User bob = loaded.find("bob");
+    assertNull(bob.surname);
+    assertTrue(bob.hasRole(User.Role.ADMIN));
+    assertNull(loaded.find("carol"));
+    assertEquals(4L, loaded.getNextId());
+  }
+
+  @Test
+  @DisplayName("JSON → binary → JSON: конвертация без потерь, бинарный файл меньше")
+  void converters_areLossless() throws IOException {
+    Path json = tmp.resolve("a.json");
+    Path bin = tmp.resolve("a.bin");
+    Path back = tmp.resolve("b.json");
+    StorageJson.write(json, sampleRepo());
+
+    StorageBinary.jsonToBinary(json, bin);
+    StorageBinary.binaryToJson(bin, back);
+    assertEquals(Files.readString(json), Files.readString(back));
+    assertTrue(Files.size(bin) < Files.size(json));
+  }
+
+  @Test
+  @DisplayName("loadOrNew: чужой или обрезанный файл → IOException, отсутствующий → новый")
+  void load_rejectsForeignAndTruncatedFiles() throws IOException {
+    assertFalse(StorageBinary.loadOrNew(tmp.resolve("none.bin")).getIsPreviousDataExists());
+
+    Path foreign = tmp.resolve("foreign.bin");
+    Files.writeString(foreign, "{\"users\": []}");
+    assertThrows(IOException.class, () -> StorageBinary.loadOrNew(foreign));
+
+    Path file = tmp.resolve("finance-data.bin");
+    StorageBinary.save(file, sampleRepo());
+    byte[] bytes = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+    assertThrows(IOException.class, () -> StorageBinary.loadOrNew(file));
+  }
+}
@@ -0,0 +1,108 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Benchmark of the compression ratio against the load time, not a test.
+ *
+ * <p>Runs only with {@code gradle test -Dfinance.bench=true --tests
+ * '*StorageCompressedBenchmarkTest'}:
+ *
+ * <ul>
+ *   <li><b>Data:</b> 20k users restored from a ready hash (no BCrypt), 100 transactions each with
+ *       a few categories and varying amounts
+ *   <li><b>Formats:</b> StorageJson and StorageBinary as the baseline, StorageCompressed with the
+ *       levels 0, 1, 6 (default) and 9; the file size, its ratio to JSON, save and load times are
+ *       printed
+ * </ul>
+ *
+ * @see org.example.storage.StorageCompressed
+ */
+class StorageCompressedBenchmarkTest {
+
+  private static final int USERS = 20_000;
+  private static final int TRANSACTIONS = 100;
+  private static final String[] CATEGORIES = {"food", "кофе", "transport", "rent", "salary"};
+
+  @TempDir Path tmp;
+
+  private interface Saver {
+    void save(Path file, UsersRepo usersRepo) throws IOException;
+  }
+
+  private interface Loader {
+    UsersRepo load(Path file) throws IOException;
+  }
+
+  private record Format(String name, Saver saver, Loader loader) {}
+
+  private static UsersRepo sampleRepo() {
+    UsersRepo repo = new UsersRepo();
+    for (int i = 1; i <= USERS; i++) {
+      User u = User.fromHash(i, "user" + i, "Name" + i, "Surname", "hash");
+      repo.restore(u);
+      for (int j = 0; j < TRANSACTIONS; j++) {
+        String category = CATEGORIES[(i + j) % CATEGORIES.length];
+        Transaction.Type type =
+            "salary".equals(category) ? Transaction.Type.INCOME : Transaction.Type.EXPENSE;
+        u.wallet.addTransaction((i * 31 + j * 7) % 5000 + 0.5, category, type);
+      }
+      u.wallet.setBudget("food", 1000);
+    }
+    return repo;
+  }
+
+  private static Format compressed(int level) {
+    return new Format(
+        "compressed level " + level,
+        (file, repo) -> StorageCompressed.save(file, repo, level),
+        StorageCompressed::loadOrNew);
+  }
+
+  @Test
+  @EnabledIfSystemProperty(named = "finance.bench", matches = "true")
+  @DisplayName("20k пользователей: размер файла и время загрузки по уровням сжатия")
+  void compressed_ratioVsLoadTime() throws IOException {
+    UsersRepo repo = sampleRepo();
+    List<Format> formats =
+        List.of(
+            new Format("json", StorageJson::save, StorageJson::load),
+            new Format("binary", StorageBinary::save, StorageBinary::loadOrNew),
+            compressed(0),
+            compressed(1),
+            compressed(StorageCompressed.DEFAULT_LEVEL),
+            compressed(9));
+    // the first round warms up, the second is printed
+    for (int round = 1; round <= 2; round++) {
+      long jsonBytes = 0;
+      for (Format format : formats) {
+        Path file = tmp.resolve(format.name().replace(' ', '-') + round);
+        long start = System.nanoTime();
+        format.saver().save(file, repo);
+        long saveMs = (System.nanoTime() - start) / 1_000_000;
+        start = System.nanoTime();
+        UsersRepo loaded = format.loader().load(file);
+        long loadMs = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(USERS, loaded.listAll().size(), format.name());
+        long bytes = Files.size(file);
+        if (jsonBytes == 0) jsonBytes = bytes;
+        if (round == 2) {
+          System.out.printf(
+              "%-20s %,12d bytes  %5.1f%% of json  save %5d ms  load %5d ms%n",
+              format.name(), bytes, 100.0 * bytes / jsonBytes, saveMs, loadMs);
+        }
+      }
+    }
+  }
+}
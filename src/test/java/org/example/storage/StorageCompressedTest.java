@@ -0,0 +1,108 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Arrays;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the block-compressed storage format.
+ *
+ * <p>Tests validate that:
+ *
+ * <ul>
+ *   <li><b>Round-trip:</b> Users spread over many blocks are restored with wallets and the id
+ *       counter, for every compression level
+ *   <li><b>Ratio:</b> Repetitive transactions compress well, higher levels are not larger
+ *   <li><b>Errors:</b> Truncated and damaged files are rejected with IOException
+ * </ul>
+ *
+ * @see org.example.storage.StorageCompressed
+ */
+public class StorageCompressedTest {
+
+  @TempDir Path tmp;
+
+  private static UsersRepo sampleRepo(int users) {
+    UsersRepo repo = new UsersRepo();
+    for (int i = 0; i < users; i++) {
+      User u = repo.register("user" + i, "N" + i, i % 2 == 0 ? null : "S", "p" + i);
+      for (int j = 0; j < 50; j++) {
+        u.wallet.addTransaction(j + 0.25, "кофе", Transaction.Type.EXPENSE);
+      }
+      u.wallet.addTransaction(5000, "salary", Transaction.Type.INCOME);
+      u.wallet.setBudget("кофе", 100);
+    }
+    repo.deleteUser("user3");
+    return repo;
+  }
+
+  @Test
+  @DisplayName("save → loadOrNew: много блоков, все уровни сжатия")
+  void roundTrip_everyLevel() throws IOException {
+    UsersRepo repo = sampleRepo(40);
+    for (int level = -1; level <= 9; level++) {
+      Path file = tmp.resolve("data-" + level + ".finz");
+      StorageCompressed.save(file, repo, level, 4096);
+      UsersRepo loaded = StorageCompressed.loadOrNew(file);
+      assertTrue(loaded.getIsPreviousDataExists());
+      assertEquals(39, loaded.listAll().size());
+      assertNull(loaded.find("user3"));
+      User u = loaded.find("user38");
+      assertTrue(u.checkPassword("p38"));
+      assertNull(u.surname);
+      assertEquals(5000 - 1237.5, u.wallet.getBalance(), 1e-9);
+      assertEquals(100.0, u.wallet.getBudgets().get("кофе"), 0.0);
+      assertEquals(repo.getNextId(), loaded.getNextId());
+    }
+    assertThrows(
+        IllegalArgumentException.class, () -> StorageCompressed.save(tmp.resolve("x"), repo, 10));
+    assertFalse(StorageCompressed.loadOrNew(tmp.resolve("missing")).getIsPreviousDataExists());
+  }
+
+  @Test
+  @DisplayName("Повторяющиеся транзакции сжимаются в разы")
+  void repetitiveData_compressesWell() throws IOException {
+    UsersRepo repo = sampleRepo(40);
+    Path json = tmp.resolve("data.json");
+    Path stored = tmp.resolve("stored.finz");
+    Path fast = tmp.resolve("fast.finz");
+    Path best = tmp.resolve("best.finz");
+    StorageJson.write(json, repo);
+    StorageCompressed.save(stored, repo, 0);
+    StorageCompressed.save(fast, repo, 1);
+    StorageCompressed.save(best, repo, 9);
+    assertTrue(Files.size(stored) >= Files.size(json) * 9 / 10); // level 0 only stores
+    assertTrue(Files.size(fast) * 5 < Files.size(json));
+    assertTrue(Files.size(best) <= Files.size(fast));
+  }
+
+  @Test
+  @DisplayName("Обрезанный или повреждённый файл → IOException")
+  void damagedFile_isRejected() throws IOException {
+    Path file = tmp.resolve("data.finz");
+    StorageCompressed.save(file, sampleRepo(20), 6, 2048);
+    byte[] bytes = Files.readAllBytes(file);
+
+    Path truncated = tmp.resolve("truncated.finz");
+    Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 10));
+    assertThrows(IOException.class, () -> StorageCompressed.loadOrNew(truncated));
+
+    byte[] damaged = bytes.clone();
+    damaged[bytes.length / 2] ^= 0x55;
+    Path broken = tmp.resolve("broken.finz");
+    Files.write(broken, damaged);
+    assertThrows(IOException.class, () -> StorageCompressed.loadOrNew(broken));
+
+    Path foreign = tmp.resolve("foreign.finz");
+    Files.writeString(foreign, "{\"users\":[]}");
+    assertThrows(IOException.class, () -> StorageCompressed.loadOrNew(foreign));
+  }
+}
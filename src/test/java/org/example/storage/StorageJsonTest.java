@@ -5,6 +5,8 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import org.example.model.Transaction;
+import org.example.model.User;
 import org.example.repo.UsersRepo;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -22,6 +24,8 @@ import org.junit.jupiter.api.io.TempDir;
  *   <li><b>State flag management:</b> Tracking {@code isPreviousDataExists} flag for first-run
  *       detection
  *   <li><b>Error handling:</b> Graceful handling of IOException and null arguments
+ *   <li><b>Streaming loader:</b> Roles, budgets and derived sums are rebuilt while reading
+ *   <li><b>Compact writer:</b> The data file is written without indentation, export is indented
  * </ul>
  *
  * <p>The {@code isPreviousDataExists} flag is used to determine if the first user should become
@@ -29,7 +33,8 @@ import org.junit.jupiter.api.io.TempDir;
  * repositories, it remains {@code false}.
  *
  * <p>Uses JUnit's {@code @TempDir} to provide isolated temporary directories for each test. The
- * implementation uses GSON for JSON serialization with pretty-printing enabled.
+ * implementation writes compact JSON with GSON's streaming JsonWriter; pretty-printing is only used
+ * by {@code export}.
  *
  * @see org.example.storage.StorageJson
  * @see org.example.repo.UsersRepo
@@ -121,4 +126,100 @@ public class StorageJsonTest {
   void loadOrNew_null_throwsNpe() {
     assertThrows(NullPointerException.class, () -> StorageJson.loadOrNew(null));
   }
+
+  @Test
+  @DisplayName("loadOrNew: роли, бюджеты и nextId восстанавливаются, spentByCat пересчитывается")
+  void loadOrNew_restoresRolesBudgets_andRebuildsDerivedSums() throws IOException {
+    Path file = tmp.resolve("finance-data.json");
+    UsersRepo repo = new UsersRepo();
+    repo.register("rooter", "R", "R", "r");
+    repo.register("alice", "A", "A", "pa");
+    repo.register("ghost", "G", "G", "pg");
+    repo.addAdmin("rooter", "r", "alice");
+    repo.deleteUser("ghost");
+    User alice = repo.find("alice");
+    alice.wallet.setBudget("food", 100);
+    alice.wallet.addTransaction(30, "food", Transaction.Type.EXPENSE);
+    StorageJson.save(file, repo);
+
+    // a stale spentByCat in the file (older files have it) is ignored, it is rebuilt from the
+    // transactions; the compact writer leaves it out, so it is put into alice's wallet here
+    String json = Files.readString(file, StandardCharsets.UTF_8);
+    int wallet = json.indexOf("\"wallet\":{", json.indexOf("\"login\":\"alice\""));
+    assertTrue(wallet > 0, json);
+    String stale =
+        json.substring(0, wallet)
+            + "\"wallet\":{\"spentByCat\":{\"food\":999.0},"
+            + json.substring(wallet + "\"wallet\":{".length());
+    assertNotEquals(json, stale);
+    assertTrue(stale.contains("\"spentByCat\":{\"food\":999.0}"));
+    Files.writeString(file, stale, StandardCharsets.UTF_8);
+
+    UsersRepo loaded = StorageJson.loadOrNew(file);
+    User a = loaded.find("alice");
+    assertTrue(a.hasRole(User.Role.ADMIN));
+    assertTrue(loaded.find("rooter").hasRole(User.Role.SUPER_ADMIN));
+    assertEquals(30.0, a.wallet.getSpentByCategory("food"), 1e-9);
+    assertEquals(70.0, a.wallet.getRemainingBudget("food"), 1e-9);
+    assertSame(a, loaded.findById(a.id));
+    assertEquals(4L, loaded.register("bob", "B", "B", "pb").id, "deleted id must not be reused");
+  }
+
+  @Test
+  @DisplayName("loadOrNew: формат с массивом users и userCount тоже читается")
+  void loadOrNew_readsUsersArrayLayout() throws IOException {
+    Path file = tmp.resolve("finance-data.json");
+    String hash = User.hashPassword("pa");
+    Files.writeString(
+        file,
+        "{\"userCount\": 1, \"nextId\": 7, \"users\": [{\"id\": 5, \"login\": \"alice\","
+            + " \"passwordHash\": \""
+            + hash
+            + "\", \"roles\": [\"USER\"], \"wallet\": {\"transactions\": [{\"amount\": 10.0,"
+            + " \"title\": \"salary\", \"type\": \"INCOME\"}]}}]}",
+        StandardCharsets.UTF_8);
+
+    UsersRepo loaded = StorageJson.loadOrNew(file);
+    assertTrue(loaded.getIsPreviousDataExists());
+    assertTrue(loaded.find("alice").checkPassword("pa"));
+    assertEquals(10.0, loaded.find("alice").wallet.getBalance(), 1e-9);
+    assertEquals(7L, loaded.getNextId());
+  }
+
+  @Test
+  @DisplayName("save: файл пишется компактно, без отступов и лишних полей")
+  void save_writesCompactJson() throws IOException {
+    Path file = tmp.resolve("finance-data.json");
+    UsersRepo repo = new UsersRepo();
+    User alice = repo.register("alice", "A", "A", "pa");
+    alice.wallet.addTransaction(10, "salary", Transaction.Type.INCOME);
+    alice.wallet.setBudget("food", 5);
+    StorageJson.save(file, repo);
+
+    String json = Files.readString(file, StandardCharsets.UTF_8);
+    assertFalse(json.contains("\n"));
+    assertFalse(json.contains(": "));
+    assertFalse(json.contains("spentByCat"), "derived sums are not written");
+    assertTrue(json.startsWith("{\"formatVersion\":1,\"userCount\":1,\"nextId\":2,\"users\":["));
+
+    UsersRepo loaded = StorageJson.loadOrNew(file);
+    assertEquals(10.0, loaded.find("alice").wallet.getBalance(), 1e-9);
+    assertEquals(5.0, loaded.find("alice").wallet.getBudgets().get("food"), 1e-9);
+  }
+
+  @Test
+  @DisplayName("export: читаемый JSON с отступами, который можно загрузить обратно")
+  void export_isPrettyAndLoadable() throws IOException {
+    Path file = tmp.resolve("export").resolve("finance-data.json");
+    UsersRepo repo = new UsersRepo();
+    repo.register("alice", "A", "A", "pa");
+    repo.register("bob", "B", "B", "pb");
+    StorageJson.export(file, repo);
+
+    String json = Files.readString(file, StandardCharsets.UTF_8);
+    assertTrue(json.contains("\n  \"users\": ["));
+    UsersRepo loaded = StorageJson.loadOrNew(file);
+    assertNotNull(loaded.find("alice"));
+    assertTrue(loaded.find("bob").checkPassword("pb"));
+  }
 }
@@ -0,0 +1,108 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the storage with lazily loaded wallets.
+ *
+ * <p>Tests validate that:
+ *
+ * <ul>
+ *   <li><b>Startup:</b> Only user headers and aggregates are loaded, no transactions
+ *   <li><b>Hydration:</b> A wallet's transactions are loaded on first access, only for that wallet
+ *   <li><b>Save:</b> Untouched wallets are copied to the new data file and stay lazy, the old data
+ *       file is removed
+ * </ul>
+ *
+ * @see org.example.storage.StorageLazy
+ * @see org.example.storage.LazyTransactions
+ */
+public class StorageLazyTest {
+
+  @TempDir Path tmp;
+
+  private void saveSample() throws IOException {
+    try (StorageLazy storage = StorageLazy.open(tmp)) {
+      UsersRepo repo = storage.getUsersRepo();
+      for (String login : new String[] {"alice", "bob", "carol"}) {
+        User u = repo.register(login, "N", "S", "p" + login);
+        u.wallet.addTransaction(100, "salary", Transaction.Type.INCOME);
+        u.wallet.addTransaction(40, "food", Transaction.Type.EXPENSE);
+        u.wallet.setBudget("food", 30);
+      }
+      storage.save();
+    }
+  }
+
+  @Test
+  @DisplayName("open: кошельки не загружаются, итоги и бюджеты доступны сразу")
+  void open_loadsHeadersOnly() throws IOException {
+    saveSample();
+    try (StorageLazy storage = StorageLazy.open(tmp)) {
+      UsersRepo repo = storage.getUsersRepo();
+      assertTrue(repo.getIsPreviousDataExists());
+      assertEquals(0, storage.getHydratedCount());
+
+      User alice = repo.find("alice");
+      assertTrue(alice.checkPassword("palice"));
+      assertTrue(alice.hasRole(User.Role.SUPER_ADMIN));
+      assertEquals(60.0, alice.wallet.getBalance(), 1e-9);
+      assertEquals(-10.0, alice.wallet.getRemainingBudget("food"), 1e-9);
+      assertEquals(2, alice.wallet.transactions.size());
+      assertEquals(0, storage.getHydratedCount());
+
+      assertEquals("food", alice.wallet.transactions.get(1).title);
+      assertEquals(1, storage.getHydratedCount());
+    }
+  }
+
+  @Test
+  @DisplayName("Перевод загружает только кошельки отправителя и получателя")
+  void transfer_hydratesOnlyBothWallets() throws IOException {
+    saveSample();
+    try (StorageLazy storage = StorageLazy.open(tmp)) {
+      UsersRepo repo = storage.getUsersRepo();
+      repo.transfer("alice", "bob", 10, "gift");
+      assertEquals(2, storage.getHydratedCount());
+      assertEquals(70.0, repo.find("bob").wallet.getBalance(), 1e-9);
+    }
+  }
+
+  @Test
+  @DisplayName("save: нетронутые кошельки копируются и остаются ленивыми, данные сохраняются")
+  void save_copiesUntouchedWallets() throws IOException {
+    saveSample();
+    try (StorageLazy storage = StorageLazy.open(tmp)) {
+      UsersRepo repo = storage.getUsersRepo();
+      repo.find("bob").wallet.addTransaction(5, "coffee", Transaction.Type.EXPENSE);
+      repo.register("dave", "D", "D", "pd").wallet.addTransaction(1, "x", Transaction.Type.INCOME);
+      repo.deleteUser("carol");
+      storage.save();
+      assertFalse(Files.exists(tmp.resolve(StorageLazy.dataName(1))));
+      assertTrue(Files.exists(tmp.resolve(StorageLazy.dataName(2))));
+
+      // alice was copied without loading and is read from the new file
+      assertEquals(2, storage.getHydratedCount()); // bob and the new user
+      assertEquals("salary", repo.find("alice").wallet.transactions.get(0).title);
+      storage.save();
+    }
+    try (StorageLazy storage = StorageLazy.open(tmp)) {
+      UsersRepo repo = storage.getUsersRepo();
+      assertNull(repo.find("carol"));
+      assertEquals(3, repo.find("bob").wallet.transactions.size());
+      assertEquals("coffee", repo.find("bob").wallet.transactions.get(2).title);
+      assertEquals(1.0, repo.find("dave").wallet.getBalance(), 1e-9);
+      assertEquals(60.0, repo.find("alice").wallet.getBalance(), 1e-9);
+      assertEquals(5L, repo.getNextId());
+    }
+  }
+}
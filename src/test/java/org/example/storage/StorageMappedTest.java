@@ -0,0 +1,105 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the memory-mapped transaction storage.
+ *
+ * <p>Tests validate that:
+ *
+ * <ul>
+ *   <li><b>Round-trip:</b> Wallets of new users are moved to mapped segments on save and read back
+ *       after reopening
+ *   <li><b>Appends:</b> Transactions of a loaded wallet are written to its mapped segment
+ *   <li><b>Aggregates:</b> Totals come from users.json and are rebuilt when a segment has more
+ *       transactions than users.json expects
+ *   <li><b>Deletes:</b> Segments of deleted users are removed
+ * </ul>
+ *
+ * @see org.example.storage.StorageMapped
+ * @see org.example.storage.MappedTransactions
+ */
+public class StorageMappedTest {
+
+  @TempDir Path tmp;
+
+  @Test
+  @DisplayName("open/save/open: транзакции читаются из отображённых сегментов")
+  void roundTrip_mapsSegments() throws IOException {
+    try (StorageMapped storage = StorageMapped.open(tmp)) {
+      UsersRepo repo = storage.getUsersRepo();
+      assertFalse(repo.getIsPreviousDataExists());
+      User alice = repo.register("alice", "A", "A", "pa");
+      alice.wallet.addTransaction(100, "salary", Transaction.Type.INCOME);
+      alice.wallet.addTransaction(30, "food", Transaction.Type.EXPENSE);
+      alice.wallet.addTransaction(2.5, null, Transaction.Type.EXPENSE);
+      alice.wallet.setBudget("food", 20);
+      storage.save();
+    }
+    assertTrue(Files.exists(tmp.resolve(StorageMapped.TX_DIR).resolve("1.tx")));
+
+    try (StorageMapped storage = StorageMapped.open(tmp)) {
+      User alice = storage.getUsersRepo().find("alice");
+      assertTrue(alice.wallet.transactions instanceof MappedTransactions);
+      assertEquals(3, alice.wallet.transactions.size());
+      assertEquals("food", alice.wallet.transactions.get(1).title);
+      assertNull(alice.wallet.transactions.get(2).title);
+      assertEquals(67.5, alice.wallet.getBalance(), 1e-9);
+      assertEquals(32.5, alice.wallet.sumExpense(), 1e-9);
+      assertEquals(-10.0, alice.wallet.getRemainingBudget("food"), 1e-9);
+      assertTrue(alice.checkPassword("pa"));
+    }
+  }
+
+  @Test
+  @DisplayName("Новые транзакции загруженного кошелька пишутся в сегмент, итоги пересчитываются")
+  void appends_goToSegment_andStaleTotalsAreRebuilt() throws IOException {
+    try (StorageMapped storage = StorageMapped.open(tmp)) {
+      storage.getUsersRepo().register("alice", "A", "A", "pa");
+      storage.save();
+    }
+    try (StorageMapped storage = StorageMapped.open(tmp)) {
+      User alice = storage.getUsersRepo().find("alice");
+      for (int i = 0; i < 200; i++) { // more than the initial mapping
+        alice.wallet.addTransaction(1, "t" + (i % 3), Transaction.Type.INCOME);
+      }
+      // no save(): users.json still expects an empty wallet
+    }
+    try (StorageMapped storage = StorageMapped.open(tmp)) {
+      User alice = storage.getUsersRepo().find("alice");
+      assertEquals(200, alice.wallet.transactions.size());
+      assertEquals(200.0, alice.wallet.getBalance(), 1e-9);
+      assertEquals(67.0, alice.wallet.incomesByCategory().get("t0"), 1e-9);
+      assertEquals("t1", alice.wallet.transactions.get(199).title);
+    }
+  }
+
+  @Test
+  @DisplayName("save: сегмент удалённого пользователя удаляется, nextId сохраняется")
+  void save_removesSegmentsOfDeletedUsers() throws IOException {
+    try (StorageMapped storage = StorageMapped.open(tmp)) {
+      UsersRepo repo = storage.getUsersRepo();
+      repo.register("alice", "A", "A", "pa");
+      repo.register("bob", "B", "B", "pb").wallet.addTransaction(5, "x", Transaction.Type.INCOME);
+      storage.save();
+    }
+    try (StorageMapped storage = StorageMapped.open(tmp)) {
+      storage.getUsersRepo().deleteUser("bob");
+      storage.save();
+    }
+    assertFalse(Files.exists(tmp.resolve(StorageMapped.TX_DIR).resolve("2.tx")));
+    try (StorageMapped storage = StorageMapped.open(tmp)) {
+      assertNull(storage.getUsersRepo().find("bob"));
+      assertEquals(3L, storage.getUsersRepo().getNextId());
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the segmented incremental storage.
+ *
+ * <p>Tests validate that:
+ *
+ * <ul>
+ *   <li><b>Dirty tracking:</b> UsersRepo remembers the users changed since the last save
+ *   <li><b>Incremental save:</b> Only segments with changed or deleted users are rewritten
+ *   <li><b>Full save:</b> Segment files of an older layout are removed, deleted users stay deleted
+ *   <li><b>Round-trip:</b> All segments are loaded back, id counter is preserved
+ * </ul>
+ *
+ * @see org.example.storage.StorageSegments
+ */
+public class StorageSegmentsTest {
+
+  @TempDir Path tmp;
+
+  @Test
+  @DisplayName("save: первый раз пишутся все сегменты, потом только изменённые")
+  void save_rewritesOnlyChangedSegments() throws IOException {
+    UsersRepo repo = new UsersRepo();
+    for (int i = 0; i < 5; i++) {
+      repo.register("user" + i, "U", "U", "p"); // ids 1..5
+    }
+    assertEquals(5, repo.getDirtyIds().size());
+
+    // segment size 2: ids 1 | 2,3 | 4,5
+    assertEquals(3, StorageSegments.save(tmp, repo, 2));
+    assertTrue(repo.getDirtyIds().isEmpty());
+    assertTrue(Files.exists(tmp.resolve(StorageSegments.segmentName(0))));
+    assertTrue(Files.exists(tmp.resolve(StorageSegments.segmentName(2))));
+
+    // nothing changed → nothing written
+    assertEquals(0, StorageSegments.save(tmp, repo, 2));
+
+    User u3 = repo.find("user2");
+    u3.wallet.addTransaction(10, "food", Transaction.Type.EXPENSE);
+    assertTrue(repo.getDirtyIds().contains(u3.id));
+    assertEquals(1, StorageSegments.save(tmp, repo, 2));
+    assertFalse(repo.getDirtyIds().contains(u3.id));
+  }
+
+  @Test
+  @DisplayName("save/load: удаления и изменения видны после загрузки, nextId сохраняется")
+  void roundTrip_withDeletes() throws IOException {
+    UsersRepo repo = new UsersRepo();
+    repo.register("alice", "A", "A", "pa");
+    repo.register("bob", "B", "B", "pb");
+    repo.register("carol", "C", "C", "pc");
+    StorageSegments.save(tmp, repo, 2);
+
+    repo.transfer("alice", "bob", 25, "gift");
+    repo.deleteUser("carol");
+    assertEquals(2, StorageSegments.save(tmp, repo, 2));
+    // segment 1 (ids 2,3) is rewritten without carol, bob is still there
+    assertTrue(Files.exists(tmp.resolve(StorageSegments.segmentName(1))));
+
+    UsersRepo loaded = StorageSegments.loadOrNew(tmp);
+    assertTrue(loaded.getIsPreviousDataExists());
+    assertNull(loaded.find("carol"));
+    assertEquals(-25.0, loaded.find("alice").wallet.getBalance(), 1e-9);
+    assertEquals(25.0, loaded.find("bob").wallet.getBalance(), 1e-9);
+    assertTrue(loaded.find("bob").checkPassword("pb"));
+    assertTrue(loaded.getDirtyIds().isEmpty());
+    assertEquals(4L, loaded.register("dave", "D", "D", "pd").id);
+  }
+
+  @Test
+  @DisplayName("save: смена размера сегмента удаляет старые файлы, удалённые не возвращаются")
+  void fullSave_removesSegmentsOfOldLayout() throws IOException {
+    UsersRepo repo = new UsersRepo();
+    for (int i = 0; i < 5; i++) {
+      repo.register("user" + i, "U", "U", "p"); // ids 1..5
+    }
+    StorageSegments.save(tmp, repo, 2); // ids 1 | 2,3 | 4,5
+    repo.deleteUser("user3");
+    repo.deleteUser("user4");
+
+    // size 4: ids 1,2,3 in segment 0, segments 1 and 2 of the old layout are removed
+    assertEquals(3, StorageSegments.save(tmp, repo, 4));
+    assertFalse(Files.exists(tmp.resolve(StorageSegments.segmentName(1))));
+    assertFalse(Files.exists(tmp.resolve(StorageSegments.segmentName(2))));
+
+    UsersRepo loaded = StorageSegments.loadOrNew(tmp);
+    assertEquals(3, loaded.listAll().size());
+    assertNull(loaded.find("user3"));
+    assertNull(loaded.find("user4"));
+  }
+
+  @Test
+  @DisplayName("loadOrNew: пустая директория → новый UsersRepo")
+  void load_emptyDir_returnsNewRepo() throws IOException {
+    UsersRepo repo = StorageSegments.loadOrNew(tmp);
+    assertFalse(repo.getIsPreviousDataExists());
+    assertTrue(repo.listAll().isEmpty());
+  }
+}
@@ -0,0 +1,151 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+import java.util.stream.Stream;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the sharded storage.
+ *
+ * <p>Tests validate that:
+ *
+ * <ul>
+ *   <li><b>Round-trip:</b> Users spread over several shards are merged back with their wallets and
+ *       the id counter
+ *   <li><b>Partitioning:</b> Every shard file holds only the users of its hash bucket
+ *   <li><b>Resharding:</b> Saving with another shard count removes the old shard files
+ *   <li><b>Commit point:</b> A save interrupted before the manifest keeps the previous generation,
+ *       the layout without generations is still loaded
+ * </ul>
+ *
+ * @see org.example.storage.StorageSharded
+ */
+public class StorageShardedTest {
+
+  @TempDir Path tmp;
+
+  private static UsersRepo sampleRepo(int users) {
+    UsersRepo repo = new UsersRepo();
+    for (int i = 0; i < users; i++) {
+      User u = repo.register("user" + i, "N" + i, "S" + i, "p" + i);
+      u.wallet.addTransaction(100 + i, "salary", Transaction.Type.INCOME);
+      u.wallet.addTransaction(i, "кофе", Transaction.Type.EXPENSE);
+      u.wallet.setBudget("кофе", 50);
+    }
+    return repo;
+  }
+
+  private static List<String> shardFiles(Path dir) throws IOException {
+    try (Stream<Path> s = Files.list(dir)) {
+      return s.map(p -> p.getFileName().toString())
+          .filter(n -> n.startsWith("shard-"))
+          .sorted()
+          .toList();
+    }
+  }
+
+  @Test
+  @DisplayName("save → loadOrNew: пользователи из всех шардов объединяются")
+  void roundTrip_mergesShards() throws IOException {
+    UsersRepo repo = sampleRepo(50);
+    repo.deleteUser("user7");
+    StorageSharded.save(tmp, repo, 4);
+    assertEquals(4, shardFiles(tmp).size());
+
+    UsersRepo loaded = StorageSharded.loadOrNew(tmp);
+    assertTrue(loaded.getIsPreviousDataExists());
+    assertEquals(49, loaded.listAll().size());
+    assertNull(loaded.find("user7"));
+    User u = loaded.find("user42");
+    assertTrue(u.checkPassword("p42"));
+    assertEquals(100.0, u.wallet.getBalance(), 1e-9);
+    assertEquals(42.0, u.wallet.getSpentByCategory("кофе"), 0.0);
+    assertEquals(50.0, u.wallet.getBudgets().get("кофе"), 0.0);
+    assertEquals(repo.getNextId(), loaded.getNextId());
+  }
+
+  @Test
+  @DisplayName("каждый шард содержит только своих пользователей")
+  void shards_holdTheirBucketOnly() throws IOException {
+    StorageSharded.save(tmp, sampleRepo(40), 3);
+    int total = 0;
+    for (int i = 0; i < 3; i++) {
+      UsersRepo part = StorageJson.loadOrNew(tmp.resolve(StorageSharded.shardName(i, 3, 1)));
+      for (User u : part.listAll()) {
+        assertEquals(i, StorageSharded.shardOf(u.id, 3));
+      }
+      total += part.listAll().size();
+    }
+    assertEquals(40, total);
+  }
+
+  @Test
+  @DisplayName("сохранение с другим числом шардов удаляет старые файлы; пустой каталог → новый")
+  void reshard_removesOldFiles() throws IOException {
+    assertFalse(StorageSharded.loadOrNew(tmp).getIsPreviousDataExists());
+    UsersRepo repo = sampleRepo(10);
+    StorageSharded.save(tmp, repo, 5);
+    StorageSharded.save(tmp, repo, 2);
+    assertEquals(
+        List.of(StorageSharded.shardName(0, 2, 2), StorageSharded.shardName(1, 2, 2)),
+        shardFiles(tmp));
+    assertEquals(10, StorageSharded.loadOrNew(tmp).listAll().size());
+  }
+
+  @Test
+  @DisplayName("сбой до записи манифеста: читается прежнее поколение, следующее сохранение чистит")
+  void interruptedSave_keepsPreviousGeneration() throws IOException {
+    UsersRepo repo = sampleRepo(10);
+    StorageSharded.save(tmp, repo, 2);
+    // a save of generation 2 that wrote one shard (half of it) and died
+    Files.writeString(tmp.resolve(StorageSharded.shardName(0, 3, 2)), "{\"users\": [");
+
+    UsersRepo loaded = StorageSharded.loadOrNew(tmp);
+    assertEquals(10, loaded.listAll().size());
+    loaded.deleteUser("user4");
+    StorageSharded.save(tmp, loaded, 3);
+    assertEquals(
+        List.of(
+            StorageSharded.shardName(0, 3, 2),
+            StorageSharded.shardName(1, 3, 2),
+            StorageSharded.shardName(2, 3, 2)),
+        shardFiles(tmp));
+    assertNull(StorageSharded.loadOrNew(tmp).find("user4"));
+    assertEquals(9, StorageSharded.loadOrNew(tmp).listAll().size());
+  }
+
+  @Test
+  @DisplayName("каталог без поколений (generation 0) загружается и переписывается в поколение 1")
+  void layoutWithoutGenerations_isLoaded() throws IOException {
+    UsersRepo repo = sampleRepo(6);
+    List<User> users = repo.listAll();
+    for (int i = 0; i < 2; i++) {
+      UsersRepo part = new UsersRepo();
+      for (User u : users) {
+        if (StorageSharded.shardOf(u.id, 2) == i) part.restore(u);
+      }
+      StorageJson.save(tmp.resolve(StorageSharded.shardName(i, 2, 0)), part);
+    }
+    Files.writeString(
+        tmp.resolve(StorageSharded.MANIFEST),
+        "{\"formatVersion\": 1, \"shards\": 2, \"nextId\": " + repo.getNextId() + "}");
+
+    UsersRepo loaded = StorageSharded.loadOrNew(tmp);
+    assertEquals(6, loaded.listAll().size());
+    assertEquals(repo.getNextId(), loaded.getNextId());
+    StorageSharded.save(tmp, loaded, 2);
+    assertEquals(
+        List.of(StorageSharded.shardName(0, 2, 1), StorageSharded.shardName(1, 2, 1)),
+        shardFiles(tmp));
+    assertEquals(6, StorageSharded.loadOrNew(tmp).listAll().size());
+  }
+}
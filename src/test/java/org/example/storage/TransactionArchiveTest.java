@@ -0,0 +1,152 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.model.Wallet;
+import org.example.repo.UsersRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the TransactionArchive (cold segments of old transactions).
+ *
+ * <ul>
+ *   <li><b>Archival:</b> Old transactions leave the heap, aggregates stay exactly the same
+ *   <li><b>Paging:</b> Archived transactions are read back by index, by iteration and by range;
+ *       the CSV export of an archived wallet in many parallel blocks is that of the whole list
+ *   <li><b>Data file:</b> Archived wallets are referenced from the data file next to the archive,
+ *       other copies get the transactions inline
+ *   <li><b>Journal:</b> The final checkpoint archives before writing the snapshot
+ * </ul>
+ *
+ * @see org.example.storage.TransactionArchive
+ */
+public class TransactionArchiveTest {
+
+  @TempDir Path tmp;
+
+  private static List<Transaction> fill(Wallet w, int n) {
+    for (int i = 0; i < n; i++) {
+      Transaction.Type type = i % 3 == 0 ? Transaction.Type.INCOME : Transaction.Type.EXPENSE;
+      w.addTransaction(0.1 * (i % 97) + 0.01, i % 50 == 0 ? null : "cat" + (i % 13), type);
+    }
+    return new ArrayList<>(w.transactions);
+  }
+
+  private static void assertSameTransactions(List<Transaction> expected, List<Transaction> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Transaction e = expected.get(i);
+      Transaction a = actual.get(i);
+      assertEquals(e.amount, a.amount, 0.0, "amount at " + i);
+      assertEquals(e.title, a.title, "title at " + i);
+      assertEquals(e.type, a.type, "type at " + i);
+    }
+  }
+
+  @Test
+  @DisplayName("archive: старые транзакции уходят в архив, агрегаты совпадают бит в бит")
+  void archive_keepsRecentAndExactTotals() throws IOException {
+    UsersRepo repo = new UsersRepo();
+    User alice = repo.register("alice", "A", "A", "pa");
+    List<Transaction> all = fill(alice.wallet, 9000);
+    alice.wallet.setBudget("cat1", 50);
+    repo.register("bob", "B", "B", "pb").wallet.addTransaction(5, "x", Transaction.Type.INCOME);
+    Wallet.Totals before = alice.wallet.totals();
+
+    Path archive = tmp.resolve("finance-data.archive");
+    assertEquals(8192, TransactionArchive.archive(archive, repo, 100));
+
+    User now = repo.find("alice");
+    assertNotSame(alice, now);
+    ColdTransactions cold = assertInstanceOf(ColdTransactions.class, now.wallet.transactions);
+    assertEquals(8192, cold.coldCount());
+    assertEquals(808, cold.hot().size());
+    assertEquals(before, now.wallet.totals());
+    assertEquals(50.0, now.wallet.getBudgets().get("cat1"), 0.0);
+    assertEquals(all.get(5000).amount, now.wallet.transactions.get(5000).amount, 0.0);
+    assertSameTransactions(all, now.wallet.transactions);
+    assertEquals(now.wallet.totals(), now.wallet.computeTotals());
+
+    // a new transaction goes to the heap part, the next archival appends to the archive
+    now.wallet.addTransaction(3, "late", Transaction.Type.EXPENSE);
+    assertEquals(0, TransactionArchive.archive(archive, repo, 100));
+    assertEquals(9001, repo.find("alice").wallet.transactions.size());
+  }
+
+  @Test
+  @DisplayName("StorageJson: архивные кошельки ссылаются на архив, экспорт пишет всё целиком")
+  void dataFile_referencesArchiveAndExportIsInline() throws IOException {
+    Path file = tmp.resolve("finance-data.json");
+    UsersRepo repo = new UsersRepo();
+    List<Transaction> all = fill(repo.register("alice", "A", "A", "pa").wallet, 5000);
+    Wallet.Totals before = repo.find("alice").wallet.totals();
+    TransactionArchive.archive(TransactionArchive.fileFor(file), repo, 0);
+    StorageJson.save(file, repo);
+
+    String json = Files.readString(file, StandardCharsets.UTF_8);
+    assertTrue(json.startsWith("{\"formatVersion\":2,"));
+    assertTrue(json.contains("\"archive\":\"finance-data.archive\""));
+    UsersRepo loaded = StorageJson.loadOrNew(file);
+    Wallet w = loaded.find("alice").wallet;
+    assertEquals(4096, assertInstanceOf(ColdTransactions.class, w.transactions).coldCount());
+    assertEquals(before, w.totals());
+    assertSameTransactions(all, w.transactions);
+
+    Path copy = tmp.resolve("export").resolve("copy.json");
+    StorageJson.export(copy, loaded);
+    assertFalse(Files.readString(copy, StandardCharsets.UTF_8).contains("\"cold\""));
+    UsersRepo exported = StorageJson.loadOrNew(copy);
+    assertInstanceOf(ArrayList.class, exported.find("alice").wallet.transactions);
+    assertSameTransactions(all, exported.find("alice").wallet.transactions);
+  }
+
+  @Test
+  @DisplayName("range/CsvExport: диапазоны через сегменты и кучу, экспорт архивного кошелька")
+  void range_readsAcrossSegmentsAndExportMatches() throws IOException {
+    UsersRepo repo = new UsersRepo();
+    List<Transaction> all = fill(repo.register("alice", "A", "A", "pa").wallet, 9000);
+    TransactionArchive.archive(tmp.resolve("finance-data.archive"), repo, 100);
+    User alice = repo.find("alice");
+    ColdTransactions cold = assertInstanceOf(ColdTransactions.class, alice.wallet.transactions);
+
+    int[][] ranges = {{0, 0}, {0, 9000}, {4000, 4200}, {4096, 8192}, {8100, 8300}, {8500, 9000}};
+    for (int[] r : ranges) {
+      assertSameTransactions(all.subList(r[0], r[1]), cold.range(r[0], r[1]));
+    }
+    assertThrows(IndexOutOfBoundsException.class, () -> cold.range(10, 9001));
+
+    Path expected = tmp.resolve("expected.csv");
+    Path actual = tmp.resolve("actual.csv");
+    UsersRepo heap = new UsersRepo();
+    heap.register("alice", "A", "A", "pa").wallet.addTransactions(all);
+    CsvExport.export(expected, heap.listAll(), CsvExport.Filter.ALL, 1000);
+    assertEquals(9000, CsvExport.export(actual, List.of(alice), CsvExport.Filter.ALL, 1000));
+    assertEquals(Files.readAllLines(expected), Files.readAllLines(actual));
+  }
+
+  @Test
+  @DisplayName("Journal: последний checkpoint архивирует перед записью снапшота")
+  void journalCheckpoint_archivesOldTransactions() throws IOException {
+    Path snapshot = tmp.resolve("finance-data.json");
+    Path file = tmp.resolve("finance-data.journal");
+    List<Transaction> all;
+    try (Journal journal = Journal.openShared(snapshot, file)) {
+      journal.setArchive(TransactionArchive.fileFor(snapshot), 10);
+      all = fill(journal.getUsersRepo().register("alice", "A", "A", "pa").wallet, 4200);
+    }
+    assertTrue(Files.exists(tmp.resolve("finance-data.archive")));
+    UsersRepo recovered = Journal.recover(snapshot, file);
+    Wallet w = recovered.find("alice").wallet;
+    assertEquals(104, assertInstanceOf(ColdTransactions.class, w.transactions).hot().size());
+    assertSameTransactions(all, w.transactions);
+  }
+}
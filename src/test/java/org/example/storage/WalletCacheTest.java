@@ -0,0 +1,94 @@
+package org.example.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import org.example.model.Transaction;
+import org.example.model.User;
+import org.example.repo.UsersRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the LRU cache of loaded wallets.
+ *
+ * <p>Tests validate that least recently used wallets are evicted once the byte budget is exceeded,
+ * that unsaved transactions are written before eviction and survive reloading, and that
+ * hit/miss/eviction counters are maintained.
+ *
+ * @see org.example.storage.WalletCache
+ * @see org.example.storage.StorageLazy
+ */
+public class WalletCacheTest {
+
+  @TempDir Path tmp;
+
+  // every wallet holds two transactions: 64 + 2 * 40 = 144 bytes when loaded
+  private static final long TWO_WALLETS =
+      2 * (WalletCache.WALLET_BYTES + 2 * WalletCache.TRANSACTION_BYTES);
+
+  private void saveSample() throws IOException {
+    try (StorageLazy storage = StorageLazy.open(tmp)) {
+      UsersRepo repo = storage.getUsersRepo();
+      for (String login : new String[] {"alice", "bob", "carol"}) {
+        User u = repo.register(login, "N", "S", "p");
+        u.wallet.addTransaction(100, "salary", Transaction.Type.INCOME);
+        u.wallet.addTransaction(40, "food", Transaction.Type.EXPENSE);
+      }
+      storage.save();
+    }
+  }
+
+  // reading one transaction loads the wallet
+  private static void touch(UsersRepo repo, String login) {
+    assertNotNull(repo.find(login).wallet.transactions.get(0));
+  }
+
+  @Test
+  @DisplayName("Бюджет превышен → вытесняется давно не использованный кошелёк")
+  void leastRecentlyUsed_isEvicted() throws IOException {
+    saveSample();
+    try (StorageLazy storage = StorageLazy.open(tmp, TWO_WALLETS)) {
+      UsersRepo repo = storage.getUsersRepo();
+      WalletCache cache = storage.getCache();
+      touch(repo, "alice");
+      touch(repo, "bob");
+      touch(repo, "alice"); // bob is now the least recently used
+      touch(repo, "carol");
+
+      assertEquals(3, cache.getMisses());
+      assertEquals(1, cache.getHits());
+      assertEquals(1, cache.getEvictions());
+      assertEquals(2, cache.getLoadedWallets());
+      assertTrue(cache.getUsedBytes() <= TWO_WALLETS);
+      assertFalse(((LazyTransactions) repo.find("bob").wallet.transactions).isHydrated());
+      assertTrue(((LazyTransactions) repo.find("alice").wallet.transactions).isHydrated());
+    }
+  }
+
+  @Test
+  @DisplayName("Несохранённые транзакции пишутся перед вытеснением и не теряются")
+  void dirtyWallet_isFlushedBeforeEviction() throws IOException {
+    saveSample();
+    try (StorageLazy storage = StorageLazy.open(tmp, TWO_WALLETS)) {
+      UsersRepo repo = storage.getUsersRepo();
+      repo.find("bob").wallet.addTransaction(7, "coffee", Transaction.Type.EXPENSE);
+      touch(repo, "alice");
+      touch(repo, "carol"); // evicts bob
+
+      WalletCache cache = storage.getCache();
+      assertEquals(1, cache.getFlushes());
+      User bob = repo.find("bob");
+      assertEquals(3, bob.wallet.transactions.size());
+      assertEquals("coffee", bob.wallet.transactions.get(2).title); // loaded again
+      storage.save();
+    }
+    try (StorageLazy storage = StorageLazy.open(tmp)) {
+      User bob = storage.getUsersRepo().find("bob");
+      assertEquals(3, bob.wallet.transactions.size());
+      assertEquals(53.0, bob.wallet.getBalance(), 1e-9);
+    }
+  }
+}
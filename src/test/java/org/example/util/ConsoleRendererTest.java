@@ -0,0 +1,118 @@
+package org.example.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the buffered console renderer of large reports.
+ *
+ * <p>Tests validate that:
+ *
+ * <ul>
+ *   <li><b>Tables:</b> Right-aligned numbers, left-aligned text cut with '~', no trailing spaces in
+ *       the last column, amounts with two decimals (no exponent), a rule as wide as the table
+ *   <li><b>Buffer:</b> Nothing is written before flush, large output goes out in chunks of about
+ *       FLUSH_CHARS, one flush per chunk, the same buffer is reused after a flush
+ *   <li><b>Speed:</b> 100k table rows are rendered to an auto-flushing stream in well under a
+ *       second
+ * </ul>
+ *
+ * @see org.example.util.ConsoleRenderer
+ */
+public class ConsoleRendererTest {
+
+  private static final String NL = System.lineSeparator();
+
+  // counts the flushes of the stream
+  private static final class CountingStream extends PrintStream {
+    int flushes = 0;
+
+    CountingStream(OutputStream out) {
+      super(out, true, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void flush() {
+      flushes++;
+      super.flush();
+    }
+  }
+
+  @Test
+  @DisplayName("table: выравнивание, обрезка, суммы с двумя знаками")
+  void table_alignsCutsAndFormatsAmounts() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ConsoleRenderer r = new ConsoleRenderer(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+    r.table(4, -6, 12, -5).header("#", "Type", "Amount", "Title");
+    r.cell(1).cell("INCOME").cell(10_000_000.0).cell("зарплата").endRow();
+    r.cell(22).cell("X").cell(-0.005).cell("abc").endRow();
+    r.cell(333).cell("EXPENSE").cell(2.5).cell(null).endRow();
+    r.line("done");
+    assertEquals(0, bytes.size(), "Nothing is written before flush.");
+    r.flush();
+
+    String expected =
+        String.join(
+            NL,
+            "   #" + "  " + "Type  " + "  " + "      Amount" + "  " + "Title",
+            "-".repeat(33),
+            "   1" + "  " + "INCOME" + "  " + " 10000000.00" + "  " + "зарп~",
+            "  22" + "  " + "X     " + "  " + "        0.00" + "  " + "abc",
+            " 333" + "  " + "EXPEN~" + "  " + "        2.50",
+            "done",
+            "");
+    assertEquals(expected, bytes.toString(StandardCharsets.UTF_8));
+    assertThrows(
+        IllegalStateException.class, () -> r.cell(1).cell("a").cell(1.0).cell("b").cell(2));
+    assertThrows(IllegalArgumentException.class, () -> r.table(5, 0));
+  }
+
+  @Test
+  @DisplayName("flush: большой вывод пишется крупными кусками")
+  void largeOutput_isWrittenInChunks() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CountingStream stream = new CountingStream(bytes);
+    ConsoleRenderer r = new ConsoleRenderer(stream);
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 20_000; i++) {
+      r.text("line ").text(i).newline();
+      expected.append("line ").append(i).append(NL);
+    }
+    r.flush();
+    r.flush(); // nothing left, no write
+    assertEquals(expected.toString(), bytes.toString(StandardCharsets.UTF_8));
+    int chunks = expected.length() / ConsoleRenderer.FLUSH_CHARS + 1;
+    assertTrue(stream.flushes <= chunks + 1, "flushes: " + stream.flushes);
+
+    r.line("again");
+    assertEquals("again" + NL, r.pending());
+  }
+
+  @Test
+  @DisplayName("100k строк таблицы — миллисекунды")
+  void hundredThousandRows_renderFast() {
+    CountingStream stream = new CountingStream(OutputStream.nullOutputStream());
+    ConsoleRenderer r = new ConsoleRenderer(stream);
+    // warm-up, then the measured run
+    for (int round = 0; round < 2; round++) {
+      long start = System.nanoTime();
+      r.table(8, -7, 14, -40).header("#", "Type", "Amount", "Title");
+      for (int i = 0; i < 100_000; i++) {
+        r.cell(i).cell("EXPENSE").cell(i * 1.25).cell("coffee and a sandwich").endRow();
+      }
+      r.flush();
+      long millis = (System.nanoTime() - start) / 1_000_000;
+      if (round == 1) {
+        System.out.println("100k rows rendered in " + millis + " ms");
+        assertTrue(millis < 1_000, "100k rows took " + millis + " ms");
+      }
+    }
+    assertTrue(stream.flushes < 200, "flushes: " + stream.flushes);
+  }
+}